@@ -0,0 +1,36 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Makes (group_id_txt, artifact_id_txt) unique in profiler.artifacts, merging any duplicates
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.0');
+
+CREATE TEMPORARY TABLE artifact_duplicates ON COMMIT DROP AS
+  SELECT artifact_id, keep_id FROM (
+    SELECT artifact_id, min(artifact_id) OVER (PARTITION BY group_id_txt, artifact_id_txt) AS keep_id FROM profiler.artifacts
+  ) AS x WHERE artifact_id <> keep_id;
+
+UPDATE profiler.records r SET artifact_id=d.keep_id FROM artifact_duplicates d WHERE r.artifact_id=d.artifact_id;
+UPDATE profiler.records r SET plugin_artifact_id=d.keep_id FROM artifact_duplicates d WHERE r.plugin_artifact_id=d.artifact_id;
+DELETE FROM profiler.artifacts a USING artifact_duplicates d WHERE a.artifact_id=d.artifact_id;
+
+CREATE UNIQUE INDEX artifacts_coords_idx ON profiler.artifacts(group_id_txt, artifact_id_txt);
+
+UPDATE profiler.db_schema_version SET version='1.1' WHERE row_id=1;
+
+COMMIT;
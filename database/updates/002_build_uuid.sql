@@ -0,0 +1,29 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Adds the client-generated build ID used to detect build results that got sent more than once
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.1');
+
+-- NULL for builds sent by extension versions that do not generate build IDs
+ALTER TABLE profiler.builds ADD COLUMN build_uuid uuid;
+CREATE UNIQUE INDEX builds_uuid_idx ON profiler.builds(build_uuid);
+
+UPDATE profiler.db_schema_version SET version='1.2' WHERE row_id=1;
+
+COMMIT;
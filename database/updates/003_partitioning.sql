@@ -0,0 +1,157 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Partitions profiler.builds and profiler.records by month of the build's start time.
+--
+-- profiler.records gets a copy of the build start time, so a build and its records always end up
+-- in partitions for the same month and old data can be removed by dropping partitions.
+-- Partitions are named <table>_yYYYYmMM, months are in UTC. Rows outside of any monthly
+-- partition end up in the <table>_default partitions.
+--
+-- Depending on the amount of data, this may take a while.
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.2');
+
+-- Creates the monthly partitions of all partitioned tables in the profiler schema (all of them
+-- are partitioned by build_start_time) for month_count months starting with the month first_month
+-- falls into, returns the number of partitions created.
+--
+-- Rows of those months that are already stored in a <table>_default partition (historic imports)
+-- get moved to the new partitions, so later migrations adding partitioned tables do not need to
+-- redefine this function.
+CREATE OR REPLACE FUNCTION profiler.create_monthly_partitions(first_month timestamptz, month_count integer)
+ RETURNS integer
+ LANGUAGE plpgsql
+AS $function$
+DECLARE
+    month_start timestamptz;
+    month_end timestamptz;
+    suffix text;
+    tbl text;
+    missing text[];
+    created integer := 0;
+BEGIN
+    FOR i IN 0 .. month_count - 1 LOOP
+        month_start := ( date_trunc( 'month', first_month AT TIME ZONE 'UTC' ) + make_interval( months => i ) ) AT TIME ZONE 'UTC';
+        month_end := ( date_trunc( 'month', first_month AT TIME ZONE 'UTC' ) + make_interval( months => i + 1 ) ) AT TIME ZONE 'UTC';
+        suffix := to_char( month_start AT TIME ZONE 'UTC', '"_y"YYYY"m"MM' );
+        -- tables referenced by foreign keys (profiler.builds) come first
+        missing := ARRAY( SELECT c.relname::text
+                            FROM pg_partitioned_table p
+                            JOIN pg_class c ON c.oid = p.partrelid
+                            JOIN pg_namespace n ON n.oid = c.relnamespace
+                           WHERE n.nspname = 'profiler'
+                             AND to_regclass( format( 'profiler.%I', c.relname || suffix ) ) IS NULL
+                           ORDER BY EXISTS ( SELECT 1 FROM pg_constraint f WHERE f.contype = 'f' AND f.confrelid = c.oid ) DESC, c.relname );
+        IF cardinality( missing ) = 0 THEN
+            CONTINUE;
+        END IF;
+        -- CREATE TABLE ... PARTITION OF fails if the default partition holds rows of that month, so
+        -- the partitions start out as standalone tables that take over those rows before getting attached
+        FOREACH tbl IN ARRAY missing LOOP
+            EXECUTE format( 'CREATE TABLE profiler.%I (LIKE profiler.%I INCLUDING DEFAULTS INCLUDING CONSTRAINTS)', tbl || suffix, tbl );
+            IF to_regclass( format( 'profiler.%I', tbl || '_default' ) ) IS NOT NULL THEN
+                EXECUTE format( 'INSERT INTO profiler.%I SELECT * FROM profiler.%I WHERE build_start_time >= %L AND build_start_time < %L',
+                    tbl || suffix, tbl || '_default', month_start, month_end );
+            END IF;
+        END LOOP;
+        -- referencing tables first, so deleting the builds does not cascade to rows that have been moved already
+        FOR j IN REVERSE cardinality( missing ) .. 1 LOOP
+            IF to_regclass( format( 'profiler.%I', missing[j] || '_default' ) ) IS NOT NULL THEN
+                EXECUTE format( 'DELETE FROM profiler.%I WHERE build_start_time >= %L AND build_start_time < %L',
+                    missing[j] || '_default', month_start, month_end );
+            END IF;
+        END LOOP;
+        FOREACH tbl IN ARRAY missing LOOP
+            EXECUTE format( 'ALTER TABLE profiler.%I ATTACH PARTITION profiler.%I FOR VALUES FROM (%L) TO (%L)',
+                tbl, tbl || suffix, month_start, month_end );
+            created := created + 1;
+        END LOOP;
+    END LOOP;
+    RETURN created;
+END;
+$function$;
+
+ALTER TABLE profiler.records RENAME TO records_unpartitioned;
+ALTER INDEX profiler.records_pkey RENAME TO records_unpartitioned_pkey;
+ALTER TABLE profiler.builds RENAME TO builds_unpartitioned;
+ALTER INDEX profiler.builds_pkey RENAME TO builds_unpartitioned_pkey;
+ALTER INDEX profiler.builds_uuid_idx RENAME TO builds_unpartitioned_uuid_idx;
+
+CREATE TABLE profiler.builds (
+  build_id bigint NOT NULL DEFAULT nextval('profiler.builds_seq'),
+  build_start_time timestamptz NOT NULL,
+  build_duration_millis integer NOT NULL CHECK(build_duration_millis>0),
+  host_id bigint NOT NULL REFERENCES profiler.hosts(host_id),
+  project_name text NOT NULL,
+  branch_name text NOT NULL,
+  max_concurrency integer NOT NULL,
+  jvm_version TEXT,
+  available_processors integer NOT NULL,
+  git_hash text,
+  system_properties text,
+  env_properties text,
+  build_uuid uuid,
+  PRIMARY KEY (build_id, build_start_time),
+  -- retransmissions of a build always carry the same start time
+  UNIQUE (build_uuid, build_start_time)
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.builds_default PARTITION OF profiler.builds DEFAULT;
+
+CREATE TABLE profiler.records (
+  record_id bigint NOT NULL DEFAULT nextval('profiler.records_seq'),
+  build_id bigint NOT NULL,
+  build_start_time timestamptz NOT NULL,
+  phase_id bigint NOT NULL REFERENCES profiler.phases(phase_id) ON DELETE CASCADE,
+  plugin_artifact_id bigint NOT NULL REFERENCES profiler.artifacts(artifact_id) ON DELETE CASCADE,
+  plugin_version text NOT NULL,
+  artifact_id bigint NOT NULL REFERENCES profiler.artifacts(artifact_id) ON DELETE CASCADE,
+  artifact_version text NOT NULL,
+  start_time timestamptz NOT NULL,
+  end_time timestamptz NOT NULL,
+  CHECK( start_time <= end_time ),
+  PRIMARY KEY (record_id, build_start_time),
+  FOREIGN KEY (build_id, build_start_time) REFERENCES profiler.builds(build_id, build_start_time) ON DELETE CASCADE
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.records_default PARTITION OF profiler.records DEFAULT;
+
+-- partitions for all existing builds plus the next few months
+SELECT profiler.create_monthly_partitions( month, 1 )
+  FROM ( SELECT DISTINCT date_trunc( 'month', build_start_time AT TIME ZONE 'UTC' ) AT TIME ZONE 'UTC' AS month FROM profiler.builds_unpartitioned ) AS x;
+SELECT profiler.create_monthly_partitions( now(), 4 );
+
+INSERT INTO profiler.builds (build_id, build_start_time, build_duration_millis, host_id, project_name, branch_name, max_concurrency,
+                             jvm_version, available_processors, git_hash, system_properties, env_properties, build_uuid)
+  SELECT build_id, build_start_time, build_duration_millis, host_id, project_name, branch_name, max_concurrency,
+         jvm_version, available_processors, git_hash, system_properties, env_properties, build_uuid
+  FROM profiler.builds_unpartitioned;
+
+INSERT INTO profiler.records (record_id, build_id, build_start_time, phase_id, plugin_artifact_id, plugin_version,
+                              artifact_id, artifact_version, start_time, end_time)
+  SELECT r.record_id, r.build_id, b.build_start_time, r.phase_id, r.plugin_artifact_id, r.plugin_version,
+         r.artifact_id, r.artifact_version, r.start_time, r.end_time
+  FROM profiler.records_unpartitioned r JOIN profiler.builds_unpartitioned b ON b.build_id = r.build_id;
+
+DROP TABLE profiler.records_unpartitioned;
+DROP TABLE profiler.builds_unpartitioned;
+
+UPDATE profiler.db_schema_version SET version='1.3' WHERE row_id=1;
+
+COMMIT;
@@ -0,0 +1,35 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Adds indexes for the queries the server runs most often
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.3');
+
+-- build search (project/branch/time range), distinct branch names of a project
+CREATE INDEX builds_project_branch_time_idx ON profiler.builds(project_name, branch_name, build_start_time);
+-- build search by host
+CREATE INDEX builds_host_time_idx ON profiler.builds(host_id, build_start_time);
+
+-- records of one or more builds
+CREATE INDEX records_build_idx ON profiler.records(build_id);
+-- builds that executed a given phase
+CREATE INDEX records_phase_build_idx ON profiler.records(phase_id, build_id);
+
+UPDATE profiler.db_schema_version SET version='1.4' WHERE row_id=1;
+
+COMMIT;
@@ -0,0 +1,66 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Adds per-phase and per-artifact totals for builds whose records have been removed
+-- by the retention job. Both tables are partitioned like profiler.records.
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.4');
+
+-- TRUE once the records of a build have been replaced by phase_rollups/artifact_rollups
+ALTER TABLE profiler.builds ADD COLUMN records_downsampled boolean NOT NULL DEFAULT false;
+
+-- wall-clock time spent in each phase of a build
+CREATE TABLE profiler.phase_rollups (
+  build_id bigint NOT NULL,
+  build_start_time timestamptz NOT NULL,
+  phase_id bigint NOT NULL REFERENCES profiler.phases(phase_id) ON DELETE CASCADE,
+  start_time timestamptz NOT NULL,
+  end_time timestamptz NOT NULL,
+  wall_clock_millis bigint NOT NULL CHECK(wall_clock_millis>=0),
+  PRIMARY KEY (build_id, build_start_time, phase_id),
+  FOREIGN KEY (build_id, build_start_time) REFERENCES profiler.builds(build_id, build_start_time) ON DELETE CASCADE
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.phase_rollups_default PARTITION OF profiler.phase_rollups DEFAULT;
+
+-- wall-clock time spent on each artifact of a build
+CREATE TABLE profiler.artifact_rollups (
+  build_id bigint NOT NULL,
+  build_start_time timestamptz NOT NULL,
+  artifact_id bigint NOT NULL REFERENCES profiler.artifacts(artifact_id) ON DELETE CASCADE,
+  artifact_version text NOT NULL,
+  start_time timestamptz NOT NULL,
+  end_time timestamptz NOT NULL,
+  wall_clock_millis bigint NOT NULL CHECK(wall_clock_millis>=0),
+  PRIMARY KEY (build_id, build_start_time, artifact_id),
+  FOREIGN KEY (build_id, build_start_time) REFERENCES profiler.builds(build_id, build_start_time) ON DELETE CASCADE
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.artifact_rollups_default PARTITION OF profiler.artifact_rollups DEFAULT;
+
+-- rollup partitions for all months that already have build partitions
+SELECT profiler.create_monthly_partitions( month, 1 )
+  FROM ( SELECT DISTINCT date_trunc( 'month', build_start_time AT TIME ZONE 'UTC' ) AT TIME ZONE 'UTC' AS month FROM profiler.builds ) AS x;
+SELECT profiler.create_monthly_partitions( now(), 4 );
+
+-- lets the retention job find builds that still need to be downsampled
+CREATE INDEX builds_not_downsampled_idx ON profiler.builds(build_start_time) WHERE NOT records_downsampled;
+
+UPDATE profiler.db_schema_version SET version='1.5' WHERE row_id=1;
+
+COMMIT;
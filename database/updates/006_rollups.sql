@@ -0,0 +1,51 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Adds per-plugin totals and tracks which builds have their totals
+-- (see phase_rollups, artifact_rollups and plugin_rollups) calculated.
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.5');
+
+-- TRUE once phase_rollups, artifact_rollups and plugin_rollups hold the totals of a build
+ALTER TABLE profiler.builds ADD COLUMN has_rollups boolean NOT NULL DEFAULT false;
+
+-- wall-clock time spent in each plugin of a build
+CREATE TABLE profiler.plugin_rollups (
+  build_id bigint NOT NULL,
+  build_start_time timestamptz NOT NULL,
+  plugin_artifact_id bigint NOT NULL REFERENCES profiler.artifacts(artifact_id) ON DELETE CASCADE,
+  plugin_version text NOT NULL,
+  start_time timestamptz NOT NULL,
+  end_time timestamptz NOT NULL,
+  wall_clock_millis bigint NOT NULL CHECK(wall_clock_millis>=0),
+  PRIMARY KEY (build_id, build_start_time, plugin_artifact_id),
+  FOREIGN KEY (build_id, build_start_time) REFERENCES profiler.builds(build_id, build_start_time) ON DELETE CASCADE
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.plugin_rollups_default PARTITION OF profiler.plugin_rollups DEFAULT;
+
+SELECT profiler.create_monthly_partitions( month, 1 )
+  FROM ( SELECT DISTINCT date_trunc( 'month', build_start_time AT TIME ZONE 'UTC' ) AT TIME ZONE 'UTC' AS month FROM profiler.builds ) AS x;
+SELECT profiler.create_monthly_partitions( now(), 4 );
+
+-- lets the server find builds whose totals still need to be calculated
+CREATE INDEX builds_without_rollups_idx ON profiler.builds(build_start_time) WHERE NOT has_rollups AND NOT records_downsampled;
+
+UPDATE profiler.db_schema_version SET version='1.6' WHERE row_id=1;
+
+COMMIT;
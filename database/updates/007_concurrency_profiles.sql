@@ -0,0 +1,51 @@
+--
+-- Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+--
+-- Licensed under the Apache License, Version 2.0 (the "License");
+-- you may not use this file except in compliance with the License.
+-- You may obtain a copy of the License at
+--
+--     http://www.apache.org/licenses/LICENSE-2.0
+--
+-- Unless required by applicable law or agreed to in writing, software
+-- distributed under the License is distributed on an "AS IS" BASIS,
+-- WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+-- See the License for the specific language governing permissions and
+-- limitations under the License.
+--
+
+-- Stores the number of mojos running at the same time over the course of each build.
+
+BEGIN;
+
+SELECT profiler.assertdbschemaversion('1.6');
+
+-- step function of the number of running mojos: starting offsets_millis[i] milliseconds
+-- after the start of the build, active_mojos[i] mojos were running (until offsets_millis[i+1])
+CREATE TABLE profiler.concurrency_profiles (
+  build_id bigint NOT NULL,
+  build_start_time timestamptz NOT NULL,
+  available_processors integer NOT NULL,
+  offsets_millis bigint[] NOT NULL,
+  active_mojos integer[] NOT NULL,
+  -- total time spent executing mojos
+  mojo_millis bigint NOT NULL CHECK(mojo_millis>=0),
+  -- time between the start of the first and the end of the last mojo
+  span_millis bigint NOT NULL CHECK(span_millis>=0),
+  -- sum of the CPU cores not executing a mojo during span_millis
+  idle_core_millis bigint NOT NULL CHECK(idle_core_millis>=0),
+  -- time only a single mojo was running
+  serial_millis bigint NOT NULL CHECK(serial_millis>=0),
+  PRIMARY KEY (build_id, build_start_time),
+  FOREIGN KEY (build_id, build_start_time) REFERENCES profiler.builds(build_id, build_start_time) ON DELETE CASCADE
+) PARTITION BY RANGE (build_start_time);
+
+CREATE TABLE profiler.concurrency_profiles_default PARTITION OF profiler.concurrency_profiles DEFAULT;
+
+SELECT profiler.create_monthly_partitions( month, 1 )
+  FROM ( SELECT DISTINCT date_trunc( 'month', build_start_time AT TIME ZONE 'UTC' ) AT TIME ZONE 'UTC' AS month FROM profiler.builds ) AS x;
+SELECT profiler.create_monthly_partitions( now(), 4 );
+
+UPDATE profiler.db_schema_version SET version='1.7' WHERE row_id=1;
+
+COMMIT;
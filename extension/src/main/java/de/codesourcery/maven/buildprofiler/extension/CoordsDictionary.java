@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Thread-safe dictionary that assigns consecutive indices (starting at 0) to artifact coordinates.
+ *
+ * The indices are the positions of the coordinates in the "coords" array of the
+ * JSON request, so records only need to reference them by index.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class CoordsDictionary
+{
+    // group ID -> artifact ID -> version -> index, nested so that looking up
+    // known coordinates does not need to allocate a key
+    private final ConcurrentMap<String, ConcurrentMap<String, ConcurrentMap<String, Integer>>> indexByCoords = new ConcurrentHashMap<>();
+
+    // guarded by itself, only written when coordinates are seen for the first time
+    private final List<ArtifactCoords> coordsByIndex = new ArrayList<>();
+
+    /**
+     * Returns the index of some coordinates, assigning a new index if the coordinates
+     * have not been seen before.
+     *
+     * @param coords coordinates
+     * @return index
+     */
+    int indexOf(ArtifactCoords coords)
+    {
+        Validate.notNull( coords, "coords must not be null" );
+        return indexOf( coords.groupId(), coords.artifactId(), coords.version() );
+    }
+
+    /**
+     * Returns the index of some coordinates, assigning a new index if the coordinates
+     * have not been seen before.
+     *
+     * Does not allocate any memory if the coordinates are already known.
+     *
+     * @param groupId
+     * @param artifactId
+     * @param version
+     * @return index
+     */
+    int indexOf(String groupId, String artifactId, String version)
+    {
+        Validate.notNull( groupId, "groupId must not be null" );
+        Validate.notNull( artifactId, "artifactId must not be null" );
+        Validate.notNull( version, "version must not be null" );
+
+        final ConcurrentMap<String, ConcurrentMap<String, Integer>> byArtifactId = indexByCoords.get( groupId );
+        if ( byArtifactId != null )
+        {
+            final ConcurrentMap<String, Integer> byVersion = byArtifactId.get( artifactId );
+            if ( byVersion != null )
+            {
+                final Integer existing = byVersion.get( version );
+                if ( existing != null ) {
+                    return existing;
+                }
+            }
+        }
+        return indexByCoords.computeIfAbsent( groupId, key -> new ConcurrentHashMap<>() )
+            .computeIfAbsent( artifactId, key -> new ConcurrentHashMap<>() )
+            .computeIfAbsent( version, key -> {
+                final ArtifactCoords coords = new ArtifactCoords( groupId, artifactId, version );
+                synchronized (coordsByIndex)
+                {
+                    coordsByIndex.add( coords );
+                    return coordsByIndex.size() - 1;
+                }
+            });
+    }
+
+    /**
+     * Returns all coordinates, ordered by index.
+     *
+     * @return coordinates
+     */
+    List<ArtifactCoords> getAll()
+    {
+        synchronized (coordsByIndex)
+        {
+            return new ArrayList<>( coordsByIndex );
+        }
+    }
+}
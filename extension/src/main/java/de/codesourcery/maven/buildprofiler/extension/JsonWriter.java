@@ -0,0 +1,98 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import de.codesourcery.maven.buildprofiler.shared.SharedUtils;
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Minimal writer that streams JSON text as UTF-8 to an {@link OutputStream}
+ * without building intermediate strings.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class JsonWriter implements Closeable
+{
+    private final Writer writer;
+
+    JsonWriter(OutputStream out)
+    {
+        Validate.notNull( out, "out must not be null" );
+        this.writer = new BufferedWriter( new OutputStreamWriter( out, StandardCharsets.UTF_8 ), 8192 );
+    }
+
+    /**
+     * Appends raw JSON text.
+     *
+     * @param text text to append verbatim
+     * @return this instance
+     * @throws IOException
+     */
+    JsonWriter append(String text) throws IOException
+    {
+        writer.write( text );
+        return this;
+    }
+
+    JsonWriter append(char c) throws IOException
+    {
+        writer.write( c );
+        return this;
+    }
+
+    JsonWriter append(long value) throws IOException
+    {
+        writer.write( Long.toString( value ) );
+        return this;
+    }
+
+    /**
+     * Appends a string as a quoted and escaped JSON string.
+     *
+     * @param value string to append, <code>null</code> is written as JSON null
+     * @return this instance
+     * @throws IOException
+     */
+    JsonWriter string(String value) throws IOException
+    {
+        SharedUtils.appendJsonString( value, writer );
+        return this;
+    }
+
+    /**
+     * Flushes all buffered output to the underlying stream.
+     *
+     * @throws IOException
+     */
+    void flush() throws IOException
+    {
+        writer.flush();
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        writer.close();
+    }
+}
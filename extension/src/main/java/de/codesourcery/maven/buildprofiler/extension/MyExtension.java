@@ -16,9 +16,9 @@
 package de.codesourcery.maven.buildprofiler.extension;
 
 import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import de.codesourcery.maven.buildprofiler.shared.BinaryWriter;
 import de.codesourcery.maven.buildprofiler.shared.Constants;
 import org.apache.commons.lang3.Validate;
-import de.codesourcery.maven.buildprofiler.shared.SharedUtils;
 import org.apache.maven.artifact.Artifact;
 import org.apache.maven.eventspy.AbstractEventSpy;
 import org.apache.maven.eventspy.EventSpy;
@@ -35,16 +35,21 @@ import org.codehaus.plexus.logging.Logger;
 
 import javax.inject.Named;
 import javax.inject.Singleton;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.net.InetAddress;
 import java.net.URI;
 import java.net.UnknownHostException;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
@@ -66,25 +71,57 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
     private static final Set<String> REPORTED_ENV_VARS = Set.of("JAVA_HOME", "HOME", "JAVA_OPTS", "MAVEN_OPTS","USER","CLASSPATH","MAVEN_HOME");
 
     protected static long startupTimestamp = System.currentTimeMillis();
-    protected static final ThreadLocal<Long> mojoStartNanos = new ThreadLocal<>();
 
     public static final String CONFIG_PROP_ENABLED = "buildTimeTrackingEnabled";
     public static final String CONFIG_PROP_PROJECT = "buildTimeTrackingProject";
     public static final String CONFIG_PROP_BRANCH = "buildTimeTrackingBranch";
     public static final String CONFIG_PROP_SERVER_URL = "buildTimeTrackingServerUrl";
-
-    private final List<ExecutionRecord> records = new ArrayList<>();
+    public static final String CONFIG_PROP_ASYNC_UPLOAD = "buildTimeTrackingAsyncUpload";
+    public static final String CONFIG_PROP_COMPRESSION = "buildTimeTrackingCompression";
+    public static final String CONFIG_PROP_WIRE_FORMAT = "buildTimeTrackingWireFormat";
+    public static final String CONFIG_PROP_CONNECT_TIMEOUT_MILLIS = "buildTimeTrackingConnectTimeoutMillis";
+    public static final String CONFIG_PROP_REQUEST_TIMEOUT_MILLIS = "buildTimeTrackingRequestTimeoutMillis";
+    public static final String CONFIG_PROP_MAX_EXIT_DELAY_MILLIS = "buildTimeTrackingMaxExitDelayMillis";
+    public static final String CONFIG_PROP_SPOOL_DIR = "buildTimeTrackingSpoolDir";
+    public static final String CONFIG_PROP_SPOOL_REPLAY_BATCH_SIZE = "buildTimeTrackingSpoolReplayBatchSize";
+
+    private static final long DEFAULT_CONNECT_TIMEOUT_MILLIS = 2000;
+    private static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 10_000;
+    private static final long DEFAULT_MAX_EXIT_DELAY_MILLIS = 3000;
+    private static final int DEFAULT_SPOOL_REPLAY_BATCH_SIZE = 20;
+
+    // each thread appends to its own buffer so recording a mojo execution
+    // never contends with other builder threads; the buffers are only merged
+    // when the build has finished
+    private final Queue<RecordBuffer> recordBuffers = new ConcurrentLinkedQueue<>();
+    private final ThreadLocal<RecordBuffer> recordBuffer = ThreadLocal.withInitial( () -> {
+        final RecordBuffer buffer = new RecordBuffer();
+        recordBuffers.add( buffer );
+        return buffer;
+    });
+
+    // unique plugin/build artifact coordinates, referenced by index from the records
+    protected final CoordsDictionary coords = new CoordsDictionary();
 
     private Logger log;
 
-    protected record ExecutionRecord(ArtifactCoords artifactBeingBuild,
-                                     ArtifactCoords plugin,
+    /**
+     * A single mojo execution.
+     *
+     * @param artifactIdx {@link CoordsDictionary} index of the artifact being built
+     * @param pluginIdx {@link CoordsDictionary} index of the plugin that got executed
+     * @param phase lifecycle phase
+     * @param startEpochMillis
+     * @param endEpochMillis
+     */
+    protected record ExecutionRecord(int artifactIdx,
+                                     int pluginIdx,
                                      String phase, long startEpochMillis, long endEpochMillis)
      {
         protected ExecutionRecord
         {
-            Validate.notNull(artifactBeingBuild, "artifactBeingBuild must not be null");
-            Validate.notNull(plugin, "plugin must not be null");
+            Validate.isTrue(artifactIdx >= 0, "artifactIdx must not be negative");
+            Validate.isTrue(pluginIdx >= 0, "pluginIdx must not be negative");
             Validate.notBlank( phase, "phase must not be null or blank");
             Validate.isTrue( startEpochMillis <= endEpochMillis, "execution time must be positive");
         }
@@ -98,8 +135,12 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
     // configuration properties from pom.xml
     private volatile boolean extEnabled = true;
     private volatile String buildTimeTrackingServerUrl;
+    private volatile Uploader uploader;
+    private volatile boolean binaryWireFormat;
 
     // transient
+    // unique ID of this build, lets the server detect build results that got sent more than once
+    protected final String buildId = UUID.randomUUID().toString();
     protected volatile String projectName;
     protected volatile String branchName;
     protected volatile String gitHash;
@@ -175,6 +216,22 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
                 buildTimeTrackingServerUrl =
                     properties.apply( CONFIG_PROP_SERVER_URL ).orElseThrow(missingPropertyException( CONFIG_PROP_SERVER_URL ));
 
+                final Uploader.Config config = new Uploader.Config( URI.create( buildTimeTrackingServerUrl ),
+                    Duration.ofMillis( properties.apply( CONFIG_PROP_CONNECT_TIMEOUT_MILLIS ).map( Long::parseLong ).orElse( DEFAULT_CONNECT_TIMEOUT_MILLIS ) ),
+                    Duration.ofMillis( properties.apply( CONFIG_PROP_REQUEST_TIMEOUT_MILLIS ).map( Long::parseLong ).orElse( DEFAULT_REQUEST_TIMEOUT_MILLIS ) ),
+                    Duration.ofMillis( properties.apply( CONFIG_PROP_MAX_EXIT_DELAY_MILLIS ).map( Long::parseLong ).orElse( DEFAULT_MAX_EXIT_DELAY_MILLIS ) ),
+                    properties.apply( CONFIG_PROP_ASYNC_UPLOAD ).map( Boolean::parseBoolean ).orElse( true ),
+                    isGzip( properties.apply( CONFIG_PROP_COMPRESSION ).orElse( "none" ) ) );
+                binaryWireFormat = isBinary( properties.apply( CONFIG_PROP_WIRE_FORMAT ).orElse( "json" ) );
+                final Spool spool = new Spool( properties.apply( CONFIG_PROP_SPOOL_DIR ).map( Path::of ).orElseGet( Spool::defaultDirectory ) );
+                uploader = new Uploader( config, spool, log );
+
+                // send build results left over by previous builds while this one is running
+                final int replayBatchSize = properties.apply( CONFIG_PROP_SPOOL_REPLAY_BATCH_SIZE ).map( Integer::parseInt ).orElse( DEFAULT_SPOOL_REPLAY_BATCH_SIZE );
+                if ( replayBatchSize > 0 ) {
+                    uploader.replaySpool( replayBatchSize );
+                }
+
                 log.debug( "Tracking build execution times and sending them to "+buildTimeTrackingServerUrl );
             } else {
                 log.debug( "NOT tracking build execution times.");
@@ -182,6 +239,24 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
         }
     }
 
+    private static boolean isGzip(String compression)
+    {
+        return switch( compression.trim().toLowerCase( Locale.ROOT ) ) {
+            case "none" -> false;
+            case "gzip" -> true;
+            default -> throw new Error( "Unsupported value '" + compression + "' for property '" + CONFIG_PROP_COMPRESSION + "', must be one of 'none', 'gzip'" );
+        };
+    }
+
+    private static boolean isBinary(String wireFormat)
+    {
+        return switch( wireFormat.trim().toLowerCase( Locale.ROOT ) ) {
+            case "json" -> false;
+            case "binary" -> true;
+            default -> throw new Error( "Unsupported value '" + wireFormat + "' for property '" + CONFIG_PROP_WIRE_FORMAT + "', must be one of 'json', 'binary'" );
+        };
+    }
+
     private static boolean isBlank(String s) {
         return s == null || s.isBlank();
     }
@@ -225,7 +300,7 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
                     if ( log.isDebugEnabled() ) {
                         log.debug("Mojo started.");
                     }
-                    mojoStartNanos.set( System.nanoTime() - initialNanos.get() );
+                    recordBuffer.get().mojoStarted( System.nanoTime() - initialNanos.get() );
                     final int current = concurrency.incrementAndGet();
                     maxConcurrency.getAndUpdate(actual -> Math.max(actual, current));
                 }
@@ -237,22 +312,37 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
                     final long endNanos = System.nanoTime() - initialNanos.get();
                     concurrency.decrementAndGet();
                     final Artifact a = r.getProject().getArtifact();
-                    synchronized (records)
-                    {
-                        final ArtifactCoords buildArtifact = new ArtifactCoords(a.getGroupId(), a.getArtifactId(), a.getVersion());
-                        final Plugin p = exec.getPlugin();
-                        final ArtifactCoords pluginArtifact = new ArtifactCoords(p.getGroupId(), p.getArtifactId(), p.getVersion());
-
-                        // convert to epoch millis relative to start time
-                        final long startMillis = startupTimestamp + ( mojoStartNanos.get() / 1_000_000 );
-                        final long endMillis = startupTimestamp + ( endNanos / 1_000_000 );
-                        records.add( new ExecutionRecord( buildArtifact, pluginArtifact, phase, startMillis, endMillis ) );
-                    }
+                    // looking up known coordinates does not allocate
+                    final int artifactIdx = coords.indexOf( a.getGroupId(), a.getArtifactId(), a.getVersion() );
+                    final Plugin p = exec.getPlugin();
+                    final int pluginIdx = coords.indexOf( p.getGroupId(), p.getArtifactId(), p.getVersion() );
+
+                    // convert to epoch millis relative to start time
+                    final RecordBuffer buffer = recordBuffer.get();
+                    final long startMillis = startupTimestamp + ( buffer.getMojoStartNanos() / 1_000_000 );
+                    final long endMillis = startupTimestamp + ( endNanos / 1_000_000 );
+                    buffer.add( new ExecutionRecord( artifactIdx, pluginIdx, phase, startMillis, endMillis ) );
                 }
             }
         }
     }
 
+    /**
+     * Merges the per-thread record buffers.
+     *
+     * @return all records, ordered ascending by end time
+     */
+    protected List<ExecutionRecord> getRecords()
+    {
+        final List<ExecutionRecord> result = new ArrayList<>();
+        for ( RecordBuffer buffer : recordBuffers )
+        {
+            buffer.drainTo( result );
+        }
+        result.sort( Comparator.comparingLong( ExecutionRecord::endEpochMillis ).thenComparingLong( ExecutionRecord::startEpochMillis ) );
+        return result;
+    }
+
     private void buildFinished(MavenExecutionResult result)
     {
         if ( result.hasExceptions() ) {
@@ -260,41 +350,41 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
             return;
         }
 
+        final List<ExecutionRecord> records = getRecords();
         if ( records.isEmpty() ) {
             log.info("No phases executed, not recording execution times.");
             return;
         }
 
-        final String json = getJSONRequest( records, this, System.currentTimeMillis() );
-        if ( log.isDebugEnabled() ) {
-            log.debug("JSON: " + json);
-        }
-
-        log.debug("Sending response to " + buildTimeTrackingServerUrl);
+        final Payload payload = binaryWireFormat ? Payload.binary() : Payload.json();
         try
         {
-            sendPOST(json);
+            if ( binaryWireFormat ) {
+                writeBinaryRequest( records, this, System.currentTimeMillis(), payload );
+            } else {
+                writeJSONRequest( records, this, System.currentTimeMillis(), payload );
+            }
         }
-        catch (IOException | InterruptedException e)
+        catch( IOException e )
         {
-            log.error("Failed to send POST request to " + buildTimeTrackingServerUrl+" ("+e.getMessage()+")", e);
+            // cannot happen when writing to memory
+            throw new UncheckedIOException( e );
         }
+        if ( log.isDebugEnabled() ) {
+            log.debug( binaryWireFormat ? "Binary payload: " + payload.size() + " bytes" : "JSON: " + payload.toString( StandardCharsets.UTF_8 ) );
+        }
+
+        uploader.upload( payload );
     }
 
-    private void sendPOST(String body) throws IOException, InterruptedException
+    @Override
+    public void close() throws Exception
     {
-        final HttpClient client = HttpClient.newHttpClient();
-        final HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(buildTimeTrackingServerUrl))
-            .header("Accept", "application/json")
-            .header("Content-Type", "application/json")
-            .POST(HttpRequest.BodyPublishers.ofString(body))
-            .build();
-
-        final HttpResponse<String> response = client.send(request, HttpResponse.BodyHandlers.ofString());
-        if ( response.statusCode() != 200 ) {
-            log.error("HTTP request to "+buildTimeTrackingServerUrl+" returned "+response.statusCode());
+        final Uploader u = uploader;
+        if ( u != null ) {
+            u.shutdown();
         }
+        super.close();
     }
 
     private static Optional<String> hostName() {
@@ -330,26 +420,54 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
      */
     public static String getJSONRequest(List<ExecutionRecord> records, MyExtension instance, long timestampNow)
     {
-        final StringBuilder json = new StringBuilder();
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try
+        {
+            writeJSONRequest( records, instance, timestampNow, out );
+        }
+        catch( IOException e )
+        {
+            // cannot happen when writing to memory
+            throw new UncheckedIOException( e );
+        }
+        return out.toString( StandardCharsets.UTF_8 );
+    }
+
+    /**
+     * Streams the JSON request as UTF-8 to an output stream.
+     *
+     * @param records
+     * @param instance
+     * @param timestampNow timestamp in millis since epoch
+     * @param out stream to write to, will be flushed but not closed
+     * @throws IOException
+     */
+    static void writeJSONRequest(List<ExecutionRecord> records, MyExtension instance, long timestampNow, OutputStream out) throws IOException
+    {
+        final JsonWriter json = new JsonWriter( out );
 
         json.append( "{" );
         json.append( "\"jsonSyntaxVersion\" : " ).append( Constants.JSON_SYNTAX_VERSION ).append( ", " );
+        json.append( "\"buildId\" : " ).string( instance.buildId ).append( ", " );
         json.append( "\"buildStartTime\" : " ).append( startupTimestamp ).append( ", " );
         final long buildTimeMillis = timestampNow - startupTimestamp;
         json.append( "\"buildDurationMillis\" : " ).append( buildTimeMillis ).append( ", " );
         String input1 = hostIP().getHostAddress();
-        json.append( "\"hostIP\" : " ).append( SharedUtils.jsonString( input1 ) ).append( ", " );
-        hostName().ifPresent(x -> json.append( "\"hostName\" : " ).append( SharedUtils.jsonString( x ) ).append( ", " ) );
-        json.append( "\"maxConcurrency\" : " ).append( instance.maxConcurrency ).append( ", " );
+        json.append( "\"hostIP\" : " ).string( input1 ).append( ", " );
+        final Optional<String> hostName = hostName();
+        if ( hostName.isPresent() ) {
+            json.append( "\"hostName\" : " ).string( hostName.get() ).append( ", " );
+        }
+        json.append( "\"maxConcurrency\" : " ).append( instance.maxConcurrency.get() ).append( ", " );
         String input = System.getProperty("java.version");
-        json.append( "\"jvmVersion\" : " ).append( SharedUtils.jsonString( input ) ).append( ", " );
+        json.append( "\"jvmVersion\" : " ).string( input ).append( ", " );
         json.append( "\"availableProcessors\" : " ).append( Runtime.getRuntime().availableProcessors() ).append( ", " );
-        json.append( "\"projectName\" : " ).append( SharedUtils.jsonString( instance.projectName ) ).append( ", " );
-        json.append( "\"branchName\" : " ).append( SharedUtils.jsonString( instance.branchName ) ).append( ", " );
+        json.append( "\"projectName\" : " ).string( instance.projectName ).append( ", " );
+        json.append( "\"branchName\" : " ).string( instance.branchName ).append( ", " );
 
         if ( instance.gitHash != null )
         {
-            json.append("\"gitHash\" : ").append( SharedUtils.jsonString( instance.gitHash ) ).append(", ");
+            json.append("\"gitHash\" : ").string( instance.gitHash ).append(", ");
         }
         // system properties
         json.append("\"systemProperties\" : { ");
@@ -387,33 +505,19 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
         }, REPORTED_ENV_VARS::contains, json );
 
         json.append("}, ");
-        // gather unique plugin/build artifact coordinates
-        // and store them as a JSON array. That way we can
+        // unique plugin/build artifact coordinates are
+        // stored as a JSON array. That way records can
         // reference the array index instead of repeating
         // the same strings over and over.
-        final Map<String, Integer> artifactIndexByCoords = new HashMap<>();
-        final List<ArtifactCoords> coords = new ArrayList<>();
-        final Iterator<Integer> intIt = new Iterator<>()
-        {
-            private int value;
-            @Override public boolean hasNext() {return true;}
-            @Override public Integer next() {return value++;}
-        };
-        records.stream().map(x -> List.of(x.artifactBeingBuild(), x.plugin())).flatMap(Collection::stream)
-            .distinct().forEach(artifact ->
-            {
-                coords.add(artifact);
-                artifactIndexByCoords.put(artifact.getAsString(), intIt.next());
-            });
-
+        final List<ArtifactCoords> coords = instance.coords.getAll();
         json.append( "\"coords\"" ).append( " : [ " );
         for (Iterator<ArtifactCoords> iterator = coords.iterator(); iterator.hasNext(); )
         {
             final ArtifactCoords c = iterator.next();
             json.append("{");
-            json.append("\"groupId\" : ").append(SharedUtils.jsonString(c.groupId())).append(",");
-            json.append("\"artifactId\" : ").append(SharedUtils.jsonString(c.artifactId())).append(",");
-            json.append("\"version\" : ").append(SharedUtils.jsonString(c.version()));
+            json.append("\"groupId\" : ").string( c.groupId() ).append(",");
+            json.append("\"artifactId\" : ").string( c.artifactId() ).append(",");
+            json.append("\"version\" : ").string( c.version() );
             json.append("}");
             if ( iterator.hasNext() ) {
                 json.append(",");
@@ -421,6 +525,17 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
         }
         json.append( "],");
 
+        final Map<String, Integer> phaseIndices = getPhaseTable( records );
+        json.append( "\"phases\" : [ " );
+        for ( Iterator<String> iterator = phaseIndices.keySet().iterator(); iterator.hasNext(); )
+        {
+            json.string( iterator.next() );
+            if ( iterator.hasNext() ) {
+                json.append(",");
+            }
+        }
+        json.append( "],");
+
         // records
         json.append( "\"records\"" ).append( " : [ " );
 
@@ -429,17 +544,12 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
             final ExecutionRecord record = it.next();
             json.append( "{ " );
 
-            int idx = artifactIndexByCoords.get(record.artifactBeingBuild().getAsString());
-            json.append("\"artifactIdx\" : ").append(idx).append(", ");
-
-            // --
-            idx = artifactIndexByCoords.get(record.plugin().getAsString());
-            json.append( "\"pluginIdx\" : " ).append(idx).append( ", " );
+            json.append("\"artifactIdx\" : ").append(record.artifactIdx()).append(", ");
+            json.append( "\"pluginIdx\" : " ).append(record.pluginIdx()).append( ", " );
 
-            // --
-            json.append( "\"phase\" : " ).append( SharedUtils.jsonString( record.phase() ) ).append( ", " );
-            json.append( "\"startMillis\" : " ).append( record.startEpochMillis ).append( ", " );
-            json.append( "\"endMillis\" : " ).append( record.endEpochMillis  );
+            json.append( "\"phaseIdx\" : " ).append( phaseIndices.get( record.phase() ) ).append( ", " );
+            json.append( "\"startOffset\" : " ).append( record.startEpochMillis - startupTimestamp ).append( ", " );
+            json.append( "\"duration\" : " ).append( record.endEpochMillis - record.startEpochMillis );
             json.append( "}" ); // end record
 
             if ( it.hasNext() ) {
@@ -449,7 +559,97 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
 
         json.append( "]" ); // end records
         json.append( "}" );
-        return json.toString();
+        json.flush();
+    }
+
+    /**
+     * Writes the request in binary encoding,
+     * see <code>BuildResultDecoder</code> in the server-common module for the layout.
+     *
+     * @param records
+     * @param instance
+     * @param timestampNow timestamp in millis since epoch
+     * @param out stream to write to, will be flushed but not closed
+     * @throws IOException
+     */
+    static void writeBinaryRequest(List<ExecutionRecord> records, MyExtension instance, long timestampNow, OutputStream out) throws IOException
+    {
+        final BinaryWriter writer = new BinaryWriter( new BufferedOutputStream( out, 8192 ) );
+        writer.writeInt32( Constants.BINARY_MAGIC );
+        writer.writeVarInt( Constants.BINARY_SYNTAX_VERSION );
+        writer.writeString( instance.buildId );
+        writer.writeSignedVarInt( startupTimestamp );
+        writer.writeSignedVarInt( timestampNow - startupTimestamp );
+        writer.writeString( hostIP().getHostAddress() );
+        writer.writeString( hostName().orElse( null ) );
+        writer.writeString( System.getProperty( "java.version" ) );
+        writer.writeString( instance.projectName );
+        writer.writeString( instance.branchName );
+        writer.writeString( instance.gitHash );
+        writer.writeVarInt( instance.maxConcurrency.get() );
+        writer.writeVarInt( Runtime.getRuntime().availableProcessors() );
+
+        final Properties props = System.getProperties();
+        final Map<String, String> systemProperties = new HashMap<>();
+        props.stringPropertyNames().stream().filter( REPORTED_SYSTEM_PROPS::contains ).forEach( key -> systemProperties.put( key, props.getProperty( key ) ) );
+        writeMap( systemProperties, writer );
+
+        final Map<String, String> environment = new HashMap<>( System.getenv() );
+        environment.keySet().retainAll( REPORTED_ENV_VARS );
+        writeMap( environment, writer );
+
+        final List<ArtifactCoords> coords = instance.coords.getAll();
+        writer.writeVarInt( coords.size() );
+        for ( ArtifactCoords c : coords )
+        {
+            writer.writeString( c.groupId() ).writeString( c.artifactId() ).writeString( c.version() );
+        }
+
+        final Map<String, Integer> phaseIndices = getPhaseTable( records );
+        writer.writeVarInt( phaseIndices.size() );
+        for ( String phase : phaseIndices.keySet() )
+        {
+            writer.writeString( phase );
+        }
+
+        writer.writeVarInt( records.size() );
+        for ( ExecutionRecord record : records )
+        {
+            writer.writeVarInt( record.artifactIdx() );
+            writer.writeVarInt( record.pluginIdx() );
+            writer.writeVarInt( phaseIndices.get( record.phase() ) );
+            writer.writeSignedVarInt( record.startEpochMillis() - startupTimestamp );
+            writer.writeVarInt( record.endEpochMillis() - record.startEpochMillis() );
+        }
+        writer.flush();
+    }
+
+    /**
+     * Assigns indices to all distinct phases.
+     *
+     * There are only a few distinct phases, so they're stored as a table
+     * that gets referenced by the records.
+     *
+     * @param records
+     * @return phase index by name, iteration order matches the indices
+     */
+    private static Map<String, Integer> getPhaseTable(List<ExecutionRecord> records)
+    {
+        final Map<String, Integer> phaseIndices = new LinkedHashMap<>();
+        for ( ExecutionRecord record : records )
+        {
+            phaseIndices.putIfAbsent( record.phase(), phaseIndices.size() );
+        }
+        return phaseIndices;
+    }
+
+    private static void writeMap(Map<String, String> map, BinaryWriter writer) throws IOException
+    {
+        writer.writeVarInt( map.size() );
+        for ( Map.Entry<String, String> entry : map.entrySet() )
+        {
+            writer.writeString( entry.getKey() ).writeString( entry.getValue() );
+        }
     }
 
     private interface MapLike {
@@ -457,7 +657,7 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
         Map.Entry<String,String> nextEntry();
     }
 
-    private static void appendMapToJSON(MapLike map, Predicate<String> filter, StringBuilder json)
+    private static void appendMapToJSON(MapLike map, Predicate<String> filter, JsonWriter json) throws IOException
     {
         boolean first = true;
         while( map.hasNext() )
@@ -470,11 +670,7 @@ public class MyExtension extends AbstractEventSpy implements LogEnabled
                     json.append( ", " );
                 }
                 first = false;
-                final String value = entry.getValue();
-                final String quotedKey = SharedUtils.jsonString( key );
-                final String quotedValue;
-                quotedValue = value == null ? "null" : SharedUtils.jsonString( value );
-                json.append( quotedKey ).append( " : " ).append( quotedValue );
+                json.string( key ).append( " : " ).string( entry.getValue() );
             }
         }
     }
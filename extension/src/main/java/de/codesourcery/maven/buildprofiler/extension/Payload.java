@@ -0,0 +1,181 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import de.codesourcery.maven.buildprofiler.shared.Constants;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.net.http.HttpRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterInputStream;
+
+/**
+ * In-memory build result, either UTF-8 encoded JSON or binary encoded.
+ *
+ * The payload is kept in exactly one buffer: it is written there by {@link JsonWriter}
+ * (or a {@link de.codesourcery.maven.buildprofiler.shared.BinaryWriter}) and both the HTTP
+ * request body and the {@link Spool} read from that buffer directly. Compressed request
+ * bodies are compressed while being sent.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class Payload extends ByteArrayOutputStream
+{
+    // magic number, compression method 'deflate', no flags, no modification time, no extra flags, OS unknown (like GZIPOutputStream)
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, 0 };
+
+    private final boolean binary;
+
+    private Payload(boolean binary)
+    {
+        super( 64 * 1024 );
+        this.binary = binary;
+    }
+
+    static Payload json()
+    {
+        return new Payload( false );
+    }
+
+    static Payload binary()
+    {
+        return new Payload( true );
+    }
+
+    /**
+     * Restores a payload from its spool representation.
+     *
+     * @param line payload as returned by {@link #toSpoolLine()}
+     * @return payload
+     * @throws IllegalArgumentException if the line is neither JSON nor valid Base64
+     */
+    static Payload fromSpoolLine(String line)
+    {
+        // JSON always starts with '{', which is not part of the Base64 alphabet
+        final Payload result;
+        if ( line.startsWith( "{" ) ) {
+            result = json();
+            result.writeBytes( line.getBytes( StandardCharsets.UTF_8 ) );
+        } else {
+            result = binary();
+            result.writeBytes( Base64.getDecoder().decode( line ) );
+        }
+        return result;
+    }
+
+    /**
+     * Returns this payload as a single line of text, suitable for storing it in the {@link Spool}.
+     *
+     * JSON payloads are returned as-is, binary payloads Base64 encoded.
+     *
+     * @return text representation
+     */
+    String toSpoolLine()
+    {
+        return binary ? Base64.getEncoder().encodeToString( toByteArray() ) : toString( StandardCharsets.UTF_8 );
+    }
+
+    boolean isBinary()
+    {
+        return binary;
+    }
+
+    String getContentType()
+    {
+        return binary ? Constants.CONTENT_TYPE_BINARY : Constants.CONTENT_TYPE_JSON;
+    }
+
+    /**
+     * Returns a body publisher that streams this payload (chunked) without copying it as a whole.
+     *
+     * @return body publisher
+     */
+    HttpRequest.BodyPublisher bodyPublisher()
+    {
+        return HttpRequest.BodyPublishers.ofInputStream( this::newInputStream );
+    }
+
+    /**
+     * Returns a stream reading this payload without copying it.
+     *
+     * @return input stream
+     */
+    synchronized InputStream newInputStream()
+    {
+        return new ByteArrayInputStream( buf, 0, count );
+    }
+
+    /**
+     * Returns a body publisher that gzip-compresses this payload while it is being sent,
+     * so no compressed copy of the whole payload is ever kept in memory.
+     *
+     * @return body publisher
+     */
+    HttpRequest.BodyPublisher gzipBodyPublisher()
+    {
+        return HttpRequest.BodyPublishers.ofInputStream( this::newGzipInputStream );
+    }
+
+    /**
+     * Returns a stream reading this payload gzip-compressed, compressing it on the fly.
+     *
+     * @return input stream
+     */
+    synchronized InputStream newGzipInputStream()
+    {
+        final CRC32 crc = new CRC32();
+        crc.update( buf, 0, count );
+
+        // raw deflate, the GZIP header and trailer get added around it
+        final Deflater deflater = new Deflater( Deflater.DEFAULT_COMPRESSION, true );
+        final InputStream compressed = new DeflaterInputStream( new ByteArrayInputStream( buf, 0, count ), deflater, 8192 )
+        {
+            @Override
+            public void close() throws IOException
+            {
+                try {
+                    super.close();
+                } finally {
+                    deflater.end();
+                }
+            }
+        };
+        return new SequenceInputStream( Collections.enumeration( List.of(
+            new ByteArrayInputStream( GZIP_HEADER ),
+            compressed,
+            new ByteArrayInputStream( gzipTrailer( crc.getValue(), count ) ) ) ) );
+    }
+
+    private static byte[] gzipTrailer(long crc, int uncompressedSize)
+    {
+        final byte[] result = new byte[8];
+        for ( int i = 0; i < 4; i++ )
+        {
+            result[i] = (byte) ( crc >>> ( 8 * i ) );
+            result[4 + i] = (byte) ( uncompressedSize >>> ( 8 * i ) );
+        }
+        return result;
+    }
+}
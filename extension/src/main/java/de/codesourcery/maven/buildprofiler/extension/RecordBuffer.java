@@ -0,0 +1,103 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Append-only buffer of mojo executions, owned by a single builder thread.
+ *
+ * Appending takes no lock: the owner thread publishes each record by a release-store
+ * of the buffer's size, so {@link #drainTo(Collection)} (acquiring the size first) sees
+ * all records up to that size without the owner ever having to synchronize.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class RecordBuffer
+{
+    private static final int INITIAL_CAPACITY = 256;
+
+    // only replaced by the owner thread, volatile so readers see the records copied into a grown array
+    private volatile MyExtension.ExecutionRecord[] records = new MyExtension.ExecutionRecord[INITIAL_CAPACITY];
+    private final AtomicInteger size = new AtomicInteger();
+
+    // start of the mojo currently executed by the owner thread, relative to the build's start
+    private long mojoStartNanos;
+
+    /**
+     * Remembers the start of a mojo execution.
+     *
+     * Must only be called by the owner thread.
+     *
+     * @param nanos start time
+     */
+    void mojoStarted(long nanos)
+    {
+        this.mojoStartNanos = nanos;
+    }
+
+    /**
+     * Returns the start time passed to the last {@link #mojoStarted(long)} call.
+     *
+     * Must only be called by the owner thread.
+     *
+     * @return start time
+     */
+    long getMojoStartNanos()
+    {
+        return mojoStartNanos;
+    }
+
+    /**
+     * Appends a record.
+     *
+     * Must only be called by the owner thread.
+     *
+     * @param executionRecord record to add
+     */
+    void add(MyExtension.ExecutionRecord executionRecord)
+    {
+        Validate.notNull( executionRecord, "executionRecord must not be null" );
+        final int count = size.getPlain();
+        MyExtension.ExecutionRecord[] array = records;
+        if ( count == array.length )
+        {
+            array = Arrays.copyOf( array, count * 2 );
+            records = array;
+        }
+        array[count] = executionRecord;
+        size.setRelease( count + 1 );
+    }
+
+    /**
+     * Copies all records published so far, may be called by any thread.
+     *
+     * @param target collection to add the records to
+     */
+    void drainTo(Collection<MyExtension.ExecutionRecord> target)
+    {
+        Validate.notNull( target, "target must not be null" );
+        final int count = size.getAcquire();
+        final MyExtension.ExecutionRecord[] array = records;
+        for ( int i = 0; i < count; i++ ) {
+            target.add( array[i] );
+        }
+    }
+}
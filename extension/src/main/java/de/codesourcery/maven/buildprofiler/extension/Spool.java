@@ -0,0 +1,345 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local directory holding build results that could not be sent to the server.
+ *
+ * Build results are stored in <i>segment</i> files, one JSON document per line (NDJSON).
+ * Segments are written once to a temporary file and then atomically renamed into place,
+ * so they are never modified afterwards and no fsync is needed: a segment that was only
+ * partially written because the JVM died is either still a temporary file (and gets ignored) or
+ * lacks the terminating newline on its last line (which then gets ignored as well).
+ *
+ * To replay a segment, it is first claimed by renaming it, so concurrent builds on the same
+ * machine never send the same segment twice. Claims held by processes that died while replaying
+ * are released again after {@link #STALE_CLAIM_AGE}.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class Spool
+{
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final String CLAIMED_SUFFIX = ".claimed";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    /**
+     * Age after which a claimed segment is considered abandoned.
+     */
+    static final Duration STALE_CLAIM_AGE = Duration.ofHours( 1 );
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Path directory;
+
+    /**
+     * Sends a single spooled build result.
+     */
+    @FunctionalInterface
+    interface Sender
+    {
+        /**
+         * Sends a build result.
+         *
+         * @param json build result
+         * @return <code>true</code> if the build result may be removed from the spool (because it
+         * has been sent or got rejected by the server), <code>false</code> if sending failed
+         * and should be retried later.
+         */
+        boolean send(String json);
+    }
+
+    /**
+     * Outcome of {@link #replay(Sender, int)}.
+     *
+     * @param sent number of build results that got removed from the spool
+     * @param remaining number of build results that have been put back into the spool
+     */
+    record ReplayResult(int sent, int remaining) {
+    }
+
+    Spool(Path directory)
+    {
+        Validate.notNull( directory, "directory must not be null" );
+        this.directory = directory;
+    }
+
+    /**
+     * Returns the default spool location, <code>~/.m2/buildprofiler-spool</code>.
+     *
+     * @return spool directory
+     */
+    static Path defaultDirectory()
+    {
+        return Path.of( System.getProperty( "user.home" ), ".m2", "buildprofiler-spool" );
+    }
+
+    Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Stores a build result.
+     *
+     * @param json build result as JSON
+     * @throws IOException
+     */
+    void write(String json) throws IOException
+    {
+        Validate.notNull( json, "json must not be null" );
+        write( List.of( json ) );
+    }
+
+    /**
+     * Stores a build result.
+     *
+     * @param payload build result, stored as returned by {@link Payload#toSpoolLine()}
+     * @throws IOException
+     */
+    void write(Payload payload) throws IOException
+    {
+        Validate.notNull( payload, "payload must not be null" );
+        if ( payload.isBinary() ) {
+            write( payload.toSpoolLine() );
+            return;
+        }
+        // JSON written by JsonWriter never contains raw line breaks, no need to check
+        writeSegment( out -> {
+            payload.writeTo( out );
+            out.write( '\n' );
+        });
+    }
+
+    /**
+     * Stores build results in a new segment.
+     *
+     * @param payloads build results as JSON, must not contain line breaks
+     * @throws IOException
+     */
+    void write(List<String> payloads) throws IOException
+    {
+        Validate.notNull( payloads, "payloads must not be null" );
+        if ( payloads.isEmpty() ) {
+            return;
+        }
+        for ( String json : payloads )
+        {
+            Validate.isTrue( json.indexOf( '\n' ) == -1 && json.indexOf( '\r' ) == -1, "payload must not contain line breaks" );
+        }
+        writeSegment( out -> writeLines( payloads, out ) );
+    }
+
+    private static void writeLines(List<String> payloads, OutputStream out) throws IOException
+    {
+        final Writer writer = new OutputStreamWriter( out, StandardCharsets.UTF_8 );
+        for ( String json : payloads )
+        {
+            writer.write( json );
+            writer.write( '\n' );
+        }
+        writer.flush();
+    }
+
+    @FunctionalInterface
+    private interface SegmentContent
+    {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private void writeSegment(SegmentContent content) throws IOException
+    {
+        Files.createDirectories( directory );
+        // file names sort by creation time so replay preserves the order builds happened in
+        // (the sequence number keeps segments written within the same millisecond in order)
+        final String name = "spool-" + System.currentTimeMillis() + "-" + "%010d".formatted( SEQUENCE.incrementAndGet() ) + "-" + UUID.randomUUID();
+        writeSegment( directory.resolve( name + SEGMENT_SUFFIX ), content );
+    }
+
+    private static void writeSegment(Path segment, SegmentContent content) throws IOException
+    {
+        final Path tmp = segment.resolveSibling( segment.getFileName() + TMP_SUFFIX );
+        try ( OutputStream out = new BufferedOutputStream( Files.newOutputStream( tmp, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE ) ) )
+        {
+            content.writeTo( out );
+        }
+        Files.move( tmp, segment, StandardCopyOption.ATOMIC_MOVE );
+    }
+
+    /**
+     * Returns all segments that are currently waiting to be replayed, oldest first.
+     *
+     * @return segments
+     * @throws IOException
+     */
+    List<Path> getSegments() throws IOException
+    {
+        if ( ! Files.isDirectory( directory ) ) {
+            return Collections.emptyList();
+        }
+        final List<Path> result = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory, "*" + SEGMENT_SUFFIX ) )
+        {
+            stream.forEach( result::add );
+        }
+        result.sort( (a, b) -> a.getFileName().toString().compareTo( b.getFileName().toString() ) );
+        return result;
+    }
+
+    /**
+     * Sends spooled build results, oldest first.
+     *
+     * Replay stops at the first build result that could not be sent, assuming that the server
+     * is still unavailable. Build results that were claimed but not sent are put back into the spool
+     * under the segment's original name, so they keep their place in the replay order.
+     *
+     * @param sender used to send build results
+     * @param maxPayloads max. number of build results to send
+     * @return replay outcome
+     * @throws IOException
+     */
+    ReplayResult replay(Sender sender, int maxPayloads) throws IOException
+    {
+        Validate.notNull( sender, "sender must not be null" );
+        Validate.isTrue( maxPayloads > 0, "maxPayloads must be > 0" );
+
+        releaseStaleClaims();
+
+        int sent = 0;
+        int remaining = 0;
+        for ( Path segment : getSegments() )
+        {
+            if ( sent >= maxPayloads || remaining > 0 ) {
+                break;
+            }
+            final Path claimed = claim( segment );
+            if ( claimed == null ) {
+                continue; // some other process was faster
+            }
+            final List<String> payloads = readSegment( claimed );
+            final List<String> unsent = new ArrayList<>();
+            for ( String json : payloads )
+            {
+                if ( unsent.isEmpty() && sent < maxPayloads && sender.send( json ) ) {
+                    sent++;
+                } else {
+                    unsent.add( json );
+                }
+            }
+            remaining += unsent.size();
+            if ( unsent.size() == payloads.size() ) {
+                // nothing sent, just release the claim
+                Files.move( claimed, segment, StandardCopyOption.ATOMIC_MOVE );
+                continue;
+            }
+            if ( ! unsent.isEmpty() ) {
+                // put back anything we did not send *before* deleting the claim
+                writeSegment( segment, out -> writeLines( unsent, out ) );
+            }
+            Files.delete( claimed );
+        }
+        return new ReplayResult( sent, remaining );
+    }
+
+    private Path claim(Path segment) throws IOException
+    {
+        final Path claimed = segment.resolveSibling( segment.getFileName() + "." + UUID.randomUUID() + CLAIMED_SUFFIX );
+        try
+        {
+            Files.move( segment, claimed, StandardCopyOption.ATOMIC_MOVE );
+            // claim age is derived from the modification time
+            Files.setLastModifiedTime( claimed, FileTime.from( Instant.now() ) );
+            return claimed;
+        }
+        catch( NoSuchFileException e ) {
+            return null;
+        }
+    }
+
+    private void releaseStaleClaims() throws IOException
+    {
+        if ( ! Files.isDirectory( directory ) ) {
+            return;
+        }
+        final Instant threshold = Instant.now().minus( STALE_CLAIM_AGE );
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory, "*" + CLAIMED_SUFFIX ) )
+        {
+            for ( Path claimed : stream )
+            {
+                try
+                {
+                    if ( Files.getLastModifiedTime( claimed ).toInstant().isBefore( threshold ) )
+                    {
+                        final String name = claimed.getFileName().toString();
+                        final String original = name.substring( 0, name.indexOf( SEGMENT_SUFFIX ) + SEGMENT_SUFFIX.length() );
+                        Files.move( claimed, claimed.resolveSibling( original ), StandardCopyOption.ATOMIC_MOVE );
+                    }
+                }
+                catch( NoSuchFileException e ) {
+                    // released or finished by some other process
+                }
+            }
+        }
+    }
+
+    private static List<String> readSegment(Path segment) throws IOException
+    {
+        final List<String> result = new ArrayList<>();
+        try ( BufferedReader reader = Files.newBufferedReader( segment, StandardCharsets.UTF_8 ) )
+        {
+            final StringBuilder line = new StringBuilder();
+            int c;
+            while ( ( c = reader.read() ) != -1 )
+            {
+                if ( c == '\n' )
+                {
+                    if ( ! line.isEmpty() ) {
+                        result.add( line.toString() );
+                    }
+                    line.setLength( 0 );
+                } else {
+                    line.append( (char) c );
+                }
+            }
+            // anything left in 'line' lacks the terminating newline and thus is incomplete
+        }
+        return result;
+    }
+}
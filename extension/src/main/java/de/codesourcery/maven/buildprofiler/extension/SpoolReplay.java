@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Command-line tool that sends all build results from a spool directory to the server.
+ *
+ * Usage: <code>java -cp &lt;extension JAR&gt;:&lt;shared JAR&gt;:&lt;commons-lang3 JAR&gt; de.codesourcery.maven.buildprofiler.extension.SpoolReplay &lt;server URL&gt; [spool directory]</code>
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class SpoolReplay
+{
+    private static final Duration TIMEOUT = Duration.ofSeconds( 30 );
+
+    public static void main(String[] args) throws IOException
+    {
+        if ( args.length < 1 || args.length > 2 )
+        {
+            System.err.println( "Usage: <server URL> [spool directory, defaults to " + Spool.defaultDirectory() + "]" );
+            System.exit( 1 );
+        }
+        final URI serverUrl = URI.create( args[0] );
+        final Spool spool = new Spool( args.length > 1 ? Path.of( args[1] ) : Spool.defaultDirectory() );
+        final HttpClient client = Uploader.createClient( TIMEOUT );
+
+        final Spool.ReplayResult result = spool.replay( line ->
+        {
+            try
+            {
+                final Payload payload = Payload.fromSpoolLine( line );
+                final HttpRequest request = Uploader.createRequest( serverUrl, TIMEOUT, payload.bodyPublisher(), payload.getContentType(), null );
+                final int status = client.send( request, HttpResponse.BodyHandlers.discarding() ).statusCode();
+                if ( ! Uploader.isSuccess( status ) ) {
+                    System.err.println( "Server returned HTTP " + status );
+                    return ! Uploader.isRetryable( status );
+                }
+                return true;
+            }
+            catch( IllegalArgumentException e )
+            {
+                System.err.println( "Discarding corrupted build result (" + e.getMessage() + ")" );
+                return true;
+            }
+            catch( IOException e )
+            {
+                System.err.println( "Failed to send POST request to " + serverUrl + " (" + e.getMessage() + ")" );
+                return false;
+            }
+            catch( InterruptedException e )
+            {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }, Integer.MAX_VALUE );
+
+        System.out.println( "Sent " + result.sent() + " build results, " + result.remaining() + " remaining in " + spool.getDirectory() );
+        System.exit( result.remaining() == 0 ? 0 : 2 );
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.apache.commons.lang3.Validate;
+import org.codehaus.plexus.logging.Logger;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Sends build results to the profiler server.
+ *
+ * In asynchronous mode the HTTP request is performed by a background (daemon) thread and
+ * the calling thread only waits for at most {@link Config#maxExitDelay()}. When the
+ * upload did not complete within that time or failed in a way that might go away
+ * when retrying later, the payload is written to the local {@link Spool} so that
+ * it can be replayed by the next build (see {@link #replaySpool(int)}).
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class Uploader
+{
+    /**
+     * Upload configuration.
+     *
+     * @param serverUrl URL to POST build results to
+     * @param connectTimeout max. time to wait for the TCP connection to the server being established
+     * @param requestTimeout max. time to wait for the server's response
+     * @param maxExitDelay max. time an asynchronous upload may delay the end of the Maven build
+     * @param async whether to upload asynchronously
+     * @param gzip whether to gzip-compress the request body
+     */
+    record Config(URI serverUrl, Duration connectTimeout, Duration requestTimeout, Duration maxExitDelay, boolean async, boolean gzip)
+    {
+        Config
+        {
+            Validate.notNull( serverUrl, "serverUrl must not be null" );
+            Validate.notNull( connectTimeout, "connectTimeout must not be null" );
+            Validate.notNull( requestTimeout, "requestTimeout must not be null" );
+            Validate.notNull( maxExitDelay, "maxExitDelay must not be null" );
+            Validate.isTrue( !connectTimeout.isNegative() && !connectTimeout.isZero(), "connectTimeout must be positive" );
+            Validate.isTrue( !requestTimeout.isNegative() && !requestTimeout.isZero(), "requestTimeout must be positive" );
+            Validate.isTrue( !maxExitDelay.isNegative(), "maxExitDelay must not be negative" );
+        }
+    }
+
+    private final Logger log;
+    private final Config config;
+    private final Spool spool;
+    private final ExecutorService replayExecutor;
+    private final HttpClient client;
+
+    Uploader(Config config, Spool spool, Logger log)
+    {
+        Validate.notNull( config, "config must not be null" );
+        Validate.notNull( spool, "spool must not be null" );
+        Validate.notNull( log, "log must not be null" );
+        this.config = config;
+        this.spool = spool;
+        this.log = log;
+        // daemon thread so that a hanging replay never keeps the JVM alive
+        this.replayExecutor = Executors.newSingleThreadExecutor( r -> {
+            final Thread t = new Thread( r, "build-profiler-spool-replay" );
+            t.setDaemon( true );
+            return t;
+        } );
+        this.client = createClient( config.connectTimeout() );
+    }
+
+    static HttpClient createClient(Duration connectTimeout)
+    {
+        return HttpClient.newBuilder().connectTimeout( connectTimeout ).build();
+    }
+
+    /**
+     * Uploads a build result.
+     *
+     * Never blocks longer than {@link Config#maxExitDelay()} (asynchronous mode)
+     * or {@link Config#connectTimeout()} plus {@link Config#requestTimeout()} (synchronous mode).
+     *
+     * @param json build result as JSON
+     */
+    void upload(Payload json)
+    {
+        Validate.notNull( json, "json must not be null" );
+
+        log.debug( "Sending build result to " + config.serverUrl() );
+
+        if ( ! config.async() )
+        {
+            if ( ! post( json ) ) {
+                spool( json );
+            }
+            return;
+        }
+
+        final CompletableFuture<HttpResponse<String>> future =
+            client.sendAsync( createRequest( json ), HttpResponse.BodyHandlers.ofString() );
+        try
+        {
+            if ( ! checkResponse( future.get( config.maxExitDelay().toMillis(), TimeUnit.MILLISECONDS ) ) ) {
+                spool( json );
+            }
+        }
+        catch( TimeoutException e )
+        {
+            future.cancel( true );
+            log.warn( "Upload to " + config.serverUrl() + " did not complete within " + config.maxExitDelay().toMillis() + " ms, spooling build result locally." );
+            spool( json );
+        }
+        catch( ExecutionException e )
+        {
+            final Throwable cause = e.getCause() != null ? e.getCause() : e;
+            log.error( "Failed to send POST request to " + config.serverUrl() + " (" + cause.getMessage() + "), spooling build result locally." );
+            spool( json );
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            future.cancel( true );
+            log.warn( "Interrupted while waiting for upload to " + config.serverUrl() + ", spooling build result locally." );
+            spool( json );
+        }
+    }
+
+    /**
+     * Sends spooled build results from a background thread.
+     *
+     * @param maxPayloads max. number of build results to send
+     */
+    void replaySpool(int maxPayloads)
+    {
+        replayExecutor.submit( () ->
+        {
+            try
+            {
+                final Spool.ReplayResult result = spool.replay( this::replay, maxPayloads );
+                if ( result.sent() > 0 || result.remaining() > 0 ) {
+                    log.info( "Replayed " + result.sent() + " spooled build results from " + spool.getDirectory() + ", " + result.remaining() + " remaining." );
+                }
+            }
+            catch( Exception e )
+            {
+                log.error( "Failed to replay build results from " + spool.getDirectory() + " (" + e.getMessage() + ")", e );
+            }
+        } );
+    }
+
+    private boolean replay(String spoolLine)
+    {
+        final Payload payload;
+        try
+        {
+            payload = Payload.fromSpoolLine( spoolLine );
+        }
+        catch( IllegalArgumentException e )
+        {
+            log.error( "Discarding corrupted build result from " + spool.getDirectory() + " (" + e.getMessage() + ")" );
+            return true;
+        }
+        return post( payload );
+    }
+
+    /**
+     * Synchronously sends a build result.
+     *
+     * @param json build result
+     * @return <code>true</code> if the server received the build result or rejected it for good,
+     * <code>false</code> if sending should be retried later.
+     */
+    private boolean post(Payload json)
+    {
+        try
+        {
+            return checkResponse( client.send( createRequest( json ), HttpResponse.BodyHandlers.ofString() ) );
+        }
+        catch( IOException e )
+        {
+            log.error( "Failed to send POST request to " + config.serverUrl() + " (" + e.getMessage() + ")" );
+            return false;
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            log.error( "Interrupted while sending POST request to " + config.serverUrl() );
+            return false;
+        }
+    }
+
+    private void spool(Payload json)
+    {
+        try
+        {
+            spool.write( json );
+        }
+        catch( IOException e )
+        {
+            log.error( "Failed to spool build result to " + spool.getDirectory() + " (" + e.getMessage() + ")", e );
+        }
+    }
+
+    private HttpRequest createRequest(Payload json)
+    {
+        if ( config.gzip() ) {
+            return createRequest( config.serverUrl(), config.requestTimeout(), json.gzipBodyPublisher(), json.getContentType(), "gzip" );
+        }
+        return createRequest( config.serverUrl(), config.requestTimeout(), json.bodyPublisher(), json.getContentType(), null );
+    }
+
+    /**
+     * Creates a POST request carrying a build result.
+     *
+     * @param serverUrl
+     * @param requestTimeout
+     * @param body request body
+     * @param contentType content type of the build result
+     * @param contentEncoding encoding of the request body (like "gzip"), <code>null</code> if not encoded
+     * @return request
+     */
+    static HttpRequest createRequest(URI serverUrl, Duration requestTimeout, HttpRequest.BodyPublisher body, String contentType, String contentEncoding)
+    {
+        final HttpRequest.Builder builder = HttpRequest.newBuilder()
+            .uri( serverUrl )
+            .timeout( requestTimeout )
+            .header( "Accept", "application/json" )
+            .header( "Content-Type", contentType );
+        if ( contentEncoding != null ) {
+            builder.header( "Content-Encoding", contentEncoding );
+        }
+        return builder.POST( body ).build();
+    }
+
+    /**
+     * Checks whether the server accepted a build result.
+     *
+     * @param statusCode HTTP status code
+     * @return <code>true</code> for 2xx status codes (servers that store build results asynchronously answer with 202)
+     */
+    static boolean isSuccess(int statusCode)
+    {
+        return statusCode >= 200 && statusCode < 300;
+    }
+
+    /**
+     * Checks whether a request that got answered with a given HTTP status code should be retried later.
+     *
+     * @param statusCode HTTP status code
+     * @return <code>true</code> if the server is (temporarily) unable to process the request
+     */
+    static boolean isRetryable(int statusCode)
+    {
+        return statusCode == 408 || statusCode == 429 || statusCode >= 500;
+    }
+
+    private boolean checkResponse(HttpResponse<?> response)
+    {
+        if ( ! isSuccess( response.statusCode() ) )
+        {
+            log.error( "HTTP request to " + config.serverUrl() + " returned " + response.statusCode() );
+            return ! isRetryable( response.statusCode() );
+        }
+        return true;
+    }
+
+    /**
+     * Stops the background thread, abandoning any replay still in progress.
+     */
+    void shutdown()
+    {
+        replayExecutor.shutdownNow();
+    }
+}
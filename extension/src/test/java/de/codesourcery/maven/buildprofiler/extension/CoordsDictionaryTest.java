@@ -0,0 +1,37 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CoordsDictionaryTest
+{
+    @Test
+    void testIndexOf()
+    {
+        final CoordsDictionary dict = new CoordsDictionary();
+        assertThat( dict.indexOf( "g", "a", "1.0" ) ).isEqualTo( 0 );
+        assertThat( dict.indexOf( "g", "a", "2.0" ) ).isEqualTo( 1 );
+        assertThat( dict.indexOf( "g", "b", "1.0" ) ).isEqualTo( 2 );
+        assertThat( dict.indexOf( new ArtifactCoords( "g", "a", "1.0" ) ) ).isEqualTo( 0 );
+        assertThat( dict.indexOf( "g", "b", "1.0" ) ).isEqualTo( 2 );
+        assertThat( dict.getAll() ).containsExactly(
+            new ArtifactCoords( "g", "a", "1.0" ), new ArtifactCoords( "g", "a", "2.0" ), new ArtifactCoords( "g", "b", "1.0" ) );
+    }
+}
@@ -33,16 +33,19 @@ class MyExtensionTest
 
         long now = 1682321652229L;
 
+        final MyExtension instance = new MyExtension();
+        final int artifactIdx = instance.coords.indexOf( artifact );
         final List<MyExtension.ExecutionRecord> list = List.of(
-            new MyExtension.ExecutionRecord( artifact, plugin1, "clean", now, now + 10 ),
-            new MyExtension.ExecutionRecord( artifact, plugin2, "compile", now + 15, now + 20 )
+            new MyExtension.ExecutionRecord( artifactIdx, instance.coords.indexOf( plugin1 ), "clean", now, now + 10 ),
+            new MyExtension.ExecutionRecord( artifactIdx, instance.coords.indexOf( plugin2 ), "compile", now + 15, now + 20 )
         );
-        final MyExtension instance = new MyExtension();
         instance.gitHash = "deadbeef";
         instance.maxConcurrency.set(123);
         MyExtension.startupTimestamp = now - 1000;
         final String json = MyExtension.getJSONRequest( list, instance , now );
         System.out.println(json);
+        assertThat( json ).contains( "\"coords\" : [ {\"groupId\" : \"a-group\",\"artifactId\" : \"a-artifact\",\"version\" : \"1.0-a-SNAPSHOT\"}," );
+        assertThat( json ).contains( "{ \"artifactIdx\" : 0, \"pluginIdx\" : 2, \"phaseIdx\" : 1, \"startOffset\" : 1015, \"duration\" : 5}" );
     }
 
     private static ArtifactCoords coords(String groupId, String artifactId, String version) {
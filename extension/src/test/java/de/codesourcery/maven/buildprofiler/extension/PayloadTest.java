@@ -0,0 +1,60 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import java.util.zip.GZIPInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PayloadTest
+{
+    @Test
+    void testGzipEmptyPayload() throws IOException
+    {
+        assertThat( gunzip( Payload.json() ) ).isEmpty();
+    }
+
+    @Test
+    void testGzip() throws IOException
+    {
+        final Payload payload = Payload.json();
+        final StringBuilder json = new StringBuilder( "{\"records\" : [" );
+        final Random rnd = new Random( 42 );
+        for ( int i = 0; i < 100_000; i++ ) {
+            json.append( "{ \"duration\" : " ).append( rnd.nextInt( 1000 ) ).append( "}," );
+        }
+        json.append( "]}" );
+        payload.writeBytes( json.toString().getBytes( StandardCharsets.UTF_8 ) );
+
+        assertThat( gunzip( payload ) ).isEqualTo( payload.toByteArray() );
+        // reading it again works as well (HTTP client might retry)
+        assertThat( gunzip( payload ) ).isEqualTo( payload.toByteArray() );
+    }
+
+    private static byte[] gunzip(Payload payload) throws IOException
+    {
+        try ( InputStream in = new GZIPInputStream( payload.newGzipInputStream() ) )
+        {
+            return in.readAllBytes();
+        }
+    }
+}
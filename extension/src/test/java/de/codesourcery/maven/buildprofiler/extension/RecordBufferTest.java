@@ -0,0 +1,68 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecordBufferTest
+{
+    private static MyExtension.ExecutionRecord record(long start) {
+        return new MyExtension.ExecutionRecord( 0, 1, "compile", start, start + 1 );
+    }
+
+    @Test
+    void testGrowsBeyondInitialCapacity()
+    {
+        final RecordBuffer buffer = new RecordBuffer();
+        for ( int i = 0; i < 1000; i++ ) {
+            buffer.add( record( i ) );
+        }
+        final List<MyExtension.ExecutionRecord> result = new ArrayList<>();
+        buffer.drainTo( result );
+        assertThat( result ).hasSize( 1000 );
+        assertThat( result ).extracting( MyExtension.ExecutionRecord::startEpochMillis ).isSorted();
+    }
+
+    @Test
+    void testDrainWhileOwnerIsAppending() throws InterruptedException
+    {
+        final RecordBuffer buffer = new RecordBuffer();
+        final Thread owner = new Thread( () -> {
+            for ( int i = 0; i < 100_000; i++ ) {
+                buffer.add( record( i ) );
+            }
+        } );
+        owner.start();
+        while ( owner.isAlive() )
+        {
+            final List<MyExtension.ExecutionRecord> snapshot = new ArrayList<>();
+            buffer.drainTo( snapshot );
+            // never sees a record that has not been fully published
+            for ( int i = 0; i < snapshot.size(); i++ ) {
+                assertThat( snapshot.get( i ).startEpochMillis() ).isEqualTo( i );
+            }
+        }
+        owner.join();
+        final List<MyExtension.ExecutionRecord> result = new ArrayList<>();
+        buffer.drainTo( result );
+        assertThat( result ).hasSize( 100_000 );
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.extension;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpoolTest
+{
+    @TempDir
+    Path dir;
+
+    @Test
+    void testReplayInOrder() throws IOException
+    {
+        final Spool spool = new Spool( dir );
+        spool.write( "{\"a\":1}" );
+        spool.write( List.of( "{\"b\":2}", "{\"c\":3}" ) );
+
+        final List<String> sent = new ArrayList<>();
+        final Spool.ReplayResult result = spool.replay( sent::add, 10 );
+        assertThat( result ).isEqualTo( new Spool.ReplayResult( 3, 0 ) );
+        assertThat( sent ).containsExactly( "{\"a\":1}", "{\"b\":2}", "{\"c\":3}" );
+        assertThat( spool.getSegments() ).isEmpty();
+    }
+
+    @Test
+    void testFailedSendPutsPayloadsBack() throws IOException
+    {
+        final Spool spool = new Spool( dir );
+        spool.write( List.of( "{\"a\":1}", "{\"b\":2}", "{\"c\":3}" ) );
+
+        final List<String> sent = new ArrayList<>();
+        final Spool.ReplayResult result = spool.replay( json -> json.contains( "a" ) && sent.add( json ), 10 );
+        assertThat( result ).isEqualTo( new Spool.ReplayResult( 1, 2 ) );
+        assertThat( sent ).containsExactly( "{\"a\":1}" );
+
+        sent.clear();
+        assertThat( spool.replay( sent::add, 1 ) ).isEqualTo( new Spool.ReplayResult( 1, 1 ) );
+        assertThat( sent ).containsExactly( "{\"b\":2}" );
+        assertThat( spool.replay( sent::add, 10 ) ).isEqualTo( new Spool.ReplayResult( 1, 0 ) );
+        assertThat( sent ).containsExactly( "{\"b\":2}", "{\"c\":3}" );
+    }
+
+    @Test
+    void testPayloadsPutBackKeepTheirPlace() throws IOException
+    {
+        final Spool spool = new Spool( dir );
+        spool.write( List.of( "{\"a\":1}", "{\"b\":2}" ) );
+        spool.write( "{\"c\":3}" );
+
+        // nothing sent
+        assertThat( spool.replay( json -> false, 10 ) ).isEqualTo( new Spool.ReplayResult( 0, 2 ) );
+        assertThat( spool.getSegments() ).hasSize( 2 );
+
+        // partially sent
+        final List<String> sent = new ArrayList<>();
+        assertThat( spool.replay( json -> json.contains( "a" ) && sent.add( json ), 10 ) ).isEqualTo( new Spool.ReplayResult( 1, 1 ) );
+        spool.write( "{\"d\":4}" );
+
+        assertThat( spool.replay( sent::add, 10 ) ).isEqualTo( new Spool.ReplayResult( 3, 0 ) );
+        assertThat( sent ).containsExactly( "{\"a\":1}", "{\"b\":2}", "{\"c\":3}", "{\"d\":4}" );
+        assertThat( spool.getSegments() ).isEmpty();
+    }
+
+    @Test
+    void testIncompleteLastLineIsIgnored() throws IOException
+    {
+        Files.writeString( dir.resolve( "spool-1-x" + Spool.SEGMENT_SUFFIX ), "{\"a\":1}\n{\"b\":", StandardCharsets.UTF_8 );
+        final List<String> sent = new ArrayList<>();
+        assertThat( new Spool( dir ).replay( sent::add, 10 ) ).isEqualTo( new Spool.ReplayResult( 1, 0 ) );
+        assertThat( sent ).containsExactly( "{\"a\":1}" );
+    }
+}
@@ -22,6 +22,7 @@ import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
 
 import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 @JsonAutoDetect(fieldVisibility = Visibility.ANY, getterVisibility = Visibility.NONE, setterVisibility = Visibility.NONE)
 public class BuildResult
@@ -29,6 +30,12 @@ public class BuildResult
     @JsonProperty(required = true)
     public int jsonSyntaxVersion;
 
+    /**
+     * Client-generated UUID identifying the build (syntax version 3+), used to
+     * detect build results that got sent more than once.
+     */
+    public String buildId;
+
     @JsonProperty(required = true)
     public long buildStartTime;
 
@@ -67,9 +74,71 @@ public class BuildResult
     @JsonProperty(required = true)
     public List<ArtifactCoords> coords;
 
+    /**
+     * Phase names referenced by {@link Record#phaseIdx} (JSON syntax version 2+).
+     */
+    public List<String> phases;
+
     @JsonProperty(required = true)
     public List<Record> records;
 
+    /**
+     * Resolves the phase names and absolute start/end times of records
+     * that use the JSON syntax version 2 encoding.
+     *
+     * Records that already carry a phase name are left unchanged.
+     *
+     * @return this instance
+     * @throws IllegalArgumentException if a record references a non-existent phase
+     */
+    public BuildResult resolveRecords()
+    {
+        records.forEach( this::resolve );
+        return this;
+    }
+
+    /**
+     * Resolves the phase name and absolute start/end times of a single record
+     * that uses the JSON syntax version 2 encoding.
+     *
+     * @param record record of this build result, left unchanged if it already carries a phase name
+     * @throws IllegalArgumentException if the record references a non-existent phase
+     * @see #resolveRecords()
+     */
+    public void resolve(Record record)
+    {
+        if ( record.phase == null )
+        {
+            if ( phases == null || record.phaseIdx < 0 || record.phaseIdx >= phases.size() ) {
+                throw new IllegalArgumentException( "Record references unknown phase #" + record.phaseIdx );
+            }
+            record.phase = phases.get( record.phaseIdx );
+            record.startMillis = buildStartTime + record.startOffset;
+            record.endMillis = record.startMillis + record.duration;
+        }
+    }
+
+    /**
+     * Checks whether a string is a valid build ID.
+     *
+     * @param buildId build ID, may be <code>null</code>
+     * @return <code>true</code> if the ID is a UUID in its canonical (36 characters) representation
+     */
+    public static boolean isValidBuildId(String buildId)
+    {
+        if ( buildId == null || buildId.length() != 36 ) {
+            return false;
+        }
+        try
+        {
+            UUID.fromString( buildId );
+            return true;
+        }
+        catch( IllegalArgumentException e ) {
+            return false;
+        }
+    }
+
     public static class Record {
         public int artifactIdx;
         public int pluginIdx;
@@ -78,6 +147,11 @@ public class BuildResult
         public long startMillis;
         public long endMillis;
 
+        // JSON syntax version 2, see resolveRecords()
+        public int phaseIdx;
+        public long startOffset;
+        public long duration;
+
         public ArtifactCoords artifact(BuildResult r) {
             return r.coords.get(artifactIdx);
         }
@@ -0,0 +1,141 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.common;
+
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import de.codesourcery.maven.buildprofiler.shared.BinaryReader;
+import de.codesourcery.maven.buildprofiler.shared.Constants;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Decodes binary encoded build results.
+ *
+ * Layout (see {@link de.codesourcery.maven.buildprofiler.shared.BinaryWriter} for how the primitives are encoded):
+ * <pre>
+ * int32     magic ({@link Constants#BINARY_MAGIC})
+ * varint    syntax version
+ * string    buildId (syntax version 3+)
+ * svarint   buildStartTime (epoch millis)
+ * svarint   buildDurationMillis
+ * string    hostIP, hostName, jvmVersion, projectName, branchName, gitHash
+ * varint    maxConcurrency, availableProcessors
+ * varint    number of system properties, followed by (string key, string value) pairs
+ * varint    number of environment variables, followed by (string key, string value) pairs
+ * varint    number of coords, followed by (string groupId, string artifactId, string version) triples
+ * varint    number of phases, followed by the phase names
+ * varint    number of records, followed by records:
+ *           varint artifactIdx, varint pluginIdx, varint phaseIdx,
+ *           svarint start relative to buildStartTime, varint duration
+ * </pre>
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class BuildResultDecoder
+{
+    /**
+     * Decodes a build result.
+     *
+     * @param input binary encoded build result, not closed by this method
+     * @return build result
+     * @throws IOException on I/O errors or malformed input
+     */
+    public static BuildResult decode(InputStream input) throws IOException
+    {
+        final BinaryReader in = new BinaryReader( new BufferedInputStream( input, 16 * 1024 ) );
+
+        final int magic = in.readInt32();
+        if ( magic != Constants.BINARY_MAGIC ) {
+            throw new IOException( "Not a binary build result (bad magic 0x" + Integer.toHexString( magic ) + ")" );
+        }
+        final BuildResult result = new BuildResult();
+        result.jsonSyntaxVersion = in.readVarInt();
+        if ( result.jsonSyntaxVersion < 2 || result.jsonSyntaxVersion > Constants.BINARY_SYNTAX_VERSION ) {
+            throw new IOException( "Unsupported binary syntax version " + result.jsonSyntaxVersion + ", client newer than server?" );
+        }
+        if ( result.jsonSyntaxVersion >= 3 )
+        {
+            result.buildId = in.readString();
+            if ( ! BuildResult.isValidBuildId( result.buildId ) ) {
+                throw new IOException( "Malformed build ID '" + result.buildId + "'" );
+            }
+        }
+        result.buildStartTime = in.readSignedVarLong();
+        result.buildDurationMillis = in.readSignedVarLong();
+        result.hostIP = in.readString();
+        result.hostName = in.readString();
+        result.jvmVersion = in.readString();
+        result.projectName = in.readString();
+        result.branchName = in.readString();
+        result.gitHash = in.readString();
+        result.maxConcurrency = in.readVarInt();
+        result.availableProcessors = in.readVarInt();
+        result.systemProperties = readMap( in );
+        result.environment = readMap( in );
+
+        int count = in.readVarInt();
+        result.coords = new ArrayList<>( Math.min( count, 1024 ) );
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            result.coords.add( new ArtifactCoords( in.readString(), in.readString(), in.readString() ) );
+        }
+
+        count = in.readVarInt();
+        result.phases = new ArrayList<>( Math.min( count, 1024 ) );
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            result.phases.add( in.readString() );
+        }
+
+        count = in.readVarInt();
+        result.records = new ArrayList<>( Math.min( count, 64 * 1024 ) );
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            final BuildResult.Record record = new BuildResult.Record();
+            record.artifactIdx = checkIndex( in.readVarInt(), result.coords.size(), "artifact" );
+            record.pluginIdx = checkIndex( in.readVarInt(), result.coords.size(), "plugin" );
+            record.phaseIdx = checkIndex( in.readVarInt(), result.phases.size(), "phase" );
+            record.startOffset = in.readSignedVarLong();
+            record.duration = in.readVarLong();
+            result.records.add( record );
+        }
+        return result.resolveRecords();
+    }
+
+    private static int checkIndex(int index, int size, String what) throws IOException
+    {
+        if ( index >= size ) {
+            throw new IOException( "Malformed input, " + what + " index " + index + " out of range (" + size + " entries)" );
+        }
+        return index;
+    }
+
+    private static Map<String, String> readMap(BinaryReader in) throws IOException
+    {
+        final int count = in.readVarInt();
+        final Map<String, String> result = new HashMap<>();
+        for ( int i = 0 ; i < count ; i++ )
+        {
+            result.put( in.readString(), in.readString() );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,284 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.common;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streaming parser for JSON build results.
+ *
+ * Unlike binding the whole document to a {@link BuildResult}, records are parsed token-by-token
+ * and handed to a {@link Handler} in batches, so memory usage does not depend on the number of records.
+ *
+ * Records can only be streamed if all required properties (and the phase table for syntax
+ * version 2+) appear before the "records" array, which is how the Maven extension writes them.
+ * Otherwise records are buffered until the end of the document. Properties following an already
+ * streamed "records" array are rejected.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class BuildResultParser
+{
+    private static final TypeReference<Map<String, String>> STRING_MAP = new TypeReference<>() {};
+    private static final TypeReference<List<ArtifactCoords>> COORDS_LIST = new TypeReference<>() {};
+    private static final TypeReference<List<String>> STRING_LIST = new TypeReference<>() {};
+
+    // properties the Maven extension always writes ('buildId', 'hostName' and 'gitHash' are left out when unknown)
+    private static final Set<String> REQUIRED_PROPERTIES = Set.of( "jsonSyntaxVersion", "buildStartTime", "buildDurationMillis",
+        "branchName", "projectName", "hostIP", "maxConcurrency", "jvmVersion", "availableProcessors",
+        "systemProperties", "environment", "coords", "records" );
+
+    /**
+     * Receives the parsed build result.
+     */
+    public interface Handler
+    {
+        /**
+         * Invoked exactly once, before the first invocation of {@link #records(List)}.
+         *
+         * @param header build result with all properties except {@link BuildResult#records} populated
+         * @throws IOException to abort parsing
+         */
+        void header(BuildResult header) throws IOException;
+
+        /**
+         * Invoked for each batch of records.
+         *
+         * @param records records, already resolved (see {@link BuildResult#resolve(BuildResult.Record)}).
+         *                The list is only valid during this invocation.
+         * @throws IOException to abort parsing
+         */
+        void records(List<BuildResult.Record> records) throws IOException;
+    }
+
+    private final ObjectMapper mapper;
+    private final int batchSize;
+
+    public BuildResultParser(ObjectMapper mapper, int batchSize)
+    {
+        Validate.notNull( mapper, "mapper must not be null" );
+        Validate.isTrue( batchSize > 0, "batchSize must be > 0" );
+        this.mapper = mapper;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Parses a JSON build result, keeping all records in memory.
+     *
+     * @param input JSON input
+     * @return build result with resolved records
+     * @throws IOException on I/O errors or malformed input
+     */
+    public BuildResult parse(InputStream input) throws IOException
+    {
+        final BuildResult[] result = { null };
+        final List<BuildResult.Record> records = new ArrayList<>();
+        parse( input, new Handler()
+        {
+            @Override
+            public void header(BuildResult header)
+            {
+                result[0] = header;
+            }
+
+            @Override
+            public void records(List<BuildResult.Record> batch)
+            {
+                records.addAll( batch );
+            }
+        });
+        result[0].records = records;
+        return result[0];
+    }
+
+    /**
+     * Parses a JSON build result.
+     *
+     * @param input JSON input
+     * @param handler handler to pass the build result to
+     * @throws IOException on I/O errors, malformed input or if the handler failed
+     */
+    public void parse(InputStream input, Handler handler) throws IOException
+    {
+        Validate.notNull( input, "input must not be null" );
+        Validate.notNull( handler, "handler must not be null" );
+
+        final BuildResult header = new BuildResult();
+        final Set<String> seen = new HashSet<>();
+        final List<BuildResult.Record> buffer = new ArrayList<>();
+        boolean headerSent = false;
+
+        try ( JsonParser parser = mapper.getFactory().createParser( input ) )
+        {
+            if ( parser.nextToken() != JsonToken.START_OBJECT ) {
+                throw new JsonParseException( parser, "Expected a JSON object" );
+            }
+            while ( parser.nextToken() == JsonToken.FIELD_NAME )
+            {
+                final String name = parser.getCurrentName();
+                parser.nextToken();
+                if ( headerSent ) {
+                    throw new JsonParseException( parser, "Property '" + name + "' must not follow the 'records' array" );
+                }
+                seen.add( name );
+                switch( name )
+                {
+                    case "jsonSyntaxVersion" -> header.jsonSyntaxVersion = parser.getIntValue();
+                    case "buildId" ->
+                    {
+                        header.buildId = parser.getValueAsString();
+                        if ( ! BuildResult.isValidBuildId( header.buildId ) ) {
+                            throw new JsonParseException( parser, "Malformed build ID '" + header.buildId + "'" );
+                        }
+                    }
+                    case "buildStartTime" -> header.buildStartTime = parser.getLongValue();
+                    case "buildDurationMillis" -> header.buildDurationMillis = parser.getLongValue();
+                    case "branchName" -> header.branchName = parser.getValueAsString();
+                    case "projectName" -> header.projectName = parser.getValueAsString();
+                    case "hostName" -> header.hostName = parser.getValueAsString();
+                    case "hostIP" -> header.hostIP = parser.getValueAsString();
+                    case "maxConcurrency" -> header.maxConcurrency = parser.getIntValue();
+                    case "jvmVersion" -> header.jvmVersion = parser.getValueAsString();
+                    case "availableProcessors" -> header.availableProcessors = parser.getIntValue();
+                    case "gitHash" -> header.gitHash = parser.getValueAsString();
+                    case "systemProperties" -> header.systemProperties = mapper.readValue( parser, STRING_MAP );
+                    case "environment" -> header.environment = mapper.readValue( parser, STRING_MAP );
+                    case "coords" -> header.coords = mapper.readValue( parser, COORDS_LIST );
+                    case "phases" -> header.phases = mapper.readValue( parser, STRING_LIST );
+                    case "records" ->
+                    {
+                        if ( parser.currentToken() != JsonToken.START_ARRAY ) {
+                            throw new JsonParseException( parser, "'records' must be an array" );
+                        }
+                        final boolean stream = isComplete( header, seen );
+                        if ( stream )
+                        {
+                            handler.header( header );
+                            headerSent = true;
+                        }
+                        while ( parser.nextToken() == JsonToken.START_OBJECT )
+                        {
+                            final BuildResult.Record record = parseRecord( parser );
+                            if ( stream ) {
+                                resolve( header, record, parser );
+                            }
+                            buffer.add( record );
+                            if ( stream && buffer.size() >= batchSize )
+                            {
+                                handler.records( buffer );
+                                buffer.clear();
+                            }
+                        }
+                        if ( parser.currentToken() != JsonToken.END_ARRAY ) {
+                            throw new JsonParseException( parser, "'records' must only contain objects" );
+                        }
+                    }
+                    default -> parser.skipChildren();
+                }
+            }
+            if ( parser.currentToken() != JsonToken.END_OBJECT ) {
+                throw new JsonParseException( parser, "Malformed JSON object" );
+            }
+
+            if ( ! headerSent )
+            {
+                final Set<String> missing = new HashSet<>( REQUIRED_PROPERTIES );
+                missing.removeAll( seen );
+                if ( ! missing.isEmpty() ) {
+                    throw new JsonParseException( parser, "Missing required properties " + missing );
+                }
+                if ( ! isComplete( header, seen ) ) {
+                    throw new JsonParseException( parser, "Missing phase table" );
+                }
+                handler.header( header );
+                for ( BuildResult.Record record : buffer ) {
+                    resolve( header, record, parser );
+                }
+            }
+            // buffer holds either the last (partial) batch or all records
+            for ( int start = 0 ; start < buffer.size() ; start += batchSize )
+            {
+                handler.records( buffer.subList( start, Math.min( buffer.size(), start + batchSize ) ) );
+            }
+        }
+    }
+
+    private static boolean isComplete(BuildResult header, Set<String> seen)
+    {
+        // the 'records' array itself is the only required property we expect not to have seen yet
+        for ( String property : REQUIRED_PROPERTIES )
+        {
+            if ( ! seen.contains( property ) && ! "records".equals( property ) ) {
+                return false;
+            }
+        }
+        return header.jsonSyntaxVersion < 2 || header.phases != null;
+    }
+
+    private static void resolve(BuildResult header, BuildResult.Record record, JsonParser parser) throws IOException
+    {
+        if ( record.artifactIdx < 0 || record.artifactIdx >= header.coords.size() ||
+             record.pluginIdx < 0 || record.pluginIdx >= header.coords.size() )
+        {
+            throw new JsonParseException( parser, "Record references unknown coordinates" );
+        }
+        try
+        {
+            header.resolve( record );
+        }
+        catch( IllegalArgumentException e )
+        {
+            throw new JsonParseException( parser, e.getMessage() );
+        }
+    }
+
+    private static BuildResult.Record parseRecord(JsonParser parser) throws IOException
+    {
+        final BuildResult.Record record = new BuildResult.Record();
+        while ( parser.nextToken() == JsonToken.FIELD_NAME )
+        {
+            final String name = parser.getCurrentName();
+            parser.nextToken();
+            switch( name )
+            {
+                case "artifactIdx" -> record.artifactIdx = parser.getIntValue();
+                case "pluginIdx" -> record.pluginIdx = parser.getIntValue();
+                case "phase" -> record.phase = parser.getValueAsString();
+                case "startMillis" -> record.startMillis = parser.getLongValue();
+                case "endMillis" -> record.endMillis = parser.getLongValue();
+                case "phaseIdx" -> record.phaseIdx = parser.getIntValue();
+                case "startOffset" -> record.startOffset = parser.getLongValue();
+                case "duration" -> record.duration = parser.getLongValue();
+                default -> parser.skipChildren();
+            }
+        }
+        return record;
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares calculating the wall-clock time of a build's records using
+ * the sort-and-sweep union against the pairwise merging it replaced.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@State( Scope.Benchmark )
+@BenchmarkMode( Mode.AverageTime )
+@OutputTimeUnit( TimeUnit.MICROSECONDS )
+@Warmup( iterations = 3, time = 2 )
+@Measurement( iterations = 5, time = 2 )
+@Fork( 1 )
+public class LongIntervalBenchmark
+{
+    public enum Layout {
+        // mojos of a parallel build, lots of overlap
+        OVERLAPPING,
+        // mojos of a sequential build, no overlap at all
+        DISJOINT
+    }
+
+    @Param( { "1000", "10000", "100000" } )
+    public int count;
+
+    @Param( { "OVERLAPPING", "DISJOINT" } )
+    public Layout layout;
+
+    private long[] starts;
+    private long[] ends;
+    private List<LongInterval> intervals;
+
+    @Setup
+    public void setup()
+    {
+        final Random rnd = new Random( 0xdeadbeef );
+        starts = new long[count];
+        ends = new long[count];
+        long time = 0;
+        for ( int i = 0; i < count; i++ )
+        {
+            if ( layout == Layout.OVERLAPPING )
+            {
+                starts[i] = rnd.nextInt( 30 * 60 * 1000 );
+                ends[i] = starts[i] + rnd.nextInt( 5000 );
+            }
+            else
+            {
+                starts[i] = time + 1 + rnd.nextInt( 10 );
+                ends[i] = starts[i] + rnd.nextInt( 5000 );
+                time = ends[i];
+            }
+        }
+        // records come back from the database in no particular order
+        for ( int i = count - 1; i > 0; i-- )
+        {
+            final int j = rnd.nextInt( i + 1 );
+            swap( starts, i, j );
+            swap( ends, i, j );
+        }
+        intervals = new ArrayList<>( count );
+        for ( int i = 0; i < count; i++ ) {
+            intervals.add( LongInterval.of( starts[i], ends[i] ) );
+        }
+    }
+
+    private static void swap(long[] array, int i, int j)
+    {
+        final long tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    @Benchmark
+    public long coverage()
+    {
+        final IntervalSet.Builder builder = new IntervalSet.Builder( count );
+        for ( int i = 0; i < count; i++ ) {
+            builder.add( starts[i], ends[i] );
+        }
+        return builder.coverage();
+    }
+
+    @Benchmark
+    public long mergeIfPossible()
+    {
+        return LongInterval.mergeIfPossible( intervals ).stream().mapToLong( LongInterval::length ).sum();
+    }
+
+    @Benchmark
+    public long pairwiseMerge()
+    {
+        final List<LongInterval> copy = new ArrayList<>( count );
+        intervals.forEach( iv -> copy.add( LongInterval.of( iv.getStart(), iv.getEnd() ) ) );
+        return pairwiseMerge( copy ).stream().mapToLong( LongInterval::length ).sum();
+    }
+
+    // previous implementation of LongInterval#mergeIfPossible()
+    private static List<LongInterval> pairwiseMerge(List<LongInterval> intervals)
+    {
+        final List<LongInterval> result = new ArrayList<>();
+        if ( intervals.size() > 1 )
+        {
+            final Iterator<LongInterval> it = intervals.iterator();
+            result.add( it.next() );
+
+outer:
+            while (it.hasNext())
+            {
+                final LongInterval iv = it.next();
+                for ( LongInterval candidate : result )
+                {
+                    if ( candidate.canBeMergedWith( iv ) ) {
+                        candidate.mergeInPlace( iv );
+                        continue outer;
+                    }
+                }
+                result.add( iv );
+            }
+        } else {
+            result.addAll( intervals );
+        }
+        return result;
+    }
+}
@@ -15,6 +15,7 @@
  */
 package de.codesourcery.maven.buildprofiler.server;
 
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
 import de.codesourcery.maven.buildprofiler.server.wicket.WicketApplication;
 import org.apache.wicket.protocol.http.WicketFilter;
 import org.springframework.beans.factory.annotation.Value;
@@ -22,15 +23,18 @@ import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.boot.web.servlet.ServletComponentScan;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.ComponentScan;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 import javax.servlet.DispatcherType;
 import javax.servlet.FilterConfig;
 import javax.servlet.ServletException;
+import java.nio.file.Path;
 import java.util.EnumSet;
 
 @org.springframework.context.annotation.Configuration
 @ComponentScan(basePackages = { "de.codesourcery.maven.buildprofiler.server" , "de.codesourcery.maven.buildprofiler.server.wicket" })
 @ServletComponentScan(basePackages = "de.codesourcery.maven.buildprofiler.wicket")
+@EnableScheduling
 public class Configuration
 {
 
@@ -61,4 +65,31 @@ public class Configuration
 
         return filter;
     }
+
+    @Bean
+    public DeadLetterSpool deadLetterSpool(@Value("${profiler.ingest.deadLetterDir:${user.home}/buildprofiler-dead-letters}") String directory)
+    {
+        return new DeadLetterSpool( Path.of( directory ) );
+    }
+
+    @Bean(destroyMethod = "shutdown")
+    public IngestQueue ingestQueue(DbService dbService,
+                                   DeadLetterSpool deadLetterSpool,
+                                   @Value("${profiler.ingest.queueCapacityRecords:1000000}") long capacityRecords,
+                                   @Value("${profiler.ingest.writerThreads:2}") int writerThreads,
+                                   @Value("${profiler.ingest.maxBuildsPerTransaction:20}") int maxBuildsPerTransaction)
+    {
+        return new IngestQueue( dbService::save, deadLetterSpool, capacityRecords, writerThreads, maxBuildsPerTransaction );
+    }
+
+    @Bean
+    public FilterRegistrationBean<RequestDecompressionFilter> requestDecompressionFilter(@Value("${profiler.ingest.maxDecompressedBytes:104857600}") long maxDecompressedBytes)
+    {
+        final FilterRegistrationBean<RequestDecompressionFilter> filter = new FilterRegistrationBean<>( new RequestDecompressionFilter( maxDecompressedBytes ) );
+        filter.setName("request-decompression-filter");
+        filter.setEnabled( true );
+        filter.setOrder( 0 );
+        filter.addUrlPatterns("/api/*");
+        return filter;
+    }
 }
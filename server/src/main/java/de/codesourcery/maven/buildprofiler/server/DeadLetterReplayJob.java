@@ -0,0 +1,64 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+
+/**
+ * Periodically retries storing build results the {@link IngestQueue} moved to its {@link DeadLetterSpool},
+ * starting right after the server came up so build results spooled during the last shutdown get stored first.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@Component
+public class DeadLetterReplayJob
+{
+    private static final Logger LOG = LogManager.getLogger( DeadLetterReplayJob.class );
+
+    private final IngestQueue ingestQueue;
+
+    @Autowired
+    public DeadLetterReplayJob(IngestQueue ingestQueue)
+    {
+        Validate.notNull( ingestQueue, "ingestQueue must not be null" );
+        this.ingestQueue = ingestQueue;
+    }
+
+    @Scheduled(initialDelayString = "${profiler.ingest.deadLetterInitialDelayMillis:10000}",
+               fixedDelayString = "${profiler.ingest.deadLetterRetryMillis:300000}")
+    public void run()
+    {
+        try
+        {
+            final DeadLetterSpool.ReplayResult result = ingestQueue.replayDeadLetters();
+            if ( result.stored() > 0 || result.remaining() > 0 ) {
+                LOG.info( "Stored " + result.stored() + " spooled build results, " + result.remaining() + " remaining." );
+            }
+        }
+        catch( IOException | RuntimeException e )
+        {
+            // retried on the next run
+            LOG.error( "Failed to replay spooled build results: " + e.getMessage(), e );
+        }
+    }
+}
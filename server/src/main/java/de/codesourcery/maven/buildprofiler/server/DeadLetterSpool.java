@@ -0,0 +1,202 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.common.BuildResultParser;
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Directory holding build results that were accepted by the server but could not be written to the database.
+ *
+ * Build results are stored in <i>segment</i> files, one JSON document per line (NDJSON), so a segment
+ * can also be sent to <code>/api/receive/batch</code> as-is. Segments are written to a temporary file
+ * and then atomically renamed into place, a segment that was only partially written because the JVM died
+ * is still a temporary file and gets ignored.
+ *
+ * Only a single server instance may use a given directory.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class DeadLetterSpool
+{
+    private static final Logger LOG = LogManager.getLogger( DeadLetterSpool.class );
+
+    static final String SEGMENT_SUFFIX = ".ndjson";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final Path directory;
+    private final ObjectMapper mapper = new ObjectMapper()
+        .setSerializationInclusion( JsonInclude.Include.NON_NULL )
+        .addMixIn( ArtifactCoords.class, ArtifactCoordsMixIn.class );
+
+    // keeps the derived 'asString' property out of the JSON so the server's parser accepts it
+    @JsonIgnoreProperties("asString")
+    private interface ArtifactCoordsMixIn {
+    }
+
+    /**
+     * Outcome of {@link #replay(IngestQueue.BatchWriter)}.
+     *
+     * @param stored number of build results that got written to the database
+     * @param remaining number of build results still in the spool
+     */
+    public record ReplayResult(int stored, int remaining) {
+    }
+
+    public DeadLetterSpool(Path directory)
+    {
+        Validate.notNull( directory, "directory must not be null" );
+        this.directory = directory;
+    }
+
+    public Path getDirectory()
+    {
+        return directory;
+    }
+
+    /**
+     * Stores build results in a new segment.
+     *
+     * @param results build results with resolved records
+     * @throws IOException
+     */
+    public synchronized void write(List<BuildResult> results) throws IOException
+    {
+        Validate.notNull( results, "results must not be null" );
+        if ( results.isEmpty() ) {
+            return;
+        }
+        final List<String> lines = new ArrayList<>( results.size() );
+        for ( BuildResult result : results ) {
+            // Jackson escapes line breaks inside strings
+            lines.add( mapper.writeValueAsString( result ) );
+        }
+        Files.createDirectories( directory );
+        // file names sort by creation time so replay preserves the order build results got accepted in
+        final String name = "deadletter-" + System.currentTimeMillis() + "-" + "%010d".formatted( SEQUENCE.incrementAndGet() );
+        writeSegment( directory.resolve( name + SEGMENT_SUFFIX ), lines );
+    }
+
+    private static void writeSegment(Path segment, List<String> lines) throws IOException
+    {
+        final Path tmp = segment.resolveSibling( segment.getFileName() + TMP_SUFFIX );
+        try ( Writer writer = Files.newBufferedWriter( tmp, StandardCharsets.UTF_8,
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE ) )
+        {
+            for ( String line : lines )
+            {
+                writer.write( line );
+                writer.write( '\n' );
+            }
+        }
+        Files.move( tmp, segment, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING );
+    }
+
+    /**
+     * Returns all segments, oldest first.
+     *
+     * @return segments
+     * @throws IOException
+     */
+    public synchronized List<Path> getSegments() throws IOException
+    {
+        if ( ! Files.isDirectory( directory ) ) {
+            return Collections.emptyList();
+        }
+        final List<Path> result = new ArrayList<>();
+        try ( DirectoryStream<Path> stream = Files.newDirectoryStream( directory, "*" + SEGMENT_SUFFIX ) )
+        {
+            stream.forEach( result::add );
+        }
+        result.sort( (a, b) -> a.getFileName().toString().compareTo( b.getFileName().toString() ) );
+        return result;
+    }
+
+    /**
+     * Writes spooled build results to the database, oldest first, each in a transaction of its own.
+     *
+     * Build results that still cannot be written (or cannot be parsed) stay in the spool, under their
+     * segment's original name so they keep their place in the replay order.
+     *
+     * @param writer used to store build results
+     * @return replay outcome
+     * @throws IOException
+     */
+    public synchronized ReplayResult replay(IngestQueue.BatchWriter writer) throws IOException
+    {
+        Validate.notNull( writer, "writer must not be null" );
+
+        int stored = 0;
+        int remaining = 0;
+        for ( Path segment : getSegments() )
+        {
+            final List<String> lines = Files.readAllLines( segment, StandardCharsets.UTF_8 );
+            final List<String> failed = new ArrayList<>();
+            for ( String line : lines )
+            {
+                if ( line.isEmpty() ) {
+                    continue;
+                }
+                try
+                {
+                    writer.save( List.of( parse( line ) ) );
+                    stored++;
+                }
+                catch( Exception e )
+                {
+                    LOG.warn( "Failed to store build result from " + segment + ": " + e.getMessage() );
+                    failed.add( line );
+                }
+            }
+            remaining += failed.size();
+            if ( failed.isEmpty() ) {
+                Files.delete( segment );
+            }
+            else if ( failed.size() < lines.size() ) {
+                writeSegment( segment, failed );
+            }
+        }
+        return new ReplayResult( stored, remaining );
+    }
+
+    private BuildResult parse(String line) throws IOException
+    {
+        return new BuildResultParser( mapper, 1000 ).parse( new ByteArrayInputStream( line.getBytes( StandardCharsets.UTF_8 ) ) );
+    }
+}
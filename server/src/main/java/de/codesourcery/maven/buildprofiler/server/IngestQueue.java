@@ -0,0 +1,315 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+
+import java.util.ArrayDeque;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bounded in-memory queue of build results waiting to be written to the database.
+ *
+ * The queue is bounded by the total number of records (not builds) it holds, so memory usage stays
+ * predictable no matter how large individual builds are. A build that exceeds the capacity on its own
+ * is only accepted when the queue is empty.
+ *
+ * Writer threads take up to {@code maxBuildsPerBatch} build results at once and
+ * store them within a single transaction. If that fails, each build result of the batch gets stored
+ * in a transaction of its own so that a single bad build result cannot take down the others.
+ *
+ * Build results that cannot be stored even on their own, and build results still queued or being written
+ * when the shutdown timeout expires, are moved to a {@link DeadLetterSpool} and written again by
+ * {@link #replayDeadLetters()} later on. Build results still being written at that point may get stored twice,
+ * the build ID check in {@link de.codesourcery.maven.buildprofiler.server.db.DbService} discards the second copy
+ * of build results sent by extension versions 1.0.8+. Build results queued when the JVM crashes are lost.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class IngestQueue
+{
+    private static final Logger LOG = LogManager.getLogger( IngestQueue.class );
+
+    private static final long SHUTDOWN_TIMEOUT_SECONDS = 60;
+
+    /**
+     * Stores build results.
+     */
+    @FunctionalInterface
+    public interface BatchWriter
+    {
+        /**
+         * Stores build results in a single transaction.
+         *
+         * @param results build results
+         * @throws Exception if storing failed and the transaction was rolled back
+         */
+        void save(List<BuildResult> results) throws Exception;
+    }
+
+    /**
+     * Queue status.
+     *
+     * @param queuedBuilds number of build results waiting to be written or currently being written
+     * @param queuedRecords total number of records of those build results
+     * @param capacityRecords max. number of records the queue can hold
+     */
+    public record Status(int queuedBuilds, long queuedRecords, long capacityRecords) {
+    }
+
+    private final BatchWriter writer;
+    private final DeadLetterSpool deadLetters;
+    private final long capacityRecords;
+    private final int maxBuildsPerBatch;
+    private final ExecutorService writers;
+
+    // @GuardedBy( queue )
+    private final ArrayDeque<BuildResult> queue = new ArrayDeque<>();
+    // @GuardedBy( queue ), includes build results currently being written
+    private int queuedBuilds;
+    // @GuardedBy( queue ), includes build results currently being written
+    private long queuedRecords;
+    // @GuardedBy( queue ), batches currently being written
+    private final List<List<BuildResult>> inFlight = new ArrayList<>();
+    // @GuardedBy( queue )
+    private boolean shutdown;
+
+    /**
+     * Creates a queue and starts its writer threads.
+     *
+     * @param writer used to store build results
+     * @param deadLetters receives build results that could not be stored
+     * @param capacityRecords max. number of records the queue may hold
+     * @param writerThreads number of threads writing to the database
+     * @param maxBuildsPerBatch max. number of build results to store in a single transaction
+     */
+    public IngestQueue(BatchWriter writer, DeadLetterSpool deadLetters, long capacityRecords, int writerThreads, int maxBuildsPerBatch)
+    {
+        Validate.notNull( writer, "writer must not be null" );
+        Validate.notNull( deadLetters, "deadLetters must not be null" );
+        Validate.isTrue( capacityRecords > 0, "capacityRecords must be > 0" );
+        Validate.isTrue( writerThreads > 0, "writerThreads must be > 0" );
+        Validate.isTrue( maxBuildsPerBatch > 0, "maxBuildsPerBatch must be > 0" );
+        this.writer = writer;
+        this.deadLetters = deadLetters;
+        this.capacityRecords = capacityRecords;
+        this.maxBuildsPerBatch = maxBuildsPerBatch;
+
+        final AtomicInteger threadNo = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool( writerThreads, r -> {
+            final Thread t = new Thread( r, "ingest-writer-" + threadNo.incrementAndGet() );
+            t.setDaemon( true );
+            return t;
+        } );
+        for ( int i = 0 ; i < writerThreads ; i++ ) {
+            writers.submit( this::writerLoop );
+        }
+    }
+
+    /**
+     * Enqueues a build result.
+     *
+     * @param result build result with resolved records
+     * @return <code>false</code> if the queue is full or shutting down
+     */
+    public boolean offer(BuildResult result)
+    {
+        Validate.notNull( result, "result must not be null" );
+        final int recordCount = result.records.size();
+        synchronized( queue )
+        {
+            if ( shutdown || ( queuedBuilds > 0 && queuedRecords + recordCount > capacityRecords ) ) {
+                return false;
+            }
+            queue.add( result );
+            queuedBuilds++;
+            queuedRecords += recordCount;
+            queue.notifyAll();
+            return true;
+        }
+    }
+
+    public Status getStatus()
+    {
+        synchronized( queue )
+        {
+            return new Status( queuedBuilds, queuedRecords, capacityRecords );
+        }
+    }
+
+    private List<BuildResult> take() throws InterruptedException
+    {
+        synchronized( queue )
+        {
+            while ( queue.isEmpty() )
+            {
+                if ( shutdown ) {
+                    return List.of();
+                }
+                queue.wait();
+            }
+            final List<BuildResult> batch = new ArrayList<>();
+            while ( ! queue.isEmpty() && batch.size() < maxBuildsPerBatch ) {
+                batch.add( queue.remove() );
+            }
+            inFlight.add( batch );
+            return batch;
+        }
+    }
+
+    private void writerLoop()
+    {
+        try
+        {
+            List<BuildResult> batch;
+            while ( ! ( batch = take() ).isEmpty() )
+            {
+                try
+                {
+                    write( batch );
+                }
+                finally
+                {
+                    final long recordCount = batch.stream().mapToLong( x -> x.records.size() ).sum();
+                    synchronized( queue )
+                    {
+                        inFlight.remove( batch );
+                        queuedBuilds -= batch.size();
+                        queuedRecords -= recordCount;
+                    }
+                }
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void write(List<BuildResult> batch)
+    {
+        try
+        {
+            writer.save( batch );
+            return;
+        }
+        catch( Exception e )
+        {
+            if ( batch.size() == 1 ) {
+                LOG.error( "Failed to store build result " + describe( batch.get( 0 ) ) + ": " + e.getMessage(), e );
+                spool( batch );
+                return;
+            }
+            LOG.warn( "Failed to store batch of " + batch.size() + " build results, retrying one by one: " + e.getMessage() );
+        }
+        for ( final BuildResult result : batch )
+        {
+            try
+            {
+                writer.save( List.of( result ) );
+            }
+            catch( Exception e )
+            {
+                LOG.error( "Failed to store build result " + describe( result ) + ": " + e.getMessage(), e );
+                spool( List.of( result ) );
+            }
+        }
+    }
+
+    private void spool(List<BuildResult> results)
+    {
+        try
+        {
+            deadLetters.write( results );
+            LOG.warn( "Moved " + results.size() + " build results to " + deadLetters.getDirectory() + ", will retry later." );
+        }
+        catch( IOException e )
+        {
+            LOG.error( "Failed to move " + results.size() + " build results to " + deadLetters.getDirectory() + ", they are lost: " + e.getMessage(), e );
+        }
+    }
+
+    /**
+     * Retries storing build results that have been moved to the dead letter spool.
+     *
+     * @return replay outcome
+     * @throws IOException if reading from or writing to the spool failed
+     */
+    public DeadLetterSpool.ReplayResult replayDeadLetters() throws IOException
+    {
+        return deadLetters.replay( writer );
+    }
+
+    private static String describe(BuildResult result)
+    {
+        return "(project '" + result.projectName + "', branch '" + result.branchName + "', host " + result.hostIP + ")";
+    }
+
+    /**
+     * Stops accepting build results and waits for the queued ones to be written.
+     *
+     * Build results not written when the shutdown timeout expires are moved to the dead letter spool.
+     */
+    public void shutdown()
+    {
+        synchronized( queue )
+        {
+            shutdown = true;
+            queue.notifyAll();
+        }
+        writers.shutdown();
+        try
+        {
+            if ( ! writers.awaitTermination( SHUTDOWN_TIMEOUT_SECONDS, TimeUnit.SECONDS ) ) {
+                spoolRemaining();
+            }
+        }
+        catch( InterruptedException e )
+        {
+            spoolRemaining();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void spoolRemaining()
+    {
+        final List<BuildResult> remaining;
+        synchronized( queue )
+        {
+            remaining = new ArrayList<>();
+            inFlight.forEach( remaining::addAll );
+            remaining.addAll( queue );
+            queuedBuilds -= queue.size();
+            queuedRecords -= queue.stream().mapToLong( x -> x.records.size() ).sum();
+            queue.clear();
+        }
+        writers.shutdownNow();
+        if ( ! remaining.isEmpty() )
+        {
+            LOG.error( "Shutting down with " + remaining.size() + " build results not written yet." );
+            spool( remaining );
+        }
+    }
+}
@@ -0,0 +1,540 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable set of points in time, stored as disjoint, half-open intervals <code>[start,end)</code>
+ * ordered by start.
+ *
+ * Intervals are packed into a single <code>long[]</code> (start and end of the first interval, start and end
+ * of the second one, ...) so that operations on large builds only ever allocate a single array
+ * for their result. Empty intervals cover no time and thus are never stored, adjacent intervals are
+ * stored as a single one.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ * @see Builder
+ */
+public final class IntervalSet
+{
+    public static final IntervalSet EMPTY = new IntervalSet( new long[0], 0 );
+
+    // start0, end0, start1, end1, ...
+    private final long[] bounds;
+    private final int size;
+
+    /**
+     * Gets notified about changes of the number of overlapping intervals.
+     *
+     * @see Builder#sweep(ConcurrencyVisitor)
+     */
+    @FunctionalInterface
+    public interface ConcurrencyVisitor
+    {
+        /**
+         * Invoked in chronological order.
+         *
+         * @param time point in time
+         * @param count number of intervals overlapping from this point in time on
+         */
+        void visit(long time, int count);
+    }
+
+    /**
+     * Collects (possibly overlapping) intervals.
+     *
+     * @author tobias.gierke@code-sourcery.de
+     */
+    public static final class Builder
+    {
+        private long[] starts;
+        private long[] ends;
+        private int count;
+
+        public Builder() {
+            this( 16 );
+        }
+
+        public Builder(int expectedCount)
+        {
+            Validate.isTrue( expectedCount >= 0, "expectedCount must not be negative" );
+            starts = new long[Math.max( 1, expectedCount )];
+            ends = new long[starts.length];
+        }
+
+        /**
+         * Adds an interval.
+         *
+         * @param start start (inclusive)
+         * @param end end (exclusive)
+         * @return this instance (for chaining)
+         */
+        public Builder add(long start, long end)
+        {
+            Validate.isTrue( start <= end, "start must not be after end" );
+            if ( count == starts.length )
+            {
+                starts = Arrays.copyOf( starts, count * 2 );
+                ends = Arrays.copyOf( ends, count * 2 );
+            }
+            starts[count] = start;
+            ends[count] = end;
+            count++;
+            return this;
+        }
+
+        /**
+         * Returns the number of intervals added so far.
+         *
+         * @return count
+         */
+        public int count() {
+            return count;
+        }
+
+        /**
+         * Returns the time covered by at least one of the intervals added so far.
+         *
+         * Same as <code>build().coverage()</code> but without allocating.
+         *
+         * @return covered time
+         */
+        public long coverage()
+        {
+            // sorts start and end times in place, which is fine as none of the
+            // operations of this builder depend on which start belongs to which end
+            Arrays.sort( starts, 0, count );
+            Arrays.sort( ends, 0, count );
+
+            long length = 0;
+            int active = 0;
+            long currentStart = 0;
+            int i = 0;
+            int j = 0;
+            while ( j < count )
+            {
+                if ( i < count && starts[i] <= ends[j] )
+                {
+                    if ( active++ == 0 ) {
+                        currentStart = starts[i];
+                    }
+                    i++;
+                }
+                else
+                {
+                    if ( --active == 0 ) {
+                        length += ends[j] - currentStart;
+                    }
+                    j++;
+                }
+            }
+            return length;
+        }
+
+        /**
+         * Sweeps over the intervals added so far in chronological order.
+         *
+         * The visitor is invoked once for each point in time the number of overlapping intervals
+         * changes, the last invocation always reports zero overlapping intervals.
+         * Intervals without length get ignored.
+         *
+         * @param visitor visitor
+         */
+        public void sweep(ConcurrencyVisitor visitor)
+        {
+            Validate.notNull( visitor, "visitor must not be null" );
+            final long[] sortedStarts = Arrays.copyOf( starts, count );
+            final long[] sortedEnds = Arrays.copyOf( ends, count );
+            Arrays.sort( sortedStarts );
+            Arrays.sort( sortedEnds );
+
+            int active = 0;
+            int reported = 0;
+            int i = 0;
+            int j = 0;
+            while ( j < count )
+            {
+                // process all starts and ends at the same point in time before reporting
+                final long time = i < count ? Math.min( sortedStarts[i], sortedEnds[j] ) : sortedEnds[j];
+                while ( i < count && sortedStarts[i] == time ) {
+                    active++;
+                    i++;
+                }
+                while ( j < count && sortedEnds[j] == time ) {
+                    active--;
+                    j++;
+                }
+                if ( active != reported )
+                {
+                    visitor.visit( time, active );
+                    reported = active;
+                }
+            }
+        }
+
+        /**
+         * Returns the time covered by at least one of the intervals added so far.
+         *
+         * @return union of all intervals
+         */
+        public IntervalSet build() {
+            return withConcurrency( 1 );
+        }
+
+        /**
+         * Returns the time covered by at least <code>k</code> of the intervals added so far.
+         *
+         * @param k min. number of overlapping intervals, must be positive
+         * @return points in time where at least <code>k</code> intervals overlap
+         */
+        public IntervalSet withConcurrency(int k)
+        {
+            Validate.isTrue( k > 0, "k must be positive" );
+            final long[] sortedStarts = Arrays.copyOf( starts, count );
+            final long[] sortedEnds = Arrays.copyOf( ends, count );
+            Arrays.sort( sortedStarts );
+            Arrays.sort( sortedEnds );
+
+            // there can be at most count-k+1 disjoint intervals where k or more intervals overlap
+            final long[] result = new long[2 * Math.max( 0, count - k + 1 )];
+            int resultSize = 0;
+            int active = 0;
+            long currentStart = 0;
+            int i = 0;
+            int j = 0;
+            while ( j < count )
+            {
+                // process starts before ends at the same point in time so that adjacent intervals get merged
+                if ( i < count && sortedStarts[i] <= sortedEnds[j] )
+                {
+                    if ( ++active == k ) {
+                        currentStart = sortedStarts[i];
+                    }
+                    i++;
+                }
+                else
+                {
+                    if ( active-- == k && sortedEnds[j] > currentStart ) {
+                        resultSize = append( result, resultSize, currentStart, sortedEnds[j] );
+                    }
+                    j++;
+                }
+            }
+            return of( result, resultSize );
+        }
+    }
+
+    private IntervalSet(long[] bounds, int size)
+    {
+        this.bounds = bounds;
+        this.size = size;
+    }
+
+    private static IntervalSet of(long[] bounds, int size) {
+        return size == 0 ? EMPTY : new IntervalSet( bounds, size );
+    }
+
+    /**
+     * Appends an interval to packed, disjoint intervals, merging it with the last one if they are adjacent.
+     *
+     * @param bounds packed intervals
+     * @param size number of intervals in <code>bounds</code>
+     * @param start start of interval to append, must not be before the end of the last interval
+     * @param end end of interval to append, must be after <code>start</code>
+     * @return new number of intervals
+     */
+    private static int append(long[] bounds, int size, long start, long end)
+    {
+        if ( size > 0 && bounds[2 * size - 1] == start )
+        {
+            bounds[2 * size - 1] = end;
+            return size;
+        }
+        bounds[2 * size] = start;
+        bounds[2 * size + 1] = end;
+        return size + 1;
+    }
+
+    /**
+     * Creates a set from a single interval.
+     *
+     * @param start start (inclusive)
+     * @param end end (exclusive)
+     * @return set
+     */
+    public static IntervalSet of(long start, long end)
+    {
+        Validate.isTrue( start <= end, "start must not be after end" );
+        return start == end ? EMPTY : new IntervalSet( new long[] { start, end }, 1 );
+    }
+
+    /**
+     * Returns the number of disjoint intervals in this set.
+     *
+     * @return number of intervals
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long start(int index)
+    {
+        Validate.isTrue( index >= 0 && index < size, "index out of range" );
+        return bounds[2 * index];
+    }
+
+    public long end(int index)
+    {
+        Validate.isTrue( index >= 0 && index < size, "index out of range" );
+        return bounds[2 * index + 1];
+    }
+
+    /**
+     * Returns the total time covered by this set.
+     *
+     * @return sum of the lengths of all intervals
+     */
+    public long coverage()
+    {
+        long result = 0;
+        for ( int i = 0; i < 2 * size; i += 2 ) {
+            result += bounds[i + 1] - bounds[i];
+        }
+        return result;
+    }
+
+    /**
+     * Returns the time this set covers within a given time window.
+     *
+     * @param start start of time window (inclusive)
+     * @param end end of time window (exclusive)
+     * @return covered time
+     */
+    public long coverage(long start, long end)
+    {
+        Validate.isTrue( start <= end, "start must not be after end" );
+        long result = 0;
+        for ( int i = 0; i < 2 * size && bounds[i] < end; i += 2 )
+        {
+            final long s = Math.max( start, bounds[i] );
+            final long e = Math.min( end, bounds[i + 1] );
+            if ( s < e ) {
+                result += e - s;
+            }
+        }
+        return result;
+    }
+
+    public boolean contains(long time)
+    {
+        // binary search for the last interval starting at or before 'time'
+        int low = 0;
+        int high = size - 1;
+        while ( low <= high )
+        {
+            final int mid = ( low + high ) >>> 1;
+            if ( bounds[2 * mid] <= time ) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high >= 0 && time < bounds[2 * high + 1];
+    }
+
+    /**
+     * Returns the points in time covered by this set, the other set or both.
+     *
+     * @param other other set
+     * @return union
+     */
+    public IntervalSet union(IntervalSet other)
+    {
+        Validate.notNull( other, "other must not be null" );
+        if ( other.isEmpty() ) {
+            return this;
+        }
+        if ( isEmpty() ) {
+            return other;
+        }
+        final long[] result = new long[2 * ( size + other.size )];
+        int resultSize = 0;
+        int i = 0;
+        int j = 0;
+        long currentStart = 0;
+        long currentEnd = 0;
+        boolean started = false;
+        while ( i < size || j < other.size )
+        {
+            final long s;
+            final long e;
+            if ( j == other.size || ( i < size && bounds[2 * i] <= other.bounds[2 * j] ) )
+            {
+                s = bounds[2 * i];
+                e = bounds[2 * i + 1];
+                i++;
+            }
+            else
+            {
+                s = other.bounds[2 * j];
+                e = other.bounds[2 * j + 1];
+                j++;
+            }
+            if ( started && s <= currentEnd )
+            {
+                currentEnd = Math.max( currentEnd, e );
+                continue;
+            }
+            if ( started ) {
+                resultSize = append( result, resultSize, currentStart, currentEnd );
+            }
+            currentStart = s;
+            currentEnd = e;
+            started = true;
+        }
+        resultSize = append( result, resultSize, currentStart, currentEnd );
+        return of( result, resultSize );
+    }
+
+    /**
+     * Returns the points in time covered by both this set and the other set.
+     *
+     * @param other other set
+     * @return intersection
+     */
+    public IntervalSet intersection(IntervalSet other)
+    {
+        Validate.notNull( other, "other must not be null" );
+        // every intersection ends with the end of an interval from one of the sets
+        final long[] result = new long[2 * ( size + other.size )];
+        int resultSize = 0;
+        int i = 0;
+        int j = 0;
+        while ( i < size && j < other.size )
+        {
+            final long s = Math.max( bounds[2 * i], other.bounds[2 * j] );
+            final long e = Math.min( bounds[2 * i + 1], other.bounds[2 * j + 1] );
+            if ( s < e ) {
+                resultSize = append( result, resultSize, s, e );
+            }
+            if ( bounds[2 * i + 1] < other.bounds[2 * j + 1] ) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return of( result, resultSize );
+    }
+
+    /**
+     * Returns the points in time covered by this set but not by the other set.
+     *
+     * @param other other set
+     * @return difference
+     */
+    public IntervalSet difference(IntervalSet other)
+    {
+        Validate.notNull( other, "other must not be null" );
+        if ( isEmpty() || other.isEmpty() ) {
+            return this;
+        }
+        // every interval of the other set splits at most one interval of this set in two
+        final long[] result = new long[2 * ( size + other.size )];
+        int resultSize = 0;
+        int j = 0;
+        for ( int i = 0; i < size; i++ )
+        {
+            long s = bounds[2 * i];
+            final long e = bounds[2 * i + 1];
+            // skip intervals of the other set that end before this one starts
+            while ( j < other.size && other.bounds[2 * j + 1] <= s ) {
+                j++;
+            }
+            int k = j;
+            while ( k < other.size && other.bounds[2 * k] < e )
+            {
+                if ( other.bounds[2 * k] > s ) {
+                    resultSize = append( result, resultSize, s, other.bounds[2 * k] );
+                }
+                s = Math.max( s, other.bounds[2 * k + 1] );
+                if ( s >= e ) {
+                    break;
+                }
+                k++;
+            }
+            if ( s < e ) {
+                resultSize = append( result, resultSize, s, e );
+            }
+        }
+        return of( result, resultSize );
+    }
+
+    /**
+     * Returns the intervals of this set.
+     *
+     * @return intervals, ordered by start
+     */
+    public List<LongInterval> toList()
+    {
+        final List<LongInterval> result = new ArrayList<>( size );
+        for ( int i = 0; i < size; i++ ) {
+            result.add( LongInterval.of( bounds[2 * i], bounds[2 * i + 1] ) );
+        }
+        return result;
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if ( obj instanceof IntervalSet other ) {
+            return size == other.size && Arrays.equals( bounds, 0, 2 * size, other.bounds, 0, 2 * size );
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        int result = 1;
+        for ( int i = 0; i < 2 * size; i++ ) {
+            result = 31 * result + Long.hashCode( bounds[i] );
+        }
+        return result;
+    }
+
+    @Override
+    public String toString()
+    {
+        final StringBuilder result = new StringBuilder( "IntervalSet[" );
+        for ( int i = 0; i < size; i++ )
+        {
+            if ( i > 0 ) {
+                result.append( ", " );
+            }
+            result.append( '[' ).append( bounds[2 * i] ).append( ',' ).append( bounds[2 * i + 1] ).append( ')' );
+        }
+        return result.append( ']' ).toString();
+    }
+}
@@ -17,8 +17,6 @@ package de.codesourcery.maven.buildprofiler.server;
 
 import org.apache.commons.lang3.Validate;
 
-import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
@@ -124,30 +122,20 @@ public final class LongInterval
             start + " - " + end + ", len "+length()+" ]";
     }
 
+    /**
+     * Calculates the union of intervals.
+     *
+     * Overlapping or adjacent intervals are merged into one, intervals without length get dropped.
+     * The input intervals are not modified.
+     *
+     * @param intervals intervals
+     * @return disjoint intervals covering the same time as the input intervals, ordered by start
+     * @see IntervalSet
+     */
     public static List<LongInterval> mergeIfPossible(List<LongInterval> intervals) {
         Validate.notNull( intervals, "intervals must not be null" );
-        final List<LongInterval> result = new ArrayList<>();
-        if ( intervals.size() > 1 )
-        {
-            final Iterator<LongInterval> it = intervals.iterator();
-            result.add( it.next() );
-
-outer:
-            while (it.hasNext())
-            {
-                final LongInterval iv = it.next();
-                for ( LongInterval candidate : result )
-                {
-                    if ( candidate.canBeMergedWith( iv ) ) {
-                        candidate.mergeInPlace( iv );
-                        continue outer;
-                    }
-                }
-                result.add( iv );
-            }
-        } else {
-            result.addAll( intervals );
-        }
-        return result;
+        final IntervalSet.Builder builder = new IntervalSet.Builder( intervals.size() );
+        intervals.forEach( iv -> builder.add( iv.start, iv.end ) );
+        return builder.build().toList();
     }
 }
@@ -0,0 +1,83 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+/**
+ * Makes sure the monthly partitions of the builds and records tables exist ahead of time.
+ *
+ * Partitions get created at startup and once a day afterwards, never while ingesting build results.
+ * Builds that do not fall into any monthly partition (historic imports, wrong clocks) end up in
+ * the default partitions until the next run, which creates the partitions for their months and
+ * moves them there.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@Component
+public class PartitionMaintenance
+{
+    private static final Logger LOG = LogManager.getLogger( PartitionMaintenance.class );
+
+    private final DbService dbService;
+    private final int monthsAhead;
+
+    @Autowired
+    public PartitionMaintenance(DbService dbService, @Value("${profiler.partitions.monthsAhead:3}") int monthsAhead)
+    {
+        Validate.notNull( dbService, "dbService must not be null" );
+        Validate.isTrue( monthsAhead >= 0, "monthsAhead must be >= 0" );
+        this.dbService = dbService;
+        this.monthsAhead = monthsAhead;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup()
+    {
+        createPartitions();
+    }
+
+    @Scheduled(cron = "${profiler.partitions.cron:0 15 3 * * *}")
+    public void createPartitions()
+    {
+        try
+        {
+            // partition boundaries are months in UTC
+            final int created = dbService.createMonthlyPartitions( ZonedDateTime.now( ZoneOffset.UTC ), monthsAhead + 1 ) +
+                dbService.createPartitionsForDefaultPartitionRows();
+            if ( created > 0 ) {
+                LOG.info( "Created " + created + " new partitions." );
+            }
+        }
+        catch( RuntimeException e )
+        {
+            // not fatal as long as the existing partitions last, retried on the next run
+            LOG.error( "Failed to create partitions: " + e.getMessage(), e );
+        }
+    }
+}
@@ -0,0 +1,246 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import javax.servlet.Filter;
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.ServletResponse;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletRequestWrapper;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Servlet filter that transparently decompresses request bodies sent with
+ * <code>Content-Encoding: gzip</code>.
+ *
+ * Requests with any other (non-identity) content encoding are rejected with HTTP 415.
+ * Reading more than a configurable number of bytes from a decompressed request body fails
+ * with a {@link SizeLimitExceededException}, answered with HTTP 413, so a small request cannot
+ * expand to an arbitrary amount of data.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class RequestDecompressionFilter implements Filter
+{
+    private static final Logger LOG = LogManager.getLogger( RequestDecompressionFilter.class );
+
+    private static final String CONTENT_ENCODING = "Content-Encoding";
+
+    /**
+     * Thrown when reading more than the max. number of bytes from a decompressed request body.
+     */
+    public static final class SizeLimitExceededException extends ResponseStatusException
+    {
+        public SizeLimitExceededException(long maxBytes)
+        {
+            super( HttpStatus.PAYLOAD_TOO_LARGE, "Decompressed request body exceeds " + maxBytes + " bytes" );
+        }
+    }
+
+    private final long maxDecompressedBytes;
+
+    /**
+     * Create instance.
+     *
+     * @param maxDecompressedBytes max. number of bytes a compressed request body may decompress to
+     */
+    public RequestDecompressionFilter(long maxDecompressedBytes)
+    {
+        Validate.isTrue( maxDecompressedBytes > 0, "maxDecompressedBytes must be > 0" );
+        this.maxDecompressedBytes = maxDecompressedBytes;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException
+    {
+        if ( request instanceof HttpServletRequest httpRequest )
+        {
+            final String encoding = httpRequest.getHeader( CONTENT_ENCODING );
+            if ( encoding != null && ! encoding.isBlank() && ! "identity".equalsIgnoreCase( encoding.trim() ) )
+            {
+                if ( ! "gzip".equalsIgnoreCase( encoding.trim() ) && ! "x-gzip".equalsIgnoreCase( encoding.trim() ) )
+                {
+                    LOG.error( "Rejecting request from " + request.getRemoteAddr() + " with unsupported content encoding '" + encoding + "'" );
+                    ((HttpServletResponse) response).sendError( HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE, "Unsupported content encoding '" + encoding + "'" );
+                    return;
+                }
+                try
+                {
+                    chain.doFilter( new DecompressingRequest( httpRequest, maxDecompressedBytes ), response );
+                }
+                catch( SizeLimitExceededException | ServletException e )
+                {
+                    // Spring MVC already answers SizeLimitExceededException with 413, this is for everything else
+                    final SizeLimitExceededException cause = findSizeLimitExceeded( e );
+                    if ( cause == null || response.isCommitted() ) {
+                        throw e;
+                    }
+                    LOG.error( "Rejecting request from " + request.getRemoteAddr() + ": " + cause.getReason() );
+                    ((HttpServletResponse) response).sendError( HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE, cause.getReason() );
+                }
+                return;
+            }
+        }
+        chain.doFilter( request, response );
+    }
+
+    private static SizeLimitExceededException findSizeLimitExceeded(Throwable t)
+    {
+        for ( Throwable current = t; current != null; current = current.getCause() )
+        {
+            if ( current instanceof SizeLimitExceededException e ) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    private static final class DecompressingRequest extends HttpServletRequestWrapper
+    {
+        private final long maxBytes;
+        private ServletInputStream inputStream;
+        private BufferedReader reader;
+
+        public DecompressingRequest(HttpServletRequest request, long maxBytes)
+        {
+            super( request );
+            this.maxBytes = maxBytes;
+        }
+
+        @Override
+        public ServletInputStream getInputStream() throws IOException
+        {
+            if ( reader != null ) {
+                throw new IllegalStateException( "getReader() has already been called" );
+            }
+            return decompressedStream();
+        }
+
+        @Override
+        public BufferedReader getReader() throws IOException
+        {
+            if ( reader == null )
+            {
+                if ( inputStream != null ) {
+                    throw new IllegalStateException( "getInputStream() has already been called" );
+                }
+                final Charset charset = getCharacterEncoding() != null ? Charset.forName( getCharacterEncoding() ) : StandardCharsets.UTF_8;
+                reader = new BufferedReader( new InputStreamReader( decompressedStream(), charset ) );
+            }
+            return reader;
+        }
+
+        private ServletInputStream decompressedStream() throws IOException
+        {
+            if ( inputStream == null )
+            {
+                final InputStream in = new GZIPInputStream( super.getInputStream(), 8192 );
+                inputStream = new ServletInputStream()
+                {
+                    private boolean finished;
+                    private long bytesRead;
+
+                    @Override
+                    public int read() throws IOException
+                    {
+                        final int result = in.read();
+                        finished |= result == -1;
+                        if ( result != -1 ) {
+                            count( 1 );
+                        }
+                        return result;
+                    }
+
+                    @Override
+                    public int read(byte[] b, int off, int len) throws IOException
+                    {
+                        final int result = in.read( b, off, len );
+                        finished |= result == -1;
+                        if ( result > 0 ) {
+                            count( result );
+                        }
+                        return result;
+                    }
+
+                    private void count(int bytes)
+                    {
+                        bytesRead += bytes;
+                        if ( bytesRead > maxBytes ) {
+                            throw new SizeLimitExceededException( maxBytes );
+                        }
+                    }
+
+                    @Override
+                    public void close() throws IOException
+                    {
+                        in.close();
+                    }
+
+                    @Override public boolean isFinished() {return finished;}
+                    @Override public boolean isReady() {return true;}
+                    @Override public void setReadListener(ReadListener readListener) {throw new UnsupportedOperationException( "Non-blocking I/O is not supported" );}
+                };
+            }
+            return inputStream;
+        }
+
+        // the decompressed length is unknown
+        @Override public int getContentLength() {return -1;}
+        @Override public long getContentLengthLong() {return -1;}
+
+        @Override
+        public String getHeader(String name)
+        {
+            return isHidden( name ) ? null : super.getHeader( name );
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name)
+        {
+            return isHidden( name ) ? Collections.emptyEnumeration() : super.getHeaders( name );
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames()
+        {
+            return Collections.enumeration( Collections.list( super.getHeaderNames() ).stream().filter( x -> ! isHidden( x ) ).toList() );
+        }
+
+        private static boolean isHidden(String header)
+        {
+            return CONTENT_ENCODING.equalsIgnoreCase( header ) || "Content-Length".equalsIgnoreCase( header );
+        }
+    }
+}
@@ -16,20 +16,38 @@
 package de.codesourcery.maven.buildprofiler.server;
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.common.BuildResultDecoder;
+import de.codesourcery.maven.buildprofiler.common.BuildResultParser;
 import de.codesourcery.maven.buildprofiler.server.db.DbService;
 import de.codesourcery.maven.buildprofiler.shared.Constants;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.server.ResponseStatusException;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Comparator;
+import java.util.List;
 
 @Controller
 @RequestMapping("/api")
@@ -37,20 +55,229 @@ public class RestAPI
 {
     private static final Logger LOG = LogManager.getLogger( RestAPI.class );
 
+    // number of records the JSON parser hands out at once
+    private static final int RECORD_BATCH_SIZE = 1000;
+
+    public static final String CONTENT_TYPE_NDJSON = "application/x-ndjson";
+
+    /**
+     * Outcome for a single build result received through {@link #receiveBatch(HttpServletRequest)}.
+     */
+    public enum BatchItemStatus {
+        STORED,
+        // a build with the same build ID has already been stored
+        DUPLICATE,
+        // malformed build result, sending it again will not help
+        REJECTED,
+        // storing the build result failed
+        FAILED
+    }
+
+    /**
+     * Result for a single build result received through {@link #receiveBatch(HttpServletRequest)}.
+     *
+     * @param line line number of the build result (starting with 1)
+     * @param buildId build ID, <code>null</code> if the build result did not contain one or could not be parsed
+     * @param status outcome
+     * @param message error message, <code>null</code> unless status is {@link BatchItemStatus#REJECTED} or {@link BatchItemStatus#FAILED}
+     */
+    public record BatchItemResult(int line, String buildId, BatchItemStatus status, String message) {
+    }
+
     @Autowired
     private DbService dao;
 
-    @PostMapping("/receive")
-    @ResponseBody // needed for void methods, otherwise caller gets 404 after this method completes, see https://stackoverflow.com/questions/32503605/controller-returning-404-page-with-void-method
-    void receive(@RequestBody BuildResult data, HttpServletRequest currentRequest) throws JsonProcessingException, UnknownHostException
+    @Autowired
+    private IngestQueue ingestQueue;
+
+    // whether to store build results asynchronously using the ingest queue, off by default
+    // because extension versions older than 1.0.8 consider anything but 200 a failure
+    @Value("${profiler.ingest.async:false}")
+    private boolean asyncIngest;
+
+    // max. number of build results to store within a single transaction
+    @Value("${profiler.ingest.maxBuildsPerTransaction:20}")
+    private int maxBuildsPerTransaction;
+
+    // seconds clients should wait before retrying when the ingest queue is full
+    @Value("${profiler.ingest.retryAfterSeconds:30}")
+    private int retryAfterSeconds;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+
+    @PostMapping(value = "/receive", consumes = Constants.CONTENT_TYPE_JSON)
+    ResponseEntity<Void> receive(HttpServletRequest currentRequest) throws IOException
     {
+        LOG.info("Incoming request from " + currentRequest.getRemoteAddr() + " (" + currentRequest.getRemoteHost() + ")");
+
+        try ( InputStream in = currentRequest.getInputStream() )
+        {
+            if ( asyncIngest )
+            {
+                // the ingest queue holds complete build results, only the synchronous (default) path streams records
+                final BuildResult data = new BuildResultParser( mapper, RECORD_BATCH_SIZE ).parse( in );
+                if ( data.jsonSyntaxVersion > Constants.JSON_SYNTAX_VERSION ) {
+                    throw new RuntimeException( "Unsupported JSON syntax version " + data.jsonSyntaxVersion + ", client newer than server?" );
+                }
+                return enqueue( data );
+            }
+            // records are parsed and stored while reading the request
+            dao.save( in );
+            return ResponseEntity.ok().build();
+        }
+        catch( JsonProcessingException e )
+        {
+            LOG.error( "Malformed build result from " + currentRequest.getRemoteAddr() + ": " + e.getMessage() );
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, e.getOriginalMessage() );
+        }
+    }
+
+    @PostMapping(value = "/receive", consumes = Constants.CONTENT_TYPE_BINARY)
+    ResponseEntity<Void> receiveBinary(HttpServletRequest currentRequest) throws JsonProcessingException, UnknownHostException
+    {
+        final BuildResult data;
+        try ( InputStream in = currentRequest.getInputStream() ) {
+            data = BuildResultDecoder.decode( in );
+        }
+        catch( IOException e )
+        {
+            LOG.error( "Failed to decode binary build result from " + currentRequest.getRemoteAddr() + ": " + e.getMessage() );
+            throw new ResponseStatusException( HttpStatus.BAD_REQUEST, "Failed to decode binary build result: " + e.getMessage() );
+        }
         LOG.info("Incoming request from " + currentRequest.getRemoteAddr() +
             " (" + currentRequest.getRemoteHost() + "), project '"+data.projectName+"', branch '"+data.branchName+"', GIT hash "+data.gitHash);
-
-        if ( data.jsonSyntaxVersion > Constants.JSON_SYNTAX_VERSION ) {
-            LOG.error( "Unsupported JSON syntax version " + data.jsonSyntaxVersion+", client newer than server?");
-            throw new RuntimeException( "Unsupported JSON syntax version " + data.jsonSyntaxVersion + ", client newer than server?" );
+        if ( asyncIngest ) {
+            return enqueue( data );
         }
         dao.save( data );
+        return ResponseEntity.ok().build();
+    }
+
+    /**
+     * Receives multiple build results, one per line (NDJSON).
+     *
+     * Lines may either contain a JSON build result or a Base64-encoded binary build result, so
+     * segments from the extension's spool directory can be sent as-is. Build results are always stored
+     * synchronously, bypassing the ingest queue.
+     *
+     * @param currentRequest
+     * @return outcome for each non-blank line, in the same order
+     * @throws IOException
+     */
+    @PostMapping(value = "/receive/batch", consumes = CONTENT_TYPE_NDJSON, produces = Constants.CONTENT_TYPE_JSON)
+    @ResponseBody
+    List<BatchItemResult> receiveBatch(HttpServletRequest currentRequest) throws IOException
+    {
+        LOG.info("Incoming batch request from " + currentRequest.getRemoteAddr() + " (" + currentRequest.getRemoteHost() + ")");
+
+        final List<BatchItemResult> results = new ArrayList<>();
+        final List<BuildResult> chunk = new ArrayList<>();
+        final List<Integer> chunkLines = new ArrayList<>();
+        try ( BufferedReader reader = new BufferedReader( new InputStreamReader( currentRequest.getInputStream(), StandardCharsets.UTF_8 ) ) )
+        {
+            String line;
+            int lineNo = 0;
+            while ( ( line = reader.readLine() ) != null )
+            {
+                lineNo++;
+                if ( line.isBlank() ) {
+                    continue;
+                }
+                try
+                {
+                    chunk.add( decodeLine( line ) );
+                    chunkLines.add( lineNo );
+                }
+                catch( IOException | IllegalArgumentException e )
+                {
+                    results.add( new BatchItemResult( lineNo, null, BatchItemStatus.REJECTED, e.getMessage() ) );
+                    continue;
+                }
+                if ( chunk.size() >= maxBuildsPerTransaction )
+                {
+                    storeBatch( chunk, chunkLines, results );
+                    chunk.clear();
+                    chunkLines.clear();
+                }
+            }
+        }
+        storeBatch( chunk, chunkLines, results );
+        results.sort( Comparator.comparingInt( BatchItemResult::line ) );
+        LOG.info( "Batch request from " + currentRequest.getRemoteAddr() + " contained " + results.size() + " build results, " +
+            results.stream().filter( x -> x.status() == BatchItemStatus.STORED ).count() + " stored." );
+        return results;
+    }
+
+    private BuildResult decodeLine(String line) throws IOException
+    {
+        if ( line.startsWith( "{" ) )
+        {
+            final BuildResult data = new BuildResultParser( mapper, RECORD_BATCH_SIZE ).parse( new ByteArrayInputStream( line.getBytes( StandardCharsets.UTF_8 ) ) );
+            if ( data.jsonSyntaxVersion > Constants.JSON_SYNTAX_VERSION ) {
+                throw new IOException( "Unsupported JSON syntax version " + data.jsonSyntaxVersion + ", client newer than server?" );
+            }
+            return data;
+        }
+        // binary build result as written to the extension's spool directory
+        return BuildResultDecoder.decode( new ByteArrayInputStream( Base64.getDecoder().decode( line ) ) );
+    }
+
+    private void storeBatch(List<BuildResult> chunk, List<Integer> lines, List<BatchItemResult> results)
+    {
+        if ( chunk.isEmpty() ) {
+            return;
+        }
+        try
+        {
+            final List<DbService.SaveResult> outcome = dao.save( chunk );
+            for ( int i = 0 ; i < chunk.size() ; i++ ) {
+                results.add( new BatchItemResult( lines.get( i ), chunk.get( i ).buildId, toStatus( outcome.get( i ) ), null ) );
+            }
+            return;
+        }
+        catch( Exception e )
+        {
+            if ( chunk.size() > 1 ) {
+                LOG.warn( "Failed to store batch of " + chunk.size() + " build results, retrying one by one: " + e.getMessage() );
+            }
+        }
+        // store one by one so that a single bad build result does not take down the others
+        for ( int i = 0 ; i < chunk.size() ; i++ )
+        {
+            final BuildResult data = chunk.get( i );
+            try
+            {
+                results.add( new BatchItemResult( lines.get( i ), data.buildId, toStatus( dao.save( List.of( data ) ).get( 0 ) ), null ) );
+            }
+            catch( Exception e )
+            {
+                LOG.error( "Failed to store build result from line " + lines.get( i ) + ": " + e.getMessage(), e );
+                results.add( new BatchItemResult( lines.get( i ), data.buildId, BatchItemStatus.FAILED, e.getMessage() ) );
+            }
+        }
+    }
+
+    private static BatchItemStatus toStatus(DbService.SaveResult result)
+    {
+        return switch( result ) {
+            case STORED -> BatchItemStatus.STORED;
+            case DUPLICATE -> BatchItemStatus.DUPLICATE;
+        };
+    }
+
+    @GetMapping(value = "/ingest/status", produces = Constants.CONTENT_TYPE_JSON)
+    @ResponseBody
+    IngestQueue.Status ingestStatus()
+    {
+        return ingestQueue.getStatus();
+    }
+
+    private ResponseEntity<Void> enqueue(BuildResult data)
+    {
+        if ( ingestQueue.offer( data ) ) {
+            return ResponseEntity.accepted().build();
+        }
+        LOG.warn( "Ingest queue is full, rejecting build result with " + data.records.size() + " records." );
+        return ResponseEntity.status( HttpStatus.TOO_MANY_REQUESTS ).header( HttpHeaders.RETRY_AFTER, Integer.toString( retryAfterSeconds ) ).build();
     }
 }
@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.ZonedDateTime;
+
+/**
+ * Replaces the records of old builds with per-phase and per-artifact totals.
+ *
+ * Builds are processed oldest first, a few at a time, each batch in a transaction of
+ * its own. Batches only lock the builds they process, so ingesting new build
+ * results is never blocked.
+ *
+ * Disabled unless <code>profiler.retention.recordsDays</code> is set.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@Component
+public class RetentionJob
+{
+    private static final Logger LOG = LogManager.getLogger( RetentionJob.class );
+
+    private final DbService dbService;
+    private final int recordsDays;
+    private final int batchSize;
+
+    @Autowired
+    public RetentionJob(DbService dbService,
+                        @Value("${profiler.retention.recordsDays:0}") int recordsDays,
+                        @Value("${profiler.retention.batchSize:20}") int batchSize)
+    {
+        Validate.notNull( dbService, "dbService must not be null" );
+        Validate.isTrue( recordsDays >= 0, "recordsDays must be >= 0" );
+        Validate.isTrue( batchSize > 0, "batchSize must be > 0" );
+        this.dbService = dbService;
+        this.recordsDays = recordsDays;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(cron = "${profiler.retention.cron:0 45 3 * * *}")
+    public void run()
+    {
+        if ( recordsDays == 0 ) {
+            return;
+        }
+        final ZonedDateTime cutoff = ZonedDateTime.now().minusDays( recordsDays );
+        final long start = System.currentTimeMillis();
+        int total = 0;
+        try
+        {
+            int count;
+            do
+            {
+                count = dbService.downsampleRecords( cutoff, batchSize );
+                total += count;
+            } while ( count > 0 && ! Thread.currentThread().isInterrupted() );
+        }
+        catch( RuntimeException e )
+        {
+            // next run picks up where this one stopped
+            LOG.error( "Failed to downsample records of builds older than " + cutoff + ": " + e.getMessage(), e );
+        }
+        if ( total > 0 ) {
+            LOG.info( "Downsampled records of " + total + " builds older than " + cutoff + " in " + ( System.currentTimeMillis() - start ) + " ms." );
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+/**
+ * Calculates the per-phase, per-artifact and per-plugin totals of builds that
+ * have been stored before totals were calculated while ingesting.
+ *
+ * Processes the most recent builds first, a few at a time and with a limit per run,
+ * so that the other scheduled jobs are not held up for long. Once all builds have
+ * their totals, each run is a single cheap query.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@Component
+public class RollupBackfillJob
+{
+    private static final Logger LOG = LogManager.getLogger( RollupBackfillJob.class );
+
+    private final DbService dbService;
+    private final int batchSize;
+    private final int maxBuildsPerRun;
+
+    @Autowired
+    public RollupBackfillJob(DbService dbService,
+                             @Value("${profiler.rollups.backfillBatchSize:20}") int batchSize,
+                             @Value("${profiler.rollups.backfillBuildsPerRun:2000}") int maxBuildsPerRun)
+    {
+        Validate.notNull( dbService, "dbService must not be null" );
+        Validate.isTrue( batchSize > 0, "batchSize must be > 0" );
+        Validate.isTrue( maxBuildsPerRun > 0, "maxBuildsPerRun must be > 0" );
+        this.dbService = dbService;
+        this.batchSize = batchSize;
+        this.maxBuildsPerRun = maxBuildsPerRun;
+    }
+
+    @Scheduled(initialDelayString = "PT1M", fixedDelayString = "${profiler.rollups.backfillDelay:PT5M}")
+    public void run()
+    {
+        final long start = System.currentTimeMillis();
+        int total = 0;
+        try
+        {
+            int count;
+            do
+            {
+                count = dbService.createMissingRollups( Math.min( batchSize, maxBuildsPerRun - total ) );
+                total += count;
+            } while ( count > 0 && total < maxBuildsPerRun && ! Thread.currentThread().isInterrupted() );
+        }
+        catch( RuntimeException e )
+        {
+            LOG.error( "Failed to calculate totals of builds: " + e.getMessage(), e );
+        }
+        if ( total > 0 ) {
+            LOG.info( "Calculated totals of " + total + " builds in " + ( System.currentTimeMillis() - start ) + " ms." );
+        }
+    }
+}
@@ -0,0 +1,320 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.BuildSimulation;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.server.model.ThreadCount;
+import org.apache.commons.lang3.Validate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+/**
+ * Predicts how long a build would have taken with a different number of threads by
+ * replaying its modules the way Maven's multi-threaded builder schedules them.
+ *
+ * Build results do not contain the dependencies between modules, so - just like
+ * {@link CriticalPathAnalyzer} does - they are inferred from the timeline: a module is assumed
+ * to depend on all modules that finished before it started. This is a superset of
+ * the actual dependencies, so replaying a build with the number of threads it used yields
+ * (about) the observed duration and predictions for fewer threads are accurate, while
+ * predictions for more threads are on the pessimistic side.
+ *
+ * Whenever a thread becomes available, the simulation starts the first module (in the order
+ * the modules originally started) whose dependencies have finished. The time the build spent
+ * outside of modules (startup, reactor calculation etc.) is assumed not to depend on the number of threads.
+ *
+ * Instances are immutable apart from caching simulation results and thus thread-safe.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class BuildSimulator
+{
+    private static final Comparator<Record> BY_END_TIME =
+        Comparator.comparingLong( Record::endTimeMillis ).thenComparingLong( Record::startTimeMillis );
+
+    private final long buildId;
+    // time the build spent outside of modules
+    private final long overheadMillis;
+
+    // all arrays are indexed by module, modules are in the order they started
+    private final long[] durations;
+    // position of each module when sorted by the time it finished
+    private final int[] endRanks;
+    // number of modules (in the order they finished) that need to finish before a module may start
+    private final int[] prerequisites;
+    // modules sorted ascending by prerequisites
+    private final int[] byPrerequisites;
+
+    // simulated time from the start of the first to the end of the last module, by number of threads
+    private final Map<Integer, Long> makespans = new ConcurrentHashMap<>();
+
+    private BuildSimulator(long buildId, long overheadMillis, long[] durations, int[] endRanks, int[] prerequisites)
+    {
+        this.buildId = buildId;
+        this.overheadMillis = overheadMillis;
+        this.durations = durations;
+        this.endRanks = endRanks;
+        this.prerequisites = prerequisites;
+        this.byPrerequisites = IntStream.range( 0, durations.length ).boxed()
+            .sorted( Comparator.comparingInt( i -> prerequisites[i] ) )
+            .mapToInt( Integer::intValue )
+            .toArray();
+    }
+
+    /**
+     * Creates a simulator for a build.
+     *
+     * @param build the build
+     * @param modules one record per module, spanning all records of the module (as returned by {@link DbServiceImpl#rollUp(List, DbService.Grouping)})
+     * @return simulator
+     */
+    static BuildSimulator create(Build build, List<Record> modules)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( modules, "modules must not be null" );
+
+        final List<Record> byStart = new ArrayList<>( modules );
+        byStart.sort( Comparator.comparingLong( Record::startTimeMillis ).thenComparingLong( Record::endTimeMillis ) );
+        final List<Record> byEnd = new ArrayList<>( byStart );
+        byEnd.sort( BY_END_TIME );
+
+        final int count = byStart.size();
+        final long[] endMillis = byEnd.stream().mapToLong( Record::endTimeMillis ).toArray();
+        final long[] durations = new long[count];
+        final int[] endRanks = new int[count];
+        final int[] prerequisites = new int[count];
+        for ( int i = 0; i < count; i++ )
+        {
+            final Record module = byStart.get( i );
+            durations[i] = module.endTimeMillis() - module.startTimeMillis();
+            endRanks[i] = indexOf( byEnd, module );
+            // only looking at modules that finished before this one so that modules
+            // without duration do not end up waiting for themselves
+            prerequisites[i] = lastEndingAtOrBefore( endMillis, endRanks[i], module.startTimeMillis() ) + 1;
+        }
+
+        long overhead = 0;
+        if ( build.duration != null )
+        {
+            final long span = count == 0 ? 0 : endMillis[count - 1] - byStart.get( 0 ).startTimeMillis();
+            overhead = Math.max( 0, build.duration.toMillis() - span );
+        }
+        return new BuildSimulator( build.id, overhead, durations, endRanks, prerequisites );
+    }
+
+    /*
+     * Finds a module by identity, modules with equal timestamps need to get distinct ranks.
+     */
+    private static int indexOf(List<Record> byEnd, Record module)
+    {
+        int low = 0;
+        int high = byEnd.size() - 1;
+        while ( low <= high )
+        {
+            final int mid = ( low + high ) >>> 1;
+            final int cmp = BY_END_TIME.compare( byEnd.get( mid ), module );
+            if ( cmp < 0 ) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        // 'low' is the first record comparing equal, look for the module itself among those
+        for ( int i = low; ; i++ )
+        {
+            if ( byEnd.get( i ) == module ) {
+                return i;
+            }
+        }
+    }
+
+    /*
+     * Returns the index of the last element less than or equal to 'value' within
+     * the first 'count' elements of a sorted array, -1 if there is none.
+     */
+    private static int lastEndingAtOrBefore(long[] sorted, int count, long value)
+    {
+        int low = 0;
+        int high = count - 1;
+        while ( low <= high )
+        {
+            final int mid = ( low + high ) >>> 1;
+            if ( sorted[mid] <= value ) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+
+    long getBuildId()
+    {
+        return buildId;
+    }
+
+    int getModuleCount()
+    {
+        return durations.length;
+    }
+
+    /**
+     * Predicts the durations of a build.
+     *
+     * @param build the build this simulator got created for
+     * @param threadCounts thread counts to simulate
+     * @return predicted durations
+     */
+    BuildSimulation simulate(Build build, Collection<ThreadCount> threadCounts)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( threadCounts, "threadCounts must not be null" );
+        Validate.isTrue( build.id == buildId, "simulator was created for build " + buildId + " but got build " + build.id );
+
+        final BuildSimulation result = new BuildSimulation();
+        result.buildId = build.id;
+        result.buildStartTime = build.startTime;
+        result.buildDuration = build.duration;
+        result.availableProcessors = build.availableProcessors;
+        result.maxConcurrency = build.maxConcurrency;
+        for ( ThreadCount threads : threadCounts ) {
+            result.predictedDurations.put( threads, predictDuration( threads.resolve( build.availableProcessors ) ) );
+        }
+        return result;
+    }
+
+    /**
+     * Predicts the duration of the build.
+     *
+     * @param threads number of threads to build with
+     * @return predicted duration
+     */
+    Duration predictDuration(int threads)
+    {
+        return Duration.ofMillis( overheadMillis + makespan( threads ) );
+    }
+
+    /**
+     * Returns the simulated time from the start of the first module until the end of the last module.
+     *
+     * @param threads number of threads to build with
+     * @return time in milliseconds
+     */
+    long makespan(int threads)
+    {
+        Validate.isTrue( threads > 0, "threads must be > 0" );
+        // more threads than modules do not make a difference
+        return makespans.computeIfAbsent( Math.min( threads, Math.max( 1, durations.length ) ), this::simulate );
+    }
+
+    private long simulate(int threads)
+    {
+        final int count = durations.length;
+        final boolean[] finished = new boolean[count]; // indexed by end rank
+        int finishedPrefix = 0; // number of modules (in the order they originally finished) that have all finished
+        int nextPrerequisite = 0; // index into byPrerequisites
+        final BitSet ready = new BitSet( count );
+
+        // running modules, ordered by the time they finish
+        final long[] runningEnd = new long[threads];
+        final int[] runningModule = new int[threads];
+        int running = 0;
+
+        long time = 0;
+        while ( true )
+        {
+            while ( nextPrerequisite < count && prerequisites[byPrerequisites[nextPrerequisite]] <= finishedPrefix ) {
+                ready.set( byPrerequisites[nextPrerequisite++] );
+            }
+            for ( int module = ready.nextSetBit( 0 ); module >= 0 && running < threads; module = ready.nextSetBit( module + 1 ) )
+            {
+                ready.clear( module );
+                running = push( runningEnd, runningModule, running, time + durations[module], module );
+            }
+            if ( running == 0 ) {
+                return time;
+            }
+            // finish all modules ending at the same time before scheduling the next ones
+            time = runningEnd[0];
+            while ( running > 0 && runningEnd[0] == time )
+            {
+                finished[endRanks[runningModule[0]]] = true;
+                running = pop( runningEnd, runningModule, running );
+            }
+            while ( finishedPrefix < count && finished[finishedPrefix] ) {
+                finishedPrefix++;
+            }
+        }
+    }
+
+    /*
+     * Binary min-heap of running modules, keyed by the time they finish.
+     */
+    private static int push(long[] keys, int[] values, int size, long key, int value)
+    {
+        int i = size;
+        while ( i > 0 )
+        {
+            final int parent = ( i - 1 ) >>> 1;
+            if ( keys[parent] <= key ) {
+                break;
+            }
+            keys[i] = keys[parent];
+            values[i] = values[parent];
+            i = parent;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return size + 1;
+    }
+
+    private static int pop(long[] keys, int[] values, int size)
+    {
+        final int last = size - 1;
+        final long key = keys[last];
+        final int value = values[last];
+        int i = 0;
+        while ( true )
+        {
+            int child = 2 * i + 1;
+            if ( child >= last ) {
+                break;
+            }
+            if ( child + 1 < last && keys[child + 1] < keys[child] ) {
+                child++;
+            }
+            if ( key <= keys[child] ) {
+                break;
+            }
+            keys[i] = keys[child];
+            values[i] = values[child];
+            i = child;
+        }
+        keys[i] = key;
+        values[i] = value;
+        return last;
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.CriticalPath;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import org.apache.commons.lang3.Validate;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Reconstructs the critical path of a build from the time each module started and finished.
+ *
+ * Build results do not contain the dependencies between modules, so they are inferred
+ * from the timeline: Maven only starts building a module after all modules it depends on
+ * have finished, so the module that finished last before a module started is assumed to be
+ * the one it was waiting for. Starting with the module that finished last, this is repeated until
+ * reaching a module that nothing finished before.
+ *
+ * For sequential builds, this yields all modules in reactor order.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class CriticalPathAnalyzer
+{
+    private static final Comparator<Record> BY_END_TIME =
+        Comparator.comparingLong( Record::endTimeMillis ).thenComparingLong( Record::startTimeMillis );
+
+    private CriticalPathAnalyzer() {
+    }
+
+    /**
+     * Calculates the critical path of a build.
+     *
+     * @param build the build
+     * @param modules one record per module, spanning all records of the module (as returned by {@link DbServiceImpl#rollUp(List, DbService.Grouping)})
+     * @return critical path, without any steps if there are no modules
+     */
+    static CriticalPath analyze(Build build, List<Record> modules)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( modules, "modules must not be null" );
+
+        final CriticalPath result = new CriticalPath();
+        result.buildId = build.id;
+        result.buildStartTime = build.startTime;
+        result.buildDuration = build.duration;
+        if ( modules.isEmpty() ) {
+            return result;
+        }
+
+        final List<Record> byEnd = new ArrayList<>( modules );
+        byEnd.sort( BY_END_TIME );
+        final long[] endMillis = byEnd.stream().mapToLong( Record::endTimeMillis ).toArray();
+
+        final List<Record> path = new ArrayList<>();
+        int current = byEnd.size() - 1;
+        while ( current >= 0 )
+        {
+            final Record module = byEnd.get( current );
+            path.add( module );
+            // module finishing last at or before this one started, only looking at modules
+            // sorted before this one so that modules without duration do not end up waiting for themselves
+            current = lastEndingAtOrBefore( endMillis, current, module.startTimeMillis() );
+        }
+        Collections.reverse( path );
+
+        long previousEnd = build.startTime.toInstant().toEpochMilli();
+        for ( Record module : path )
+        {
+            final CriticalPath.Step step = new CriticalPath.Step();
+            step.artifactId = module.artifactId;
+            step.artifactVersion = module.artifactVersion;
+            step.startTime = module.startTime;
+            step.endTime = module.endTime;
+            step.waitMillis = Math.max( 0, module.startTimeMillis() - previousEnd );
+            result.steps.add( step );
+            previousEnd = module.endTimeMillis();
+        }
+        return result;
+    }
+
+    /*
+     * Returns the index of the last element less than or equal to 'value' within
+     * the first 'count' elements of a sorted array, -1 if there is none.
+     */
+    private static int lastEndingAtOrBefore(long[] sorted, int count, long value)
+    {
+        int low = 0;
+        int high = count - 1;
+        while ( low <= high )
+        {
+            final int mid = ( low + high ) >>> 1;
+            if ( sorted[mid] <= value ) {
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return high;
+    }
+}
@@ -16,9 +16,11 @@
 package de.codesourcery.maven.buildprofiler.server.db;
 
 import de.codesourcery.maven.buildprofiler.common.Interval;
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
 import de.codesourcery.maven.buildprofiler.server.model.Artifact;
 import de.codesourcery.maven.buildprofiler.server.model.ArtifactId;
 import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.ConcurrencyProfile;
 import de.codesourcery.maven.buildprofiler.server.model.Host;
 import de.codesourcery.maven.buildprofiler.server.model.LifecyclePhase;
 import de.codesourcery.maven.buildprofiler.server.model.Record;
@@ -28,6 +30,8 @@ import org.apache.commons.lang3.Validate;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.apache.wicket.util.string.Strings;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyIn;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.dao.EmptyResultDataAccessException;
 import org.springframework.dao.IncorrectResultSizeDataAccessException;
@@ -37,11 +41,13 @@ import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.RowMapper;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
+import org.springframework.context.annotation.DependsOn;
 import org.springframework.stereotype.Repository;
 
 import java.io.Serializable;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -49,19 +55,26 @@ import java.sql.SQLException;
 import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.UUID;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Repository
+@DependsOn("schemaMigrator")
 public class DAO
 {
     private static final Logger LOG = LogManager.getLogger( DAO.class );
@@ -72,6 +85,15 @@ public class DAO
     private static final String ARTIFACTS_TABLE = "profiler.artifacts";
     private static final String RECORDS_TABLE = "profiler.records";
     private static final String HOSTS_TABLE = "profiler.hosts";
+    private static final String PHASE_ROLLUPS_TABLE = "profiler.phase_rollups";
+    private static final String ARTIFACT_ROLLUPS_TABLE = "profiler.artifact_rollups";
+    private static final String PLUGIN_ROLLUPS_TABLE = "profiler.plugin_rollups";
+    private static final String CONCURRENCY_PROFILES_TABLE = "profiler.concurrency_profiles";
+
+    // number of characters to buffer before sending them to the server when using COPY
+    private static final int COPY_BUFFER_SIZE = 64 * 1024;
+
+    private static final DateTimeFormatter COPY_TIMESTAMP_FORMAT = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss.SSSxxx" );
 
     // cols
     private static final String BUILD_ID_COL = "build_id";
@@ -86,6 +108,9 @@ public class DAO
     private static final String BUILD_GIT_HASH_COL = "git_hash";
     private static final String BUILD_SYSTEM_PROPERTIES_COL = "system_properties";
     private static final String BUILD_ENV_PROPERTIES_COL = "env_properties";
+    private static final String BUILD_UUID_COL = "build_uuid";
+    private static final String BUILD_RECORDS_DOWNSAMPLED_COL = "records_downsampled";
+    private static final String BUILD_HAS_ROLLUPS_COL = "has_rollups";
 
     private static final List<String> BUILD_TABLE_COLS = List.of(
         BUILD_ID_COL,
@@ -99,7 +124,10 @@ public class DAO
         BUILD_AVAILABLE_CPUS_COL,
         BUILD_GIT_HASH_COL,
         BUILD_SYSTEM_PROPERTIES_COL,
-        BUILD_ENV_PROPERTIES_COL );
+        BUILD_ENV_PROPERTIES_COL,
+        BUILD_UUID_COL,
+        BUILD_RECORDS_DOWNSAMPLED_COL,
+        BUILD_HAS_ROLLUPS_COL );
 
     private static final String HOST_ID_COL = "host_id";
     private static final String HOST_NAME_COL = "host_name";
@@ -186,6 +214,9 @@ public class DAO
         private final String gitHashCol;
         private final String systemPropertiesCol;
         private final String envPropertiesCol;
+        private final String uuidCol;
+        private final String recordsDownsampledCol;
+        private final String hasRollupsCol;
 
         public BuildRowMapper(String buildsTableColPrefix, String hostsTableColPrefix)
         {
@@ -201,6 +232,9 @@ public class DAO
             gitHashCol = buildsTableColPrefix + BUILD_GIT_HASH_COL;
             systemPropertiesCol = buildsTableColPrefix + BUILD_SYSTEM_PROPERTIES_COL;
             envPropertiesCol = buildsTableColPrefix + BUILD_ENV_PROPERTIES_COL;
+            uuidCol = buildsTableColPrefix + BUILD_UUID_COL;
+            recordsDownsampledCol = buildsTableColPrefix + BUILD_RECORDS_DOWNSAMPLED_COL;
+            hasRollupsCol = buildsTableColPrefix + BUILD_HAS_ROLLUPS_COL;
         }
 
         @Override
@@ -218,6 +252,9 @@ public class DAO
             result.gitHash = rs.getString( gitHashCol );
             result.systemProperties = rs.getString( systemPropertiesCol );
             result.environmentProperties = rs.getString( envPropertiesCol );
+            result.buildUuid = rs.getObject( uuidCol, UUID.class );
+            result.recordsDownsampled = rs.getBoolean( recordsDownsampledCol );
+            result.hasRollups = rs.getBoolean( hasRollupsCol );
             return result;
         }
     }
@@ -314,6 +351,44 @@ public class DAO
         }
     }
 
+    /**
+     * Maps rows of a rollup table to records that look like they
+     * were produced by {@link DbServiceImpl#performGrouping(List, DbService.Grouping)}.
+     */
+    private static final class RollupMapper implements RowMapperHelper<Record>
+    {
+        private final DbService.Grouping grouping;
+
+        public RollupMapper(DbService.Grouping grouping)
+        {
+            this.grouping = grouping;
+        }
+
+        @Override
+        public Record mapRow(ResultSet rs, int rowNum) throws SQLException
+        {
+            final Record result = new Record();
+            result.buildId = rs.getLong( "build_id" );
+            switch( grouping )
+            {
+                case PHASE -> result.phaseId = rs.getLong( "phase_id" );
+                case ARTIFACT -> {
+                    result.artifactId = rs.getLong( "artifact_id" );
+                    result.artifactVersion = rs.getString( "artifact_version" );
+                }
+                case PLUGIN -> {
+                    result.pluginArtifactId = rs.getLong( "plugin_artifact_id" );
+                    result.pluginVersion = rs.getString( "plugin_version" );
+                }
+                default -> throw new IllegalArgumentException( "Unsupported grouping: " + grouping );
+            }
+            result.startTime = dateTime( "start_time", rs );
+            result.endTime = dateTime( "end_time", rs );
+            result.setDurationMillis( rs.getLong( "wall_clock_millis" ) );
+            return result;
+        }
+    }
+
     public int getBuildCount(SearchCriteria crit)
     {
         // make sure we're not generating unnecessary ORDER BY
@@ -389,18 +464,298 @@ public class DAO
         } );
     }
 
-    public List<Record> getRecords(long buildId)
+    public List<Record> getRecords(Build build)
     {
-        return jdbcTemplate.query( "SELECT * FROM " + RECORDS_TABLE + " WHERE build_id=" + buildId, new RecordMapper() );
+        Validate.notNull( build, "build must not be null" );
+        // the build start time lets PostgreSQL skip all partitions except one
+        final String sql = "SELECT * FROM " + RECORDS_TABLE + " WHERE build_id=? AND build_start_time=?";
+        return jdbcTemplate.query( sql, new RecordMapper(), build.id, toTimestamp( build.startTime ) );
     }
 
-    public Map<Long, List<Record>> getRecords(Set<Long> buildIds)
+    public Map<Long, List<Record>> getRecords(Collection<Build> builds)
     {
-        final String ids = buildIds.stream().map( x -> Long.toString( x ) ).collect( Collectors.joining( "," ) );
-        final List<Record> list = jdbcTemplate.query( "SELECT * FROM " + RECORDS_TABLE + " WHERE build_id IN (" + ids + ")", new RecordMapper() );
+        return queryByBuilds( RECORDS_TABLE, builds, new RecordMapper() );
+    }
+
+    /**
+     * Returns the per-phase, per-artifact or per-plugin totals of builds.
+     *
+     * @param builds builds
+     * @param grouping kind of totals to return
+     * @return one record per group and build, with {@link Record#duration()} being the wall-clock time spent within the group
+     */
+    public Map<Long, List<Record>> getRollups(Collection<Build> builds, DbService.Grouping grouping)
+    {
+        return queryByBuilds( rollupsTable( grouping ), builds, new RollupMapper( grouping ) );
+    }
+
+    private static String rollupsTable(DbService.Grouping grouping)
+    {
+        return switch( grouping )
+        {
+            case PHASE -> PHASE_ROLLUPS_TABLE;
+            case ARTIFACT -> ARTIFACT_ROLLUPS_TABLE;
+            case PLUGIN -> PLUGIN_ROLLUPS_TABLE;
+            case NONE -> throw new IllegalArgumentException( "Unsupported grouping: " + grouping );
+        };
+    }
+
+    private Map<Long, List<Record>> queryByBuilds(String table, Collection<Build> builds, RowMapper<Record> mapper)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        if ( builds.isEmpty() ) {
+            return new HashMap<>();
+        }
+        // the build start times let PostgreSQL skip partitions that cannot contain the builds
+        final String sql = "SELECT * FROM " + table + " WHERE " + buildsConstraint( builds );
+        final List<Record> list = jdbcTemplate.query( sql, mapper, minStartTime( builds ), maxStartTime( builds ) );
         return list.stream().collect( Collectors.groupingBy( x -> x.buildId ) );
     }
 
+    /*
+     * Returns a WHERE clause for rows of a table partitioned by build start time
+     * that belong to any of the given builds, with two placeholders for the
+     * minimum and maximum build start time.
+     */
+    private static String buildsConstraint(Collection<Build> builds)
+    {
+        final String ids = builds.stream().map( x -> Long.toString( x.id ) ).distinct().collect( Collectors.joining( "," ) );
+        return "build_id IN (" + ids + ") AND build_start_time BETWEEN ? AND ?";
+    }
+
+    private static Timestamp minStartTime(Collection<Build> builds)
+    {
+        return toTimestamp( builds.stream().map( x -> x.startTime ).min( Comparator.naturalOrder() ).orElseThrow() );
+    }
+
+    private static Timestamp maxStartTime(Collection<Build> builds)
+    {
+        return toTimestamp( builds.stream().map( x -> x.startTime ).max( Comparator.naturalOrder() ).orElseThrow() );
+    }
+
+    /**
+     * Stores the per-phase, per-artifact or per-plugin totals of a build.
+     *
+     * @param build build
+     * @param rollups one record per group, as returned by {@link RollupAccumulator#getRollups(DbService.Grouping)}
+     * @param grouping kind of totals
+     */
+    public void saveRollups(Build build, Collection<Record> rollups, DbService.Grouping grouping)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( rollups, "rollups must not be null" );
+        if ( rollups.isEmpty() ) {
+            return;
+        }
+        final String sql = switch( grouping )
+        {
+            case PHASE -> "INSERT INTO " + PHASE_ROLLUPS_TABLE +
+                " (build_id,build_start_time,phase_id,start_time,end_time,wall_clock_millis) VALUES (?,?,?,?,?,?)";
+            case ARTIFACT -> "INSERT INTO " + ARTIFACT_ROLLUPS_TABLE +
+                " (build_id,build_start_time,artifact_id,artifact_version,start_time,end_time,wall_clock_millis) VALUES (?,?,?,?,?,?,?)";
+            case PLUGIN -> "INSERT INTO " + PLUGIN_ROLLUPS_TABLE +
+                " (build_id,build_start_time,plugin_artifact_id,plugin_version,start_time,end_time,wall_clock_millis) VALUES (?,?,?,?,?,?,?)";
+            default -> throw new IllegalArgumentException( "Unsupported grouping: " + grouping );
+        };
+        jdbcTemplate.execute( (ConnectionCallback<Void>) con -> {
+            try ( final PreparedStatement stmt = con.prepareStatement( sql ) )
+            {
+                for ( Record rollup : rollups )
+                {
+                    int y = 1;
+                    stmt.setLong( y++, build.id );
+                    stmt.setTimestamp( y++, toTimestamp( build.startTime ) );
+                    switch( grouping )
+                    {
+                        case PHASE -> stmt.setLong( y++, rollup.phaseId );
+                        case ARTIFACT -> {
+                            stmt.setLong( y++, rollup.artifactId );
+                            stmt.setString( y++, rollup.artifactVersion );
+                        }
+                        default -> {
+                            stmt.setLong( y++, rollup.pluginArtifactId );
+                            stmt.setString( y++, rollup.pluginVersion );
+                        }
+                    }
+                    stmt.setTimestamp( y++, toTimestamp( rollup.startTime ) );
+                    stmt.setTimestamp( y++, toTimestamp( rollup.endTime ) );
+                    stmt.setLong( y++, rollup.duration().toMillis() );
+                    stmt.addBatch();
+                }
+                stmt.executeBatch();
+            }
+            return null;
+        } );
+    }
+
+    private static final class ConcurrencyProfileMapper implements RowMapperHelper<ConcurrencyProfile>
+    {
+        @Override
+        public ConcurrencyProfile mapRow(ResultSet rs, int rowNum) throws SQLException
+        {
+            final ConcurrencyProfile result = new ConcurrencyProfile();
+            result.buildId = rs.getLong( "build_id" );
+            result.buildStartTime = dateTime( "build_start_time", rs );
+            result.availableProcessors = rs.getInt( "available_processors" );
+            result.offsetsMillis = Stream.of( (Long[]) rs.getArray( "offsets_millis" ).getArray() ).mapToLong( Long::longValue ).toArray();
+            result.activeMojos = Stream.of( (Integer[]) rs.getArray( "active_mojos" ).getArray() ).mapToInt( Integer::intValue ).toArray();
+            result.mojoMillis = rs.getLong( "mojo_millis" );
+            result.spanMillis = rs.getLong( "span_millis" );
+            result.idleCoreMillis = rs.getLong( "idle_core_millis" );
+            result.serialMillis = rs.getLong( "serial_millis" );
+            return result;
+        }
+    }
+
+    /**
+     * Returns the concurrency profile of a build.
+     *
+     * @param build build
+     * @return profile, empty if none has been stored for this build
+     */
+    public Optional<ConcurrencyProfile> getConcurrencyProfile(Build build)
+    {
+        Validate.notNull( build, "build must not be null" );
+        final String sql = "SELECT * FROM " + CONCURRENCY_PROFILES_TABLE + " WHERE build_id=? AND build_start_time=?";
+        return jdbcTemplate.query( sql, new ConcurrencyProfileMapper(), build.id, toTimestamp( build.startTime ) ).stream().findFirst();
+    }
+
+    /**
+     * Returns the IDs of builds that have a concurrency profile stored.
+     *
+     * @param builds builds to check
+     * @return IDs of those builds having a profile
+     */
+    public Set<Long> getBuildsWithConcurrencyProfile(Collection<Build> builds)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        if ( builds.isEmpty() ) {
+            return new HashSet<>();
+        }
+        final String sql = "SELECT build_id FROM " + CONCURRENCY_PROFILES_TABLE + " WHERE " + buildsConstraint( builds );
+        return new HashSet<>( jdbcTemplate.queryForList( sql, Long.class, minStartTime( builds ), maxStartTime( builds ) ) );
+    }
+
+    /**
+     * Stores the concurrency profile of a build.
+     *
+     * @param build build
+     * @param profile profile, as returned by {@link ConcurrencyProfile#calculate(Build, IntervalSet.Builder)}
+     */
+    public void saveConcurrencyProfile(Build build, ConcurrencyProfile profile)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( profile, "profile must not be null" );
+        final String sql = "INSERT INTO " + CONCURRENCY_PROFILES_TABLE + " (build_id,build_start_time,available_processors,offsets_millis," +
+            "active_mojos,mojo_millis,span_millis,idle_core_millis,serial_millis) VALUES (?,?,?,?,?,?,?,?,?)";
+        jdbcTemplate.execute( (ConnectionCallback<Void>) con -> {
+            try ( final PreparedStatement stmt = con.prepareStatement( sql ) )
+            {
+                int y = 1;
+                stmt.setLong( y++, build.id );
+                stmt.setTimestamp( y++, toTimestamp( build.startTime ) );
+                stmt.setInt( y++, profile.availableProcessors );
+                stmt.setArray( y++, con.createArrayOf( "bigint", Arrays.stream( profile.offsetsMillis ).boxed().toArray() ) );
+                stmt.setArray( y++, con.createArrayOf( "integer", Arrays.stream( profile.activeMojos ).boxed().toArray() ) );
+                stmt.setLong( y++, profile.mojoMillis );
+                stmt.setLong( y++, profile.spanMillis );
+                stmt.setLong( y++, profile.idleCoreMillis );
+                stmt.setLong( y++, profile.serialMillis );
+                stmt.executeUpdate();
+            }
+            return null;
+        } );
+    }
+
+    /**
+     * Returns the oldest builds whose records have not been downsampled yet, locking them.
+     *
+     * Builds already locked by some other transaction are skipped.
+     *
+     * @param startedBefore only return builds that started before this time
+     * @param maxBuilds max. number of builds to return
+     * @return builds, oldest first
+     */
+    public List<Build> lockBuildsToDownsample(ZonedDateTime startedBefore, int maxBuilds)
+    {
+        Validate.notNull( startedBefore, "startedBefore must not be null" );
+        return lockBuilds( "NOT b." + BUILD_RECORDS_DOWNSAMPLED_COL + " AND b." + BUILD_START_TIME_COL + " < ?",
+            "b." + BUILD_START_TIME_COL, maxBuilds, toTimestamp( startedBefore ) );
+    }
+
+    /**
+     * Returns the most recent builds that still have their records but no totals, locking them.
+     *
+     * Builds already locked by some other transaction are skipped.
+     *
+     * @param maxBuilds max. number of builds to return
+     * @return builds, most recent first
+     */
+    public List<Build> lockBuildsWithoutRollups(int maxBuilds)
+    {
+        return lockBuilds( "NOT b." + BUILD_HAS_ROLLUPS_COL + " AND NOT b." + BUILD_RECORDS_DOWNSAMPLED_COL,
+            "b." + BUILD_START_TIME_COL + " DESC", maxBuilds );
+    }
+
+    private List<Build> lockBuilds(String condition, String orderBy, int maxBuilds, Object... params)
+    {
+        Validate.isTrue( maxBuilds > 0, "maxBuilds must be > 0" );
+
+        final List<String> allColumns = BUILD_TABLE_COLS.stream().map( x -> "b." + x + " AS b" + x ).collect( Collectors.toList() );
+        allColumns.addAll( HOST_TABLE_COLS.stream().map( x -> "h." + x + " AS h" + x ).toList() );
+        final String sql = "SELECT " + Strings.join( ",", allColumns ) + " FROM " + BUILDS_TABLE + " b INNER JOIN " + HOSTS_TABLE + " h USING (host_id)" +
+            " WHERE " + condition + " ORDER BY " + orderBy + " LIMIT " + maxBuilds + " FOR UPDATE OF b SKIP LOCKED";
+        return jdbcTemplate.query( sql, new BuildRowMapper( "b", "h" ), params );
+    }
+
+    /**
+     * Deletes all records of builds.
+     *
+     * @param builds builds
+     * @return number of records deleted
+     */
+    public int deleteRecords(Collection<Build> builds)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        if ( builds.isEmpty() ) {
+            return 0;
+        }
+        final String sql = "DELETE FROM " + RECORDS_TABLE + " WHERE " + buildsConstraint( builds );
+        return jdbcTemplate.update( sql, minStartTime( builds ), maxStartTime( builds ) );
+    }
+
+    /**
+     * Marks builds as having their records replaced by per-phase and per-artifact totals.
+     *
+     * @param builds builds
+     */
+    public void markRecordsDownsampled(Collection<Build> builds)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        if ( builds.isEmpty() ) {
+            return;
+        }
+        final String sql = "UPDATE " + BUILDS_TABLE + " SET " + BUILD_RECORDS_DOWNSAMPLED_COL + "=true WHERE " + buildsConstraint( builds );
+        jdbcTemplate.update( sql, minStartTime( builds ), maxStartTime( builds ) );
+        builds.forEach( x -> x.recordsDownsampled = true );
+    }
+
+    /**
+     * Marks builds as having their per-phase, per-artifact and per-plugin totals stored.
+     *
+     * @param builds builds
+     */
+    public void markHasRollups(Collection<Build> builds)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        if ( builds.isEmpty() ) {
+            return;
+        }
+        final String sql = "UPDATE " + BUILDS_TABLE + " SET " + BUILD_HAS_ROLLUPS_COL + "=true WHERE " + buildsConstraint( builds );
+        jdbcTemplate.update( sql, minStartTime( builds ), maxStartTime( builds ) );
+        builds.forEach( x -> x.hasRollups = true );
+    }
+
     public void saveRecords(List<Record> toInsert)
     {
         Validate.notNull( toInsert, "toInsert must not be null" );
@@ -414,7 +769,9 @@ public class DAO
             {
                 final String cols = RECORD_COLS.stream().map( x -> '"' + x + '"' ).collect( Collectors.joining( "," ) );
                 final String placeholders = RECORD_COLS.stream().map( x -> "?" ).collect( Collectors.joining( "," ) );
-                final String sql = "INSERT INTO " + RECORDS_TABLE + " (" + cols + ") VALUES (" + placeholders + ")";
+                // records are partitioned by the start time of their build
+                final String sql = "INSERT INTO " + RECORDS_TABLE + " (" + cols + ",build_start_time) VALUES (" + placeholders +
+                    ",(SELECT build_start_time FROM " + BUILDS_TABLE + " WHERE build_id=?))";
 
                 try ( final PreparedStatement stmt = con.prepareStatement( sql, Statement.RETURN_GENERATED_KEYS ) )
                 {
@@ -429,6 +786,7 @@ public class DAO
                         stmt.setString( y++, record.artifactVersion );
                         stmt.setTimestamp( y++, toTimestamp( record.startTime ) );
                         stmt.setTimestamp( y++, toTimestamp( record.endTime ) );
+                        stmt.setLong( y++, record.buildId );
                         stmt.addBatch();
                     }
                     stmt.executeBatch();
@@ -451,6 +809,97 @@ public class DAO
         }
     }
 
+    /**
+     * Bulk-inserts new records using PostgreSQL's <code>COPY</code>.
+     *
+     * Unlike {@link #saveRecords(List)}, this method does not assign IDs to the records.
+     *
+     * @param build build all records belong to
+     * @param toInsert records to insert
+     */
+    public void copyRecords(Build build, List<Record> toInsert)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( toInsert, "toInsert must not be null" );
+        Validate.isTrue( toInsert.stream().noneMatch( x -> x.id != 0 ), "this method can only persist new instances" );
+        Validate.isTrue( toInsert.stream().allMatch( x -> x.buildId == build.id ), "all records must belong to the same build" );
+        if ( toInsert.isEmpty() )
+        {
+            return;
+        }
+        jdbcTemplate.execute( (ConnectionCallback<Void>) con ->
+        {
+            final String sql = "COPY " + RECORDS_TABLE + " (build_id,build_start_time,phase_id,plugin_artifact_id,plugin_version,artifact_id,artifact_version,start_time,end_time) FROM STDIN";
+            final String buildStartTime = COPY_TIMESTAMP_FORMAT.format( build.startTime );
+            final CopyIn copyIn = con.unwrap( PGConnection.class ).getCopyAPI().copyIn( sql );
+            try
+            {
+                final StringBuilder buffer = new StringBuilder();
+                for ( final Record record : toInsert )
+                {
+                    appendCopyRow( record, buildStartTime, buffer );
+                    if ( buffer.length() >= COPY_BUFFER_SIZE ) {
+                        writeToCopy( buffer, copyIn );
+                    }
+                }
+                writeToCopy( buffer, copyIn );
+                copyIn.endCopy();
+            }
+            finally
+            {
+                if ( copyIn.isActive() ) {
+                    copyIn.cancelCopy();
+                }
+            }
+            return null;
+        } );
+    }
+
+    private static void writeToCopy(StringBuilder buffer, CopyIn copyIn) throws SQLException
+    {
+        final byte[] data = buffer.toString().getBytes( StandardCharsets.UTF_8 );
+        copyIn.writeToCopy( data, 0, data.length );
+        buffer.setLength( 0 );
+    }
+
+    /**
+     * Appends a record as a line in PostgreSQL's COPY text format.
+     *
+     * @param record
+     * @param buildStartTime start time of the record's build, already formatted
+     * @param buffer
+     */
+    static void appendCopyRow(Record record, String buildStartTime, StringBuilder buffer)
+    {
+        buffer.append( record.buildId ).append( '\t' )
+            .append( buildStartTime ).append( '\t' )
+            .append( record.phaseId ).append( '\t' )
+            .append( record.pluginArtifactId ).append( '\t' );
+        appendCopyText( record.pluginVersion, buffer );
+        buffer.append( '\t' ).append( record.artifactId ).append( '\t' );
+        appendCopyText( record.artifactVersion, buffer );
+        buffer.append( '\t' ).append( COPY_TIMESTAMP_FORMAT.format( record.startTime ) )
+            .append( '\t' ).append( COPY_TIMESTAMP_FORMAT.format( record.endTime ) )
+            .append( '\n' );
+    }
+
+    private static void appendCopyText(String value, StringBuilder buffer)
+    {
+        Validate.notNull( value, "value must not be null" );
+        for ( int i = 0, len = value.length() ; i < len ; i++ )
+        {
+            final char c = value.charAt( i );
+            switch( c )
+            {
+                case '\\' -> buffer.append( "\\\\" );
+                case '\t' -> buffer.append( "\\t" );
+                case '\n' -> buffer.append( "\\n" );
+                case '\r' -> buffer.append( "\\r" );
+                default -> buffer.append( c );
+            }
+        }
+    }
+
     public List<Artifact> getArtifacts(Set<ArtifactId> ids)
     {
         Validate.notNull( ids, "ids must not be null" );
@@ -458,35 +907,80 @@ public class DAO
         {
             return new ArrayList<>();
         }
-        return jdbcTemplate.execute( (ConnectionCallback<List<Artifact>>) con ->
+        final String sql = "SELECT a.* FROM " + ARTIFACTS_TABLE + " a JOIN unnest(?::text[],?::text[]) AS k(group_id_txt,artifact_id_txt)" +
+            " ON a.group_id_txt=k.group_id_txt AND a.artifact_id_txt=k.artifact_id_txt";
+        return jdbcTemplate.execute( (ConnectionCallback<List<Artifact>>) con -> queryArtifacts( con, sql, ids ) );
+    }
+
+    /**
+     * Looks up artifacts, inserting the ones that do not exist yet.
+     *
+     * @param ids artifacts to look up
+     * @return artifacts
+     */
+    public List<Artifact> getOrCreateArtifacts(Set<ArtifactId> ids)
+    {
+        Validate.notNull( ids, "ids must not be null" );
+        if ( ids.isEmpty() )
         {
-            final List<Artifact> result = new ArrayList<>();
+            return new ArrayList<>();
+        }
+        // the SELECT part does not see the rows inserted by the same statement, so there are no duplicates.
+        // Rows are inserted in a fixed order so that concurrent transactions inserting the same artifacts cannot deadlock.
+        final String sql = "WITH k AS (SELECT * FROM unnest(?::text[],?::text[]) AS k(group_id_txt,artifact_id_txt))," +
+            " ins AS (INSERT INTO " + ARTIFACTS_TABLE + " (group_id_txt,artifact_id_txt) SELECT group_id_txt,artifact_id_txt FROM k" +
+            " ORDER BY group_id_txt,artifact_id_txt ON CONFLICT (group_id_txt,artifact_id_txt) DO NOTHING RETURNING *)" +
+            " SELECT * FROM ins UNION ALL" +
+            " SELECT a.* FROM " + ARTIFACTS_TABLE + " a JOIN k ON a.group_id_txt=k.group_id_txt AND a.artifact_id_txt=k.artifact_id_txt";
+        final List<Artifact> result = jdbcTemplate.execute( (ConnectionCallback<List<Artifact>>) con -> queryArtifacts( con, sql, ids ) );
+
+        // artifacts inserted by concurrent transactions that committed while we were waiting on them
+        // are neither inserted nor visible to the statement's snapshot, look them up again
+        final Set<ArtifactId> found = result.stream().map( Artifact::toArtifactId ).collect( Collectors.toSet() );
+        final Set<ArtifactId> missing = ids.stream().filter( Predicate.not( found::contains ) ).collect( Collectors.toSet() );
+        if ( ! missing.isEmpty() ) {
+            result.addAll( getArtifacts( missing ) );
+        }
+        return result;
+    }
 
-            final String sql = "SELECT * from " + ARTIFACTS_TABLE + " WHERE "
-                + ids.stream().map( x -> "(group_id_txt=? AND artifact_id_txt=?)" ).collect( Collectors.joining( " OR " ) );
-            try ( PreparedStatement stmt = con.prepareStatement( sql ) )
+    private static List<Artifact> queryArtifacts(Connection con, String sql, Set<ArtifactId> ids) throws SQLException
+    {
+        final String[] groupIds = new String[ids.size()];
+        final String[] artifactIds = new String[ids.size()];
+        int i = 0;
+        for ( final ArtifactId id : ids )
+        {
+            groupIds[i] = id.groupIdText();
+            artifactIds[i++] = id.artifactIdText();
+        }
+        final List<Artifact> result = new ArrayList<>();
+        try ( PreparedStatement stmt = con.prepareStatement( sql ) )
+        {
+            stmt.setArray( 1, con.createArrayOf( "text", groupIds ) );
+            stmt.setArray( 2, con.createArrayOf( "text", artifactIds ) );
+            try ( ResultSet rs = stmt.executeQuery() )
             {
-                int paramNo = 1;
-                for ( final ArtifactId id : ids )
+                final ArtifactMapper mapper = new ArtifactMapper();
+                while ( rs.next() )
                 {
-                    stmt.setString( paramNo++, id.groupIdText() );
-                    stmt.setString( paramNo++, id.artifactIdText() );
-                    stmt.addBatch();
-                }
-                try ( ResultSet rs = stmt.executeQuery() )
-                {
-                    while (rs.next())
-                    {
-                        final Artifact r = new Artifact();
-                        r.id = rs.getLong( "artifact_id" );
-                        r.groupId = rs.getString( "group_id_txt" );
-                        r.artifactId = rs.getString( "artifact_id_txt" );
-                        result.add( r );
-                    }
+                    result.add( mapper.mapRow( rs, result.size() ) );
                 }
             }
-            return result;
-        } );
+        }
+        return result;
+    }
+
+    /**
+     * Returns the most recently inserted artifacts.
+     *
+     * @param limit max. number of artifacts to return
+     * @return artifacts, most recently inserted first
+     */
+    public List<Artifact> getLatestArtifacts(int limit)
+    {
+        final String sql = "SELECT * FROM " + ARTIFACTS_TABLE + " ORDER BY artifact_id DESC LIMIT ?";
+        return jdbcTemplate.query( sql, new ArtifactMapper(), limit );
     }
 
     public List<Artifact> getArtifactsByIDs(Set<Long> ids)
@@ -554,9 +1048,55 @@ public class DAO
         {
             return new HashMap<>();
         }
-        final String sql = "SELECT * from " + PHASES_TABLE + " WHERE phase_name IN ("
-            + names.stream().map( x -> "'" + x + "'" ).collect( Collectors.joining( ", " ) ) + ")";
-        return jdbcTemplate.queryForStream( sql, new LifecycleMapper() ).collect( Collectors.toMap( x -> x.name, y -> y ) );
+        final String sql = "SELECT * from " + PHASES_TABLE + " WHERE phase_name = ANY(?::text[])";
+        return queryPhases( sql, names );
+    }
+
+    /**
+     * Looks up lifecycle phases, inserting the ones that do not exist yet.
+     *
+     * @param names names of the phases to look up
+     * @return phases by name
+     */
+    public Map<String, LifecyclePhase> getOrCreatePhases(Set<String> names)
+    {
+        Validate.notNull( names, "names must not be null" );
+        if ( names.isEmpty() )
+        {
+            return new HashMap<>();
+        }
+        // see getOrCreateArtifacts()
+        final String sql = "WITH k AS (SELECT * FROM unnest(?::text[]) AS k(phase_name))," +
+            " ins AS (INSERT INTO " + PHASES_TABLE + " (phase_name) SELECT phase_name FROM k ORDER BY phase_name ON CONFLICT (phase_name) DO NOTHING RETURNING *)" +
+            " SELECT * FROM ins UNION ALL" +
+            " SELECT p.* FROM " + PHASES_TABLE + " p JOIN k ON p.phase_name=k.phase_name";
+        final Map<String, LifecyclePhase> result = queryPhases( sql, names );
+        if ( result.size() != names.size() ) {
+            result.putAll( getPhases( names.stream().filter( Predicate.not( result::containsKey ) ).collect( Collectors.toSet() ) ) );
+        }
+        return result;
+    }
+
+    private Map<String, LifecyclePhase> queryPhases(String sql, Set<String> names)
+    {
+        return jdbcTemplate.execute( (ConnectionCallback<Map<String, LifecyclePhase>>) con ->
+        {
+            final Map<String, LifecyclePhase> result = new HashMap<>();
+            try ( PreparedStatement stmt = con.prepareStatement( sql ) )
+            {
+                stmt.setArray( 1, con.createArrayOf( "text", names.toArray() ) );
+                try ( ResultSet rs = stmt.executeQuery() )
+                {
+                    final LifecycleMapper mapper = new LifecycleMapper();
+                    while ( rs.next() )
+                    {
+                        final LifecyclePhase phase = mapper.mapRow( rs, result.size() );
+                        result.put( phase.name, phase );
+                    }
+                }
+            }
+            return result;
+        } );
     }
 
     public List<LifecyclePhase> getPhases()
@@ -604,6 +1144,61 @@ public class DAO
         } );
     }
 
+    private static void setBuildParameters(Build build, PreparedStatement stmt, int expectedParameterCount) throws SQLException
+    {
+        int y = 1;
+        stmt.setTimestamp( y++, toTimestamp( build.startTime ) );
+        stmt.setInt( y++, (int) build.duration.toMillis() );
+        stmt.setLong( y++, build.host.hostId );
+        stmt.setString( y++, build.projectName );
+        stmt.setString( y++, build.branchName );
+        stmt.setInt( y++, build.maxConcurrency );
+        stmt.setString( y++, build.jvmVersion );
+        stmt.setInt( y++, build.availableProcessors );
+        stmt.setString( y++, build.gitHash );
+        stmt.setString( y++, build.systemProperties );
+        stmt.setString( y++, build.environmentProperties );
+        stmt.setObject( y++, build.buildUuid );
+        stmt.setBoolean( y++, build.recordsDownsampled );
+        stmt.setBoolean( y++, build.hasRollups );
+        if ( (y - 1) != expectedParameterCount )
+        {
+            throw new RuntimeException( "Internal error, prepared parameter count " + (y - 1) + " does not match placeholder count " + expectedParameterCount );
+        }
+    }
+
+    /**
+     * Inserts a new build unless a build with the same {@link Build#buildUuid} already exists.
+     *
+     * @param build build to insert
+     * @return <code>true</code> if the build got inserted, <code>false</code> if it already existed
+     */
+    public boolean saveNewIfAbsent(Build build)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.isTrue( build.id == 0, "Method must only be called to persist NEW instances" );
+
+        final List<String> nonIdColumns = BUILD_TABLE_COLS.stream().filter( Predicate.not( BUILD_ID_COL::equals ) ).toList();
+        final String placeHolders = nonIdColumns.stream().map( x -> "?" ).collect( Collectors.joining( "," ) );
+        final String sql = "INSERT INTO " + BUILDS_TABLE + " (" + String.join( ",", nonIdColumns ) + ") VALUES (" + placeHolders + ")" +
+            " ON CONFLICT (" + BUILD_UUID_COL + "," + BUILD_START_TIME_COL + ") DO NOTHING RETURNING " + BUILD_ID_COL;
+
+        return jdbcTemplate.execute( (ConnectionCallback<Boolean>) con -> {
+            try ( final PreparedStatement stmt = con.prepareStatement( sql ) )
+            {
+                setBuildParameters( build, stmt, nonIdColumns.size() );
+                try ( ResultSet rs = stmt.executeQuery() )
+                {
+                    if ( ! rs.next() ) {
+                        return false;
+                    }
+                    build.id = rs.getLong( 1 );
+                    return true;
+                }
+            }
+        } );
+    }
+
     public void saveNew(List<Build> toInsert)
     {
         Validate.notNull( toInsert, "list must not be null" );
@@ -623,22 +1218,7 @@ public class DAO
                 {
                     for ( Build build : toInsert )
                     {
-                        int y = 1;
-                        stmt.setTimestamp( y++, toTimestamp( build.startTime ) );
-                        stmt.setInt( y++, (int) build.duration.toMillis() );
-                        stmt.setLong( y++, build.host.hostId );
-                        stmt.setString( y++, build.projectName );
-                        stmt.setString( y++, build.branchName );
-                        stmt.setInt( y++, build.maxConcurrency );
-                        stmt.setString( y++, build.jvmVersion );
-                        stmt.setInt( y++, build.availableProcessors );
-                        stmt.setString( y++, build.gitHash );
-                        stmt.setString( y++, build.systemProperties );
-                        stmt.setString( y++, build.environmentProperties );
-                        if ( (y - 1) != nonIdColumns.size() )
-                        {
-                            throw new RuntimeException( "Internal error, prepared parameter count " + (y - 1) + " does not match placeholder count " + nonIdColumns.size() );
-                        }
+                        setBuildParameters( build, stmt, nonIdColumns.size() );
                         stmt.addBatch();
                     }
                     stmt.executeBatch();
@@ -699,7 +1279,8 @@ public class DAO
 
             final String ids =
                 criteria.phases.stream().map( x -> Long.toString( x.phaseId ) ).collect( Collectors.joining( "," ) );
-            baseQuery += " INNER JOIN " + RECORDS_TABLE + " r USING (build_id)";
+            // records are partitioned by build start time as well, joining on it prunes partitions
+            baseQuery += " INNER JOIN " + RECORDS_TABLE + " r USING (build_id,build_start_time)";
             constraints.add( "r.phase_id IN (" + ids + ")" );
         }
 
@@ -793,6 +1374,52 @@ public class DAO
         };
     }
 
+    /**
+     * Creates any missing monthly partitions of the partitioned tables.
+     *
+     * @param firstMonth a point in time within the first month to create partitions for
+     * @param monthCount number of months to create partitions for
+     * @return number of partitions created
+     */
+    public int createMonthlyPartitions(ZonedDateTime firstMonth, int monthCount)
+    {
+        Validate.notNull( firstMonth, "firstMonth must not be null" );
+        Validate.isTrue( monthCount > 0, "monthCount must be > 0" );
+        final Integer created = jdbcTemplate.queryForObject( "SELECT profiler.create_monthly_partitions(?,?)", Integer.class, toTimestamp( firstMonth ), monthCount );
+        return created == null ? 0 : created;
+    }
+
+    /**
+     * Creates the monthly partitions for all builds that ended up in the default partition,
+     * moving those builds and their rows in other tables to the new partitions.
+     *
+     * @return number of partitions created
+     */
+    public int createPartitionsForDefaultPartitionRows()
+    {
+        final Integer created = jdbcTemplate.queryForObject( "SELECT coalesce( sum( profiler.create_monthly_partitions( month, 1 ) ), 0 ) " +
+            "FROM ( SELECT DISTINCT date_trunc( 'month', build_start_time AT TIME ZONE 'UTC' ) AT TIME ZONE 'UTC' AS month FROM profiler.builds_default ) AS x", Integer.class );
+        return created == null ? 0 : created;
+    }
+
+    /**
+     * Looks up a host by IP, inserting it if it does not exist yet.
+     *
+     * @param hostIP
+     * @param hostName host name to use when inserting the host, may be <code>null</code>
+     * @return host, might have a different name than requested
+     */
+    public Host getOrCreateHost(InetAddress hostIP, String hostName)
+    {
+        Validate.notNull( hostIP, "hostIP must not be null" );
+        final String sql = "INSERT INTO " + HOSTS_TABLE + " (host_ip,host_name) VALUES (?::inet,?) ON CONFLICT (host_ip) DO NOTHING RETURNING *";
+        final List<Host> inserted = jdbcTemplate.query( sql, new HostsMapper(), hostIP.getHostAddress(), hostName );
+        if ( ! inserted.isEmpty() ) {
+            return inserted.get( 0 );
+        }
+        return getHostByIP( hostIP ).orElseThrow( () -> new IllegalStateException( "Host " + hostIP + " neither inserted nor found?" ) );
+    }
+
     void saveOrUpdate(Host host)
     {
         Validate.notNull( host, "host must not be null" );
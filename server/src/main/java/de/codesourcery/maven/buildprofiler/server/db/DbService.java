@@ -20,12 +20,20 @@ import de.codesourcery.maven.buildprofiler.common.BuildResult;
 import de.codesourcery.maven.buildprofiler.server.model.Artifact;
 import de.codesourcery.maven.buildprofiler.server.model.ArtifactId;
 import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.BuildSimulation;
+import de.codesourcery.maven.buildprofiler.server.model.ConcurrencyProfile;
+import de.codesourcery.maven.buildprofiler.server.model.CriticalPath;
 import de.codesourcery.maven.buildprofiler.server.model.Host;
 import de.codesourcery.maven.buildprofiler.server.model.LifecyclePhase;
 import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.server.model.ThreadCount;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
+import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -66,11 +74,49 @@ public interface DbService
         public abstract boolean canBeMerged(Record a, Record b);
     }
 
+    /**
+     * Outcome of storing a build result.
+     */
+    enum SaveResult {
+        STORED,
+        // a build with the same build ID has already been stored
+        DUPLICATE
+    }
+
     // Record
-    List<Record> getRecords(long buildId);
-    Map<Long,List<Record>> getRecords(Set<Long> buildIds, Grouping grouping);
+    List<Record> getRecords(Build build);
+    Map<Long,List<Record>> getRecords(Collection<Build> builds, Grouping grouping);
     void saveRecords(List<Record> toInsert);
 
+    /**
+     * Determines the chain of modules that determined how long a build took.
+     *
+     * @param build the build
+     * @return critical path
+     * @see CriticalPath
+     */
+    CriticalPath getCriticalPath(Build build);
+
+    /**
+     * Returns the number of mojos running at the same time over the course of a build.
+     *
+     * @param build the build
+     * @return profile, empty if the build has no records or they have been downsampled
+     * before the profile got stored
+     */
+    Optional<ConcurrencyProfile> getConcurrencyProfile(Build build);
+
+    /**
+     * Predicts how long builds would have taken when building with different numbers of threads
+     * (like Maven's <code>-T</code> option).
+     *
+     * @param builds builds to simulate
+     * @param threadCounts thread counts to simulate each build with
+     * @return predicted durations, in the same order as the builds
+     * @see BuildSimulator
+     */
+    List<BuildSimulation> simulate(List<Build> builds, List<ThreadCount> threadCounts);
+
     // Artifact
     List<Artifact> getArtifacts(Set<ArtifactId> ids);
     List<Artifact> getArtifactsByIDs(Set<Long> ids);
@@ -85,6 +131,23 @@ public interface DbService
     // BuildResult
     void save(BuildResult result) throws JsonProcessingException, UnknownHostException;
 
+    /**
+     * Stores multiple build results within a single transaction.
+     *
+     * @param results build results with resolved records
+     * @return outcome for each build result, in the same order
+     */
+    List<SaveResult> save(List<BuildResult> results) throws JsonProcessingException, UnknownHostException;
+
+    /**
+     * Stores a JSON build result while parsing it, without
+     * keeping all of its records in memory.
+     *
+     * @param json JSON build result
+     * @throws IOException on I/O errors or malformed input, nothing gets stored in that case
+     */
+    void save(InputStream json) throws IOException;
+
     // Build
     int getBuildCount(DAO.SearchCriteria criteria);
     List<Build> getBuild(DAO.SearchCriteria criteria);
@@ -96,6 +159,51 @@ public interface DbService
     Optional<Host> getHostByIP(InetAddress hostIP);
     void saveOrUpdate(Host host);
 
+    // Retention
+
+    /**
+     * Replaces the records of the oldest builds with per-phase and per-artifact totals.
+     *
+     * Afterwards, {@link #getRecords(Collection, Grouping)} returns the same results
+     * for these builds when grouping by {@link Grouping#PHASE phase}, {@link Grouping#ARTIFACT artifact}
+     * or {@link Grouping#PLUGIN plugin} (and nothing when not grouping).
+     *
+     * @param startedBefore only downsample builds that started before this time
+     * @param maxBuilds max. number of builds to downsample
+     * @return number of builds downsampled, less than <code>maxBuilds</code> if there are no more
+     * builds to downsample (or they are being downsampled by some other transaction)
+     */
+    int downsampleRecords(ZonedDateTime startedBefore, int maxBuilds);
+
+    /**
+     * Calculates the per-phase, per-artifact and per-plugin totals of the most recent builds
+     * that have been stored before totals were calculated while ingesting.
+     *
+     * @param maxBuilds max. number of builds to process
+     * @return number of builds processed, less than <code>maxBuilds</code> if there are no more
+     * builds without totals (or they are being processed by some other transaction)
+     */
+    int createMissingRollups(int maxBuilds);
+
+    // Partitions
+
+    /**
+     * Creates any missing monthly partitions of the partitioned tables.
+     *
+     * @param firstMonth a point in time within the first month to create partitions for
+     * @param monthCount number of months to create partitions for
+     * @return number of partitions created
+     */
+    int createMonthlyPartitions(ZonedDateTime firstMonth, int monthCount);
+
+    /**
+     * Creates the monthly partitions for builds that ended up in the default partition
+     * (historic imports, wrong clocks) and moves them there.
+     *
+     * @return number of partitions created
+     */
+    int createPartitionsForDefaultPartitionRows();
+
     // misc
     List<String> getDistinctProjects();
     List<String> getBranchNames(String projectName,Host host);
@@ -18,24 +18,38 @@ package de.codesourcery.maven.buildprofiler.server.db;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.codesourcery.maven.buildprofiler.common.BuildResult;
-import de.codesourcery.maven.buildprofiler.server.LongInterval;
+import de.codesourcery.maven.buildprofiler.common.BuildResultParser;
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
 import de.codesourcery.maven.buildprofiler.server.model.Artifact;
 import de.codesourcery.maven.buildprofiler.server.model.ArtifactId;
 import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.BuildSimulation;
+import de.codesourcery.maven.buildprofiler.server.model.ConcurrencyProfile;
+import de.codesourcery.maven.buildprofiler.server.model.CriticalPath;
 import de.codesourcery.maven.buildprofiler.server.model.Host;
 import de.codesourcery.maven.buildprofiler.server.model.LifecyclePhase;
 import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.server.model.ThreadCount;
 import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import de.codesourcery.maven.buildprofiler.shared.Constants;
 import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.stream.Collectors;
@@ -43,28 +57,262 @@ import java.util.stream.Collectors;
 @Service
 public class DbServiceImpl implements DbService
 {
+    // number of records to parse before writing them to the DB
+    private static final int RECORD_BATCH_SIZE = 1000;
+
+    private static final Logger LOG = LogManager.getLogger( DbServiceImpl.class );
+
     // TODO: Maybe get that from Spring as well ?
     private final ObjectMapper mapper = new ObjectMapper();
     private DAO dao;
 
+    // caches used when ingesting build results, see warmUpCaches()
+    private final LruCache<InetAddress, Host> hostCache;
+    private final LruCache<String, LifecyclePhase> phaseCache;
+    private final LruCache<ArtifactId, Artifact> artifactCache;
+
+    // module timings of recently simulated builds (these never change once a build got stored)
+    private final LruCache<Long, BuildSimulator> simulatorCache;
+
+    @Autowired
+    public DbServiceImpl(@Value("${profiler.cache.maxHosts:1000}") int maxCachedHosts,
+                         @Value("${profiler.cache.maxPhases:1000}") int maxCachedPhases,
+                         @Value("${profiler.cache.maxArtifacts:100000}") int maxCachedArtifacts,
+                         @Value("${profiler.cache.maxSimulatedBuilds:1000}") int maxSimulatedBuilds)
+    {
+        this.hostCache = new LruCache<>( maxCachedHosts );
+        this.phaseCache = new LruCache<>( maxCachedPhases );
+        this.artifactCache = new LruCache<>( maxCachedArtifacts );
+        this.simulatorCache = new LruCache<>( maxSimulatedBuilds );
+    }
+
+    /**
+     * Pre-populates the ingest caches from the database.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpCaches()
+    {
+        try
+        {
+            dao.getHosts().forEach( h -> hostCache.put( h.getHostIP(), h ) );
+            dao.getPhases().forEach( p -> phaseCache.put( p.name, p ) );
+            final List<Artifact> artifacts = dao.getLatestArtifacts( artifactCache.getMaxSize() );
+            // oldest first so the most recent ones are the last to be evicted
+            for ( int i = artifacts.size() - 1 ; i >= 0 ; i-- )
+            {
+                final Artifact a = artifacts.get( i );
+                artifactCache.put( a.toArtifactId(), a );
+            }
+            LOG.info( "Cached " + hostCache.size() + " hosts, " + phaseCache.size() + " phases and " + artifactCache.size() + " artifacts." );
+        }
+        catch( RuntimeException e )
+        {
+            // not fatal, caches get populated while ingesting build results
+            LOG.error( "Failed to warm up caches: " + e.getMessage(), e );
+        }
+    }
+
     @Override
     @Transactional
-    public List<Record> getRecords(long buildId)
+    public List<Record> getRecords(Build build)
     {
-        return dao.getRecords( buildId );
+        return dao.getRecords( build );
     }
 
     @Override
     @Transactional
-    public Map<Long, List<Record>> getRecords(Set<Long> buildIds, Grouping grouping)
+    public Map<Long, List<Record>> getRecords(Collection<Build> builds, Grouping grouping)
     {
-        Validate.notNull( buildIds, "buildIds must not be null" );
+        Validate.notNull( builds, "builds must not be null" );
         Validate.notNull( grouping, "grouping must not be null" );
-        final Map<Long, List<Record>> map = dao.getRecords( buildIds );
+
+        final List<Build> fromRollups = builds.stream().filter( x -> hasRollups( x, grouping ) ).toList();
+        final List<Build> fromRecords = builds.stream().filter( x -> ! x.recordsDownsampled && ! hasRollups( x, grouping ) ).toList();
+
+        final Map<Long, List<Record>> map = dao.getRecords( fromRecords );
         map.values().forEach( list -> performGrouping( list, grouping ) );
+        if ( ! fromRollups.isEmpty() ) {
+            map.putAll( dao.getRollups( fromRollups, grouping ) );
+        }
+        // builds without records
+        builds.forEach( build -> map.putIfAbsent( build.id, new ArrayList<>() ) );
         return map;
     }
 
+    @Override
+    @Transactional
+    public CriticalPath getCriticalPath(Build build)
+    {
+        Validate.notNull( build, "build must not be null" );
+        return CriticalPathAnalyzer.analyze( build, getModules( List.of( build ) ).get( build.id ) );
+    }
+
+    @Override
+    @Transactional
+    public List<BuildSimulation> simulate(List<Build> builds, List<ThreadCount> threadCounts)
+    {
+        Validate.notNull( builds, "builds must not be null" );
+        Validate.notNull( threadCounts, "threadCounts must not be null" );
+
+        final Map<Long, BuildSimulator> simulators =
+            new HashMap<>( simulatorCache.getAll( builds.stream().map( x -> x.id ).collect( Collectors.toSet() ) ) );
+        final List<Build> missing = builds.stream().filter( x -> ! simulators.containsKey( x.id ) ).toList();
+        if ( ! missing.isEmpty() )
+        {
+            final Map<Long, List<Record>> modules = getModules( missing );
+            for ( Build build : missing )
+            {
+                final BuildSimulator simulator = BuildSimulator.create( build, modules.get( build.id ) );
+                simulators.put( build.id, simulator );
+                simulatorCache.put( build.id, simulator );
+            }
+        }
+        // simulations are CPU-bound and independent of each other, run them on the fork-join pool
+        return builds.parallelStream()
+            .map( build -> simulators.get( build.id ).simulate( build, threadCounts ) )
+            .toList();
+    }
+
+    /*
+     * Returns one record per module and build, spanning all records of the module
+     * (unlike the per-artifact totals calculated by performGrouping()).
+     */
+    private Map<Long, List<Record>> getModules(Collection<Build> builds)
+    {
+        final List<Build> fromRollups = builds.stream().filter( x -> hasRollups( x, Grouping.ARTIFACT ) ).toList();
+        final List<Build> fromRecords = builds.stream().filter( x -> ! x.recordsDownsampled && ! hasRollups( x, Grouping.ARTIFACT ) ).toList();
+
+        final Map<Long, List<Record>> result = new HashMap<>();
+        if ( ! fromRollups.isEmpty() ) {
+            result.putAll( dao.getRollups( fromRollups, Grouping.ARTIFACT ) );
+        }
+        if ( ! fromRecords.isEmpty() ) {
+            dao.getRecords( fromRecords ).forEach( (buildId, records) -> result.put( buildId, rollUp( records, Grouping.ARTIFACT ) ) );
+        }
+        // builds without records
+        builds.forEach( build -> result.putIfAbsent( build.id, new ArrayList<>() ) );
+        return result;
+    }
+
+    @Override
+    @Transactional
+    public Optional<ConcurrencyProfile> getConcurrencyProfile(Build build)
+    {
+        Validate.notNull( build, "build must not be null" );
+        final Optional<ConcurrencyProfile> stored = dao.getConcurrencyProfile( build );
+        if ( stored.isPresent() || build.recordsDownsampled ) {
+            return stored;
+        }
+        // build stored before profiles were calculated while ingesting
+        final ConcurrencyProfile profile = calculateConcurrencyProfile( build, dao.getRecords( build ) );
+        return profile.isEmpty() ? Optional.empty() : Optional.of( profile );
+    }
+
+    private static boolean hasRollups(Build build, Grouping grouping)
+    {
+        if ( grouping == Grouping.NONE ) {
+            return false;
+        }
+        // builds downsampled before per-plugin totals were introduced only have per-phase and per-artifact totals
+        return build.hasRollups || ( build.recordsDownsampled && grouping != Grouping.PLUGIN );
+    }
+
+    @Override
+    @Transactional
+    public int downsampleRecords(ZonedDateTime startedBefore, int maxBuilds)
+    {
+        final List<Build> builds = dao.lockBuildsToDownsample( startedBefore, maxBuilds );
+        if ( builds.isEmpty() ) {
+            return 0;
+        }
+        saveRollups( builds.stream().filter( x -> ! x.hasRollups ).toList() );
+        saveMissingConcurrencyProfiles( builds );
+        final int deleted = dao.deleteRecords( builds );
+        dao.markRecordsDownsampled( builds );
+        LOG.debug( "Downsampled " + builds.size() + " builds, deleted " + deleted + " records." );
+        return builds.size();
+    }
+
+    @Override
+    @Transactional
+    public int createMissingRollups(int maxBuilds)
+    {
+        final List<Build> builds = dao.lockBuildsWithoutRollups( maxBuilds );
+        saveRollups( builds );
+        return builds.size();
+    }
+
+    /*
+     * Calculates and stores the per-phase, per-artifact and per-plugin totals of builds from their records.
+     */
+    private void saveRollups(List<Build> builds)
+    {
+        if ( builds.isEmpty() ) {
+            return;
+        }
+        final Map<Long, List<Record>> records = dao.getRecords( builds );
+        for ( Build build : builds )
+        {
+            final RollupAccumulator rollups = new RollupAccumulator();
+            rollups.add( records.getOrDefault( build.id, List.of() ) );
+            for ( Grouping grouping : RollupAccumulator.GROUPINGS ) {
+                dao.saveRollups( build, rollups.getRollups( grouping ), grouping );
+            }
+            saveConcurrencyProfile( build, rollups.getConcurrencyProfile( build ) );
+        }
+        dao.markHasRollups( builds );
+    }
+
+    /*
+     * Calculates and stores the concurrency profiles of builds that have their totals
+     * but were stored before profiles were calculated while ingesting.
+     */
+    private void saveMissingConcurrencyProfiles(List<Build> builds)
+    {
+        final Set<Long> withProfile = dao.getBuildsWithConcurrencyProfile( builds );
+        final List<Build> withoutProfile = builds.stream().filter( x -> ! withProfile.contains( x.id ) ).toList();
+        if ( withoutProfile.isEmpty() ) {
+            return;
+        }
+        final Map<Long, List<Record>> records = dao.getRecords( withoutProfile );
+        for ( Build build : withoutProfile ) {
+            saveConcurrencyProfile( build, calculateConcurrencyProfile( build, records.getOrDefault( build.id, List.of() ) ) );
+        }
+    }
+
+    private void saveConcurrencyProfile(Build build, ConcurrencyProfile profile)
+    {
+        // builds without records do not have a profile
+        if ( ! profile.isEmpty() ) {
+            dao.saveConcurrencyProfile( build, profile );
+        }
+    }
+
+    private static ConcurrencyProfile calculateConcurrencyProfile(Build build, Collection<Record> records)
+    {
+        final IntervalSet.Builder mojos = new IntervalSet.Builder( records.size() );
+        records.forEach( r -> mojos.add( r.startTimeMillis(), r.endTimeMillis() ) );
+        return ConcurrencyProfile.calculate( build, mojos );
+    }
+
+    /**
+     * Calculates the totals of a build's records.
+     *
+     * Unlike {@link #performGrouping(List, Grouping)}, this method does not modify its input
+     * and returns records spanning all records of their group.
+     *
+     * @param records records of a single build
+     * @param grouping how to group the records
+     * @return one record per group, with {@link Record#duration()} being the same as returned by {@link #performGrouping(List, Grouping)}
+     */
+    static List<Record> rollUp(List<Record> records, Grouping grouping)
+    {
+        Validate.notNull( records, "records must not be null" );
+        final RollupAccumulator accumulator = new RollupAccumulator();
+        accumulator.add( records );
+        return accumulator.getRollups( grouping );
+    }
+
     // CAREFUL - mutates input list !!
     static void performGrouping(List<Record> list, Grouping grouping) {
 
@@ -87,18 +335,12 @@ public class DbServiceImpl implements DbService
         }
         list.clear();
         grouped.forEach( (id,toBeMerged) -> {
-            final List<LongInterval> intervals = toBeMerged.stream().map( DbServiceImpl::interval ).collect( Collectors.toList() );
-            final OptionalLong durationMillis = LongInterval.mergeIfPossible( intervals ).stream().mapToLong( LongInterval::length ).reduce( Long::sum );
             final Record r = toBeMerged.get( 0 );
-            r.setDurationMillis( durationMillis.getAsLong() );
+            r.setDurationMillis( Record.wallClockMillis( toBeMerged ) );
             list.add( r );
         });
     }
 
-    private static LongInterval interval(Record r) {
-        return LongInterval.of( r.startTime.toInstant().toEpochMilli(), r.endTime.toInstant().toEpochMilli() );
-    }
-
     @Override
     @Transactional
     public void saveRecords(List<Record> toInsert)
@@ -183,6 +425,20 @@ public class DbServiceImpl implements DbService
         dao.saveNew( toInsert );
     }
 
+    @Override
+    @Transactional
+    public int createMonthlyPartitions(ZonedDateTime firstMonth, int monthCount)
+    {
+        return dao.createMonthlyPartitions( firstMonth, monthCount );
+    }
+
+    @Override
+    @Transactional
+    public int createPartitionsForDefaultPartitionRows()
+    {
+        return dao.createPartitionsForDefaultPartitionRows();
+    }
+
     @Override
     @Transactional
     public List<String> getDistinctProjects()
@@ -222,21 +478,160 @@ public class DbServiceImpl implements DbService
     @Override
     @Transactional
     public void save(BuildResult data) throws JsonProcessingException, UnknownHostException
+    {
+        final Ingest ingest = beginIngest( data );
+        ingest.addRecords( data.records );
+        ingest.finish();
+    }
+
+    @Override
+    @Transactional
+    public List<SaveResult> save(List<BuildResult> results) throws JsonProcessingException, UnknownHostException
+    {
+        Validate.notNull( results, "results must not be null" );
+        final List<SaveResult> outcome = new ArrayList<>( results.size() );
+        for ( final BuildResult result : results )
+        {
+            final Ingest ingest = beginIngest( result );
+            ingest.addRecords( result.records );
+            ingest.finish();
+            outcome.add( ingest.isDuplicate() ? SaveResult.DUPLICATE : SaveResult.STORED );
+        }
+        return outcome;
+    }
+
+    @Override
+    @Transactional(rollbackFor = IOException.class)
+    public void save(InputStream json) throws IOException
+    {
+        final BuildResultParser parser = new BuildResultParser( mapper, RECORD_BATCH_SIZE );
+        final class Handler implements BuildResultParser.Handler
+        {
+            private Ingest ingest;
+
+            @Override
+            public void header(BuildResult header) throws IOException
+            {
+                if ( header.jsonSyntaxVersion > Constants.JSON_SYNTAX_VERSION ) {
+                    throw new RuntimeException( "Unsupported JSON syntax version " + header.jsonSyntaxVersion + ", client newer than server?" );
+                }
+                ingest = beginIngest( header );
+            }
+
+            @Override
+            public void records(List<BuildResult.Record> records)
+            {
+                ingest.addRecords( records );
+            }
+        }
+        final Handler handler = new Handler();
+        parser.parse( json, handler );
+        if ( handler.ingest != null ) {
+            handler.ingest.finish();
+        }
+    }
+
+    /**
+     * Stores a build result's records, one batch at a time.
+     */
+    private final class Ingest
+    {
+        private final BuildResult header;
+        private final Build build; // null if the build has already been stored
+        private final Map<String, LifecyclePhase> phases;
+        private final Map<ArtifactId, Artifact> artifacts;
+        private final RollupAccumulator rollups = new RollupAccumulator();
+
+        private Ingest(BuildResult header, Build build, Map<String, LifecyclePhase> phases, Map<ArtifactId, Artifact> artifacts)
+        {
+            this.header = header;
+            this.build = build;
+            this.phases = phases;
+            this.artifacts = artifacts;
+        }
+
+        public boolean isDuplicate()
+        {
+            return build == null;
+        }
+
+        public void addRecords(List<BuildResult.Record> batch)
+        {
+            if ( isDuplicate() ) {
+                return; // duplicate build
+            }
+            // syntax version 1 carries phase names inline, so there might be new ones in each batch
+            resolvePhases( batch.stream().map( r -> r.phase ).collect( Collectors.toSet() ), phases );
+
+            final List<Record> records = new ArrayList<>( batch.size() );
+            for ( final BuildResult.Record r : batch )
+            {
+                final Record rec = new Record();
+                rec.buildId = build.id;
+                rec.phaseId = phases.get( r.phase ).phaseId;
+
+                ArtifactCoords coords = r.plugin(header);
+                ArtifactId id = ArtifactId.of(coords);
+                final Artifact pluginArtifact = artifacts.get(id);
+                rec.pluginArtifactId = pluginArtifact.id;
+                rec.pluginVersion = coords.version();
+
+                coords = r.artifact(header);
+                id = ArtifactId.of(coords);
+                final Artifact artifact = artifacts.get(id);
+                rec.artifactId = artifact.id;
+                rec.artifactVersion = coords.version();
+
+                rec.startTime = Instant.ofEpochMilli( r.startMillis ).atZone( ZoneId.systemDefault() );
+                rec.endTime = Instant.ofEpochMilli( r.endMillis ).atZone( ZoneId.systemDefault() );
+                records.add( rec );
+            }
+            // record IDs are not needed here, so use the much faster COPY
+            dao.copyRecords( build, records );
+            rollups.add( records );
+        }
+
+        /**
+         * Stores the totals of all records, must be invoked after the last batch of records has been added.
+         */
+        public void finish()
+        {
+            if ( isDuplicate() ) {
+                return;
+            }
+            for ( Grouping grouping : RollupAccumulator.GROUPINGS ) {
+                dao.saveRollups( build, rollups.getRollups( grouping ), grouping );
+            }
+            saveConcurrencyProfile( build, rollups.getConcurrencyProfile( build ) );
+        }
+    }
+
+    /**
+     * Stores the build and looks up (or creates) the host and all artifacts of a build result.
+     *
+     * @param data build result, records are ignored
+     * @return ingest to pass the records to
+     */
+    private Ingest beginIngest(BuildResult data) throws JsonProcessingException, UnknownHostException
     {
         final Build b = new Build();
 
         final InetAddress hostIP = InetAddress.getByName( data.hostIP );
-        Host host = dao.getHostByIP( hostIP ).orElse( null );
+        Host host = hostCache.get( hostIP ).orElse( null );
         if ( host == null ) {
-            host = new Host();
-            host.setHostIP( hostIP );
-            host.setHostName( data.hostName );
-            dao.saveOrUpdate( host );
+            host = dao.getOrCreateHost( hostIP, data.hostName );
+            hostCache.putAfterCommit( hostIP, host );
         }
-        else if ( ! Objects.equals( host.getHostName().orElse( null ), data.hostName ) )
+        if ( ! Objects.equals( host.getHostName().orElse( null ), data.hostName ) )
         {
-            host.setHostName( data.hostName );
-            dao.saveOrUpdate( host );
+            // cached instances are shared, never modify them
+            final Host copy = new Host();
+            copy.hostId = host.hostId;
+            copy.setHostIP( hostIP );
+            copy.setHostName( data.hostName );
+            dao.saveOrUpdate( copy );
+            hostCache.putAfterCommit( hostIP, copy );
+            host = copy;
         }
         b.host = host;
         b.startTime = Instant.ofEpochMilli( data.buildStartTime ).atZone( ZoneId.systemDefault() );
@@ -249,73 +644,61 @@ public class DbServiceImpl implements DbService
         b.gitHash = data.gitHash;
         b.systemProperties = mapper.writeValueAsString( data.systemProperties );
         b.environmentProperties = mapper.writeValueAsString( data.environment );
-        dao.saveNew( List.of(b) );
-
-        final Set<String> requiredPhases = new HashSet<>();
-        final Set<ArtifactId> artifactIds = new HashSet<>();
-        for ( BuildResult.Record record : data.records )
+        b.buildUuid = data.buildId == null ? null : UUID.fromString( data.buildId );
+        // stored by Ingest#finish() within the same transaction
+        b.hasRollups = true;
+        if ( ! dao.saveNewIfAbsent( b ) )
         {
-            artifactIds.add(ArtifactId.of(record.artifact(data)));
-            artifactIds.add(ArtifactId.of(record.plugin(data)));
-            requiredPhases.add( record.phase );
+            // client sent the same build twice (retry after timeout, spool replay, ...)
+            LOG.info( "Ignoring build " + data.buildId + " of project '" + data.projectName + "' that has already been stored." );
+            return new Ingest( data, null, null, null );
         }
 
-        // get phases & insert any missing phases into DB
-        final Map<String, LifecyclePhase> existingPhases = dao.getPhases( requiredPhases );
-        if ( existingPhases.size() != requiredPhases.size() )
-        {
-            final List<LifecyclePhase> list = requiredPhases.stream().filter( Predicate.not( existingPhases::containsKey ) ).map( x -> {
-                final LifecyclePhase p = new LifecyclePhase();
-                p.name = x;
-                return p;
-            } ).toList();
-
-            dao.saveNewPhases( list );
-            list.forEach( item -> existingPhases.put( item.name, item ) );
+        // phase table only exists with syntax version 2+
+        final Map<String, LifecyclePhase> phases = new HashMap<>();
+        if ( data.phases != null ) {
+            resolvePhases( new HashSet<>( data.phases ), phases );
         }
 
-        // get artifacts & insert any missing artifacts into DB
-        final Map<ArtifactId, Artifact> found = dao.getArtifacts( artifactIds )
-            .stream().collect( Collectors.toMap( Artifact::toArtifactId, y->y) );
+        final Set<ArtifactId> artifactIds = data.coords.stream().map( ArtifactId::of ).collect( Collectors.toSet() );
 
-        final List<ArtifactId> missing = artifactIds.stream().filter( x -> ! found.containsKey( x ) ).toList();
-        if ( ! missing.isEmpty() )
+        // get artifacts & insert any missing artifacts into DB
+        final Map<ArtifactId, Artifact> found = artifactCache.getAll( artifactIds );
+        if ( found.size() != artifactIds.size() )
         {
-            final List<Artifact> toInsert = missing.stream().map( x -> {
-                final Artifact a = new Artifact();
-                a.groupId = x.groupIdText();
-                a.artifactId = x.artifactIdText();
-                return a;
-            } ).toList();
-            dao.saveNewArtifacts( toInsert );
-            toInsert.forEach( a -> found.put( a.toArtifactId(), a ) );
+            final Set<ArtifactId> notCached = artifactIds.stream().filter( Predicate.not( found::containsKey ) ).collect( Collectors.toSet() );
+            for ( final Artifact a : dao.getOrCreateArtifacts( notCached ) )
+            {
+                found.put( a.toArtifactId(), a );
+                // might have been inserted by this transaction
+                artifactCache.putAfterCommit( a.toArtifactId(), a );
+            }
         }
+        return new Ingest( data, b, phases, found );
+    }
 
-        // store records
-        final List<Record> records = new ArrayList<>();
-        for ( final BuildResult.Record r : data.records )
-        {
-            final Record rec = new Record();
-            rec.buildId = b.id;
-            rec.phaseId = existingPhases.get( r.phase ).phaseId;
-
-            ArtifactCoords coords = r.plugin(data);
-            ArtifactId id = ArtifactId.of(coords);
-            final Artifact pluginArtifact = found.get(id);
-            rec.pluginArtifactId = pluginArtifact.id;
-            rec.pluginVersion = coords.version();
-
-            coords = r.artifact(data);
-            id = ArtifactId.of(coords);
-            final Artifact artifact = found.get(id);
-            rec.artifactId = artifact.id;
-            rec.artifactVersion = coords.version();
-
-            rec.startTime = Instant.ofEpochMilli( r.startMillis ).atZone( ZoneId.systemDefault() );
-            rec.endTime = Instant.ofEpochMilli( r.endMillis ).atZone( ZoneId.systemDefault() );
-            records.add( rec );
+    /**
+     * Looks up phases, inserting any missing phases into the DB.
+     *
+     * @param requiredPhases phase names to look up
+     * @param phasesByName phases that have already been looked up, gets updated with the newly resolved phases
+     */
+    private void resolvePhases(Set<String> requiredPhases, Map<String, LifecyclePhase> phasesByName)
+    {
+        Set<String> unknown = requiredPhases.stream().filter( Predicate.not( phasesByName::containsKey ) ).collect( Collectors.toSet() );
+        if ( unknown.isEmpty() ) {
+            return;
+        }
+        phasesByName.putAll( phaseCache.getAll( unknown ) );
+        unknown = unknown.stream().filter( Predicate.not( phasesByName::containsKey ) ).collect( Collectors.toSet() );
+        if ( unknown.isEmpty() ) {
+            return;
         }
-        dao.saveRecords( records );
+
+        final Map<String, LifecyclePhase> existingPhases = dao.getOrCreatePhases( unknown );
+        // might have been inserted by this transaction
+        existingPhases.forEach( phaseCache::putAfterCommit );
+        phasesByName.putAll( existingPhases );
     }
 
     @Autowired
@@ -0,0 +1,137 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import org.apache.commons.lang3.Validate;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+/**
+ * Bounded, thread-safe cache that evicts the least-recently used entries when full.
+ *
+ * Used for rows of small, (nearly) immutable tables like hosts, phases or artifacts
+ * as well as for data derived from stored builds. Rows inserted by the
+ * current transaction must be added using {@link #putAfterCommit(Object, Object)} so that
+ * the cache never holds IDs of rows that got rolled back.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class LruCache<K, V>
+{
+    private final int maxSize;
+    private final Map<K, V> entries;
+
+    public LruCache(int maxSize)
+    {
+        Validate.isTrue( maxSize > 0, "maxSize must be > 0" );
+        this.maxSize = maxSize;
+        this.entries = new LinkedHashMap<>( 16, 0.75f, true )
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, V> eldest)
+            {
+                return size() > LruCache.this.maxSize;
+            }
+        };
+    }
+
+    public int getMaxSize()
+    {
+        return maxSize;
+    }
+
+    public synchronized Optional<V> get(K key)
+    {
+        return Optional.ofNullable( entries.get( key ) );
+    }
+
+    /**
+     * Looks up multiple entries.
+     *
+     * @param keys keys to look up
+     * @return cached entries, keys that are not cached are missing from the result
+     */
+    public synchronized Map<K, V> getAll(Set<K> keys)
+    {
+        final Map<K, V> result = new HashMap<>();
+        for ( final K key : keys )
+        {
+            final V value = entries.get( key );
+            if ( value != null ) {
+                result.put( key, value );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Adds a row that has been committed to the database.
+     *
+     * @param key
+     * @param value
+     */
+    public synchronized void put(K key, V value)
+    {
+        Validate.notNull( key, "key must not be null" );
+        Validate.notNull( value, "value must not be null" );
+        entries.put( key, value );
+    }
+
+    /**
+     * Adds a row that was inserted or updated by the current transaction once that transaction commits.
+     *
+     * @param key
+     * @param value
+     */
+    public void putAfterCommit(K key, V value)
+    {
+        Validate.notNull( key, "key must not be null" );
+        Validate.notNull( value, "value must not be null" );
+        if ( ! TransactionSynchronizationManager.isSynchronizationActive() ) {
+            put( key, value );
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization( new TransactionSynchronization()
+        {
+            @Override
+            public void afterCommit()
+            {
+                put( key, value );
+            }
+        } );
+    }
+
+    public synchronized void remove(K key)
+    {
+        entries.remove( key );
+    }
+
+    public synchronized void clear()
+    {
+        entries.clear();
+    }
+
+    public synchronized int size()
+    {
+        return entries.size();
+    }
+}
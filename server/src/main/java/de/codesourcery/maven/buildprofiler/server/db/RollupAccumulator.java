@@ -0,0 +1,154 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.ConcurrencyProfile;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import org.apache.commons.lang3.Validate;
+
+import java.time.ZonedDateTime;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Calculates the per-phase, per-artifact and per-plugin totals and the
+ * concurrency profile of a build while its records are being ingested.
+ *
+ * Only keeps the start and end time of each record, so builds with lots of
+ * records can be processed in batches without holding on to all of them.
+ * Totals are calculated the same way {@link DbServiceImpl#performGrouping(List, DbService.Grouping)} does.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class RollupAccumulator
+{
+    static final List<DbService.Grouping> GROUPINGS = List.of( DbService.Grouping.PHASE, DbService.Grouping.ARTIFACT, DbService.Grouping.PLUGIN );
+
+    private static final class Group
+    {
+        // key and version are taken from the first record, like performGrouping() does
+        private final Record first;
+        private ZonedDateTime startTime;
+        private ZonedDateTime endTime;
+        private final IntervalSet.Builder intervals = new IntervalSet.Builder( 4 );
+
+        private Group(Record first)
+        {
+            this.first = first;
+            this.startTime = first.startTime;
+            this.endTime = first.endTime;
+        }
+
+        private void add(Record r)
+        {
+            intervals.add( r.startTimeMillis(), r.endTimeMillis() );
+            if ( r.startTime.isBefore( startTime ) ) {
+                startTime = r.startTime;
+            }
+            if ( r.endTime.isAfter( endTime ) ) {
+                endTime = r.endTime;
+            }
+        }
+
+        private Record toRollup(DbService.Grouping grouping)
+        {
+            final Record result = new Record();
+            result.buildId = first.buildId;
+            switch( grouping )
+            {
+                case PHASE -> result.phaseId = first.phaseId;
+                case ARTIFACT -> {
+                    result.artifactId = first.artifactId;
+                    result.artifactVersion = first.artifactVersion;
+                }
+                case PLUGIN -> {
+                    result.pluginArtifactId = first.pluginArtifactId;
+                    result.pluginVersion = first.pluginVersion;
+                }
+                default -> throw new IllegalArgumentException( "Unsupported grouping: " + grouping );
+            }
+            result.startTime = startTime;
+            result.endTime = endTime;
+
+            result.setDurationMillis( intervals.coverage() );
+            return result;
+        }
+    }
+
+    private final Map<DbService.Grouping, Map<Long, Group>> groups = new EnumMap<>( DbService.Grouping.class );
+    private final IntervalSet.Builder mojos = new IntervalSet.Builder();
+
+    public RollupAccumulator()
+    {
+        GROUPINGS.forEach( grouping -> groups.put( grouping, new LinkedHashMap<>() ) );
+    }
+
+    /**
+     * Adds records.
+     *
+     * @param records records, must all belong to the same build
+     */
+    public void add(Collection<Record> records)
+    {
+        Validate.notNull( records, "records must not be null" );
+        for ( Record r : records )
+        {
+            mojos.add( r.startTimeMillis(), r.endTimeMillis() );
+            groups.forEach( (grouping, byKey) -> byKey.computeIfAbsent( key( grouping, r ), k -> new Group( r ) ).add( r ) );
+        }
+    }
+
+    /**
+     * Returns the totals of all records added so far.
+     *
+     * @param grouping how to group the records, must be one of {@link #GROUPINGS}
+     * @return one record per group, spanning all records of the group and with {@link Record#duration()}
+     * being the wall-clock time spent within the group
+     */
+    public List<Record> getRollups(DbService.Grouping grouping)
+    {
+        final Map<Long, Group> byKey = groups.get( grouping );
+        Validate.isTrue( byKey != null, "Unsupported grouping: " + grouping );
+        return byKey.values().stream().map( g -> g.toRollup( grouping ) ).toList();
+    }
+
+    /**
+     * Returns the concurrency profile of all records added so far.
+     *
+     * @param build build the records belong to
+     * @return profile
+     */
+    public ConcurrencyProfile getConcurrencyProfile(Build build)
+    {
+        return ConcurrencyProfile.calculate( build, mojos );
+    }
+
+    private static long key(DbService.Grouping grouping, Record r)
+    {
+        return switch( grouping )
+        {
+            case PHASE -> r.phaseId;
+            case ARTIFACT -> r.artifactId;
+            case PLUGIN -> r.pluginArtifactId;
+            case NONE -> throw new IllegalArgumentException( "Unsupported grouping: " + grouping );
+        };
+    }
+}
@@ -0,0 +1,241 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import org.apache.commons.lang3.Validate;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Brings the database schema up to date when the server starts.
+ *
+ * Applies the update scripts from <code>database/updates</code> (packaged as classpath resources below
+ * {@link #SCRIPT_LOCATION}) in the order of their file names. Each script declares the schema
+ * version it expects by calling <code>profiler.assertdbschemaversion()</code> and the version it
+ * migrates to by updating <code>profiler.db_schema_version</code>, so only scripts whose expected version
+ * matches the current one are applied. Scripts take care of their own transactions.
+ *
+ * A PostgreSQL advisory lock makes sure that only one server at a time migrates the schema.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+@Component
+public class SchemaMigrator implements InitializingBean
+{
+    private static final Logger LOG = LogManager.getLogger( SchemaMigrator.class );
+
+    static final String SCRIPT_LOCATION = "db/updates";
+
+    // arbitrary, must be unique among the advisory locks used on the database
+    private static final long ADVISORY_LOCK_KEY = 0x70726f66696c6572L;
+
+    private static final Pattern FROM_VERSION = Pattern.compile( "assertdbschemaversion\\s*\\(\\s*'([^']+)'\\s*\\)", Pattern.CASE_INSENSITIVE );
+    private static final Pattern TO_VERSION = Pattern.compile( "db_schema_version\\s+SET\\s+version\\s*=\\s*'([^']+)'", Pattern.CASE_INSENSITIVE );
+
+    /**
+     * An update script.
+     *
+     * @param name file name
+     * @param fromVersion schema version the script expects
+     * @param toVersion schema version after the script has been applied
+     * @param sql script contents
+     */
+    record Script(String name, String fromVersion, String toVersion, String sql)
+    {
+        /**
+         * Parses an update script.
+         *
+         * @param name file name
+         * @param sql script contents
+         * @return script
+         * @throws IllegalArgumentException if the script does not check and update the schema version
+         */
+        static Script parse(String name, String sql)
+        {
+            Validate.notBlank( name, "name must not be null or blank" );
+            Validate.notNull( sql, "sql must not be null" );
+            final Matcher from = FROM_VERSION.matcher( sql );
+            final Matcher to = TO_VERSION.matcher( sql );
+            if ( ! from.find() || ! to.find() ) {
+                throw new IllegalArgumentException( "Update script " + name + " must call assertdbschemaversion() and update db_schema_version" );
+            }
+            return new Script( name, from.group( 1 ), to.group( 1 ), sql );
+        }
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+    private final boolean migrateOnStartup;
+
+    @Autowired
+    public SchemaMigrator(JdbcTemplate jdbcTemplate, @Value("${profiler.db.migrateOnStartup:true}") boolean migrateOnStartup)
+    {
+        Validate.notNull( jdbcTemplate, "jdbcTemplate must not be null" );
+        this.jdbcTemplate = jdbcTemplate;
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException
+    {
+        final List<Script> scripts = loadScripts();
+        if ( scripts.isEmpty() ) {
+            LOG.warn( "Found no update scripts in " + SCRIPT_LOCATION + ", not checking the DB schema version." );
+            return;
+        }
+        jdbcTemplate.execute( (ConnectionCallback<Void>) con ->
+        {
+            // scripts contain their own BEGIN/COMMIT
+            final boolean autoCommit = con.getAutoCommit();
+            con.setAutoCommit( true );
+            try
+            {
+                migrate( con, scripts );
+            }
+            finally
+            {
+                con.setAutoCommit( autoCommit );
+            }
+            return null;
+        } );
+    }
+
+    private void migrate(Connection con, List<Script> scripts) throws SQLException
+    {
+        execute( con, "SELECT pg_advisory_lock(" + ADVISORY_LOCK_KEY + ")" );
+        try
+        {
+            final String currentVersion = getSchemaVersion( con );
+            final List<Script> pending = getPendingScripts( currentVersion, scripts );
+            if ( pending.isEmpty() ) {
+                LOG.info( "DB schema is up to date (version " + currentVersion + ")." );
+                return;
+            }
+            if ( ! migrateOnStartup )
+            {
+                LOG.error( "DB schema version " + currentVersion + " is outdated, apply " +
+                    pending.stream().map( Script::name ).toList() + " or set profiler.db.migrateOnStartup=true" );
+                return;
+            }
+            for ( Script script : pending )
+            {
+                LOG.info( "Updating DB schema from version " + script.fromVersion() + " to " + script.toVersion() + " using " + script.name() );
+                final long start = System.currentTimeMillis();
+                try
+                {
+                    execute( con, script.sql() );
+                }
+                catch( SQLException e )
+                {
+                    // leave the connection in a usable state, scripts are not expected to leave a transaction open though
+                    execute( con, "ROLLBACK" );
+                    throw e;
+                }
+                LOG.info( "Applied " + script.name() + " in " + ( System.currentTimeMillis() - start ) + " ms." );
+            }
+        }
+        finally
+        {
+            execute( con, "SELECT pg_advisory_unlock(" + ADVISORY_LOCK_KEY + ")" );
+        }
+    }
+
+    /**
+     * Determines the scripts that need to be applied to a schema.
+     *
+     * @param currentVersion current schema version
+     * @param scripts all update scripts, ordered by name
+     * @return scripts to apply, in order
+     * @throws IllegalStateException if the schema version is not known to any of the scripts
+     */
+    static List<Script> getPendingScripts(String currentVersion, List<Script> scripts)
+    {
+        Validate.notNull( currentVersion, "currentVersion must not be null" );
+        Validate.notNull( scripts, "scripts must not be null" );
+
+        final boolean known = scripts.stream().anyMatch( x -> x.fromVersion().equals( currentVersion ) || x.toVersion().equals( currentVersion ) );
+        if ( ! known && ! scripts.isEmpty() ) {
+            throw new IllegalStateException( "Unknown DB schema version " + currentVersion + ", is this server too old for the database?" );
+        }
+
+        final List<Script> result = new ArrayList<>();
+        String version = currentVersion;
+        for ( Script script : scripts )
+        {
+            if ( script.fromVersion().equals( version ) )
+            {
+                result.add( script );
+                version = script.toVersion();
+            }
+        }
+        return result;
+    }
+
+    private static String getSchemaVersion(Connection con) throws SQLException
+    {
+        try ( Statement stmt = con.createStatement();
+              ResultSet rs = stmt.executeQuery( "SELECT version FROM profiler.db_schema_version WHERE row_id=1" ) )
+        {
+            if ( ! rs.next() ) {
+                throw new IllegalStateException( "profiler.db_schema_version holds no version" );
+            }
+            return rs.getString( 1 );
+        }
+    }
+
+    private static void execute(Connection con, String sql) throws SQLException
+    {
+        try ( Statement stmt = con.createStatement() )
+        {
+            stmt.execute( sql );
+        }
+    }
+
+    static List<Script> loadScripts() throws IOException
+    {
+        final Resource[] resources = new PathMatchingResourcePatternResolver().getResources( "classpath*:" + SCRIPT_LOCATION + "/*.sql" );
+        final List<Script> result = new ArrayList<>();
+        for ( Resource resource : resources )
+        {
+            try ( InputStream in = resource.getInputStream() )
+            {
+                result.add( Script.parse( resource.getFilename(), new String( in.readAllBytes(), StandardCharsets.UTF_8 ) ) );
+            }
+        }
+        result.sort( Comparator.comparing( Script::name ) );
+        return result;
+    }
+}
@@ -18,11 +18,15 @@ package de.codesourcery.maven.buildprofiler.server.model;
 import java.io.Serializable;
 import java.time.Duration;
 import java.time.ZonedDateTime;
+import java.util.UUID;
 
 public class Build implements Serializable
 {
     public long id;
 
+    // client-generated ID, NULL for builds sent by old extension versions
+    public UUID buildUuid;
+
     public ZonedDateTime startTime;
     public Duration duration;
     public String projectName;
@@ -35,6 +39,12 @@ public class Build implements Serializable
     public String systemProperties;
     public String environmentProperties;
 
+    // whether the records of this build have been replaced by per-phase and per-artifact totals
+    public boolean recordsDownsampled;
+
+    // whether the per-phase, per-artifact and per-plugin totals of this build have been stored
+    public boolean hasRollups;
+
     public String getProjectName()
     {
         return projectName;
@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Predicted duration of a build when building with different numbers of threads.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class BuildSimulation implements Serializable
+{
+    public long buildId;
+    public ZonedDateTime buildStartTime;
+    public Duration buildDuration;
+    public int availableProcessors;
+    // number of threads the build actually used
+    public int maxConcurrency;
+    // in the order the thread counts got requested
+    public final Map<ThreadCount, Duration> predictedDurations = new LinkedHashMap<>();
+
+    /**
+     * Returns the predicted duration of the build.
+     *
+     * @param threads thread count
+     * @return predicted duration
+     * @throws IllegalArgumentException if the build has not been simulated using this thread count
+     */
+    public Duration predictedDuration(ThreadCount threads)
+    {
+        final Duration result = predictedDurations.get( threads );
+        if ( result == null ) {
+            throw new IllegalArgumentException( "Build " + buildId + " has not been simulated with " + threads + " threads" );
+        }
+        return result;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
+import de.codesourcery.maven.buildprofiler.server.LongInterval;
+import org.apache.commons.lang3.Validate;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Number of mojos running at the same time over the course of a build.
+ *
+ * The number of running mojos is stored as a step function: starting at <code>offsetsMillis[i]</code> milliseconds
+ * after the start of the build, <code>activeMojos[i]</code> mojos were running until <code>offsetsMillis[i+1]</code>.
+ * The last entry always has zero mojos running.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class ConcurrencyProfile implements Serializable
+{
+    public long buildId;
+    public ZonedDateTime buildStartTime;
+    public int availableProcessors;
+    public long[] offsetsMillis = new long[0];
+    public int[] activeMojos = new int[0];
+
+    // total time spent executing mojos
+    public long mojoMillis;
+    // time between the start of the first and the end of the last mojo
+    public long spanMillis;
+    // sum of the CPU cores not executing a mojo over the span of the build
+    public long idleCoreMillis;
+    // time only a single mojo was running
+    public long serialMillis;
+
+    /*
+     * Builds the step function while sweeping over the records of a build.
+     */
+    private static final class Calculator implements IntervalSet.ConcurrencyVisitor
+    {
+        private final ConcurrencyProfile profile;
+        private final long buildStart;
+        private long[] offsets = new long[16];
+        private int[] active = new int[16];
+        private int size;
+
+        private Calculator(ConcurrencyProfile profile)
+        {
+            this.profile = profile;
+            this.buildStart = profile.buildStartTime.toInstant().toEpochMilli();
+        }
+
+        @Override
+        public void visit(long time, int count)
+        {
+            if ( size > 0 )
+            {
+                final long length = time - buildStart - offsets[size - 1];
+                final int previous = active[size - 1];
+                profile.mojoMillis += previous * length;
+                profile.idleCoreMillis += Math.max( 0, profile.availableProcessors - previous ) * length;
+                if ( previous == 1 ) {
+                    profile.serialMillis += length;
+                }
+            }
+            if ( size == offsets.length )
+            {
+                offsets = Arrays.copyOf( offsets, size * 2 );
+                active = Arrays.copyOf( active, size * 2 );
+            }
+            offsets[size] = time - buildStart;
+            active[size] = count;
+            size++;
+        }
+
+        private void finish()
+        {
+            profile.offsetsMillis = Arrays.copyOf( offsets, size );
+            profile.activeMojos = Arrays.copyOf( active, size );
+            if ( size > 0 ) {
+                profile.spanMillis = offsets[size - 1] - offsets[0];
+            }
+        }
+    }
+
+    /**
+     * Calculates the profile of a build from its records.
+     *
+     * @param build the build
+     * @param mojos start and end time (milliseconds since the epoch) of each record of the build
+     * @return profile
+     */
+    public static ConcurrencyProfile calculate(Build build, IntervalSet.Builder mojos)
+    {
+        Validate.notNull( build, "build must not be null" );
+        Validate.notNull( mojos, "mojos must not be null" );
+
+        final ConcurrencyProfile result = new ConcurrencyProfile();
+        result.buildId = build.id;
+        result.buildStartTime = build.startTime;
+        result.availableProcessors = build.availableProcessors;
+
+        final Calculator calculator = new Calculator( result );
+        mojos.sweep( calculator );
+        calculator.finish();
+        return result;
+    }
+
+    /**
+     * Returns whether any mojos were executed.
+     *
+     * @return <code>true</code> if no mojos were executed
+     */
+    public boolean isEmpty() {
+        return activeMojos.length == 0;
+    }
+
+    /**
+     * Returns the average number of mojos running at the same time while the build was executing mojos.
+     *
+     * @return average parallelism, 0 if no mojos were executed
+     */
+    public double averageParallelism() {
+        return spanMillis == 0 ? 0 : mojoMillis / (double) spanMillis;
+    }
+
+    public Duration idleCoreTime() {
+        return Duration.ofMillis( idleCoreMillis );
+    }
+
+    /**
+     * Returns the time windows during which only a single mojo was running.
+     *
+     * @param minLength min. length of time windows to return
+     * @return time windows (milliseconds since the start of the build), ordered by start
+     */
+    public List<LongInterval> serialWindows(Duration minLength)
+    {
+        Validate.notNull( minLength, "minLength must not be null" );
+        final List<LongInterval> result = new ArrayList<>();
+        for ( int i = 0; i < activeMojos.length - 1; i++ )
+        {
+            if ( activeMojos[i] == 1 && offsetsMillis[i + 1] - offsetsMillis[i] >= minLength.toMillis() ) {
+                result.add( LongInterval.of( offsetsMillis[i], offsetsMillis[i + 1] ) );
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the average number of running mojos within consecutive time windows of equal length.
+     *
+     * @param buckets number of time windows to divide the span of the build into
+     * @return average number of running mojos per time window, empty if no mojos were executed
+     */
+    public double[] averageActiveMojos(int buckets)
+    {
+        Validate.isTrue( buckets > 0, "buckets must be positive" );
+        if ( spanMillis == 0 ) {
+            return new double[0];
+        }
+        final double[] result = new double[buckets];
+        final long first = offsetsMillis[0];
+        final double bucketLength = spanMillis / (double) buckets;
+        for ( int i = 0; i < activeMojos.length - 1; i++ )
+        {
+            // distribute the step over all buckets it overlaps
+            final double stepStart = offsetsMillis[i] - first;
+            final double stepEnd = offsetsMillis[i + 1] - first;
+            final int lastBucket = Math.min( buckets - 1, (int) ( stepEnd / bucketLength ) );
+            for ( int b = (int) ( stepStart / bucketLength ); b <= lastBucket; b++ )
+            {
+                final double overlap = Math.min( stepEnd, ( b + 1 ) * bucketLength ) - Math.max( stepStart, b * bucketLength );
+                if ( overlap > 0 ) {
+                    result[b] += activeMojos[i] * overlap / bucketLength;
+                }
+            }
+        }
+        return result;
+    }
+}
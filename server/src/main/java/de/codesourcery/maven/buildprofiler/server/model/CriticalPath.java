@@ -0,0 +1,76 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Chain of modules that determined how long a build took.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class CriticalPath implements Serializable
+{
+    /**
+     * A module on the critical path.
+     */
+    public static class Step implements Serializable
+    {
+        public long artifactId;
+        public String artifactVersion;
+        public ZonedDateTime startTime;
+        public ZonedDateTime endTime;
+        // time between the end of the previous step (or the start of the build) and the start of this step
+        public long waitMillis;
+
+        public Duration duration() {
+            return Duration.between( startTime, endTime );
+        }
+
+        public Duration waitTime() {
+            return Duration.ofMillis( waitMillis );
+        }
+    }
+
+    public long buildId;
+    public ZonedDateTime buildStartTime;
+    public Duration buildDuration;
+    // in execution order
+    public final List<Step> steps = new ArrayList<>();
+
+    /**
+     * Returns the time spent executing modules on the critical path.
+     *
+     * @return time
+     */
+    public Duration moduleTime() {
+        return steps.stream().map( Step::duration ).reduce( Duration.ZERO, Duration::plus );
+    }
+
+    /**
+     * Returns the time spent waiting between the modules on the critical path
+     * (including the time between the start of the build and the start of the first module).
+     *
+     * @return time
+     */
+    public Duration waitTime() {
+        return steps.stream().map( Step::waitTime ).reduce( Duration.ZERO, Duration::plus );
+    }
+}
@@ -15,7 +15,7 @@
  */
 package de.codesourcery.maven.buildprofiler.server.model;
 
-import de.codesourcery.maven.buildprofiler.server.LongInterval;
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
 import org.apache.commons.lang3.Validate;
 
 import java.io.Serializable;
@@ -23,10 +23,10 @@ import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.time.ZonedDateTime;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
-import java.util.stream.Collectors;
 
 public class Record implements Serializable
 {
@@ -41,13 +41,14 @@ public class Record implements Serializable
     public ZonedDateTime endTime;
 
     // transient, calculated duration as result of Interval.merge() operation when grouping by phase/plugin/artifact
-    private long durationMillis;
+    // (or as read from a rollup table), NULL if not calculated
+    private Long durationMillis;
 
     public Duration duration() {
-        if ( durationMillis != 0 ) {
+        if ( durationMillis != null ) {
             return Duration.ofMillis( durationMillis );
         }
-        return Duration.ofMillis( endTime.toInstant().toEpochMilli() - startTime.toInstant().toEpochMilli() );
+        return Duration.ofMillis( endTimeMillis() - startTimeMillis() );
     }
 
     public void setTime(ZonedDateTime start, Duration interval)
@@ -74,27 +75,54 @@ public class Record implements Serializable
     }
 
     public long startTimeMillis() {
-        return startTime.toInstant().toEpochMilli();
+        return epochMillis( startTime );
     }
 
     public long endTimeMillis() {
-        return endTime.toInstant().toEpochMilli();
+        return epochMillis( endTime );
     }
 
-    public static Optional<Duration> wallClockTime(List<Record> records) {
-        Validate.notNull( records, "records must not be null" );
-        return wallClockTimeForIntervals( records.stream().map( x -> LongInterval.of( x.startTimeMillis(), x.endTimeMillis() ) ).collect( Collectors.toList() ) );
+    // same as toInstant().toEpochMilli() but without creating an Instant
+    private static long epochMillis(ZonedDateTime time) {
+        return time.toEpochSecond() * 1000 + time.getNano() / 1_000_000;
+    }
+
+    /**
+     * Returns the points in time covered by at least one of the given records.
+     *
+     * @param records records
+     * @return covered time
+     */
+    public static IntervalSet intervals(Collection<Record> records) {
+        return builder( records ).build();
     }
 
-    static Optional<Duration> wallClockTimeForIntervals(List<LongInterval> intervals)
+    /**
+     * Returns the time covered by at least one of the given records.
+     *
+     * @param records records
+     * @return time in milliseconds, 0 if there are no records
+     */
+    public static long wallClockMillis(Collection<Record> records) {
+        return builder( records ).coverage();
+    }
+
+    private static IntervalSet.Builder builder(Collection<Record> records)
     {
-        if ( intervals.isEmpty() ) {
-            return Optional.empty();
+        Validate.notNull( records, "records must not be null" );
+        final IntervalSet.Builder builder = new IntervalSet.Builder( records.size() );
+        for ( Record r : records ) {
+            builder.add( r.startTimeMillis(), r.endTimeMillis() );
         }
-        final List<LongInterval> reduced = LongInterval.mergeIfPossible( intervals );
+        return builder;
+    }
 
-        final long millis = reduced.stream().mapToLong( LongInterval::length ).sum();
-        return Optional.ofNullable( Duration.ofMillis( millis ) );
+    public static Optional<Duration> wallClockTime(List<Record> records) {
+        Validate.notNull( records, "records must not be null" );
+        if ( records.isEmpty() ) {
+            return Optional.empty();
+        }
+        return Optional.of( Duration.ofMillis( wallClockMillis( records ) ) );
     }
 
     @Override
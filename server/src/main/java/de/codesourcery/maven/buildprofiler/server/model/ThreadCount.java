@@ -0,0 +1,89 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.Serializable;
+
+/**
+ * Number of threads to build with, like Maven's <code>-T</code> option.
+ *
+ * @param value number of threads or, if <code>perCore</code> is set, threads per CPU core
+ * @param perCore whether the number of threads depends on the number of CPU cores (like <code>-T 1C</code>)
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public record ThreadCount(float value, boolean perCore) implements Serializable
+{
+    public ThreadCount
+    {
+        Validate.isTrue( value > 0, "value must be > 0" );
+        Validate.isTrue( perCore || value == (int) value, "value must be an integer unless perCore is set" );
+    }
+
+    public static ThreadCount of(int threads) {
+        return new ThreadCount( threads, false );
+    }
+
+    public static ThreadCount perCore(float threadsPerCore) {
+        return new ThreadCount( threadsPerCore, true );
+    }
+
+    /**
+     * Parses a thread count the way Maven parses the <code>-T</code> option.
+     *
+     * @param text a number of threads (like "4") or threads per CPU core (like "1C" or "1.5C")
+     * @return thread count
+     * @throws IllegalArgumentException if the text is no valid thread count
+     */
+    public static ThreadCount parse(String text)
+    {
+        Validate.notBlank( text, "text must not be null or blank" );
+        final String trimmed = text.trim();
+        try
+        {
+            if ( trimmed.endsWith( "C" ) || trimmed.endsWith( "c" ) ) {
+                return perCore( Float.parseFloat( trimmed.substring( 0, trimmed.length() - 1 ) ) );
+            }
+            return of( Integer.parseInt( trimmed ) );
+        }
+        catch( NumberFormatException e ) {
+            throw new IllegalArgumentException( "Not a valid thread count: '" + text + "'", e );
+        }
+    }
+
+    /**
+     * Returns the number of threads Maven would use.
+     *
+     * @param availableProcessors number of CPU cores
+     * @return number of threads, at least one
+     */
+    public int resolve(int availableProcessors)
+    {
+        if ( ! perCore ) {
+            return (int) value;
+        }
+        return Math.max( 1, (int) ( value * Math.max( 1, availableProcessors ) ) );
+    }
+
+    @Override
+    public String toString()
+    {
+        final String number = value == (int) value ? Integer.toString( (int) value ) : Float.toString( value );
+        return perCore ? number + "C" : number;
+    }
+}
@@ -37,8 +37,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
-import java.util.concurrent.atomic.AtomicReference;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 public class BuildInfoPanel extends Panel implements IWicketUtils
@@ -60,39 +59,41 @@ public class BuildInfoPanel extends Panel implements IWicketUtils
     {
         super.onInitialize();
 
-        final IModel<List<Record>> recordsModel = new LoadableDetachableModel<>()
-        {
-            @Override
-            protected List<Record> load()
-            {
-                return dbService.getRecords( model.getObject().id );
-            }
-        };
+        final IModel<List<Record>> byPhaseRecords = groupedRecords( DbService.Grouping.PHASE );
+        final IModel<List<Record>> byPluginRecords = groupedRecords( DbService.Grouping.PLUGIN );
+        final IModel<List<Record>> byArtifactRecords = groupedRecords( DbService.Grouping.ARTIFACT );
 
         // label
         add( new Label( "projectName", model.map(x->x.projectName)) );
         add( new Label( "branchName", model.map( x -> x.branchName ) ) );
         add( new Label( "hostName", model.map( x -> x.host.getUIString() ) ) );
+        add( new Label( "downsampled", "Detailed records of this build have been removed." )
+        {
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( model.getObject().recordsDownsampled );
+            }
+        } );
 
         // by-phase pie chart
-        final IModel<List<PieChartItem>> byPhaseModel = recordsModel.map( list -> {
+        final IModel<List<PieChartItem>> byPhaseModel = byPhaseRecords.map( list -> {
 
-            // group records by Phase
-            final Map<Long, List<Record>> byPhaseID = list.stream().collect( Collectors.groupingBy( x -> x.phaseId ) );
-            final Map<Long, LifecyclePhase> phasesByID = dbService.getPhasesByIDs( byPhaseID.keySet() ).stream().collect( Collectors.toMap( x -> x.phaseId, y -> y ) );
+            // one record per phase
+            final Set<Long> phaseIDs = list.stream().map( x -> x.phaseId ).collect( Collectors.toSet() );
+            final Map<Long, LifecyclePhase> phasesByID = dbService.getPhasesByIDs( phaseIDs ).stream().collect( Collectors.toMap( x -> x.phaseId, y -> y ) );
 
             final Iterator<Color> colorIterator = ColorUtils.getChartColorSupplier();
             final List<PieChartItem> result = new ArrayList<>();
 
-            final long totalDuration =
-                byPhaseID.values().stream().map( Record::wallClockTime ).flatMap( Optional::stream ).mapToLong( Duration::toMillis ).sum();
-
-            byPhaseID.forEach( (phaseId, records) -> {
-                final long time = Record.wallClockTime( records ).orElse( Duration.ZERO ).toMillis();
-                final double percDuration = 100.0 * ( time / (double) totalDuration);
-                final LifecyclePhase phase = phasesByID.get( phaseId );
+            final long totalDuration = totalMillis( list );
+            for ( Record r : list )
+            {
+                final double percDuration = 100.0 * ( r.duration().toMillis() / (double) totalDuration);
+                final LifecyclePhase phase = phasesByID.get( r.phaseId );
                 result.add( new PieChartItem( phase.name, colorIterator.next(), percDuration ) );
-            });
+            }
             return result;
         });
 
@@ -106,23 +107,21 @@ public class BuildInfoPanel extends Panel implements IWicketUtils
         } );
 
         // by plugin pie chart
-        final IModel<List<PieChartItem>> byPluginModel = recordsModel.map( list -> {
+        final IModel<List<PieChartItem>> byPluginModel = byPluginRecords.map( list -> {
 
-            // group records by plugin artifact id
-            final Map<Long, List<Record>> byPluginArtifactId = list.stream().collect( Collectors.groupingBy( x -> x.pluginArtifactId ) );
+            // one record per plugin artifact
+            final Set<Long> pluginArtifactIds = list.stream().map( x -> x.pluginArtifactId ).collect( Collectors.toSet() );
 
-            final Map<Long, Artifact> pluginsByArtifactId = dbService.getArtifactsByIDs( byPluginArtifactId.keySet() ).stream().collect(
+            final Map<Long, Artifact> pluginsByArtifactId = dbService.getArtifactsByIDs( pluginArtifactIds ).stream().collect(
                 Collectors.toMap( x->x.id, y -> y ) );
 
-            final long totalDuration =
-                byPluginArtifactId.values().stream().map( Record::wallClockTime ).flatMap( Optional::stream ).mapToLong( Duration::toMillis ).sum();
+            final long totalDuration = totalMillis( list );
 
             final Iterator<Color> colorIterator = ColorUtils.getChartColorSupplier();
             final List<PieChartItem> result = new ArrayList<>();
-            byPluginArtifactId.forEach( (pluginArtifactId, records) -> {
-                final long time = Record.wallClockTime( records ).orElse( Duration.ZERO ).toMillis();
-                final double percDuration = 100.0 * (time / (double) totalDuration);
-                final Record r = records.get( 0 );
+            for ( Record r : list )
+            {
+                final double percDuration = 100.0 * (r.duration().toMillis() / (double) totalDuration);
                 final Artifact plugin = pluginsByArtifactId.get( r.pluginArtifactId );
                 final String label;
                 if ( "org.apache.maven.plugins".equals( plugin.groupId ) ) {
@@ -131,7 +130,7 @@ public class BuildInfoPanel extends Panel implements IWicketUtils
                     label = plugin.toUIString( r.pluginVersion );
                 }
                 result.add( new PieChartItem( label, colorIterator.next(), percDuration ) );
-            } );
+            }
             return result;
         });
 
@@ -145,30 +144,26 @@ public class BuildInfoPanel extends Panel implements IWicketUtils
         } );
 
         // by artifact pie chart
-        final IModel<List<PieChartItem>> byArtifactModel = recordsModel.map( list -> {
+        final IModel<List<PieChartItem>> byArtifactModel = byArtifactRecords.map( list -> {
 
-            // group records by artifact id
-            final Map<Long, List<Record>> byArtifactId =
-                list.stream().collect( Collectors.groupingBy( x -> x.artifactId ) );
+            // one record per artifact
+            final Set<Long> artifactIds = list.stream().map( x -> x.artifactId ).collect( Collectors.toSet() );
 
             final Map<Long, Artifact> artifactsById =
-                dbService.getArtifactsByIDs( byArtifactId.keySet() ).stream().collect(
+                dbService.getArtifactsByIDs( artifactIds ).stream().collect(
                 Collectors.toMap( x->x.id, y -> y ) );
 
-            final long totalDuration =
-                byArtifactId.values().stream().map( Record::wallClockTime ).flatMap( Optional::stream ).mapToLong( Duration::toMillis ).sum();
+            final long totalDuration = totalMillis( list );
 
             final Iterator<Color> colorIterator = ColorUtils.getChartColorSupplier();
             final List<PieChartItem> result = new ArrayList<>();
-            final AtomicReference<Double> sum = new AtomicReference<>(0.0);
-            byArtifactId.forEach( (artifactId, records ) -> {
-                final long time = Record.wallClockTime( records ).orElse( Duration.ZERO ).toMillis();
-                final double percDuration = 100.0 * ( time / (double) totalDuration);
-                sum.set( sum.get() + percDuration );
-                final Artifact a = artifactsById.get( artifactId );
-                final String label = a.toUIString( records.get( 0 ).artifactVersion );
+            for ( Record r : list )
+            {
+                final double percDuration = 100.0 * ( r.duration().toMillis() / (double) totalDuration);
+                final Artifact a = artifactsById.get( r.artifactId );
+                final String label = a.toUIString( r.artifactVersion );
                 result.add( new PieChartItem( label, colorIterator.next(), percDuration ) );
-            } );
+            }
             return result;
         });
 
@@ -182,4 +177,26 @@ public class BuildInfoPanel extends Panel implements IWicketUtils
         } );
 
     }
+
+    /*
+     * Records of this build grouped by phase, plugin or artifact (read from the
+     * build's precalculated totals if available).
+     */
+    private IModel<List<Record>> groupedRecords(DbService.Grouping grouping)
+    {
+        return new LoadableDetachableModel<>()
+        {
+            @Override
+            protected List<Record> load()
+            {
+                final Build build = model.getObject();
+                return dbService.getRecords( List.of( build ), grouping ).getOrDefault( build.id, List.of() );
+            }
+        };
+    }
+
+    private static long totalMillis(List<Record> grouped)
+    {
+        return grouped.stream().map( Record::duration ).mapToLong( Duration::toMillis ).sum();
+    }
 }
@@ -0,0 +1,160 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.wicket;
+
+import de.codesourcery.maven.buildprofiler.server.LongInterval;
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.ConcurrencyProfile;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.DataSet;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.LineChart;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.NumericXYDataItem;
+import org.apache.commons.lang3.Validate;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.time.Duration;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+
+/**
+ * Shows how many mojos were running at the same time over the course of a build.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class ConcurrencyPanel extends Panel implements IWicketUtils
+{
+    // number of data points in the chart
+    private static final int CHART_BUCKETS = 100;
+
+    // only serial windows at least this long are listed
+    private static final Duration MIN_SERIAL_WINDOW = Duration.ofSeconds( 5 );
+    private static final int MAX_SERIAL_WINDOWS = 10;
+
+    private final IModel<Build> model;
+    private final IModel<Optional<ConcurrencyProfile>> profileModel;
+
+    @SpringBean
+    private DbService dbService;
+
+    public ConcurrencyPanel(String id, IModel<Build> model)
+    {
+        super( id );
+        Validate.notNull( model, "model must not be null" );
+        this.model = model;
+        this.profileModel = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected Optional<ConcurrencyProfile> load()
+            {
+                return dbService.getConcurrencyProfile( model.getObject() );
+            }
+        };
+    }
+
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+
+        add( new Label( "noProfile", "The records of this build have been removed before its concurrency profile got stored." )
+        {
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( profileModel.getObject().isEmpty() );
+            }
+        } );
+
+        final WebMarkupContainer details = new WebMarkupContainer( "details" )
+        {
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setVisible( profileModel.getObject().isPresent() );
+            }
+        };
+        add( details );
+
+        final IModel<ConcurrencyProfile> profile = profileModel.map( Optional::orElseThrow );
+        details.add( new Label( "averageParallelism", profile.map( p ->
+            String.format( Locale.ROOT, "%.2f", p.averageParallelism() ) + " mojos on " + p.availableProcessors + " CPU cores" ) ) );
+        details.add( new Label( "idleCoreTime", profile.map( p -> ServerUtils.formatDuration( p.idleCoreTime() ) ) ) );
+        details.add( new Label( "serialTime", profile.map( p -> ServerUtils.formatDuration( Duration.ofMillis( p.serialMillis ) ) ) ) );
+
+        final IModel<DataSet<NumericXYDataItem>> chartData = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected DataSet<NumericXYDataItem> load()
+            {
+                final ConcurrencyProfile p = profile.getObject();
+                final double[] averages = p.averageActiveMojos( CHART_BUCKETS );
+                final DataSet<NumericXYDataItem> result = new DataSet<>();
+                for ( int i = 0; i < averages.length; i++ )
+                {
+                    // x is the start of the time window, in seconds since the first mojo started
+                    result.add( new NumericXYDataItem( i * p.spanMillis / (double) averages.length / 1000.0, averages[i] ) );
+                }
+                return result;
+            }
+        };
+        details.add( new LineChart<>( "chart", chartData )
+        {
+            @Override
+            protected String getXAxisLabelFor(NumericXYDataItem x)
+            {
+                return String.format( Locale.ROOT, "%.1f s", x.x() );
+            }
+
+            @Override
+            protected String getChartLabel()
+            {
+                return "Running mojos";
+            }
+        }.setHideDots( true ).setFillArea( true ) );
+
+        details.add( new ListView<>( "serialWindows", profile.map( p -> p.serialWindows( MIN_SERIAL_WINDOW ).stream()
+            .sorted( Comparator.comparingLong( LongInterval::length ).reversed() )
+            .limit( MAX_SERIAL_WINDOWS )
+            .toList() ) )
+        {
+            @Override
+            protected void populateItem(ListItem<LongInterval> item)
+            {
+                final LongInterval window = item.getModelObject();
+                item.add( new Label( "start", ServerUtils.formatDuration( Duration.ofMillis( window.getStart() ) ) ) );
+                item.add( new Label( "duration", ServerUtils.formatDuration( Duration.ofMillis( window.length() ) ) ) );
+            }
+        } );
+    }
+
+    @Override
+    protected void onDetach()
+    {
+        super.onDetach();
+        profileModel.detach();
+    }
+}
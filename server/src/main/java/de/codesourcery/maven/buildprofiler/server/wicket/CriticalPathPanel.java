@@ -0,0 +1,124 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.wicket;
+
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import de.codesourcery.maven.buildprofiler.server.model.Artifact;
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.CriticalPath;
+import org.apache.commons.lang3.Validate;
+import org.apache.wicket.AttributeModifier;
+import org.apache.wicket.markup.html.WebMarkupContainer;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.markup.html.panel.Panel;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Shows the chain of modules that determined how long a build took.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class CriticalPathPanel extends Panel implements IWicketUtils
+{
+    private final IModel<Build> model;
+    private final IModel<CriticalPath> pathModel;
+    private final IModel<Map<Long, Artifact>> artifactsModel;
+
+    @SpringBean
+    private DbService dbService;
+
+    public CriticalPathPanel(String id, IModel<Build> model)
+    {
+        super( id );
+        Validate.notNull( model, "model must not be null" );
+        this.model = model;
+        this.pathModel = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected CriticalPath load()
+            {
+                return dbService.getCriticalPath( model.getObject() );
+            }
+        };
+        this.artifactsModel = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected Map<Long, Artifact> load()
+            {
+                final Set<Long> ids = pathModel.getObject().steps.stream().map( x -> x.artifactId ).collect( Collectors.toSet() );
+                if ( ids.isEmpty() ) {
+                    return Map.of();
+                }
+                return dbService.getArtifactsByIDs( ids ).stream().collect( Collectors.toMap( x -> x.id, Function.identity() ) );
+            }
+        };
+    }
+
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+
+        add( new Label( "summary", pathModel.map( path -> path.steps.size() + " modules, " +
+            ServerUtils.formatDuration( path.moduleTime() ) + " building them, " +
+            ServerUtils.formatDuration( path.waitTime() ) + " waiting in between, build took " +
+            ServerUtils.formatDuration( path.buildDuration ) ) ) );
+
+        add( new ListView<>( "steps", pathModel.map( path -> path.steps ) )
+        {
+            @Override
+            protected void populateItem(ListItem<CriticalPath.Step> item)
+            {
+                final CriticalPath path = pathModel.getObject();
+                final CriticalPath.Step step = item.getModelObject();
+                final Artifact artifact = artifactsModel.getObject().get( step.artifactId );
+
+                final Duration offset = Duration.between( path.buildStartTime, step.startTime );
+                item.add( new Label( "module", artifact != null ? artifact.toUIString( step.artifactVersion ) : "#" + step.artifactId ) );
+                item.add( new Label( "start", ServerUtils.formatDuration( offset ) ) );
+                item.add( new Label( "wait", ServerUtils.formatDuration( step.waitTime() ) ) );
+                item.add( new Label( "duration", ServerUtils.formatDuration( step.duration() ) ) );
+
+                // bar showing when the module was built, relative to the whole build
+                final double total = Math.max( 1, path.buildDuration.toMillis() );
+                final double left = Math.max( 0, Math.min( 100, 100 * offset.toMillis() / total ) );
+                final double width = Math.min( 100 - left, 100 * step.duration().toMillis() / total );
+                final WebMarkupContainer bar = new WebMarkupContainer( "bar" );
+                bar.add( AttributeModifier.replace( "style", String.format( Locale.ROOT, "margin-left:%.2f%%;width:%.2f%%", left, width ) ) );
+                item.add( bar );
+            }
+        } );
+    }
+
+    @Override
+    protected void onDetach()
+    {
+        super.onDetach();
+        pathModel.detach();
+        artifactsModel.detach();
+    }
+}
@@ -149,6 +149,7 @@ public class HomePage extends AbstractBasePage
     private final MyDataProvider dataProvider = new MyDataProvider();
 
     private Button compareButton;
+    private Button whatIfButton;
 
     public HomePage() {
         this( createDefaultCriteria() );
@@ -442,6 +443,27 @@ public class HomePage extends AbstractBasePage
         compareButton.setOutputMarkupId( true );
         compareButton.setDefaultFormProcessing( false );
         form.add( compareButton );
+
+        // what-if button
+        whatIfButton = new AjaxButton( "whatIfButton" ) {
+            @Override
+            protected void onSubmit(AjaxRequestTarget target)
+            {
+                final List<Build> builds = db.getBuilds( buildIdsForComparison );
+                builds.sort( Comparator.comparing( Build::getStartTime ) );
+                setResponsePage( new WhatIfPage( builds, criteria ) );
+            }
+
+            @Override
+            protected void onConfigure()
+            {
+                super.onConfigure();
+                setEnabled( ! buildIdsForComparison.isEmpty() );
+            }
+        };
+        whatIfButton.setOutputMarkupId( true );
+        whatIfButton.setDefaultFormProcessing( false );
+        form.add( whatIfButton );
     }
 
     private MyDataTable<Build,TableColumn> createDataTable(String wicketId, ISortableDataProvider<Build,TableColumn> dataProvider)
@@ -476,7 +498,7 @@ public class HomePage extends AbstractBasePage
                     @Override
                     protected void onUpdate(AjaxRequestTarget target)
                     {
-                        target.add( compareButton );
+                        target.add( compareButton, whatIfButton );
                     }
                 };
                 frag.add( cb );
@@ -522,6 +544,8 @@ public class HomePage extends AbstractBasePage
                 add( dummyForm );
 
                 dummyForm.add( new BuildInfoPanel( "buildInfo", Model.of( build ) ) );
+                dummyForm.add( new CriticalPathPanel( "criticalPath", Model.of( build ) ) );
+                dummyForm.add( new ConcurrencyPanel( "concurrency", Model.of( build ) ) );
                 final AjaxButton button = new AjaxButton( "closeButton" )
                 {
                     @Override
@@ -0,0 +1,174 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.wicket;
+
+import de.codesourcery.maven.buildprofiler.server.db.DAO;
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.BuildSimulation;
+import de.codesourcery.maven.buildprofiler.server.model.ThreadCount;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.DataSet;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.LineChart;
+import de.codesourcery.maven.buildprofiler.server.wicket.components.charts.NumericXYDataItem;
+import org.apache.commons.lang3.Validate;
+import org.apache.wicket.markup.html.basic.Label;
+import org.apache.wicket.markup.html.form.Button;
+import org.apache.wicket.markup.html.form.Form;
+import org.apache.wicket.markup.html.list.ListItem;
+import org.apache.wicket.markup.html.list.ListView;
+import org.apache.wicket.model.IModel;
+import org.apache.wicket.model.LoadableDetachableModel;
+import org.apache.wicket.spring.injection.annot.SpringBean;
+
+import java.time.Duration;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Shows how long builds would have taken when building with different numbers of threads.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+public class WhatIfPage extends AbstractBasePage
+{
+    private static final List<ThreadCount> THREAD_COUNTS = List.of(
+        ThreadCount.of( 1 ), ThreadCount.of( 2 ), ThreadCount.of( 4 ), ThreadCount.of( 8 ),
+        ThreadCount.perCore( 1 ), ThreadCount.perCore( 2 ) );
+
+    private static final DateTimeFormatter DF = DateTimeFormatter.ofPattern( "yyyy-MM-dd HH:mm:ss" );
+
+    private final List<Build> builds;
+    private final DAO.SearchCriteria criteria;
+    private final IModel<List<BuildSimulation>> simulations;
+
+    @SpringBean
+    private DbService dbService;
+
+    public WhatIfPage(List<Build> builds, DAO.SearchCriteria criteria)
+    {
+        Validate.isTrue( !builds.isEmpty(), "need builds to simulate" );
+        Validate.notNull( criteria, "criteria must not be null" );
+        this.builds = builds;
+        this.criteria = criteria;
+        this.simulations = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected List<BuildSimulation> load()
+            {
+                return dbService.simulate( WhatIfPage.this.builds, THREAD_COUNTS );
+            }
+        };
+    }
+
+    @Override
+    protected void onInitialize()
+    {
+        super.onInitialize();
+
+        final IModel<DataSet<NumericXYDataItem>> chartData = new LoadableDetachableModel<>()
+        {
+            @Override
+            protected DataSet<NumericXYDataItem> load()
+            {
+                final DataSet<NumericXYDataItem> result = new DataSet<>();
+                for ( int i = 0; i < THREAD_COUNTS.size(); i++ )
+                {
+                    final ThreadCount threads = THREAD_COUNTS.get( i );
+                    final double averageSeconds = simulations.getObject().stream()
+                        .mapToLong( x -> x.predictedDuration( threads ).toMillis() )
+                        .average().orElse( 0 ) / 1000.0;
+                    // x is the index into THREAD_COUNTS
+                    result.add( new NumericXYDataItem( i, averageSeconds ) );
+                }
+                return result;
+            }
+        };
+        add( new LineChart<>( "chart", chartData )
+        {
+            @Override
+            protected String getXAxisLabelFor(NumericXYDataItem x)
+            {
+                return "-T " + THREAD_COUNTS.get( (int) x.x() );
+            }
+
+            @Override
+            protected String getChartLabel()
+            {
+                return "Average predicted build time (seconds)";
+            }
+        } );
+
+        add( new ListView<>( "threadCounts", THREAD_COUNTS )
+        {
+            @Override
+            protected void populateItem(ListItem<ThreadCount> item)
+            {
+                item.add( new Label( "threadCount", "-T " + item.getModelObject() ) );
+            }
+        } );
+
+        add( new ListView<>( "builds", simulations )
+        {
+            @Override
+            protected void populateItem(ListItem<BuildSimulation> item)
+            {
+                final BuildSimulation simulation = item.getModelObject();
+                item.add( new Label( "startTime", DF.format( simulation.buildStartTime ) ) );
+                item.add( new Label( "duration", ServerUtils.formatDuration( simulation.buildDuration ) ) );
+                item.add( new Label( "threads", simulation.maxConcurrency + " on " + simulation.availableProcessors + " CPU cores" ) );
+                item.add( new ListView<>( "predictions", THREAD_COUNTS )
+                {
+                    @Override
+                    protected void populateItem(ListItem<ThreadCount> cell)
+                    {
+                        final Duration predicted = simulation.predictedDuration( cell.getModelObject() );
+                        cell.add( new Label( "predicted", ServerUtils.formatDuration( predicted ) + " (" + formatChange( simulation.buildDuration, predicted ) + ")" ) );
+                    }
+                } );
+            }
+        } );
+
+        final Form<Void> dummyForm = new Form<>( "dummy" );
+        add( dummyForm );
+
+        final Button b = new Button( "backButton" ) {
+            @Override
+            public void onSubmit()
+            {
+                setResponsePage( new HomePage( criteria ) );
+            }
+        };
+        b.setDefaultFormProcessing( false );
+        dummyForm.add( b );
+    }
+
+    private static String formatChange(Duration actual, Duration predicted)
+    {
+        if ( actual.isZero() ) {
+            return "n/a";
+        }
+        final double percent = ( predicted.toMillis() - actual.toMillis() ) * 100.0 / actual.toMillis();
+        return String.format( Locale.ROOT, "%+.0f%%", percent );
+    }
+
+    @Override
+    protected void onDetach()
+    {
+        super.onDetach();
+        simulations.detach();
+    }
+}
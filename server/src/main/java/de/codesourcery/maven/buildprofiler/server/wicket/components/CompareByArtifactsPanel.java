@@ -178,7 +178,7 @@ public class CompareByArtifactsPanel extends Panel implements IWicketUtils
         {
             if ( data == null ) {
                 final Map<Long, List<Record>> recordsByBuildID =
-                    db.getRecords( toCompare.stream().map( x -> x.id ).collect( Collectors.toSet() ), DbService.Grouping.ARTIFACT );
+                    db.getRecords( toCompare, DbService.Grouping.ARTIFACT );
 
                 // gather all possible artifacts
                 final Set<Long> ids = recordsByBuildID.values().stream()
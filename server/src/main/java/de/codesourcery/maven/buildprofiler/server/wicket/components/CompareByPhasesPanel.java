@@ -167,7 +167,7 @@ public class CompareByPhasesPanel extends Panel implements IWicketUtils
             {
                 if ( data == null ) {
                     final Map<Long, List<Record>> recordsByBuildID =
-                        db.getRecords( model.getObject().stream().map( x -> x.id ).collect( Collectors.toSet() ) , DbService.Grouping.PHASE);
+                        db.getRecords( model.getObject(), DbService.Grouping.PHASE );
 
                     // gather all possible phases
                     final Set<Long> phaseIDs = recordsByBuildID.values().stream()
@@ -43,6 +43,7 @@ public abstract class LineChart<T extends XYDataItem> extends Panel
     private WebMarkupContainer c;
     private final IModel<DataSet<T>> dataset;
     private boolean hideDots;
+    private boolean fillArea;
     private boolean isSeries = true;
     private Function<T,T> itemMapping = Function.identity();
 
@@ -123,9 +124,10 @@ public abstract class LineChart<T extends XYDataItem> extends Panel
                 json.append( "\"type\" : \"line\"," );
                 json.append( "\"colors\" : [ \"black\" ] " );
 
-                if ( hideDots ) {
+                if ( hideDots || fillArea ) {
                     json.append(", \"lineOptions\" : { ");
-                    json.append("\"hideDots\" : 1 ");
+                    json.append("\"hideDots\" : ").append( hideDots ? 1 : 0 );
+                    json.append(", \"regionFill\" : ").append( fillArea ? 1 : 0 );
                     json.append("}");
                 }
 
@@ -166,6 +168,18 @@ public abstract class LineChart<T extends XYDataItem> extends Panel
         return this;
     }
 
+    /**
+     * Whether to fill the area below the line, turning this into an area chart.
+     *
+     * @param fillArea
+     * @return this instance (for chaining)
+     */
+    public LineChart<T> setFillArea(boolean fillArea)
+    {
+        this.fillArea = fillArea;
+        return this;
+    }
+
     public LineChart<T> setIsSeries(boolean isSeries)
     {
         this.isSeries = isSeries;
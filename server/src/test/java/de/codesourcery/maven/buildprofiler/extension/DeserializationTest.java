@@ -18,13 +18,22 @@ package de.codesourcery.maven.buildprofiler.extension;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.common.BuildResultDecoder;
+import de.codesourcery.maven.buildprofiler.common.BuildResultParser;
 import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import de.codesourcery.maven.buildprofiler.shared.Constants;
 import org.assertj.core.data.Offset;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 public class DeserializationTest
 {
@@ -36,12 +45,15 @@ public class DeserializationTest
         final ArtifactCoords plugin2= new ArtifactCoords("p2-group", "p2-artifact", "1.0-p2-SNAPSHOT");
 
         final long now = 12361582361L;
+        final MyExtension instance = new MyExtension();
+        final int artifact1Idx = instance.coords.indexOf( artifact1 );
+        final int plugin1Idx = instance.coords.indexOf( plugin1 );
+        final int plugin2Idx = instance.coords.indexOf( plugin2 );
         final List<MyExtension.ExecutionRecord> list = List.of(
-            new MyExtension.ExecutionRecord( artifact1, plugin1, "clean", now, now+23 ),
-            new MyExtension.ExecutionRecord( artifact1,plugin2, "process-sources", now, now+25 ),
-            new MyExtension.ExecutionRecord( artifact1,plugin2, "process-sources", now, now+25 )
+            new MyExtension.ExecutionRecord( artifact1Idx, plugin1Idx, "clean", now, now+23 ),
+            new MyExtension.ExecutionRecord( artifact1Idx,plugin2Idx, "process-sources", now, now+25 ),
+            new MyExtension.ExecutionRecord( artifact1Idx,plugin2Idx, "process-sources", now, now+25 )
         );
-        final MyExtension instance = new MyExtension();
         instance.gitHash = "deadbeef";
         instance.maxConcurrency.set(123);
         instance.projectName = "project";
@@ -54,8 +66,9 @@ public class DeserializationTest
         System.out.println(json);
 
         final ObjectMapper mapper = new ObjectMapper();
-        final BuildResult value = mapper.readValue( json, BuildResult.class );
+        final BuildResult value = mapper.readValue( json, BuildResult.class ).resolveRecords();
 
+        assertThat( value.buildId ).isEqualTo( instance.buildId );
         assertThat( value.buildStartTime ).isPositive();
         assertThat( value.buildDurationMillis ).isCloseTo( 1000L, Offset.offset( 10L) );
         assertThat( value.hostName ).isNotBlank();
@@ -116,4 +129,142 @@ public class DeserializationTest
         assertThat( record.startMillis ).isEqualTo( list.get( 2 ).startEpochMillis() );
         assertThat( record.endMillis ).isEqualTo( list.get( 2 ).endEpochMillis() );
     }
+
+    @Test
+    void testBinaryMatchesJson() throws IOException
+    {
+        final long now = 12361582361L;
+        final MyExtension instance = new MyExtension();
+        instance.gitHash = "deadbeef";
+        instance.maxConcurrency.set(123);
+        instance.projectName = "project";
+        instance.branchName = "branch";
+        final int artifactIdx = instance.coords.indexOf( new ArtifactCoords("a1-group", "a1-artifact", "1.0-a1-SNAPSHOT") );
+        final int pluginIdx = instance.coords.indexOf( new ArtifactCoords("p1-group", "p1-artifact", "1.0-p1-SNAPSHOT") );
+        final List<MyExtension.ExecutionRecord> list = List.of(
+            new MyExtension.ExecutionRecord( artifactIdx, pluginIdx, "clean", now - 5, now+23 ),
+            new MyExtension.ExecutionRecord( artifactIdx, pluginIdx, "compile", now + 100_000, now + 100_000 ),
+            new MyExtension.ExecutionRecord( artifactIdx, pluginIdx, "clean", now, now+25 )
+        );
+        MyExtension.startupTimestamp = now;
+
+        final BuildResult fromJson = new ObjectMapper().readValue( MyExtension.getJSONRequest( list, instance, now + 200_000 ), BuildResult.class ).resolveRecords();
+
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        MyExtension.writeBinaryRequest( list, instance, now + 200_000, out );
+        final BuildResult fromBinary = BuildResultDecoder.decode( new ByteArrayInputStream( out.toByteArray() ) );
+
+        assertThat( fromBinary.jsonSyntaxVersion ).isEqualTo( Constants.BINARY_SYNTAX_VERSION );
+        assertThat( fromBinary.buildId ).isEqualTo( instance.buildId );
+        assertThat( fromBinary ).usingRecursiveComparison().ignoringFields( "jsonSyntaxVersion" ).isEqualTo( fromJson );
+        assertThat( out.size() ).isLessThan( MyExtension.getJSONRequest( list, instance, now + 200_000 ).length() );
+    }
+
+    @Test
+    void testStreamingMatchesObjectMapper() throws IOException
+    {
+        final long now = 12361582361L;
+        final MyExtension instance = new MyExtension();
+        instance.gitHash = "deadbeef";
+        instance.projectName = "project";
+        instance.branchName = "branch";
+        final int artifactIdx = instance.coords.indexOf( new ArtifactCoords("a1-group", "a1-artifact", "1.0-a1-SNAPSHOT") );
+        final int pluginIdx = instance.coords.indexOf( new ArtifactCoords("p1-group", "p1-artifact", "1.0-p1-SNAPSHOT") );
+        final List<MyExtension.ExecutionRecord> list = new ArrayList<>();
+        for ( int i = 0 ; i < 5 ; i++ ) {
+            list.add( new MyExtension.ExecutionRecord( artifactIdx, pluginIdx, i % 2 == 0 ? "clean" : "compile", now + i, now + 10 * i ) );
+        }
+        MyExtension.startupTimestamp = now;
+
+        final String json = MyExtension.getJSONRequest( list, instance, now + 1000 );
+        final BuildResult expected = new ObjectMapper().readValue( json, BuildResult.class ).resolveRecords();
+
+        final List<BuildResult> headers = new ArrayList<>();
+        final List<List<BuildResult.Record>> batches = new ArrayList<>();
+        new BuildResultParser( new ObjectMapper(), 2 ).parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ), new BuildResultParser.Handler()
+        {
+            @Override
+            public void header(BuildResult header) {
+                headers.add( header );
+            }
+
+            @Override
+            public void records(List<BuildResult.Record> records) {
+                batches.add( new ArrayList<>( records ) );
+            }
+        });
+
+        assertThat( headers ).hasSize( 1 );
+        assertThat( batches ).extracting( List::size ).containsExactly( 2, 2, 1 );
+
+        final BuildResult actual = headers.get( 0 );
+        actual.records = batches.stream().flatMap( List::stream ).toList();
+        assertThat( actual ).usingRecursiveComparison().isEqualTo( expected );
+    }
+
+    @Test
+    void testStreamingWithoutGitHash() throws IOException
+    {
+        final long now = 12361582361L;
+        final MyExtension instance = new MyExtension();
+        // build outside a git checkout
+        instance.gitHash = null;
+        instance.projectName = "project";
+        instance.branchName = "branch";
+        final int artifactIdx = instance.coords.indexOf( new ArtifactCoords("a1-group", "a1-artifact", "1.0-a1-SNAPSHOT") );
+        final int pluginIdx = instance.coords.indexOf( new ArtifactCoords("p1-group", "p1-artifact", "1.0-p1-SNAPSHOT") );
+        final List<MyExtension.ExecutionRecord> list = new ArrayList<>();
+        for ( int i = 0 ; i < 5 ; i++ ) {
+            list.add( new MyExtension.ExecutionRecord( artifactIdx, pluginIdx, "compile", now + i, now + 10 * i ) );
+        }
+        MyExtension.startupTimestamp = now;
+
+        final String json = MyExtension.getJSONRequest( list, instance, now + 1000 );
+        assertThat( json ).doesNotContain( "gitHash" );
+
+        final BuildResult expected = new ObjectMapper().readValue( json, BuildResult.class ).resolveRecords();
+        final BuildResult actual = new BuildResultParser( new ObjectMapper(), 2 ).parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) );
+        assertThat( actual.gitHash ).isNull();
+        assertThat( actual ).usingRecursiveComparison().isEqualTo( expected );
+
+        // records get streamed instead of buffered: batches are handed out before the document ends
+        final String truncated = json.substring( 0, json.lastIndexOf( ']' ) );
+        final List<BuildResult.Record> streamed = new ArrayList<>();
+        assertThatThrownBy( () -> new BuildResultParser( new ObjectMapper(), 2 ).parse( new ByteArrayInputStream( truncated.getBytes( StandardCharsets.UTF_8 ) ), new BuildResultParser.Handler()
+        {
+            @Override
+            public void header(BuildResult header) {
+            }
+
+            @Override
+            public void records(List<BuildResult.Record> records) {
+                streamed.addAll( records );
+            }
+        })).isInstanceOf( IOException.class );
+        assertThat( streamed ).hasSize( 4 );
+    }
+
+    @Test
+    void testStreamingRejectsMalformedBuildId()
+    {
+        final String json = "{ \"jsonSyntaxVersion\" : 3, \"buildId\" : \"not-a-uuid\" }";
+        assertThatThrownBy( () -> new BuildResultParser( new ObjectMapper(), 10 ).parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ) ) )
+            .isInstanceOf( JsonProcessingException.class );
+    }
+
+    @Test
+    void testStreamingRejectsUnknownCoords()
+    {
+        final String json = "{ \"jsonSyntaxVersion\" : 1, \"coords\" : [], \"records\" : [ { \"artifactIdx\" : 0, \"pluginIdx\" : 0, \"phase\" : \"clean\", \"startMillis\" : 1, \"endMillis\" : 2 } ] }";
+        assertThatThrownBy( () -> new BuildResultParser( new ObjectMapper(), 10 ).parse( new ByteArrayInputStream( json.getBytes( StandardCharsets.UTF_8 ) ), new BuildResultParser.Handler()
+        {
+            @Override
+            public void header(BuildResult header) {
+            }
+
+            @Override
+            public void records(List<BuildResult.Record> records) {
+            }
+        })).isInstanceOf( JsonProcessingException.class );
+    }
 }
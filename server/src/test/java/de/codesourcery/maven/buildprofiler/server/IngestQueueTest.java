@@ -0,0 +1,169 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IngestQueueTest
+{
+    @TempDir
+    Path spoolDir;
+
+    private static BuildResult build(String project, int recordCount)
+    {
+        final BuildResult result = new BuildResult();
+        result.projectName = project;
+        result.records = new ArrayList<>();
+        for ( int i = 0 ; i < recordCount ; i++ ) {
+            result.records.add( new BuildResult.Record() );
+        }
+        return result;
+    }
+
+    // build result with all properties the server requires
+    private static BuildResult completeBuild(String project, String gitHash)
+    {
+        final BuildResult result = build( project, 0 );
+        result.jsonSyntaxVersion = 1;
+        result.buildId = "7c0e5f7e-4a4b-4bd4-9a43-5e2f0d3f6f10";
+        result.hostIP = "127.0.0.1";
+        result.branchName = "main";
+        result.jvmVersion = "17";
+        result.gitHash = gitHash;
+        result.systemProperties = Map.of( "line", "with\nbreak" );
+        result.environment = Map.of();
+        result.coords = List.of( new ArtifactCoords( "g", "a", "1.0" ) );
+        final BuildResult.Record record = new BuildResult.Record();
+        record.phase = "compile";
+        record.startMillis = 1000;
+        record.endMillis = 2000;
+        result.records.add( record );
+        return result;
+    }
+
+    @Test
+    public void testRejectsWhenFull() throws InterruptedException
+    {
+        final CountDownLatch blocked = new CountDownLatch( 1 );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final IngestQueue queue = new IngestQueue( results -> {
+            blocked.countDown();
+            release.await();
+        }, new DeadLetterSpool( spoolDir ), 10, 1, 5 );
+
+        // a build larger than the capacity is accepted when the queue is empty
+        assertThat( queue.offer( build( "a", 20 ) ) ).isTrue();
+        assertThat( blocked.await( 5, TimeUnit.SECONDS ) ).isTrue();
+        assertThat( queue.offer( build( "b", 1 ) ) ).isFalse();
+        assertThat( queue.getStatus() ).isEqualTo( new IngestQueue.Status( 1, 20, 10 ) );
+
+        release.countDown();
+        queue.shutdown();
+        assertThat( queue.getStatus().queuedBuilds() ).isZero();
+        assertThat( queue.offer( build( "c", 1 ) ) ).isFalse();
+    }
+
+    @Test
+    public void testBatchesAndRetriesIndividually()
+    {
+        final List<List<String>> transactions = Collections.synchronizedList( new ArrayList<>() );
+        final CountDownLatch release = new CountDownLatch( 1 );
+        final IngestQueue queue = new IngestQueue( results -> {
+            release.await();
+            transactions.add( results.stream().map( x -> x.projectName ).toList() );
+            if ( results.stream().anyMatch( x -> x.projectName.equals( "bad" ) ) ) {
+                throw new RuntimeException( "rollback" );
+            }
+        }, new DeadLetterSpool( spoolDir ), 100, 1, 3 );
+
+        queue.offer( build( "first", 1 ) );
+        queue.offer( build( "a", 1 ) );
+        queue.offer( build( "bad", 1 ) );
+        queue.offer( build( "b", 1 ) );
+        release.countDown();
+        queue.shutdown();
+
+        // the writer might or might not have taken "first" before the others got queued
+        assertThat( transactions ).last().isEqualTo( List.of( "b" ) );
+        assertThat( transactions ).contains( List.of( "bad" ) );
+        assertThat( transactions.stream().flatMap( List::stream ).filter( "a"::equals ).count() ).isEqualTo( 2 );
+    }
+
+    @Test
+    public void testFailedBuildsAreSpooledAndReplayed() throws IOException
+    {
+        final List<String> stored = Collections.synchronizedList( new ArrayList<>() );
+        final boolean[] databaseDown = { true };
+        final IngestQueue queue = new IngestQueue( results -> {
+            if ( databaseDown[0] ) {
+                throw new RuntimeException( "connection refused" );
+            }
+            results.forEach( x -> stored.add( x.projectName ) );
+        }, new DeadLetterSpool( spoolDir ), 100, 1, 3 );
+
+        queue.offer( completeBuild( "a", "deadbeef" ) );
+        queue.offer( build( "b", 1 ) );
+        queue.shutdown();
+        assertThat( stored ).isEmpty();
+        assertThat( spoolDir.toFile().list() ).hasSize( 2 );
+
+        databaseDown[0] = false;
+        // "b" lacks required properties and stays in the spool
+        assertThat( queue.replayDeadLetters() ).isEqualTo( new DeadLetterSpool.ReplayResult( 1, 1 ) );
+        assertThat( stored ).containsExactly( "a" );
+        assertThat( spoolDir.toFile().list() ).hasSize( 1 );
+    }
+
+    @Test
+    public void testSpooledBuildWithoutGitHashIsReplayed() throws IOException
+    {
+        final List<BuildResult> stored = Collections.synchronizedList( new ArrayList<>() );
+        final boolean[] databaseDown = { true };
+        final IngestQueue queue = new IngestQueue( results -> {
+            if ( databaseDown[0] ) {
+                throw new RuntimeException( "connection refused" );
+            }
+            stored.addAll( results );
+        }, new DeadLetterSpool( spoolDir ), 100, 1, 3 );
+
+        // build outside a git checkout
+        queue.offer( completeBuild( "a", null ) );
+        queue.shutdown();
+        assertThat( spoolDir.toFile().list() ).hasSize( 1 );
+
+        databaseDown[0] = false;
+        assertThat( queue.replayDeadLetters() ).isEqualTo( new DeadLetterSpool.ReplayResult( 1, 0 ) );
+        assertThat( stored ).hasSize( 1 );
+        assertThat( stored.get( 0 ).projectName ).isEqualTo( "a" );
+        assertThat( stored.get( 0 ).gitHash ).isNull();
+        assertThat( stored.get( 0 ).records ).hasSize( 1 );
+        assertThat( spoolDir.toFile().list() ).isEmpty();
+    }
+}
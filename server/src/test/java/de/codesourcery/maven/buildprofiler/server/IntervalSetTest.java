@@ -0,0 +1,152 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class IntervalSetTest
+{
+    @Test
+    public void testBuild()
+    {
+        final IntervalSet set = set( 10, 12, 1, 3, 2, 5, 5, 6, 8, 8 );
+        assertThat( set.size() ).isEqualTo( 2 );
+        assertThat( set.toList() ).containsExactly( LongInterval.of( 1, 6 ), LongInterval.of( 10, 12 ) );
+        assertThat( set.coverage() ).isEqualTo( 7 );
+        assertThat( set.coverage( 4, 11 ) ).isEqualTo( 3 );
+        assertThat( new IntervalSet.Builder().build() ).isSameAs( IntervalSet.EMPTY );
+        assertThat( set( 3, 3 ) ).isEqualTo( IntervalSet.EMPTY );
+    }
+
+    @Test
+    public void testContains()
+    {
+        final IntervalSet set = set( 1, 3, 5, 6 );
+        assertThat( set.contains( 0 ) ).isFalse();
+        assertThat( set.contains( 1 ) ).isTrue();
+        assertThat( set.contains( 2 ) ).isTrue();
+        assertThat( set.contains( 3 ) ).isFalse();
+        assertThat( set.contains( 5 ) ).isTrue();
+        assertThat( set.contains( 6 ) ).isFalse();
+        assertThat( IntervalSet.EMPTY.contains( 1 ) ).isFalse();
+    }
+
+    @Test
+    public void testSetOperations()
+    {
+        final IntervalSet a = set( 1, 5, 8, 10 );
+        final IntervalSet b = set( 3, 9, 12, 13 );
+        assertThat( a.union( b ) ).isEqualTo( set( 1, 10, 12, 13 ) );
+        assertThat( a.intersection( b ) ).isEqualTo( set( 3, 5, 8, 9 ) );
+        assertThat( a.difference( b ) ).isEqualTo( set( 1, 3, 9, 10 ) );
+        assertThat( b.difference( a ) ).isEqualTo( set( 5, 8, 12, 13 ) );
+        assertThat( set( 1, 10 ).difference( set( 2, 3, 5, 6 ) ) ).isEqualTo( set( 1, 2, 3, 5, 6, 10 ) );
+        assertThat( a.union( IntervalSet.EMPTY ) ).isEqualTo( a );
+        assertThat( a.intersection( IntervalSet.EMPTY ) ).isEqualTo( IntervalSet.EMPTY );
+        assertThat( a.difference( a ) ).isEqualTo( IntervalSet.EMPTY );
+    }
+
+    @Test
+    public void testWithConcurrency()
+    {
+        final IntervalSet.Builder builder = new IntervalSet.Builder()
+            .add( 0, 10 )
+            .add( 2, 6 )
+            .add( 4, 8 )
+            .add( 10, 12 );
+        assertThat( builder.withConcurrency( 1 ) ).isEqualTo( IntervalSet.of( 0, 12 ) );
+        assertThat( builder.withConcurrency( 2 ) ).isEqualTo( IntervalSet.of( 2, 8 ) );
+        assertThat( builder.withConcurrency( 3 ) ).isEqualTo( IntervalSet.of( 4, 6 ) );
+        assertThat( builder.withConcurrency( 4 ) ).isEqualTo( IntervalSet.EMPTY );
+        // intervals merely touching each other do not run concurrently
+        assertThat( new IntervalSet.Builder().add( 0, 2 ).add( 2, 4 ).withConcurrency( 2 ) ).isEqualTo( IntervalSet.EMPTY );
+    }
+
+    @Test
+    public void testSweep()
+    {
+        final List<String> changes = new ArrayList<>();
+        new IntervalSet.Builder()
+            .add( 0, 10 )
+            .add( 2, 6 )
+            .add( 6, 8 )
+            .add( 10, 12 )
+            .add( 15, 15 )
+            .sweep( (time, count) -> changes.add( time + "=" + count ) );
+        assertThat( changes ).containsExactly( "0=1", "2=2", "8=1", "12=0" );
+    }
+
+    @Test
+    public void testMatchesBruteForce()
+    {
+        final Random rnd = new Random( 0xdeadbeef );
+        for ( int run = 0; run < 200; run++ )
+        {
+            final int[] countA = new int[200];
+            final int[] countB = new int[200];
+            final IntervalSet.Builder builderA = randomIntervals( rnd, countA );
+            final IntervalSet.Builder builderB = randomIntervals( rnd, countB );
+            final IntervalSet a = builderA.build();
+            final IntervalSet b = builderB.build();
+            final int k = 1 + rnd.nextInt( 4 );
+
+            final IntervalSet union = a.union( b );
+            final IntervalSet intersection = a.intersection( b );
+            final IntervalSet difference = a.difference( b );
+            final IntervalSet concurrent = builderA.withConcurrency( k );
+            for ( int t = 0; t < countA.length; t++ )
+            {
+                assertThat( a.contains( t ) ).isEqualTo( countA[t] > 0 );
+                assertThat( union.contains( t ) ).isEqualTo( countA[t] > 0 || countB[t] > 0 );
+                assertThat( intersection.contains( t ) ).isEqualTo( countA[t] > 0 && countB[t] > 0 );
+                assertThat( difference.contains( t ) ).isEqualTo( countA[t] > 0 && countB[t] == 0 );
+                assertThat( concurrent.contains( t ) ).isEqualTo( countA[t] >= k );
+            }
+            assertThat( builderA.coverage() ).isEqualTo( a.coverage() );
+        }
+    }
+
+    private static IntervalSet.Builder randomIntervals(Random rnd, int[] countAt)
+    {
+        final IntervalSet.Builder builder = new IntervalSet.Builder();
+        final int count = rnd.nextInt( 20 );
+        for ( int i = 0; i < count; i++ )
+        {
+            final int start = rnd.nextInt( 150 );
+            final int end = start + rnd.nextInt( 50 );
+            builder.add( start, end );
+            for ( int t = start; t < end; t++ ) {
+                countAt[t]++;
+            }
+        }
+        return builder;
+    }
+
+    private static IntervalSet set(long... bounds)
+    {
+        final IntervalSet.Builder builder = new IntervalSet.Builder();
+        for ( int i = 0; i < bounds.length; i += 2 ) {
+            builder.add( bounds[i], bounds[i + 1] );
+        }
+        return builder.build();
+    }
+}
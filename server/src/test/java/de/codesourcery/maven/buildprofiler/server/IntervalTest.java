@@ -17,7 +17,9 @@ package de.codesourcery.maven.buildprofiler.server;
 
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Random;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -48,6 +50,65 @@ class IntervalTest
         }
     }
 
+    @Test
+    public void testMergeIfPossibleMergesTransitively()
+    {
+        // (2,6) bridges the gap between the other two intervals
+        final List<LongInterval> input = List.of( iv( 1, 3 ), iv( 5, 7 ), iv( 2, 6 ) );
+        assertThat( LongInterval.mergeIfPossible( input ) ).containsExactly( iv( 1, 7 ) );
+        // input is left untouched
+        assertThat( input ).containsExactly( iv( 1, 3 ), iv( 5, 7 ), iv( 2, 6 ) );
+    }
+
+    @Test
+    public void testMergeIfPossibleReturnsIntervalsOrderedByStart()
+    {
+        final List<LongInterval> result = LongInterval.mergeIfPossible( List.of( iv( 10, 12 ), iv( 1, 2 ), iv( 5, 8 ), iv( 6, 7 ) ) );
+        assertThat( result ).containsExactly( iv( 1, 2 ), iv( 5, 8 ), iv( 10, 12 ) );
+        assertThat( LongInterval.mergeIfPossible( List.of() ) ).isEmpty();
+    }
+
+    @Test
+    public void testMergeIfPossibleMergesAdjacentIntervals()
+    {
+        assertThat( LongInterval.mergeIfPossible( List.of( iv( 2, 3 ), iv( 1, 2 ) ) ) ).containsExactly( iv( 1, 3 ) );
+        assertThat( LongInterval.mergeIfPossible( List.of( iv( 1, 3 ), iv( 3, 3 ) ) ) ).containsExactly( iv( 1, 3 ) );
+        assertThat( LongInterval.mergeIfPossible( List.of( iv( 5, 5 ) ) ) ).isEmpty();
+    }
+
+    @Test
+    public void testUnionLengthMatchesBruteForce()
+    {
+        final Random rnd = new Random( 0xdeadbeef );
+        for ( int run = 0; run < 200; run++ )
+        {
+            final int count = rnd.nextInt( 50 );
+            final List<LongInterval> intervals = new ArrayList<>();
+            final IntervalSet.Builder builder = new IntervalSet.Builder();
+            final boolean[] covered = new boolean[200];
+            for ( int i = 0; i < count; i++ )
+            {
+                final int start = rnd.nextInt( 150 );
+                final int end = start + rnd.nextInt( 50 );
+                intervals.add( iv( start, end ) );
+                builder.add( start, end );
+                for ( int t = start; t < end; t++ ) {
+                    covered[t] = true;
+                }
+            }
+            int expected = 0;
+            for ( boolean b : covered ) {
+                expected += b ? 1 : 0;
+            }
+            final List<LongInterval> union = LongInterval.mergeIfPossible( intervals );
+            for ( int i = 1; i < union.size(); i++ ) {
+                assertThat( union.get( i ).getStart() ).isGreaterThan( union.get( i - 1 ).getEnd() );
+            }
+            assertThat( union.stream().mapToLong( LongInterval::length ).sum() ).isEqualTo( expected );
+            assertThat( builder.coverage() ).isEqualTo( expected );
+        }
+    }
+
     @Test
     public void testMerge()
     {
@@ -0,0 +1,188 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import org.junit.jupiter.api.Test;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ReadListener;
+import javax.servlet.ServletException;
+import javax.servlet.ServletInputStream;
+import javax.servlet.ServletRequest;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.zip.GZIPOutputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestDecompressionFilterTest
+{
+    private static final String BODY = "{\"buildId\" : \"42\"}";
+
+    private final RequestDecompressionFilter filter = new RequestDecompressionFilter( 1024 );
+
+    private final AtomicInteger errorStatus = new AtomicInteger();
+    private final HttpServletResponse response = (HttpServletResponse) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { HttpServletResponse.class },
+        (proxy, method, args) -> switch( method.getName() )
+        {
+            case "sendError" -> {
+                errorStatus.set( (Integer) args[0] );
+                yield null;
+            }
+            case "isCommitted" -> false;
+            default -> throw new UnsupportedOperationException( method.getName() );
+        } );
+
+    @Test
+    void testGzip() throws Exception
+    {
+        assertThat( readBody( request( "gzip", gzip( BODY ) ) ) ).isEqualTo( BODY );
+        assertThat( readBody( request( "x-gzip", gzip( BODY ) ) ) ).isEqualTo( BODY );
+        assertThat( errorStatus.get() ).isZero();
+    }
+
+    @Test
+    void testUncompressed() throws Exception
+    {
+        final HttpServletRequest request = request( null, BODY.getBytes( StandardCharsets.UTF_8 ) );
+        final AtomicReference<ServletRequest> passedOn = new AtomicReference<>();
+        filter.doFilter( request, response, (req, resp) -> passedOn.set( req ) );
+        assertThat( passedOn.get() ).isSameAs( request );
+
+        assertThat( readBody( request( "identity", BODY.getBytes( StandardCharsets.UTF_8 ) ) ) ).isEqualTo( BODY );
+    }
+
+    @Test
+    void testUnsupportedEncoding() throws Exception
+    {
+        final AtomicReference<ServletRequest> passedOn = new AtomicReference<>();
+        filter.doFilter( request( "br", BODY.getBytes( StandardCharsets.UTF_8 ) ), response, (req, resp) -> passedOn.set( req ) );
+        assertThat( passedOn.get() ).isNull();
+        assertThat( errorStatus.get() ).isEqualTo( HttpServletResponse.SC_UNSUPPORTED_MEDIA_TYPE );
+    }
+
+    @Test
+    void testHidesContentEncodingAndLength() throws Exception
+    {
+        final AtomicReference<HttpServletRequest> passedOn = new AtomicReference<>();
+        filter.doFilter( request( "gzip", gzip( BODY ) ), response, (req, resp) -> passedOn.set( (HttpServletRequest) req ) );
+
+        final HttpServletRequest wrapped = passedOn.get();
+        assertThat( wrapped.getHeader( "Content-Encoding" ) ).isNull();
+        assertThat( wrapped.getHeader( "content-length" ) ).isNull();
+        assertThat( wrapped.getHeaders( "Content-Encoding" ).hasMoreElements() ).isFalse();
+        assertThat( Collections.list( wrapped.getHeaderNames() ) ).containsExactly( "Content-Type" );
+        assertThat( wrapped.getHeader( "Content-Type" ) ).isEqualTo( "application/json" );
+        assertThat( wrapped.getContentLength() ).isEqualTo( -1 );
+        assertThat( wrapped.getContentLengthLong() ).isEqualTo( -1 );
+    }
+
+    @Test
+    void testSizeLimit() throws Exception
+    {
+        // compresses to a few bytes but exceeds the limit when decompressed
+        final byte[] bomb = gzip( "x".repeat( 100_000 ) );
+        assertThat( bomb.length ).isLessThan( 1024 );
+
+        filter.doFilter( request( "gzip", bomb ), response, (req, resp) -> {
+            try ( InputStream in = req.getInputStream() ) {
+                in.readAllBytes();
+            }
+        } );
+        assertThat( errorStatus.get() ).isEqualTo( HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE );
+
+        // also when the exception got wrapped by the servlet
+        errorStatus.set( 0 );
+        filter.doFilter( request( "gzip", bomb ), response, (req, resp) -> {
+            try {
+                req.getReader().read( new char[100_000] );
+            } catch( RuntimeException e ) {
+                throw new ServletException( e );
+            }
+        } );
+        assertThat( errorStatus.get() ).isEqualTo( HttpServletResponse.SC_REQUEST_ENTITY_TOO_LARGE );
+
+        // exactly at the limit
+        errorStatus.set( 0 );
+        assertThat( readBody( request( "gzip", gzip( "x".repeat( 1024 ) ) ) ) ).hasSize( 1024 );
+        assertThat( errorStatus.get() ).isZero();
+    }
+
+    private String readBody(HttpServletRequest request) throws IOException, ServletException
+    {
+        final AtomicReference<String> result = new AtomicReference<>();
+        final FilterChain chain = (req, resp) -> {
+            try ( InputStream in = req.getInputStream() ) {
+                result.set( new String( in.readAllBytes(), StandardCharsets.UTF_8 ) );
+            }
+        };
+        filter.doFilter( request, response, chain );
+        return result.get();
+    }
+
+    private static byte[] gzip(String text) throws IOException
+    {
+        final ByteArrayOutputStream result = new ByteArrayOutputStream();
+        try ( OutputStream out = new GZIPOutputStream( result ) ) {
+            out.write( text.getBytes( StandardCharsets.UTF_8 ) );
+        }
+        return result.toByteArray();
+    }
+
+    private static HttpServletRequest request(String contentEncoding, byte[] body)
+    {
+        final Map<String, String> headers = new LinkedHashMap<>();
+        headers.put( "Content-Type", "application/json" );
+        headers.put( "Content-Length", Integer.toString( body.length ) );
+        if ( contentEncoding != null ) {
+            headers.put( "Content-Encoding", contentEncoding );
+        }
+        final InputStream in = new ByteArrayInputStream( body );
+        final ServletInputStream servletIn = new ServletInputStream()
+        {
+            @Override public int read() throws IOException {return in.read();}
+            @Override public int read(byte[] b, int off, int len) throws IOException {return in.read( b, off, len );}
+            @Override public boolean isFinished() {return false;}
+            @Override public boolean isReady() {return true;}
+            @Override public void setReadListener(ReadListener readListener) {throw new UnsupportedOperationException();}
+        };
+        return (HttpServletRequest) Proxy.newProxyInstance( RequestDecompressionFilterTest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+            (proxy, method, args) -> switch( method.getName() )
+            {
+                case "getHeader" -> headers.entrySet().stream().filter( e -> e.getKey().equalsIgnoreCase( (String) args[0] ) ).map( Map.Entry::getValue ).findFirst().orElse( null );
+                case "getHeaders" -> Collections.enumeration( headers.entrySet().stream().filter( e -> e.getKey().equalsIgnoreCase( (String) args[0] ) ).map( Map.Entry::getValue ).toList() );
+                case "getHeaderNames" -> Collections.enumeration( headers.keySet() );
+                case "getInputStream" -> servletIn;
+                case "getContentLength" -> body.length;
+                case "getContentLengthLong" -> (long) body.length;
+                case "getCharacterEncoding" -> null;
+                case "getRemoteAddr" -> "127.0.0.1";
+                default -> throw new UnsupportedOperationException( method.getName() );
+            } );
+    }
+}
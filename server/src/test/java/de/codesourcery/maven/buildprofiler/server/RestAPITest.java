@@ -0,0 +1,109 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server;
+
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.server.db.DbService;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.ReflectionUtils;
+
+import javax.servlet.ReadListener;
+import javax.servlet.ServletInputStream;
+import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RestAPITest
+{
+    private final List<BuildResult> stored = Collections.synchronizedList( new ArrayList<>() );
+
+    private static String json(String gitHash)
+    {
+        return "{ \"jsonSyntaxVersion\" : 1, \"buildStartTime\" : 1000, \"buildDurationMillis\" : 2000, " +
+            "\"branchName\" : \"main\", \"projectName\" : \"project\", \"hostIP\" : \"127.0.0.1\", \"maxConcurrency\" : 1, " +
+            "\"jvmVersion\" : \"17\", \"availableProcessors\" : 4, " + ( gitHash == null ? "" : "\"gitHash\" : \"" + gitHash + "\", " ) +
+            "\"systemProperties\" : {}, \"environment\" : {}, \"coords\" : [ { \"groupId\" : \"g\", \"artifactId\" : \"a\", \"version\" : \"1.0\" } ], " +
+            "\"records\" : [ { \"artifactIdx\" : 0, \"pluginIdx\" : 0, \"phase\" : \"compile\", \"startMillis\" : 1000, \"endMillis\" : 1500 } ] }";
+    }
+
+    @Test
+    void testBatchWithoutGitHash() throws Exception
+    {
+        final String body = json( null ) + "\n" + json( "deadbeef" ) + "\n" + "{ \"jsonSyntaxVersion\" : 1 }\n";
+
+        final List<RestAPI.BatchItemResult> results = api().receiveBatch( request( body ) );
+
+        assertThat( results ).extracting( RestAPI.BatchItemResult::line ).containsExactly( 1, 2, 3 );
+        assertThat( results ).extracting( RestAPI.BatchItemResult::status ).containsExactly(
+            RestAPI.BatchItemStatus.STORED, RestAPI.BatchItemStatus.STORED, RestAPI.BatchItemStatus.REJECTED );
+        assertThat( stored ).extracting( x -> x.gitHash ).containsExactly( null, "deadbeef" );
+        assertThat( stored ).allSatisfy( x -> assertThat( x.records ).hasSize( 1 ) );
+    }
+
+    private RestAPI api()
+    {
+        final DbService db = (DbService) Proxy.newProxyInstance( getClass().getClassLoader(), new Class<?>[] { DbService.class },
+            (proxy, method, args) -> switch( method.getName() )
+            {
+                case "save" -> {
+                    @SuppressWarnings("unchecked") final List<BuildResult> results = (List<BuildResult>) args[0];
+                    stored.addAll( results );
+                    yield results.stream().map( x -> DbService.SaveResult.STORED ).toList();
+                }
+                default -> throw new UnsupportedOperationException( method.getName() );
+            } );
+        final RestAPI api = new RestAPI();
+        setField( api, "dao", db );
+        setField( api, "maxBuildsPerTransaction", 20 );
+        return api;
+    }
+
+    private static void setField(Object target, String name, Object value)
+    {
+        final Field field = ReflectionUtils.findField( target.getClass(), name );
+        ReflectionUtils.makeAccessible( field );
+        ReflectionUtils.setField( field, target, value );
+    }
+
+    private static HttpServletRequest request(String body)
+    {
+        final InputStream in = new ByteArrayInputStream( body.getBytes( StandardCharsets.UTF_8 ) );
+        final ServletInputStream servletIn = new ServletInputStream()
+        {
+            @Override public int read() throws IOException {return in.read();}
+            @Override public int read(byte[] b, int off, int len) throws IOException {return in.read( b, off, len );}
+            @Override public boolean isFinished() {return false;}
+            @Override public boolean isReady() {return true;}
+            @Override public void setReadListener(ReadListener readListener) {throw new UnsupportedOperationException();}
+        };
+        return (HttpServletRequest) Proxy.newProxyInstance( RestAPITest.class.getClassLoader(), new Class<?>[] { HttpServletRequest.class },
+            (proxy, method, args) -> switch( method.getName() )
+            {
+                case "getInputStream" -> servletIn;
+                case "getRemoteAddr", "getRemoteHost" -> "127.0.0.1";
+                default -> throw new UnsupportedOperationException( method.getName() );
+            } );
+    }
+}
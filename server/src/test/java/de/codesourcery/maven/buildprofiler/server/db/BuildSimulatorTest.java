@@ -0,0 +1,163 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.BuildSimulation;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.server.model.ThreadCount;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BuildSimulatorTest
+{
+    private static final ZonedDateTime START = ZonedDateTime.of( 2023, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC );
+
+    private static Build build(long durationMillis)
+    {
+        final Build b = new Build();
+        b.id = 42;
+        b.startTime = START;
+        b.duration = Duration.ofMillis( durationMillis );
+        b.availableProcessors = 4;
+        b.maxConcurrency = 4;
+        return b;
+    }
+
+    private static Record module(long artifactId, long startOffsetMillis, long durationMillis)
+    {
+        final Record r = new Record();
+        r.buildId = 42;
+        r.artifactId = artifactId;
+        r.artifactVersion = "1.0";
+        r.setTime( START.plus( Duration.ofMillis( startOffsetMillis ) ), Duration.ofMillis( durationMillis ) );
+        return r;
+    }
+
+    @Test
+    public void testSequentialBuild()
+    {
+        final BuildSimulator simulator = BuildSimulator.create( build( 110 ),
+            List.of( module( 2, 30, 40 ), module( 1, 5, 25 ), module( 3, 70, 30 ) ) );
+
+        // modules depend on each other, more threads do not help
+        assertThat( simulator.predictDuration( 1 ) ).isEqualTo( Duration.ofMillis( 110 ) );
+        assertThat( simulator.predictDuration( 4 ) ).isEqualTo( Duration.ofMillis( 110 ) );
+    }
+
+    @Test
+    public void testIndependentModules()
+    {
+        final BuildSimulator simulator = BuildSimulator.create( build( 12 ),
+            List.of( module( 1, 0, 10 ), module( 2, 0, 10 ), module( 3, 0, 10 ), module( 4, 0, 10 ) ) );
+
+        assertThat( simulator.predictDuration( 1 ) ).isEqualTo( Duration.ofMillis( 42 ) );
+        assertThat( simulator.predictDuration( 2 ) ).isEqualTo( Duration.ofMillis( 22 ) );
+        assertThat( simulator.predictDuration( 3 ) ).isEqualTo( Duration.ofMillis( 22 ) );
+        assertThat( simulator.predictDuration( 4 ) ).isEqualTo( Duration.ofMillis( 12 ) );
+        assertThat( simulator.predictDuration( 8 ) ).isEqualTo( Duration.ofMillis( 12 ) );
+    }
+
+    @Test
+    public void testParallelBuild()
+    {
+        // 1 -> (2 | 3) -> 4, 5 is independent of all others
+        final BuildSimulator simulator = BuildSimulator.create( build( 100 ), List.of(
+            module( 1, 0, 10 ),
+            module( 2, 10, 20 ),
+            module( 3, 12, 50 ),
+            module( 4, 65, 30 ),
+            module( 5, 0, 80 ) ) );
+
+        assertThat( simulator.predictDuration( 1 ) ).isEqualTo( Duration.ofMillis( 195 ) );
+        // 1 and 5 start right away, 2 after 1 and 3 after 2, then 4 after 3 and 5
+        assertThat( simulator.predictDuration( 2 ) ).isEqualTo( Duration.ofMillis( 115 ) );
+        // without the delays between the modules
+        assertThat( simulator.predictDuration( 3 ) ).isEqualTo( Duration.ofMillis( 95 ) );
+    }
+
+    @Test
+    public void testModulesWithoutDuration()
+    {
+        final BuildSimulator simulator = BuildSimulator.create( build( 10 ),
+            List.of( module( 1, 0, 0 ), module( 2, 0, 0 ), module( 3, 0, 10 ) ) );
+        assertThat( simulator.predictDuration( 1 ) ).isEqualTo( Duration.ofMillis( 10 ) );
+    }
+
+    @Test
+    public void testNoModules()
+    {
+        final BuildSimulator simulator = BuildSimulator.create( build( 10 ), List.of() );
+        assertThat( simulator.getModuleCount() ).isZero();
+        assertThat( simulator.predictDuration( 4 ) ).isEqualTo( Duration.ofMillis( 10 ) );
+    }
+
+    @Test
+    public void testSimulateResolvesThreadsPerCore()
+    {
+        final Build build = build( 12 );
+        final BuildSimulator simulator = BuildSimulator.create( build,
+            List.of( module( 1, 0, 10 ), module( 2, 0, 10 ), module( 3, 0, 10 ), module( 4, 0, 10 ) ) );
+
+        final BuildSimulation simulation = simulator.simulate( build, List.of( ThreadCount.of( 1 ), ThreadCount.perCore( 0.5f ), ThreadCount.perCore( 1 ) ) );
+        assertThat( simulation.buildId ).isEqualTo( 42 );
+        assertThat( simulation.predictedDurations.keySet() ).containsExactly( ThreadCount.of( 1 ), ThreadCount.perCore( 0.5f ), ThreadCount.perCore( 1 ) );
+        assertThat( simulation.predictedDuration( ThreadCount.of( 1 ) ) ).isEqualTo( Duration.ofMillis( 42 ) );
+        assertThat( simulation.predictedDuration( ThreadCount.perCore( 0.5f ) ) ).isEqualTo( Duration.ofMillis( 22 ) );
+        assertThat( simulation.predictedDuration( ThreadCount.perCore( 1 ) ) ).isEqualTo( Duration.ofMillis( 12 ) );
+    }
+
+    @Test
+    public void testReplay()
+    {
+        final Random rnd = new Random( 0xdeadbeef );
+        for ( int run = 0; run < 200; run++ )
+        {
+            // random timeline where each module starts after some randomly picked modules finished
+            final int count = 1 + rnd.nextInt( 30 );
+            final List<Record> modules = new ArrayList<>();
+            long lastEnd = 0;
+            for ( int i = 0; i < count; i++ )
+            {
+                long start = 0;
+                for ( Record other : modules )
+                {
+                    if ( rnd.nextInt( 4 ) == 0 ) {
+                        start = Math.max( start, other.endTimeMillis() - START.toInstant().toEpochMilli() );
+                    }
+                }
+                start += rnd.nextInt( 5 );
+                final Record module = module( i, start, rnd.nextInt( 100 ) );
+                modules.add( module );
+                lastEnd = Math.max( lastEnd, start + ( module.endTimeMillis() - module.startTimeMillis() ) );
+            }
+            final BuildSimulator simulator = BuildSimulator.create( build( lastEnd ), modules );
+
+            final long sequential = modules.stream().mapToLong( x -> x.endTimeMillis() - x.startTimeMillis() ).sum();
+            final long firstStart = modules.stream().mapToLong( Record::startTimeMillis ).min().orElseThrow() - START.toInstant().toEpochMilli();
+            assertThat( simulator.makespan( 1 ) ).isEqualTo( sequential );
+            assertThat( simulator.makespan( count ) ).isLessThanOrEqualTo( lastEnd - firstStart );
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.CriticalPath;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CriticalPathAnalyzerTest
+{
+    private static final ZonedDateTime START = ZonedDateTime.of( 2023, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC );
+
+    private static Build build(long durationMillis)
+    {
+        final Build b = new Build();
+        b.id = 42;
+        b.startTime = START;
+        b.duration = Duration.ofMillis( durationMillis );
+        return b;
+    }
+
+    private static Record module(long artifactId, long startOffsetMillis, long durationMillis)
+    {
+        final Record r = new Record();
+        r.buildId = 42;
+        r.artifactId = artifactId;
+        r.artifactVersion = "1.0";
+        r.setTime( START.plus( Duration.ofMillis( startOffsetMillis ) ), Duration.ofMillis( durationMillis ) );
+        return r;
+    }
+
+    @Test
+    public void testSequentialBuild()
+    {
+        final CriticalPath path = CriticalPathAnalyzer.analyze( build( 100 ),
+            List.of( module( 2, 30, 40 ), module( 1, 5, 25 ), module( 3, 70, 30 ) ) );
+
+        assertThat( path.buildId ).isEqualTo( 42 );
+        assertThat( path.steps ).extracting( x -> x.artifactId ).containsExactly( 1L, 2L, 3L );
+        assertThat( path.steps ).extracting( x -> x.waitMillis ).containsExactly( 5L, 0L, 0L );
+        assertThat( path.moduleTime() ).isEqualTo( Duration.ofMillis( 95 ) );
+        assertThat( path.waitTime() ).isEqualTo( Duration.ofMillis( 5 ) );
+    }
+
+    @Test
+    public void testParallelBuild()
+    {
+        // 1 -> (2 | 3) -> 4 with 3 taking longer than 2, 5 is independent of all others
+        final CriticalPath path = CriticalPathAnalyzer.analyze( build( 100 ), List.of(
+            module( 1, 0, 10 ),
+            module( 2, 10, 20 ),
+            module( 3, 12, 50 ),
+            module( 4, 65, 30 ),
+            module( 5, 0, 80 ) ) );
+
+        assertThat( path.steps ).extracting( x -> x.artifactId ).containsExactly( 1L, 3L, 4L );
+        assertThat( path.steps ).extracting( x -> x.waitMillis ).containsExactly( 0L, 2L, 3L );
+    }
+
+    @Test
+    public void testModulesWithoutDuration()
+    {
+        final CriticalPath path = CriticalPathAnalyzer.analyze( build( 10 ),
+            List.of( module( 1, 0, 0 ), module( 2, 0, 0 ), module( 3, 0, 10 ) ) );
+        assertThat( path.steps ).hasSize( 3 );
+        assertThat( path.steps.get( 2 ).artifactId ).isEqualTo( 3L );
+    }
+
+    @Test
+    public void testNoModules()
+    {
+        final CriticalPath path = CriticalPathAnalyzer.analyze( build( 10 ), List.of() );
+        assertThat( path.steps ).isEmpty();
+        assertThat( path.moduleTime() ).isEqualTo( Duration.ZERO );
+    }
+}
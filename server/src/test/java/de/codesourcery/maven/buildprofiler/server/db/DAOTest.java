@@ -0,0 +1,260 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.server.model.Artifact;
+import de.codesourcery.maven.buildprofiler.server.model.ArtifactId;
+import de.codesourcery.maven.buildprofiler.server.model.Host;
+import de.codesourcery.maven.buildprofiler.server.model.LifecyclePhase;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.sql.SQLException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DAOTest
+{
+    private static TestDatabase db;
+
+    private DAO dao;
+
+    @BeforeAll
+    static void startDatabase() throws IOException, SQLException
+    {
+        db = TestDatabase.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException
+    {
+        if ( db != null ) {
+            db.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp()
+    {
+        db.clear();
+        dao = db.newDAO();
+    }
+
+    private static Map<ArtifactId, Long> ids(List<Artifact> artifacts)
+    {
+        return artifacts.stream().collect( Collectors.toMap( Artifact::toArtifactId, x -> x.id ) );
+    }
+
+    private static int count(String table)
+    {
+        return db.getJdbcTemplate().queryForObject( "SELECT count(*) FROM profiler." + table, Integer.class );
+    }
+
+    @Test
+    public void testGetOrCreateArtifactsReturnsExistingRows()
+    {
+        final ArtifactId a = new ArtifactId( "g", "a" );
+        final ArtifactId b = new ArtifactId( "g", "b" );
+        final ArtifactId c = new ArtifactId( "h", "a" );
+
+        final Map<ArtifactId, Long> first = ids( dao.getOrCreateArtifacts( Set.of( a, b ) ) );
+        assertThat( first ).containsOnlyKeys( a, b );
+
+        final Map<ArtifactId, Long> second = ids( dao.getOrCreateArtifacts( Set.of( a, b, c ) ) );
+        assertThat( second ).containsOnlyKeys( a, b, c );
+        assertThat( second ).containsEntry( a, first.get( a ) ).containsEntry( b, first.get( b ) );
+        assertThat( second.get( c ) ).isNotIn( first.values() );
+        assertThat( count( "artifacts" ) ).isEqualTo( 3 );
+    }
+
+    @Test
+    public void testGetOrCreatePhasesReturnsExistingRows()
+    {
+        final Map<String, LifecyclePhase> first = dao.getOrCreatePhases( Set.of( "compile", "test" ) );
+        assertThat( first ).containsOnlyKeys( "compile", "test" );
+
+        final Map<String, LifecyclePhase> second = dao.getOrCreatePhases( Set.of( "compile", "test", "package" ) );
+        assertThat( second ).containsOnlyKeys( "compile", "test", "package" );
+        assertThat( second.get( "compile" ).phaseId ).isEqualTo( first.get( "compile" ).phaseId );
+        assertThat( second.get( "test" ).phaseId ).isEqualTo( first.get( "test" ).phaseId );
+        assertThat( count( "phases" ) ).isEqualTo( 3 );
+    }
+
+    @Test
+    public void testGetOrCreateHostReturnsExistingRow() throws Exception
+    {
+        final InetAddress ip = InetAddress.getByName( "10.0.0.1" );
+        final Host first = dao.getOrCreateHost( ip, "first" );
+        final Host second = dao.getOrCreateHost( ip, "second" );
+
+        assertThat( second.hostId ).isEqualTo( first.hostId );
+        // the name of an existing host is left alone
+        assertThat( second.getHostName() ).hasValue( "first" );
+        assertThat( count( "hosts" ) ).isEqualTo( 1 );
+    }
+
+    @Test
+    public void testSaveBuildReferencingTheSameArtifactsAndPhasesRepeatedly() throws Exception
+    {
+        final BuildResult result = new BuildResult();
+        result.jsonSyntaxVersion = 1;
+        result.buildId = UUID.randomUUID().toString();
+        result.buildStartTime = System.currentTimeMillis();
+        result.buildDurationMillis = 1000;
+        result.hostIP = "10.0.0.2";
+        result.projectName = "project";
+        result.branchName = "main";
+        result.jvmVersion = "17";
+        result.gitHash = "deadbeef";
+        result.maxConcurrency = 1;
+        result.availableProcessors = 4;
+        result.systemProperties = Map.of();
+        result.environment = Map.of();
+        // same artifact in different versions, used both as module and as plugin
+        result.coords = List.of( new ArtifactCoords( "g", "a", "1.0" ), new ArtifactCoords( "g", "a", "2.0" ), new ArtifactCoords( "g", "p", "1.0" ) );
+        result.records = new ArrayList<>();
+        for ( int i = 0; i < 6; i++ )
+        {
+            final BuildResult.Record record = new BuildResult.Record();
+            record.artifactIdx = i % 2;
+            record.pluginIdx = i % 3;
+            record.phase = i < 3 ? "compile" : "test";
+            record.startMillis = result.buildStartTime + i * 10;
+            record.endMillis = record.startMillis + 15;
+            result.records.add( record );
+        }
+
+        final DbServiceImpl service = db.newDbService();
+        db.getTransactionTemplate().executeWithoutResult( status -> {
+            try
+            {
+                service.save( List.of( result ) );
+            }
+            catch( Exception e )
+            {
+                throw new RuntimeException( e );
+            }
+        } );
+
+        assertThat( count( "artifacts" ) ).isEqualTo( 2 );
+        assertThat( count( "phases" ) ).isEqualTo( 2 );
+        assertThat( count( "hosts" ) ).isEqualTo( 1 );
+        assertThat( count( "records" ) ).isEqualTo( 6 );
+    }
+
+    @Test
+    public void testConcurrentTransactionsInsertingTheSameRows() throws Exception
+    {
+        final ArtifactId artifact = new ArtifactId( "g", "a" );
+        final InetAddress ip = InetAddress.getByName( "10.0.0.3" );
+        final Function<DAO, List<Long>> getOrCreate = d -> List.of(
+            d.getOrCreateArtifacts( Set.of( artifact ) ).get( 0 ).id,
+            d.getOrCreatePhases( Set.of( "compile" ) ).get( "compile" ).phaseId,
+            d.getOrCreateHost( ip, null ).hostId );
+
+        final CountDownLatch inserted = new CountDownLatch( 1 );
+        final CountDownLatch commit = new CountDownLatch( 1 );
+        final ExecutorService executor = Executors.newFixedThreadPool( 2 );
+        try
+        {
+            final Future<List<Long>> first = executor.submit( () -> db.getTransactionTemplate().execute( status -> {
+                final List<Long> ids = getOrCreate.apply( dao );
+                inserted.countDown();
+                await( commit );
+                return ids;
+            } ) );
+            assertThat( inserted.await( 10, TimeUnit.SECONDS ) ).isTrue();
+
+            final Future<List<Long>> second = executor.submit( () -> db.getTransactionTemplate().execute( status -> getOrCreate.apply( dao ) ) );
+            // the second transaction has to wait for the first one to commit its rows
+            awaitBlockedTransaction();
+            commit.countDown();
+
+            assertThat( second.get( 10, TimeUnit.SECONDS ) ).isEqualTo( first.get( 10, TimeUnit.SECONDS ) );
+        }
+        finally
+        {
+            commit.countDown();
+            executor.shutdownNow();
+        }
+        assertThat( count( "artifacts" ) ).isEqualTo( 1 );
+        assertThat( count( "phases" ) ).isEqualTo( 1 );
+        assertThat( count( "hosts" ) ).isEqualTo( 1 );
+    }
+
+    private static void await(CountDownLatch latch)
+    {
+        try
+        {
+            if ( ! latch.await( 10, TimeUnit.SECONDS ) ) {
+                throw new IllegalStateException( "Timed out" );
+            }
+        }
+        catch( InterruptedException e )
+        {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException( e );
+        }
+    }
+
+    private static void awaitBlockedTransaction() throws InterruptedException
+    {
+        final long deadline = System.currentTimeMillis() + 10_000;
+        while ( db.getJdbcTemplate().queryForObject( "SELECT count(*) FROM pg_stat_activity WHERE wait_event_type = 'Lock'", Integer.class ) == 0 )
+        {
+            assertThat( System.currentTimeMillis() ).as( "waiting for a blocked transaction" ).isLessThan( deadline );
+            Thread.sleep( 10 );
+        }
+    }
+    @Test
+    public void testCopyRow()
+    {
+        final Record r = new Record();
+        r.buildId = 1;
+        r.phaseId = 2;
+        r.pluginArtifactId = 3;
+        r.pluginVersion = "1.0\t\\x";
+        r.artifactId = 4;
+        r.artifactVersion = "2.0\r\n";
+        r.startTime = ZonedDateTime.of( 2023, 3, 4, 5, 6, 7, 8_000_000, ZoneOffset.ofHours( 1 ) );
+        r.endTime = r.startTime.plusSeconds( 1 );
+
+        final StringBuilder buffer = new StringBuilder();
+        DAO.appendCopyRow( r, "2023-03-04 05:00:00.000+01:00", buffer );
+        assertThat( buffer.toString() ).isEqualTo( "1\t2023-03-04 05:00:00.000+01:00\t2\t3\t1.0\\t\\\\x\t4\t2.0\\r\\n\t2023-03-04 05:06:07.008+01:00\t2023-03-04 05:06:08.008+01:00\n" );
+    }
+}
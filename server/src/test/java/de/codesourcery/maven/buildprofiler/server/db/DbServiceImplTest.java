@@ -209,4 +209,42 @@ class DbServiceImplTest
             assertThat( list.stream().filter( x -> x.pluginArtifactId == 1 ).findFirst().get().duration() ).isEqualTo( Duration.ofMillis( 20 ) );
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRollUpMatchesGrouping()
+    {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final List<Record> records = new ArrayList<>();
+        for ( int i = 0; i < 10; i++ )
+        {
+            final Record r = new Record();
+            r.buildId = 42;
+            r.phaseId = i % 3;
+            r.artifactId = i % 4;
+            r.artifactVersion = "1." + i;
+            r.pluginArtifactId = i % 2;
+            r.pluginVersion = "2." + i;
+            r.setTime( now.plusNanos( i * 7_000_000L ), Duration.ofMillis( 5 + i * 3 ) );
+            records.add( r );
+        }
+
+        for ( DbService.Grouping grouping : List.of( DbService.Grouping.PHASE, DbService.Grouping.ARTIFACT, DbService.Grouping.PLUGIN ) )
+        {
+            final List<Record> rollups = DbServiceImpl.rollUp( records, grouping );
+            final List<Record> grouped = new ArrayList<>( records );
+            DbServiceImpl.performGrouping( grouped, grouping );
+
+            assertThat( rollups ).hasSameSizeAs( grouped );
+            for ( Record expected : grouped )
+            {
+                final Record actual = rollups.stream().filter( x -> grouping.canBeMerged( x, expected ) ).findFirst().orElseThrow();
+                assertThat( actual.buildId ).isEqualTo( 42 );
+                assertThat( actual.duration() ).isEqualTo( expected.duration() );
+            }
+        }
+
+        final Record phase0 = DbServiceImpl.rollUp( records, DbService.Grouping.PHASE ).stream().filter( x -> x.phaseId == 0 ).findFirst().orElseThrow();
+        assertThat( phase0.startTime ).isEqualTo( records.get( 0 ).startTime );
+        assertThat( phase0.endTime ).isEqualTo( records.get( 9 ).endTime );
+    }
+}
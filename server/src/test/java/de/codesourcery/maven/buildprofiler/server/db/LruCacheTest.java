@@ -0,0 +1,47 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LruCacheTest
+{
+    @Test
+    public void testEvictsLeastRecentlyUsed()
+    {
+        final LruCache<String, Long> cache = new LruCache<>( 2 );
+        cache.put( "a", 1L );
+        cache.put( "b", 2L );
+        assertThat( cache.get( "a" ) ).contains( 1L );
+
+        cache.put( "c", 3L );
+        assertThat( cache.size() ).isEqualTo( 2 );
+        assertThat( cache.get( "b" ) ).isEmpty();
+        assertThat( cache.getAll( Set.of( "a", "b", "c" ) ) ).containsOnlyKeys( "a", "c" );
+    }
+
+    @Test
+    public void testPutAfterCommitWithoutTransaction()
+    {
+        final LruCache<String, Long> cache = new LruCache<>( 2 );
+        cache.putAfterCommit( "a", 1L );
+        assertThat( cache.get( "a" ) ).contains( 1L );
+    }
+}
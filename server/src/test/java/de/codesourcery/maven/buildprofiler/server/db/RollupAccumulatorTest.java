@@ -0,0 +1,79 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RollupAccumulatorTest
+{
+    private static Record record(long artifactId, String version, ZonedDateTime start, long durationMillis)
+    {
+        final Record r = new Record();
+        r.buildId = 1;
+        r.phaseId = 1;
+        r.pluginArtifactId = 2;
+        r.pluginVersion = "1.0";
+        r.artifactId = artifactId;
+        r.artifactVersion = version;
+        r.setTime( start, Duration.ofMillis( durationMillis ) );
+        return r;
+    }
+
+    @Test
+    public void testBatchesAddUp()
+    {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final Record r1 = record( 1, "1.0", now, 10 );
+        final Record r2 = record( 2, "2.0", now.plusNanos( 5_000_000 ), 10 );
+        final Record r3 = record( 1, "1.1", now.plusNanos( 100_000_000 ), 20 );
+
+        final RollupAccumulator accumulator = new RollupAccumulator();
+        accumulator.add( List.of( r1, r2 ) );
+        accumulator.add( List.of( r3 ) );
+
+        final List<Record> byPhase = accumulator.getRollups( DbService.Grouping.PHASE );
+        assertThat( byPhase ).hasSize( 1 );
+        assertThat( byPhase.get( 0 ).duration() ).isEqualTo( Duration.ofMillis( 35 ) );
+        assertThat( byPhase.get( 0 ).startTime ).isEqualTo( r1.startTime );
+        assertThat( byPhase.get( 0 ).endTime ).isEqualTo( r3.endTime );
+
+        final List<Record> byArtifact = accumulator.getRollups( DbService.Grouping.ARTIFACT );
+        assertThat( byArtifact ).hasSize( 2 );
+        final Record artifact1 = byArtifact.stream().filter( x -> x.artifactId == 1 ).findFirst().orElseThrow();
+        assertThat( artifact1.duration() ).isEqualTo( Duration.ofMillis( 30 ) );
+        // version of the first record, like DbServiceImpl#performGrouping()
+        assertThat( artifact1.artifactVersion ).isEqualTo( "1.0" );
+    }
+
+    @Test
+    public void testZeroLengthRecords()
+    {
+        final ZonedDateTime now = ZonedDateTime.now();
+        final RollupAccumulator accumulator = new RollupAccumulator();
+        accumulator.add( List.of( record( 1, "1.0", now, 0 ), record( 1, "1.0", now.plusSeconds( 1 ), 0 ) ) );
+
+        final List<Record> byArtifact = accumulator.getRollups( DbService.Grouping.ARTIFACT );
+        assertThat( byArtifact ).hasSize( 1 );
+        assertThat( byArtifact.get( 0 ).duration() ).isEqualTo( Duration.ZERO );
+    }
+}
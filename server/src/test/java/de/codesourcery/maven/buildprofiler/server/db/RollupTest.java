@@ -0,0 +1,255 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import de.codesourcery.maven.buildprofiler.common.BuildResult;
+import de.codesourcery.maven.buildprofiler.server.model.Build;
+import de.codesourcery.maven.buildprofiler.server.model.Record;
+import de.codesourcery.maven.buildprofiler.shared.ArtifactCoords;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks that the totals stored when rolling up or downsampling a build
+ * are the same as the ones calculated from its records.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+class RollupTest
+{
+    private static final List<DbService.Grouping> GROUPINGS =
+        List.of( DbService.Grouping.PHASE, DbService.Grouping.ARTIFACT, DbService.Grouping.PLUGIN );
+
+    private static TestDatabase db;
+
+    private DbServiceImpl service;
+    private DAO dao;
+
+    @BeforeAll
+    static void startDatabase() throws IOException, SQLException
+    {
+        db = TestDatabase.start();
+    }
+
+    @AfterAll
+    static void stopDatabase() throws IOException
+    {
+        if ( db != null ) {
+            db.close();
+        }
+    }
+
+    @BeforeEach
+    void setUp()
+    {
+        db.clear();
+        dao = db.newDAO();
+        service = db.newDbService();
+        service.setDao( dao );
+    }
+
+    private static BuildResult createBuildResult()
+    {
+        final BuildResult result = new BuildResult();
+        result.jsonSyntaxVersion = 1;
+        result.buildId = UUID.randomUUID().toString();
+        result.buildStartTime = System.currentTimeMillis();
+        result.buildDurationMillis = 10_000;
+        result.hostIP = "10.0.0.1";
+        result.projectName = "project";
+        result.branchName = "main";
+        result.jvmVersion = "17";
+        result.gitHash = "deadbeef";
+        result.maxConcurrency = 4;
+        result.availableProcessors = 4;
+        result.systemProperties = Map.of();
+        result.environment = Map.of();
+        result.coords = List.of(
+            new ArtifactCoords( "g", "module-a", "1.0" ),
+            new ArtifactCoords( "g", "module-b", "1.0" ),
+            new ArtifactCoords( "g", "plugin-a", "1.0" ),
+            new ArtifactCoords( "g", "plugin-b", "1.0" ) );
+
+        // overlapping records and records with gaps in between, so totals differ from the sum of durations
+        final Random rnd = new Random( 0xdeadbeefL );
+        final String[] phases = { "compile", "test", "package" };
+        result.records = new ArrayList<>();
+        for ( int i = 0; i < 40; i++ )
+        {
+            final BuildResult.Record record = new BuildResult.Record();
+            record.artifactIdx = rnd.nextInt( 2 );
+            record.pluginIdx = 2 + rnd.nextInt( 2 );
+            record.phase = phases[rnd.nextInt( phases.length )];
+            record.startMillis = result.buildStartTime + rnd.nextInt( 9_000 );
+            record.endMillis = record.startMillis + rnd.nextInt( 1_000 );
+            result.records.add( record );
+        }
+        return result;
+    }
+
+    private static long groupId(Record record, DbService.Grouping grouping)
+    {
+        return switch( grouping )
+        {
+            case PHASE -> record.phaseId;
+            case ARTIFACT -> record.artifactId;
+            case PLUGIN -> record.pluginArtifactId;
+            case NONE -> throw new IllegalArgumentException( "Unhandled grouping " + grouping );
+        };
+    }
+
+    private static Map<Long, Duration> durations(List<Record> records, DbService.Grouping grouping)
+    {
+        return records.stream().collect( Collectors.toMap( x -> groupId( x, grouping ), Record::duration ) );
+    }
+
+    private <T> T inTransaction(Supplier<T> supplier)
+    {
+        return db.getTransactionTemplate().execute( status -> supplier.get() );
+    }
+
+    private Build saveBuild() throws Exception
+    {
+        final BuildResult result = createBuildResult();
+        db.getTransactionTemplate().executeWithoutResult( status -> {
+            try
+            {
+                service.save( List.of( result ) );
+            }
+            catch( Exception e )
+            {
+                throw new RuntimeException( e );
+            }
+        } );
+        return loadBuild();
+    }
+
+    private Build loadBuild()
+    {
+        final long id = db.getJdbcTemplate().queryForObject( "SELECT build_id FROM profiler.builds", Long.class );
+        return service.getBuilds( Set.of( id ) ).get( 0 );
+    }
+
+    // turns the build into one stored before totals and profiles were calculated while ingesting
+    private void removeRollups()
+    {
+        for ( String table : List.of( "phase_rollups", "artifact_rollups", "plugin_rollups", "concurrency_profiles" ) ) {
+            db.getJdbcTemplate().update( "DELETE FROM profiler." + table );
+        }
+        db.getJdbcTemplate().update( "UPDATE profiler.builds SET has_rollups = false" );
+    }
+
+    private Map<DbService.Grouping, Map<Long, Duration>> expectedDurations(Build build)
+    {
+        final Map<DbService.Grouping, Map<Long, Duration>> result = new EnumMap<>( DbService.Grouping.class );
+        for ( DbService.Grouping grouping : GROUPINGS )
+        {
+            final List<Record> records = new ArrayList<>( dao.getRecords( build ) );
+            DbServiceImpl.performGrouping( records, grouping );
+            result.put( grouping, durations( records, grouping ) );
+        }
+        return result;
+    }
+
+    private void assertDurations(Build build, Map<DbService.Grouping, Map<Long, Duration>> expected)
+    {
+        for ( DbService.Grouping grouping : GROUPINGS )
+        {
+            final List<Record> actual = service.getRecords( List.of( build ), grouping ).get( build.id );
+            assertThat( durations( actual, grouping ) ).as( "grouping " + grouping ).isEqualTo( expected.get( grouping ) );
+        }
+    }
+
+    @Test
+    public void testRollupsStoredWhileIngesting() throws Exception
+    {
+        final Build build = saveBuild();
+        assertThat( build.hasRollups ).isTrue();
+
+        final Map<DbService.Grouping, Map<Long, Duration>> expected = expectedDurations( build );
+        assertThat( expected.get( DbService.Grouping.PHASE ) ).hasSize( 3 );
+        assertThat( expected.get( DbService.Grouping.ARTIFACT ) ).hasSize( 2 );
+        assertThat( expected.get( DbService.Grouping.PLUGIN ) ).hasSize( 2 );
+        assertDurations( build, expected );
+    }
+
+    @Test
+    public void testCreateMissingRollups() throws Exception
+    {
+        final Build stored = saveBuild();
+        final Map<DbService.Grouping, Map<Long, Duration>> expected = expectedDurations( stored );
+
+        removeRollups();
+        assertThat( loadBuild().hasRollups ).isFalse();
+
+        assertThat( inTransaction( () -> service.createMissingRollups( 10 ) ) ).isEqualTo( 1 );
+        assertThat( inTransaction( () -> service.createMissingRollups( 10 ) ) ).isZero();
+
+        final Build build = loadBuild();
+        assertThat( build.hasRollups ).isTrue();
+        assertDurations( build, expected );
+    }
+
+    @Test
+    public void testDownsampleRecords() throws Exception
+    {
+        final Build stored = saveBuild();
+        final Map<DbService.Grouping, Map<Long, Duration>> expected = expectedDurations( stored );
+
+        final ZonedDateTime startedBefore = stored.startTime.plusDays( 1 );
+        assertThat( inTransaction( () -> service.downsampleRecords( startedBefore, 10 ) ) ).isEqualTo( 1 );
+        assertThat( inTransaction( () -> service.downsampleRecords( startedBefore, 10 ) ) ).isZero();
+
+        final Build build = loadBuild();
+        assertThat( build.recordsDownsampled ).isTrue();
+        assertThat( dao.getRecords( build ) ).isEmpty();
+        assertDurations( build, expected );
+    }
+
+    @Test
+    public void testDownsampleRecordsWithoutRollups() throws Exception
+    {
+        final Build stored = saveBuild();
+        final Map<DbService.Grouping, Map<Long, Duration>> expected = expectedDurations( stored );
+
+        removeRollups();
+
+        assertThat( inTransaction( () -> service.downsampleRecords( stored.startTime.plusDays( 1 ), 10 ) ) ).isEqualTo( 1 );
+
+        final Build build = loadBuild();
+        assertThat( build.recordsDownsampled ).isTrue();
+        assertThat( dao.getRecords( build ) ).isEmpty();
+        assertDurations( build, expected );
+    }
+}
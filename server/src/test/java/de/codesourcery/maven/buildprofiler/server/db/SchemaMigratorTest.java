@@ -0,0 +1,63 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SchemaMigratorTest
+{
+    private static SchemaMigrator.Script script(String name, String from, String to)
+    {
+        return SchemaMigrator.Script.parse( name, "BEGIN;\nSELECT profiler.assertdbschemaversion('" + from + "');\n" +
+            "UPDATE profiler.db_schema_version SET version='" + to + "' WHERE row_id=1;\nCOMMIT;" );
+    }
+
+    @Test
+    public void testParse()
+    {
+        final SchemaMigrator.Script s = script( "001_test.sql", "1.0", "1.1" );
+        assertThat( s.fromVersion() ).isEqualTo( "1.0" );
+        assertThat( s.toVersion() ).isEqualTo( "1.1" );
+        assertThatThrownBy( () -> SchemaMigrator.Script.parse( "002_bad.sql", "SELECT 1;" ) ).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    public void testPendingScripts()
+    {
+        final SchemaMigrator.Script s1 = script( "001_a.sql", "1.0", "1.1" );
+        final SchemaMigrator.Script s2 = script( "002_b.sql", "1.1", "1.2" );
+        final SchemaMigrator.Script s3 = script( "003_c.sql", "1.2", "1.3" );
+        final List<SchemaMigrator.Script> all = List.of( s1, s2, s3 );
+
+        assertThat( SchemaMigrator.getPendingScripts( "1.0", all ) ).containsExactly( s1, s2, s3 );
+        assertThat( SchemaMigrator.getPendingScripts( "1.2", all ) ).containsExactly( s3 );
+        assertThat( SchemaMigrator.getPendingScripts( "1.3", all ) ).isEmpty();
+        assertThatThrownBy( () -> SchemaMigrator.getPendingScripts( "2.0", all ) ).isInstanceOf( IllegalStateException.class );
+    }
+
+    @Test
+    public void testBundledScriptsFormAChain() throws Exception
+    {
+        final List<SchemaMigrator.Script> scripts = SchemaMigrator.loadScripts();
+        assertThat( scripts ).isNotEmpty();
+        assertThat( SchemaMigrator.getPendingScripts( "1.0", scripts ) ).containsExactlyElementsOf( scripts );
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.db;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.ReflectionUtils;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * PostgreSQL server for tests that need a real database.
+ *
+ * The schema gets set up like for a new installation: the initial schema followed
+ * by all update scripts, applied by {@link SchemaMigrator}.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ */
+final class TestDatabase implements AutoCloseable
+{
+    private final EmbeddedPostgres postgres;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    private TestDatabase(EmbeddedPostgres postgres)
+    {
+        this.postgres = postgres;
+        this.jdbcTemplate = new JdbcTemplate( postgres.getPostgresDatabase() );
+        this.transactionTemplate = new TransactionTemplate( new DataSourceTransactionManager( jdbcTemplate.getDataSource() ) );
+    }
+
+    /**
+     * Starts a server and creates the schema.
+     *
+     * @return database, must be closed
+     * @throws IOException
+     * @throws SQLException
+     */
+    public static TestDatabase start() throws IOException, SQLException
+    {
+        final TestDatabase result = new TestDatabase( EmbeddedPostgres.builder().start() );
+        try
+        {
+            // tests run in the server module's directory
+            // installations connect as user 'profiler', whose default search path starts with the schema of the same name
+            result.jdbcTemplate.execute( "ALTER DATABASE postgres SET search_path TO profiler, public" );
+            final String initialSchema = Files.readString( Path.of( "..", "database", "initial_schema.sql" ) );
+            try ( Connection con = result.jdbcTemplate.getDataSource().getConnection(); Statement stmt = con.createStatement() )
+            {
+                stmt.execute( initialSchema );
+            }
+            new SchemaMigrator( result.jdbcTemplate, true ).afterPropertiesSet();
+            return result;
+        }
+        catch( IOException | SQLException | RuntimeException e )
+        {
+            result.close();
+            throw e;
+        }
+    }
+
+    public JdbcTemplate getJdbcTemplate()
+    {
+        return jdbcTemplate;
+    }
+
+    /**
+     * Returns a template for running code in a transaction, like {@code @Transactional} methods
+     * would (which only happens when Spring created the instance).
+     *
+     * @return template
+     */
+    public TransactionTemplate getTransactionTemplate()
+    {
+        return transactionTemplate;
+    }
+
+    /**
+     * Creates a DAO using this database.
+     *
+     * @return DAO
+     */
+    public DAO newDAO()
+    {
+        final DAO dao = new DAO();
+        final Field field = ReflectionUtils.findField( DAO.class, "jdbcTemplate" );
+        ReflectionUtils.makeAccessible( field );
+        ReflectionUtils.setField( field, dao, jdbcTemplate );
+        return dao;
+    }
+
+    /**
+     * Creates a service using this database, with tiny caches.
+     *
+     * @return service
+     */
+    public DbServiceImpl newDbService()
+    {
+        final DbServiceImpl service = new DbServiceImpl( 10, 10, 10, 10 );
+        service.setDao( newDAO() );
+        return service;
+    }
+
+    /**
+     * Deletes all hosts, artifacts, phases and builds.
+     */
+    public void clear()
+    {
+        jdbcTemplate.execute( "TRUNCATE profiler.hosts, profiler.artifacts, profiler.phases, profiler.builds CASCADE" );
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        postgres.close();
+    }
+}
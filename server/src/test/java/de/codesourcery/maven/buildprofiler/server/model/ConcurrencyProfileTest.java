@@ -0,0 +1,82 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import de.codesourcery.maven.buildprofiler.server.IntervalSet;
+import de.codesourcery.maven.buildprofiler.server.LongInterval;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConcurrencyProfileTest
+{
+    private static final ZonedDateTime START = ZonedDateTime.of( 2023, 5, 1, 12, 0, 0, 0, ZoneOffset.UTC );
+
+    private static ConcurrencyProfile profile(long... offsets)
+    {
+        final Build build = new Build();
+        build.id = 42;
+        build.startTime = START;
+        build.availableProcessors = 4;
+        final long start = START.toInstant().toEpochMilli();
+        final IntervalSet.Builder mojos = new IntervalSet.Builder();
+        for ( int i = 0; i < offsets.length; i += 2 ) {
+            mojos.add( start + offsets[i], start + offsets[i + 1] );
+        }
+        return ConcurrencyProfile.calculate( build, mojos );
+    }
+
+    @Test
+    public void testCalculate()
+    {
+        // one mojo from 100 to 1100, two more from 200 to 600, nothing until 2000, one from 2000 to 3000
+        final ConcurrencyProfile p = profile( 100, 1100, 200, 600, 200, 600, 2000, 3000 );
+
+        assertThat( p.buildId ).isEqualTo( 42 );
+        assertThat( p.offsetsMillis ).containsExactly( 100, 200, 600, 1100, 2000, 3000 );
+        assertThat( p.activeMojos ).containsExactly( 1, 3, 1, 0, 1, 0 );
+        assertThat( p.mojoMillis ).isEqualTo( 1000 + 2 * 400 + 1000 );
+        assertThat( p.spanMillis ).isEqualTo( 2900 );
+        assertThat( p.serialMillis ).isEqualTo( 100 + 500 + 1000 );
+        // 3 idle cores while running a single mojo, 1 while running 3, all 4 while running none
+        assertThat( p.idleCoreMillis ).isEqualTo( 3 * 1600 + 400 + 4 * 900 );
+        assertThat( p.averageParallelism() ).isEqualTo( 2800 / 2900.0 );
+        assertThat( p.serialWindows( Duration.ofMillis( 500 ) ) ).containsExactly( LongInterval.of( 600, 1100 ), LongInterval.of( 2000, 3000 ) );
+    }
+
+    @Test
+    public void testAverageActiveMojos()
+    {
+        final ConcurrencyProfile p = profile( 0, 1000, 0, 500 );
+        assertThat( p.averageActiveMojos( 2 ) ).containsExactly( 2, 1 );
+        assertThat( p.averageActiveMojos( 4 ) ).containsExactly( 2, 2, 1, 1 );
+        assertThat( p.averageActiveMojos( 1 ) ).containsExactly( 1.5 );
+    }
+
+    @Test
+    public void testNoMojos()
+    {
+        final ConcurrencyProfile p = profile();
+        assertThat( p.isEmpty() ).isTrue();
+        assertThat( p.averageParallelism() ).isZero();
+        assertThat( p.averageActiveMojos( 10 ) ).isEmpty();
+        assertThat( p.serialWindows( Duration.ZERO ) ).isEmpty();
+    }
+}
@@ -1,198 +0,0 @@
-/*
- * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
- *
- * Licensed under the Apache License, Version 2.0 (the "License");
- * you may not use this file except in compliance with the License.
- * You may obtain a copy of the License at
- *
- *     http://www.apache.org/licenses/LICENSE-2.0
- *
- * Unless required by applicable law or agreed to in writing, software
- * distributed under the License is distributed on an "AS IS" BASIS,
- * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
- * See the License for the specific language governing permissions and
- * limitations under the License.
- */
-package de.codesourcery.maven.buildprofiler.server.model;
-
-import de.codesourcery.maven.buildprofiler.server.LongInterval;
-import org.junit.jupiter.api.Test;
-
-import java.time.Duration;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
-import java.util.stream.Collectors;
-
-import static org.junit.jupiter.api.Assertions.*;
-
-class RecordTest
-{
-
-    @Test
-    void testWallClockTimeForIntervals() {
-
-        final Map<Long, List<LongInterval>> data = createTestData();
-
-        final List<LongInterval> allIntervals = data.values().stream().flatMap( x -> x.stream() ).collect( Collectors.toList() );
-
-        final Duration totalMillis = Record.wallClockTimeForIntervals( allIntervals ).get();
-        System.out.println( "Total from list: " + totalMillis.toMillis() + " ms" );
-
-        long calculatedTotalMillis = 0;
-        for ( Map.Entry<Long, List<LongInterval>> entry : data.entrySet() )
-        {
-            final Long key = entry.getKey();
-            final List<LongInterval> list = entry.getValue();
-            final long millis = Record.wallClockTimeForIntervals( list ).get().toMillis();
-            System.out.println( key + " => " + millis + " ms" );
-            calculatedTotalMillis += millis;
-        }
-        System.out.println( "Total from sublists: " + calculatedTotalMillis + " ms" );
-    }
-
-    private static Map<Long,List<LongInterval>> createTestData()
-    {
-        final Map<Long,List<LongInterval>> map = new HashMap<>();
-        List<LongInterval> list64 = List.of(
-            LongInterval.of(1682327743583L,1682327743602L), LongInterval.of(1682327743602L,1682327743704L), LongInterval.of(1682327743704L,1682327743706L), LongInterval.of(1682327743706L,1682327745329L), LongInterval.of(1682327745329L,1682327745351L), LongInterval.of(1682327745351L,1682327745356L), LongInterval.of(1682327745356L,1682327746498L), LongInterval.of(1682327746498L,1682327746500L), LongInterval.of(1682327746500L,1682327746541L), LongInterval.of(1682327746541L,1682327746581L), LongInterval.of(1682327746581L,1682327746590L));
-        map.put( 64L, list64 );
-        List<LongInterval> list65 = List.of(
-            LongInterval.of(1682327742793L,1682327742802L), LongInterval.of(1682327742802L,1682327743577L), LongInterval.of(1682327743577L,1682327744272L), LongInterval.of(1682327744272L,1682327744844L), LongInterval.of(1682327744844L,1682327745347L), LongInterval.of(1682327745347L,1682327745891L), LongInterval.of(1682327745892L,1682327745924L), LongInterval.of(1682327745925L,1682327745926L), LongInterval.of(1682327745926L,1682327746360L), LongInterval.of(1682327746360L,1682327746383L), LongInterval.of(1682327746383L,1682327746384L), LongInterval.of(1682327746384L,1682327746598L), LongInterval.of(1682327746599L,1682327746600L), LongInterval.of(1682327746600L,1682327746621L), LongInterval.of(1682327746621L,1682327746627L), LongInterval.of(1682327746627L,1682327746631L));
-        map.put( 65L, list65 );
-        List<LongInterval> list66 = List.of(
-            LongInterval.of(1682327748035L,1682327748060L), LongInterval.of(1682327748060L,1682327748082L), LongInterval.of(1682327748082L,1682327748083L), LongInterval.of(1682327748083L,1682327748557L), LongInterval.of(1682327748557L,1682327748580L), LongInterval.of(1682327748580L,1682327748581L), LongInterval.of(1682327748581L,1682327748825L), LongInterval.of(1682327748825L,1682327748827L), LongInterval.of(1682327748827L,1682327748844L), LongInterval.of(1682327748844L,1682327748849L), LongInterval.of(1682327748849L,1682327748856L));
-        map.put( 66L, list66 );
-        List<LongInterval> list67 = List.of(
-            LongInterval.of(1682327742146L,1682327742157L), LongInterval.of(1682327742157L,1682327742167L), LongInterval.of(1682327742167L,1682327744228L), LongInterval.of(1682327744228L,1682327744260L), LongInterval.of(1682327744260L,1682327744455L), LongInterval.of(1682327744455L,1682327744476L), LongInterval.of(1682327744476L,1682327744477L), LongInterval.of(1682327744477L,1682327744478L), LongInterval.of(1682327744478L,1682327744479L), LongInterval.of(1682327744479L,1682327744507L), LongInterval.of(1682327744507L,1682327744510L), LongInterval.of(1682327744510L,1682327744517L));
-        map.put( 67L, list67 );
-        List<LongInterval> list68 = List.of(
-            LongInterval.of(1682327746658L,1682327746660L), LongInterval.of(1682327746660L,1682327746662L), LongInterval.of(1682327746662L,1682327746667L), LongInterval.of(1682327746667L,1682327746667L), LongInterval.of(1682327746667L,1682327747037L), LongInterval.of(1682327747037L,1682327747084L), LongInterval.of(1682327747084L,1682327747085L), LongInterval.of(1682327747085L,1682327747309L), LongInterval.of(1682327747310L,1682327747311L), LongInterval.of(1682327747311L,1682327747321L), LongInterval.of(1682327747321L,1682327747325L), LongInterval.of(1682327747325L,1682327747328L));
-        map.put( 68L, list68 );
-        List<LongInterval> list15 = List.of(
-            LongInterval.of(1682327736334L,1682327736335L), LongInterval.of(1682327736335L,1682327736336L), LongInterval.of(1682327736336L,1682327736402L), LongInterval.of(1682327736402L,1682327736407L), LongInterval.of(1682327736407L,1682327736412L));
-        map.put( 15L, list15 );
-        List<LongInterval> list16 = List.of(
-            LongInterval.of(1682327740654L,1682327740657L), LongInterval.of(1682327740657L,1682327740662L), LongInterval.of(1682327740662L,1682327740663L), LongInterval.of(1682327740663L,1682327740927L), LongInterval.of(1682327740927L,1682327740952L), LongInterval.of(1682327740952L,1682327740953L), LongInterval.of(1682327740954L,1682327741307L), LongInterval.of(1682327741307L,1682327741309L), LongInterval.of(1682327741309L,1682327741321L), LongInterval.of(1682327741321L,1682327741339L), LongInterval.of(1682327741339L,1682327741347L));
-        map.put( 16L, list16 );
-        List<LongInterval> list17 = List.of(
-            LongInterval.of(1682327740662L,1682327740666L), LongInterval.of(1682327740666L,1682327741503L), LongInterval.of(1682327741503L,1682327741518L), LongInterval.of(1682327741518L,1682327741519L), LongInterval.of(1682327741519L,1682327741763L), LongInterval.of(1682327741763L,1682327741783L), LongInterval.of(1682327741783L,1682327741784L), LongInterval.of(1682327741784L,1682327741785L), LongInterval.of(1682327741785L,1682327741787L), LongInterval.of(1682327741787L,1682327741800L), LongInterval.of(1682327741800L,1682327741802L), LongInterval.of(1682327741802L,1682327741809L));
-        map.put( 17L, list17 );
-        List<LongInterval> list18 = List.of(
-            LongInterval.of(1682327742798L,1682327742800L), LongInterval.of(1682327742800L,1682327742804L), LongInterval.of(1682327742804L,1682327742805L), LongInterval.of(1682327742805L,1682327743241L), LongInterval.of(1682327743241L,1682327743264L), LongInterval.of(1682327743264L,1682327743265L), LongInterval.of(1682327743265L,1682327743554L), LongInterval.of(1682327743555L,1682327743556L), LongInterval.of(1682327743556L,1682327743563L), LongInterval.of(1682327743563L,1682327743569L), LongInterval.of(1682327743569L,1682327743576L));
-        map.put( 18L, list18 );
-        List<LongInterval> list19 = List.of(
-            LongInterval.of(1682327736338L,1682327736339L), LongInterval.of(1682327736339L,1682327736341L), LongInterval.of(1682327736341L,1682327736425L), LongInterval.of(1682327736425L,1682327736462L), LongInterval.of(1682327736462L,1682327736466L));
-        map.put( 19L, list19 );
-        List<LongInterval> list20 = List.of(
-            LongInterval.of(1682327748924L,1682327748928L), LongInterval.of(1682327748928L,1682327748944L), LongInterval.of(1682327748944L,1682327748946L), LongInterval.of(1682327748946L,1682327749285L), LongInterval.of(1682327749285L,1682327749306L), LongInterval.of(1682327749306L,1682327749306L), LongInterval.of(1682327749306L,1682327749852L), LongInterval.of(1682327749852L,1682327749853L), LongInterval.of(1682327749853L,1682327749864L), LongInterval.of(1682327749864L,1682327749878L), LongInterval.of(1682327749878L,1682327749885L));
-        map.put( 20L, list20 );
-        List<LongInterval> list21 = List.of(
-            LongInterval.of(1682327746666L,1682327746674L), LongInterval.of(1682327746674L,1682327746726L), LongInterval.of(1682327746726L,1682327746730L), LongInterval.of(1682327746730L,1682327747551L), LongInterval.of(1682327747551L,1682327747575L), LongInterval.of(1682327747575L,1682327747576L), LongInterval.of(1682327747576L,1682327747890L), LongInterval.of(1682327747890L,1682327747892L), LongInterval.of(1682327747892L,1682327747911L), LongInterval.of(1682327747911L,1682327747929L), LongInterval.of(1682327747929L,1682327747936L));
-        map.put( 21L, list21 );
-        List<LongInterval> list22 = List.of(
-            LongInterval.of(1682327749598L,1682327749601L), LongInterval.of(1682327749601L,1682327749607L), LongInterval.of(1682327749607L,1682327749609L), LongInterval.of(1682327749609L,1682327749855L), LongInterval.of(1682327749855L,1682327749881L), LongInterval.of(1682327749881L,1682327749883L), LongInterval.of(1682327749883L,1682327750078L), LongInterval.of(1682327750078L,1682327750079L), LongInterval.of(1682327750079L,1682327750085L), LongInterval.of(1682327750085L,1682327750089L), LongInterval.of(1682327750089L,1682327750095L));
-        map.put( 22L, list22 );
-        List<LongInterval> list23 = List.of(
-            LongInterval.of(1682327770872L,1682327770874L), LongInterval.of(1682327770874L,1682327770877L), LongInterval.of(1682327770877L,1682327770877L), LongInterval.of(1682327770877L,1682327771008L), LongInterval.of(1682327771008L,1682327771032L), LongInterval.of(1682327771032L,1682327771035L), LongInterval.of(1682327771035L,1682327771319L), LongInterval.of(1682327771319L,1682327771321L), LongInterval.of(1682327771321L,1682327771324L), LongInterval.of(1682327771324L,1682327771333L), LongInterval.of(1682327771333L,1682327771340L));
-        map.put( 23L, list23 );
-        List<LongInterval> list24 = List.of(
-            LongInterval.of(1682327748927L,1682327748930L), LongInterval.of(1682327748930L,1682327748936L), LongInterval.of(1682327748936L,1682327748938L), LongInterval.of(1682327748938L,1682327749153L), LongInterval.of(1682327749153L,1682327749173L), LongInterval.of(1682327749173L,1682327749174L), LongInterval.of(1682327749174L,1682327749398L), LongInterval.of(1682327749398L,1682327749400L), LongInterval.of(1682327749400L,1682327749425L), LongInterval.of(1682327749425L,1682327749431L), LongInterval.of(1682327749431L,1682327749435L));
-        map.put( 24L, list24 );
-        List<LongInterval> list25 = List.of(
-            LongInterval.of(1682327736335L,1682327736336L), LongInterval.of(1682327736336L,1682327736337L), LongInterval.of(1682327736337L,1682327736407L), LongInterval.of(1682327736407L,1682327736412L), LongInterval.of(1682327736413L,1682327736461L));
-        map.put( 25L, list25 );
-        List<LongInterval> list26 = List.of(
-            LongInterval.of(1682327740656L,1682327740663L), LongInterval.of(1682327740663L,1682327740697L), LongInterval.of(1682327740697L,1682327740705L), LongInterval.of(1682327740705L,1682327741723L), LongInterval.of(1682327741723L,1682327741744L), LongInterval.of(1682327741744L,1682327741745L), LongInterval.of(1682327741745L,1682327741992L), LongInterval.of(1682327741992L,1682327741994L), LongInterval.of(1682327741994L,1682327742017L), LongInterval.of(1682327742017L,1682327742022L), LongInterval.of(1682327742022L,1682327742029L));
-        map.put( 26L, list26 );
-        List<LongInterval> list28 = List.of(
-            LongInterval.of(1682327736806L,1682327736809L), LongInterval.of(1682327736809L,1682327737655L), LongInterval.of(1682327737655L,1682327737666L), LongInterval.of(1682327737666L,1682327737668L), LongInterval.of(1682327737668L,1682327737903L), LongInterval.of(1682327737903L,1682327737927L), LongInterval.of(1682327737927L,1682327737928L), LongInterval.of(1682327737928L,1682327737929L), LongInterval.of(1682327737929L,1682327737931L), LongInterval.of(1682327737931L,1682327737940L), LongInterval.of(1682327737940L,1682327737943L), LongInterval.of(1682327737943L,1682327737950L));
-        map.put( 28L, list28 );
-        List<LongInterval> list29 = List.of(
-            LongInterval.of(1682327736361L,1682327736399L), LongInterval.of(1682327736399L,1682327736402L), LongInterval.of(1682327736402L,1682327736440L), LongInterval.of(1682327736441L,1682327736462L), LongInterval.of(1682327736462L,1682327736468L));
-        map.put( 29L, list29 );
-        List<LongInterval> list30 = List.of(
-            LongInterval.of(1682327749970L,1682327749975L), LongInterval.of(1682327749975L,1682327750004L), LongInterval.of(1682327750004L,1682327750006L), LongInterval.of(1682327750006L,1682327750411L), LongInterval.of(1682327750411L,1682327750431L), LongInterval.of(1682327750431L,1682327750432L), LongInterval.of(1682327750432L,1682327750843L), LongInterval.of(1682327750843L,1682327750845L), LongInterval.of(1682327750845L,1682327750858L), LongInterval.of(1682327750858L,1682327750867L), LongInterval.of(1682327750867L,1682327750874L));
-        map.put( 30L, list30 );
-        List<LongInterval> list31 = List.of(
-            LongInterval.of(1682327736333L,1682327736334L), LongInterval.of(1682327736334L,1682327736335L), LongInterval.of(1682327736335L,1682327736407L), LongInterval.of(1682327736407L,1682327736411L), LongInterval.of(1682327736411L,1682327736462L));
-        map.put( 31L, list31 );
-        List<LongInterval> list32 = List.of(
-            LongInterval.of(1682327736521L,1682327736521L), LongInterval.of(1682327736522L,1682327736726L), LongInterval.of(1682327736726L,1682327736727L), LongInterval.of(1682327736727L,1682327736750L), LongInterval.of(1682327736750L,1682327736755L), LongInterval.of(1682327736755L,1682327736760L));
-        map.put( 32L, list32 );
-        List<LongInterval> list33 = List.of(
-            LongInterval.of(1682327736534L,1682327736721L), LongInterval.of(1682327736721L,1682327736722L), LongInterval.of(1682327736722L,1682327736754L), LongInterval.of(1682327736754L,1682327736757L), LongInterval.of(1682327736758L,1682327736761L));
-        map.put( 33L, list33 );
-        List<LongInterval> list34 = List.of(
-            LongInterval.of(1682327735206L,1682327735256L), LongInterval.of(1682327735256L,1682327735395L), LongInterval.of(1682327735395L,1682327736017L), LongInterval.of(1682327736017L,1682327736172L), LongInterval.of(1682327736172L,1682327736210L));
-        map.put( 34L, list34 );
-        List<LongInterval> list35 = List.of(
-            LongInterval.of(1682327748931L,1682327748934L), LongInterval.of(1682327748934L,1682327748944L), LongInterval.of(1682327748944L,1682327748946L), LongInterval.of(1682327748946L,1682327749259L), LongInterval.of(1682327749259L,1682327749281L), LongInterval.of(1682327749281L,1682327749282L), LongInterval.of(1682327749282L,1682327749492L), LongInterval.of(1682327749492L,1682327749494L), LongInterval.of(1682327749494L,1682327749503L), LongInterval.of(1682327749503L,1682327749507L), LongInterval.of(1682327749507L,1682327749510L));
-        map.put( 35L, list35 );
-        List<LongInterval> list36 = List.of(
-            LongInterval.of(1682327736363L,1682327736400L), LongInterval.of(1682327736400L,1682327736402L), LongInterval.of(1682327736402L,1682327736442L), LongInterval.of(1682327736442L,1682327736463L), LongInterval.of(1682327736463L,1682327736467L));
-        map.put( 36L, list36 );
-        List<LongInterval> list38 = List.of(
-            LongInterval.of(1682327736336L,1682327736337L), LongInterval.of(1682327736338L,1682327736339L), LongInterval.of(1682327736339L,1682327736419L), LongInterval.of(1682327736419L,1682327736460L), LongInterval.of(1682327736460L,1682327736466L));
-        map.put( 38L, list38 );
-        List<LongInterval> list39 = List.of(
-            LongInterval.of(1682327740659L,1682327740664L), LongInterval.of(1682327740664L,1682327740675L), LongInterval.of(1682327740675L,1682327740676L), LongInterval.of(1682327740676L,1682327741192L), LongInterval.of(1682327741192L,1682327741214L), LongInterval.of(1682327741215L,1682327741217L), LongInterval.of(1682327741217L,1682327741463L), LongInterval.of(1682327741463L,1682327741465L), LongInterval.of(1682327741466L,1682327741486L), LongInterval.of(1682327741486L,1682327741492L), LongInterval.of(1682327741492L,1682327741500L));
-        map.put( 39L, list39 );
-        List<LongInterval> list40 = List.of(
-            LongInterval.of(1682327741468L,1682327741471L), LongInterval.of(1682327741471L,1682327741476L), LongInterval.of(1682327741476L,1682327741481L), LongInterval.of(1682327741481L,1682327741669L), LongInterval.of(1682327741669L,1682327741691L), LongInterval.of(1682327741691L,1682327741693L), LongInterval.of(1682327741693L,1682327741829L), LongInterval.of(1682327741829L,1682327741830L), LongInterval.of(1682327741830L,1682327741836L), LongInterval.of(1682327741836L,1682327741840L), LongInterval.of(1682327741840L,1682327741844L));
-        map.put( 40L, list40 );
-        List<LongInterval> list41 = List.of(
-            LongInterval.of(1682327736332L,1682327736333L), LongInterval.of(1682327736333L,1682327736334L), LongInterval.of(1682327736334L,1682327736361L), LongInterval.of(1682327736361L,1682327736403L), LongInterval.of(1682327736403L,1682327736410L));
-        map.put( 41L, list41 );
-        List<LongInterval> list42 = List.of(
-            LongInterval.of(1682327746655L,1682327746658L), LongInterval.of(1682327746658L,1682327746666L), LongInterval.of(1682327746666L,1682327746673L), LongInterval.of(1682327746673L,1682327746976L), LongInterval.of(1682327746976L,1682327746999L), LongInterval.of(1682327746999L,1682327747000L), LongInterval.of(1682327747000L,1682327747213L), LongInterval.of(1682327747213L,1682327747214L), LongInterval.of(1682327747214L,1682327747225L), LongInterval.of(1682327747225L,1682327747231L), LongInterval.of(1682327747232L,1682327747239L));
-        map.put( 42L, list42 );
-        List<LongInterval> list43 = List.of(
-            LongInterval.of(1682327736872L,1682327736875L), LongInterval.of(1682327736876L,1682327736884L), LongInterval.of(1682327736884L,1682327736886L), LongInterval.of(1682327736886L,1682327737334L), LongInterval.of(1682327737334L,1682327737357L), LongInterval.of(1682327737358L,1682327737359L), LongInterval.of(1682327737359L,1682327737605L), LongInterval.of(1682327737606L,1682327737609L), LongInterval.of(1682327737609L,1682327737635L), LongInterval.of(1682327737636L,1682327737642L), LongInterval.of(1682327737642L,1682327737649L));
-        map.put( 43L, list43 );
-        List<LongInterval> list44 = List.of(
-            LongInterval.of(1682327742136L,1682327742138L), LongInterval.of(1682327742138L,1682327742141L), LongInterval.of(1682327742141L,1682327742142L), LongInterval.of(1682327742142L,1682327742344L), LongInterval.of(1682327742344L,1682327742366L), LongInterval.of(1682327742366L,1682327742367L), LongInterval.of(1682327742367L,1682327742368L), LongInterval.of(1682327742368L,1682327742370L), LongInterval.of(1682327742370L,1682327742378L), LongInterval.of(1682327742378L,1682327742382L), LongInterval.of(1682327742382L,1682327742386L));
-        map.put( 44L, list44 );
-        List<LongInterval> list46 = List.of(
-            LongInterval.of(1682327738217L,1682327738219L), LongInterval.of(1682327738219L,1682327738220L), LongInterval.of(1682327738220L,1682327738246L), LongInterval.of(1682327738246L,1682327738249L), LongInterval.of(1682327738249L,1682327739263L), LongInterval.of(1682327739263L,1682327739288L));
-        map.put( 46L, list46 );
-        List<LongInterval> list47 = List.of(
-            LongInterval.of(1682327742127L,1682327742132L), LongInterval.of(1682327742132L,1682327742145L), LongInterval.of(1682327742145L,1682327742146L), LongInterval.of(1682327742146L,1682327742477L), LongInterval.of(1682327742477L,1682327742517L), LongInterval.of(1682327742517L,1682327742518L), LongInterval.of(1682327742518L,1682327742630L), LongInterval.of(1682327742630L,1682327742631L), LongInterval.of(1682327742631L,1682327742668L), LongInterval.of(1682327742668L,1682327742674L), LongInterval.of(1682327742674L,1682327742682L));
-        map.put( 47L, list47 );
-        List<LongInterval> list49 = List.of(
-            LongInterval.of(1682327738277L,1682327738363L), LongInterval.of(1682327738363L,1682327738421L), LongInterval.of(1682327738422L,1682327738424L), LongInterval.of(1682327738424L,1682327739832L), LongInterval.of(1682327739832L,1682327739858L), LongInterval.of(1682327739859L,1682327739862L), LongInterval.of(1682327739863L,1682327740516L), LongInterval.of(1682327740516L,1682327740518L), LongInterval.of(1682327740518L,1682327740552L), LongInterval.of(1682327740552L,1682327740567L), LongInterval.of(1682327740567L,1682327740574L));
-        map.put( 49L, list49 );
-        List<LongInterval> list50 = List.of(
-            LongInterval.of(1682327742134L,1682327742139L), LongInterval.of(1682327742139L,1682327742160L), LongInterval.of(1682327742160L,1682327742162L), LongInterval.of(1682327742162L,1682327742861L), LongInterval.of(1682327742862L,1682327742886L), LongInterval.of(1682327742886L,1682327742890L), LongInterval.of(1682327742890L,1682327743397L), LongInterval.of(1682327743397L,1682327743400L), LongInterval.of(1682327743400L,1682327743425L), LongInterval.of(1682327743425L,1682327743438L), LongInterval.of(1682327743438L,1682327743448L));
-        map.put( 50L, list50 );
-        List<LongInterval> list51 = List.of(
-            LongInterval.of(1682327742140L,1682327742144L), LongInterval.of(1682327742144L,1682327742149L), LongInterval.of(1682327742149L,1682327742150L), LongInterval.of(1682327742150L,1682327742340L), LongInterval.of(1682327742340L,1682327742360L), LongInterval.of(1682327742361L,1682327742361L), LongInterval.of(1682327742361L,1682327742362L), LongInterval.of(1682327742362L,1682327742364L), LongInterval.of(1682327742364L,1682327742370L), LongInterval.of(1682327742370L,1682327742372L), LongInterval.of(1682327742372L,1682327742376L));
-        map.put( 51L, list51 );
-        List<LongInterval> list53 = List.of(
-            LongInterval.of(1682327736473L,1682327736483L), LongInterval.of(1682327736484L,1682327736517L), LongInterval.of(1682327736517L,1682327736529L), LongInterval.of(1682327736529L,1682327737374L), LongInterval.of(1682327737374L,1682327737396L), LongInterval.of(1682327737396L,1682327737398L), LongInterval.of(1682327737398L,1682327737746L), LongInterval.of(1682327737746L,1682327737749L), LongInterval.of(1682327737749L,1682327737768L), LongInterval.of(1682327737768L,1682327737779L), LongInterval.of(1682327737779L,1682327737786L));
-        map.put( 53L, list53 );
-        List<LongInterval> list54 = List.of(
-            LongInterval.of(1682327736330L,1682327736333L), LongInterval.of(1682327736333L,1682327736354L), LongInterval.of(1682327736354L,1682327736408L), LongInterval.of(1682327736408L,1682327736935L), LongInterval.of(1682327736935L,1682327736958L), LongInterval.of(1682327736958L,1682327736959L), LongInterval.of(1682327736959L,1682327736961L), LongInterval.of(1682327736961L,1682327737037L), LongInterval.of(1682327737037L,1682327737051L), LongInterval.of(1682327737051L,1682327737054L), LongInterval.of(1682327737054L,1682327737064L));
-        map.put( 54L, list54 );
-        List<LongInterval> list56 = List.of(
-            LongInterval.of(1682327750969L,1682327751250L), LongInterval.of(1682327751250L,1682327751339L), LongInterval.of(1682327751339L,1682327751729L), LongInterval.of(1682327751729L,1682327751842L), LongInterval.of(1682327751842L,1682327765941L), LongInterval.of(1682327765941L,1682327765974L), LongInterval.of(1682327765974L,1682327766017L), LongInterval.of(1682327766017L,1682327768114L), LongInterval.of(1682327768114L,1682327768116L), LongInterval.of(1682327768116L,1682327770613L), LongInterval.of(1682327770613L,1682327770748L));
-        map.put( 56L, list56 );
-        List<LongInterval> list57 = List.of(
-            LongInterval.of(1682327742452L,1682327742454L), LongInterval.of(1682327742454L,1682327742898L), LongInterval.of(1682327742898L,1682327742904L), LongInterval.of(1682327742904L,1682327742905L), LongInterval.of(1682327742905L,1682327743194L), LongInterval.of(1682327743195L,1682327743217L), LongInterval.of(1682327743217L,1682327743218L), LongInterval.of(1682327743218L,1682327743219L), LongInterval.of(1682327743219L,1682327743222L), LongInterval.of(1682327743222L,1682327743233L), LongInterval.of(1682327743233L,1682327743236L), LongInterval.of(1682327743236L,1682327743243L));
-        map.put( 57L, list57 );
-        List<LongInterval> list59 = List.of(
-            LongInterval.of(1682327742789L,1682327742791L), LongInterval.of(1682327742791L,1682327742794L), LongInterval.of(1682327742794L,1682327742795L), LongInterval.of(1682327742795L,1682327743029L), LongInterval.of(1682327743030L,1682327743055L), LongInterval.of(1682327743055L,1682327743057L), LongInterval.of(1682327743057L,1682327743059L), LongInterval.of(1682327743059L,1682327743070L), LongInterval.of(1682327743070L,1682327743076L), LongInterval.of(1682327743076L,1682327743080L), LongInterval.of(1682327743080L,1682327743085L));
-        map.put( 59L, list59 );
-        List<LongInterval> list60 = List.of(
-            LongInterval.of(1682327737081L,1682327737085L), LongInterval.of(1682327737085L,1682327737100L), LongInterval.of(1682327737100L,1682327737104L), LongInterval.of(1682327737104L,1682327737852L), LongInterval.of(1682327737852L,1682327737881L), LongInterval.of(1682327737881L,1682327737883L), LongInterval.of(1682327737883L,1682327738130L), LongInterval.of(1682327738130L,1682327738132L), LongInterval.of(1682327738132L,1682327738166L), LongInterval.of(1682327738166L,1682327738178L), LongInterval.of(1682327738178L,1682327738187L));
-        map.put( 60L, list60 );
-        List<LongInterval> list62 = List.of(
-            LongInterval.of(1682327742131L,1682327742133L), LongInterval.of(1682327742133L,1682327742137L), LongInterval.of(1682327742137L,1682327742138L), LongInterval.of(1682327742138L,1682327742322L), LongInterval.of(1682327742322L,1682327742345L), LongInterval.of(1682327742345L,1682327742346L), LongInterval.of(1682327742346L,1682327742348L), LongInterval.of(1682327742348L,1682327742350L), LongInterval.of(1682327742350L,1682327742356L), LongInterval.of(1682327742356L,1682327742359L), LongInterval.of(1682327742359L,1682327742366L));
-        map.put( 62L, list62 );
-        List<LongInterval> list63 = List.of(
-            LongInterval.of(1682327746661L,1682327746664L), LongInterval.of(1682327746664L,1682327746670L), LongInterval.of(1682327746670L,1682327746671L), LongInterval.of(1682327746671L,1682327746943L), LongInterval.of(1682327746943L,1682327746967L), LongInterval.of(1682327746967L,1682327746969L), LongInterval.of(1682327746969L,1682327747251L), LongInterval.of(1682327747251L,1682327747253L), LongInterval.of(1682327747253L,1682327747261L), LongInterval.of(1682327747261L,1682327747293L), LongInterval.of(1682327747293L,1682327747297L));
-        map.put( 63L, list63 );
-        return map;
-    }
-}
\ No newline at end of file
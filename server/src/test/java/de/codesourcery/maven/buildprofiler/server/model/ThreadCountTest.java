@@ -0,0 +1,55 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.server.model;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ThreadCountTest
+{
+    @Test
+    public void testParse()
+    {
+        assertThat( ThreadCount.parse( "4" ) ).isEqualTo( ThreadCount.of( 4 ) );
+        assertThat( ThreadCount.parse( " 1C " ) ).isEqualTo( ThreadCount.perCore( 1 ) );
+        assertThat( ThreadCount.parse( "1.5c" ) ).isEqualTo( ThreadCount.perCore( 1.5f ) );
+
+        assertThatThrownBy( () -> ThreadCount.parse( "x" ) ).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> ThreadCount.parse( "0" ) ).isInstanceOf( IllegalArgumentException.class );
+        assertThatThrownBy( () -> ThreadCount.parse( "1.5" ) ).isInstanceOf( IllegalArgumentException.class );
+    }
+
+    @Test
+    public void testToString()
+    {
+        assertThat( ThreadCount.of( 4 ) ).hasToString( "4" );
+        assertThat( ThreadCount.perCore( 1 ) ).hasToString( "1C" );
+        assertThat( ThreadCount.perCore( 1.5f ) ).hasToString( "1.5C" );
+    }
+
+    @Test
+    public void testResolve()
+    {
+        assertThat( ThreadCount.of( 4 ).resolve( 16 ) ).isEqualTo( 4 );
+        assertThat( ThreadCount.perCore( 1 ).resolve( 16 ) ).isEqualTo( 16 );
+        assertThat( ThreadCount.perCore( 1.5f ).resolve( 3 ) ).isEqualTo( 4 );
+        assertThat( ThreadCount.perCore( 0.1f ).resolve( 4 ) ).isEqualTo( 1 );
+        // number of CPU cores unknown
+        assertThat( ThreadCount.perCore( 2 ).resolve( 0 ) ).isEqualTo( 2 );
+    }
+}
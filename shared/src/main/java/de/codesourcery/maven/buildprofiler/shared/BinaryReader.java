@@ -0,0 +1,134 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.shared;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads the primitives of the binary build result encoding.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ * @see BinaryWriter
+ */
+public final class BinaryReader
+{
+    private final InputStream in;
+
+    /**
+     * Create instance.
+     *
+     * @param in stream to read from, should be buffered
+     */
+    public BinaryReader(InputStream in)
+    {
+        Validate.notNull( in, "in must not be null" );
+        this.in = in;
+    }
+
+    private int readByte() throws IOException
+    {
+        final int value = in.read();
+        if ( value == -1 ) {
+            throw new EOFException( "Premature end of input" );
+        }
+        return value;
+    }
+
+    public int readInt32() throws IOException
+    {
+        return (readByte() << 24) | (readByte() << 16) | (readByte() << 8) | readByte();
+    }
+
+    /**
+     * Reads a non-negative integer.
+     *
+     * @return value
+     * @throws IOException
+     */
+    public long readVarLong() throws IOException
+    {
+        final long value = readUnsigned();
+        if ( value < 0 ) {
+            throw new IOException( "Malformed input, unsigned value out of range" );
+        }
+        return value;
+    }
+
+    /**
+     * Reads a non-negative integer that must fit into an <code>int</code>.
+     *
+     * @return value
+     * @throws IOException
+     */
+    public int readVarInt() throws IOException
+    {
+        final long value = readVarLong();
+        if ( value > Integer.MAX_VALUE ) {
+            throw new IOException( "Malformed input, value " + value + " out of range" );
+        }
+        return (int) value;
+    }
+
+    /**
+     * Reads a signed integer.
+     *
+     * @return value
+     * @throws IOException
+     */
+    public long readSignedVarLong() throws IOException
+    {
+        final long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private long readUnsigned() throws IOException
+    {
+        long result = 0;
+        for ( int shift = 0 ; shift < 64 ; shift += 7 )
+        {
+            final int b = readByte();
+            result |= (long) (b & 0x7f) << shift;
+            if ( (b & 0x80) == 0 ) {
+                return result;
+            }
+        }
+        throw new IOException( "Malformed input, variable-length integer too long" );
+    }
+
+    /**
+     * Reads a string.
+     *
+     * @return string, may be <code>null</code>
+     * @throws IOException
+     */
+    public String readString() throws IOException
+    {
+        final int len = readVarInt();
+        if ( len == 0 ) {
+            return null;
+        }
+        final byte[] bytes = in.readNBytes( len - 1 );
+        if ( bytes.length != len - 1 ) {
+            throw new EOFException( "Premature end of input" );
+        }
+        return new String( bytes, StandardCharsets.UTF_8 );
+    }
+}
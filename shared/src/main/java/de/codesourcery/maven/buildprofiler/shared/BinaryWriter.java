@@ -0,0 +1,117 @@
+/*
+ * Copyright © 2023 Tobias Gierke (tobias.gierke@code-sourcery.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package de.codesourcery.maven.buildprofiler.shared;
+
+import org.apache.commons.lang3.Validate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes the primitives of the binary build result encoding.
+ *
+ * Integers are written as unsigned LEB128 variable-length quantities (7 bits per byte,
+ * least significant group first), signed integers are zig-zag encoded first so that
+ * small negative values stay short. Strings are written as their UTF-8 byte count plus one
+ * followed by the bytes, a count of zero denotes <code>null</code>.
+ *
+ * @author tobias.gierke@code-sourcery.de
+ * @see BinaryReader
+ */
+public final class BinaryWriter
+{
+    private final OutputStream out;
+
+    /**
+     * Create instance.
+     *
+     * @param out stream to write to, should be buffered
+     */
+    public BinaryWriter(OutputStream out)
+    {
+        Validate.notNull( out, "out must not be null" );
+        this.out = out;
+    }
+
+    public BinaryWriter writeInt32(int value) throws IOException
+    {
+        out.write( value >>> 24 );
+        out.write( value >>> 16 );
+        out.write( value >>> 8 );
+        out.write( value );
+        return this;
+    }
+
+    /**
+     * Writes a non-negative integer.
+     *
+     * @param value value, must not be negative
+     * @return this instance
+     * @throws IOException
+     */
+    public BinaryWriter writeVarInt(long value) throws IOException
+    {
+        Validate.isTrue( value >= 0, "value must not be negative" );
+        return writeUnsigned( value );
+    }
+
+    /**
+     * Writes a signed integer.
+     *
+     * @param value value
+     * @return this instance
+     * @throws IOException
+     */
+    public BinaryWriter writeSignedVarInt(long value) throws IOException
+    {
+        return writeUnsigned( (value << 1) ^ (value >> 63) );
+    }
+
+    private BinaryWriter writeUnsigned(long value) throws IOException
+    {
+        while ( (value & ~0x7fL) != 0 )
+        {
+            out.write( (int) ((value & 0x7f) | 0x80) );
+            value >>>= 7;
+        }
+        out.write( (int) value );
+        return this;
+    }
+
+    /**
+     * Writes a string.
+     *
+     * @param value string, may be <code>null</code>
+     * @return this instance
+     * @throws IOException
+     */
+    public BinaryWriter writeString(String value) throws IOException
+    {
+        if ( value == null ) {
+            return writeUnsigned( 0 );
+        }
+        final byte[] bytes = value.getBytes( StandardCharsets.UTF_8 );
+        writeUnsigned( bytes.length + 1L );
+        out.write( bytes );
+        return this;
+    }
+
+    public void flush() throws IOException
+    {
+        out.flush();
+    }
+}
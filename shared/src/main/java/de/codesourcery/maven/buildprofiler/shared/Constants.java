@@ -17,5 +17,28 @@ package de.codesourcery.maven.buildprofiler.shared;
 
 public interface Constants
 {
-    int JSON_SYNTAX_VERSION = 1;
+    /**
+     * Syntax version of the JSON encoding.
+     *
+     * Version 2 stores record start times relative to the build start time, durations instead
+     * of end times and phases as indices into a phase table.
+     *
+     * Version 3 adds a client-generated build ID.
+     */
+    int JSON_SYNTAX_VERSION = 3;
+
+    /**
+     * Syntax version of the binary encoding (see {@link BinaryWriter}).
+     *
+     * Version 3 adds a client-generated build ID.
+     */
+    int BINARY_SYNTAX_VERSION = 3;
+
+    /**
+     * Magic number ("MBPB") every binary encoded build result starts with.
+     */
+    int BINARY_MAGIC = 0x4d425042;
+
+    String CONTENT_TYPE_JSON = "application/json";
+    String CONTENT_TYPE_BINARY = "application/x-maven-build-profiler";
 }
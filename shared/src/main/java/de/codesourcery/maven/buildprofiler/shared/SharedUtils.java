@@ -15,6 +15,9 @@
  */
 package de.codesourcery.maven.buildprofiler.shared;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+
 public class SharedUtils
 {
     public static String jsonString(String input)
@@ -23,22 +26,50 @@ public class SharedUtils
         {
             return "null";
         }
-        final char[] array = input.toCharArray();
-        final StringBuilder result = new StringBuilder(array.length);
-        for ( char c : array )
+        final StringBuilder result = new StringBuilder(input.length() + 2);
+        try
+        {
+            appendJsonString( input, result );
+        }
+        catch( IOException e )
+        {
+            // cannot happen with a StringBuilder
+            throw new UncheckedIOException( e );
+        }
+        return result.toString();
+    }
+
+    /**
+     * Appends a string as a quoted and escaped JSON string.
+     *
+     * @param input string to append, may be <code>null</code>
+     * @param out destination
+     * @throws IOException
+     */
+    public static void appendJsonString(String input, Appendable out) throws IOException
+    {
+        if ( input == null )
+        {
+            out.append( "null" );
+            return;
+        }
+        out.append( '"' );
+        final int len = input.length();
+        for ( int i = 0 ; i < len ; i++ )
         {
+            final char c = input.charAt( i );
             switch( c )
             {
-                case '\\' -> result.append( "\\\\" );
-                case '"' -> result.append( "\\\"" );
-                case '\f' -> result.append( "\\f" );
-                case '\b' -> result.append( "\\b" );
-                case '\t' -> result.append( "\\t" );
-                case '\r' -> result.append( "\\r" );
-                case '\n' -> result.append( "\\n" );
-                default -> result.append( c );
+                case '\\' -> out.append( "\\\\" );
+                case '"' -> out.append( "\\\"" );
+                case '\f' -> out.append( "\\f" );
+                case '\b' -> out.append( "\\b" );
+                case '\t' -> out.append( "\\t" );
+                case '\r' -> out.append( "\\r" );
+                case '\n' -> out.append( "\\n" );
+                default -> out.append( c );
             }
         }
-        return '"' + result.toString() + '"';
+        out.append( '"' );
     }
 }